@@ -0,0 +1,71 @@
+package com.parse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parse.benchmarks.Samples;
+
+/**
+ * The CommentRemovalBenchmark. It measures the removal of the comments from
+ * the statements before they are parsed, and from a whole sample file, whose
+ * scan is dominated by the search of the delimiters. It is in the package of
+ * the TaskExecutor, which keeps the removal package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommentRemovalBenchmark {
+
+	/**
+	 * The line, with a string literal holding // and a trailing comment
+	 */
+	private String line;
+
+	/**
+	 * The statement, spread over several lines with multi-line comments
+	 */
+	private String statement;
+
+	/**
+	 * The code of a whole sample file
+	 */
+	private String code;
+
+	@Setup
+	public void setUp() throws IOException {
+
+		line = "        if (url.startsWith(\"http://\") && index < rows.length) { // Checks the scheme";
+		statement = "        while (index < rows.length /* the rows */ && values[index] != null\n"
+				+ "                /* skips the empty\n                   values */ || \"/*\".equals(name)) {";
+		code = Samples.read("Dfp.java");
+	}
+
+	@Benchmark
+	public String removeSingleLineComment() {
+		return TaskExecutor.removeSingleLineComment(line);
+	}
+
+	@Benchmark
+	public String removeMultilineComment() {
+		return TaskExecutor.removeMultilineComment(statement);
+	}
+
+	@Benchmark
+	public String removeMultilineCommentFromFile() {
+		return TaskExecutor.removeMultilineComment(code);
+	}
+}
@@ -0,0 +1,36 @@
+package com.parse.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The utility class BenchmarkRunner. It runs the benchmarks selected on the
+ * command line, as the JMH main does, always with the gc profiler, so that
+ * the allocation rate is reported next to the throughput.
+ */
+public class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		if (commandLineOptions.shouldHelp()) {
+			commandLineOptions.showHelp();
+			return;
+		}
+		if (commandLineOptions.shouldList()) {
+			new Runner(commandLineOptions).list();
+			return;
+		}
+		new Runner(new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,292 @@
+package com.parse.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The utility class CompilationLog. It reads the log a JVM writes with
+ * -XX:+LogCompilation and summarizes what C2 did with the methods of given
+ * classes: the compilations, the inlining decisions of their call sites and
+ * the loops left after the loop optimizations.
+ *
+ * <p>
+ * A log cut short, e.g. by a killed fork, is read up to where it is cut.
+ */
+public class CompilationLog {
+
+	/**
+	 * The attribute values of the compiled methods, keyed by the compile id
+	 */
+	private static class Compilation {
+
+		/**
+		 * The compiled method, as class::method
+		 */
+		private String method;
+
+		/**
+		 * The compiler, c1 or c2
+		 */
+		private String compiler;
+
+		/**
+		 * The tier
+		 */
+		private String level;
+
+		/**
+		 * If compiled on stack replacement
+		 */
+		private boolean osr;
+
+		/**
+		 * The size of the bytecode
+		 */
+		private String bytes;
+
+		/**
+		 * The time stamp in seconds
+		 */
+		private String stamp;
+
+		/**
+		 * The size of the compiled code, once the task is done
+		 */
+		private long codeBytes;
+
+		/**
+		 * The number of loops before the loop optimizations, -1 if none were run
+		 */
+		private int firstLoops = -1;
+
+		/**
+		 * The number of loops after the last loop optimizations
+		 */
+		private int lastLoops;
+
+		/**
+		 * The inlining decisions, keyed by caller -> callee, null if inlined
+		 */
+		private Map<String, String> decisions = new LinkedHashMap<>();
+
+		/**
+		 * The time stamp the compilation was made not entrant, null if not
+		 */
+		private String notEntrantStamp;
+	}
+
+	private CompilationLog() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Converts a method of the log, i.e. 'class name signature', to
+	 * class::name
+	 *
+	 * @param method The method of the log
+	 * @return The method
+	 */
+	private static String toMethod(String method) {
+
+		String[] parts = method.replace('/', '.').split(" ");
+		return parts.length < 2 ? parts[0] : parts[0] + "::" + parts[1];
+	}
+
+	/**
+	 * Checks if a method belongs to one of the classes
+	 *
+	 * @param method     The method, as class::method
+	 * @param classNames The binary names of the classes, their nested classes
+	 *                   are included
+	 * @return If the method belongs to one of the classes
+	 */
+	private static boolean belongsTo(String method, String... classNames) {
+
+		String className = method.contains("::") ? method.substring(0, method.indexOf("::")) : method;
+		for (String name : classNames) {
+			if (className.equals(name) || className.startsWith(name + "$")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the compilations of a log
+	 *
+	 * @param logPath The path of the log
+	 * @return The compilations, keyed by the compile id
+	 * @throws IOException If the log could not be read
+	 */
+	private static Map<String, Compilation> read(Path logPath) throws IOException {
+
+		Map<String, Compilation> compilations = new LinkedHashMap<>();
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		try (InputStream input = Files.newInputStream(logPath)) {
+			XMLStreamReader reader = factory.createXMLStreamReader(input);
+			Compilation task = null;
+			Map<String, String> klasses = new HashMap<>();
+			Map<String, String> methods = new HashMap<>();
+			Deque<String> parses = new ArrayDeque<>();
+			String callee = null;
+			int treeLoops = -1;
+			try {
+				while (reader.hasNext()) {
+					int event = reader.next();
+					if (event == XMLStreamConstants.END_ELEMENT) {
+						String name = reader.getLocalName();
+						if ("task".equals(name)) {
+							task = null;
+						} else if ("parse".equals(name) && !parses.isEmpty()) {
+							parses.pop();
+						} else if ("loop_tree".equals(name) && task != null) {
+							if (task.firstLoops < 0) {
+								task.firstLoops = treeLoops;
+							}
+							task.lastLoops = treeLoops;
+							treeLoops = -1;
+						}
+						continue;
+					}
+					if (event != XMLStreamConstants.START_ELEMENT) {
+						continue;
+					}
+
+					String name = reader.getLocalName();
+					String compileId = reader.getAttributeValue(null, "compile_id");
+					if ("nmethod".equals(name) && compileId != null) {
+						Compilation compilation = compilations.computeIfAbsent(compileId, id -> new Compilation());
+						compilation.method = toMethod(reader.getAttributeValue(null, "method"));
+						compilation.compiler = reader.getAttributeValue(null, "compiler");
+						compilation.level = reader.getAttributeValue(null, "level");
+						compilation.osr = "osr".equals(reader.getAttributeValue(null, "compile_kind"));
+						compilation.bytes = reader.getAttributeValue(null, "bytes");
+						compilation.stamp = reader.getAttributeValue(null, "stamp");
+					} else if ("make_not_entrant".equals(name) && compileId != null) {
+						compilations.computeIfAbsent(compileId, id -> new Compilation()).notEntrantStamp = reader
+								.getAttributeValue(null, "stamp");
+					} else if ("task".equals(name) && compileId != null) {
+						task = compilations.computeIfAbsent(compileId, id -> new Compilation());
+						klasses.clear();
+						methods.clear();
+						parses.clear();
+						callee = null;
+					} else if (task == null) {
+						continue;
+					} else if ("klass".equals(name)) {
+						klasses.put(reader.getAttributeValue(null, "id"), reader.getAttributeValue(null, "name"));
+					} else if ("method".equals(name)) {
+						methods.put(reader.getAttributeValue(null, "id"),
+								String.valueOf(klasses.get(reader.getAttributeValue(null, "holder"))).replace('/', '.')
+										+ "::" + reader.getAttributeValue(null, "name"));
+					} else if ("parse".equals(name)) {
+						parses.push(String.valueOf(methods.get(reader.getAttributeValue(null, "method"))));
+					} else if ("call".equals(name)) {
+						callee = methods.get(reader.getAttributeValue(null, "method"));
+					} else if (("inline_success".equals(name) || "inline_fail".equals(name)) && callee != null
+							&& !parses.isEmpty()) {
+						String site = parses.peek() + " -> " + callee;
+						String reason = "inline_success".equals(name) ? null
+								: reader.getAttributeValue(null, "reason");
+						if (reason == null || !task.decisions.containsKey(site) || task.decisions.get(site) != null) {
+							task.decisions.put(site, reason);
+						}
+						callee = null;
+					} else if ("loop_tree".equals(name)) {
+						treeLoops = 0;
+					} else if ("loop".equals(name) && treeLoops >= 0) {
+						treeLoops++;
+					} else if ("task_done".equals(name)) {
+						String codeBytes = reader.getAttributeValue(null, "nmsize");
+						task.codeBytes = codeBytes == null ? 0 : Long.parseLong(codeBytes);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException exception) {
+			// The log is cut short, what was read is kept
+		}
+		return compilations;
+	}
+
+	/**
+	 * Formats a compilation as -XX:+PrintCompilation does
+	 *
+	 * @param compilation The compilation
+	 * @param compileId   The compile id
+	 * @param stamp       The time stamp in seconds
+	 * @param suffix      The event, empty for the compilation
+	 * @return The line
+	 */
+	private static String getLine(Compilation compilation, String compileId, String stamp, String suffix) {
+
+		return String.format(Locale.ROOT, "%8.0f %5s %s %s       %s (%s bytes)%s", Double.parseDouble(stamp) * 1000,
+				compileId, compilation.osr ? "%" : " ", compilation.level, compilation.method, compilation.bytes,
+				suffix);
+	}
+
+	/**
+	 * Summarizes what C2 did with the methods of given classes
+	 *
+	 * @param logPath    The path of the log
+	 * @param classNames The binary names of the classes
+	 * @return The summary
+	 * @throws IOException If the log could not be read
+	 */
+	public static CompilationSummary summarize(Path logPath, String... classNames) throws IOException {
+
+		CompilationSummary summary = new CompilationSummary();
+		Map<String, Double> lines = new LinkedHashMap<>();
+		for (Map.Entry<String, Compilation> entry : read(logPath).entrySet()) {
+			Compilation compilation = entry.getValue();
+			if (compilation.method == null || !belongsTo(compilation.method, classNames)) {
+				continue;
+			}
+			lines.put(getLine(compilation, entry.getKey(), compilation.stamp, ""), Double.valueOf(compilation.stamp));
+			if (compilation.notEntrantStamp != null) {
+				lines.put(getLine(compilation, entry.getKey(), compilation.notEntrantStamp, "   made not entrant"),
+						Double.valueOf(compilation.notEntrantStamp));
+			}
+			if (!"c2".equals(compilation.compiler)) {
+				continue;
+			}
+
+			summary.setC2Compilations(summary.getC2Compilations() + 1);
+			summary.setOsrCompilations(summary.getOsrCompilations() + (compilation.osr ? 1 : 0));
+			summary.setC2CodeBytes(summary.getC2CodeBytes() + compilation.codeBytes);
+			summary.setDeoptimizations(summary.getDeoptimizations() + (compilation.notEntrantStamp != null ? 1 : 0));
+			summary.setLoops(summary.getLoops() + compilation.lastLoops);
+			if (compilation.firstLoops >= 0 && compilation.lastLoops > compilation.firstLoops) {
+				// A split loop adds a pre and a post loop
+				summary.setSplitLoops(summary.getSplitLoops() + (compilation.lastLoops - compilation.firstLoops) / 2);
+			}
+			for (Map.Entry<String, String> decision : compilation.decisions.entrySet()) {
+				if (decision.getValue() == null) {
+					summary.getInlinedCalls().add(decision.getKey());
+					summary.getFailedCalls().remove(decision.getKey());
+				} else if (!summary.getInlinedCalls().contains(decision.getKey())) {
+					summary.getFailedCalls().put(decision.getKey(), decision.getValue());
+				}
+			}
+		}
+
+		lines.entrySet().stream().sorted(Map.Entry.comparingByValue())
+				.forEach(line -> summary.getCompilationLines().add(line.getKey()));
+		return summary;
+	}
+}
@@ -0,0 +1,134 @@
+package com.parse.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The model CompilationSummary. It holds what the JIT did with the classes of
+ * a subject in a fork, as read from its compilation log.
+ */
+public class CompilationSummary {
+
+	/**
+	 * The number of C2 compilations of the methods of the subject classes
+	 */
+	private int c2Compilations;
+
+	/**
+	 * The number of on-stack-replacement compilations among them
+	 */
+	private int osrCompilations;
+
+	/**
+	 * The size of the code of these compilations in bytes
+	 */
+	private long c2CodeBytes;
+
+	/**
+	 * The number of these compilations made not entrant, i.e. deoptimized
+	 */
+	private int deoptimizations;
+
+	/**
+	 * The call sites inlined by C2 at least once, as caller -> callee
+	 */
+	private Set<String> inlinedCalls = new TreeSet<>();
+
+	/**
+	 * The reason of the last inlining failure of each call site, as caller ->
+	 * callee
+	 */
+	private Map<String, String> failedCalls = new TreeMap<>();
+
+	/**
+	 * The number of loops left once C2 optimized the loops
+	 */
+	private int loops;
+
+	/**
+	 * The number of loops C2 split into pre, main and post loops, i.e. unrolled
+	 * or freed of their range checks
+	 */
+	private int splitLoops;
+
+	/**
+	 * The compilations and deoptimizations, as printed by -XX:+PrintCompilation
+	 */
+	private List<String> compilationLines = new ArrayList<>();
+
+	public int getC2Compilations() {
+		return c2Compilations;
+	}
+
+	public void setC2Compilations(int c2Compilations) {
+		this.c2Compilations = c2Compilations;
+	}
+
+	public int getOsrCompilations() {
+		return osrCompilations;
+	}
+
+	public void setOsrCompilations(int osrCompilations) {
+		this.osrCompilations = osrCompilations;
+	}
+
+	public long getC2CodeBytes() {
+		return c2CodeBytes;
+	}
+
+	public void setC2CodeBytes(long c2CodeBytes) {
+		this.c2CodeBytes = c2CodeBytes;
+	}
+
+	public int getDeoptimizations() {
+		return deoptimizations;
+	}
+
+	public void setDeoptimizations(int deoptimizations) {
+		this.deoptimizations = deoptimizations;
+	}
+
+	public Set<String> getInlinedCalls() {
+		return inlinedCalls;
+	}
+
+	public void setInlinedCalls(Set<String> inlinedCalls) {
+		this.inlinedCalls = inlinedCalls;
+	}
+
+	public Map<String, String> getFailedCalls() {
+		return failedCalls;
+	}
+
+	public void setFailedCalls(Map<String, String> failedCalls) {
+		this.failedCalls = failedCalls;
+	}
+
+	public int getLoops() {
+		return loops;
+	}
+
+	public void setLoops(int loops) {
+		this.loops = loops;
+	}
+
+	public int getSplitLoops() {
+		return splitLoops;
+	}
+
+	public void setSplitLoops(int splitLoops) {
+		this.splitLoops = splitLoops;
+	}
+
+	public List<String> getCompilationLines() {
+		return compilationLines;
+	}
+
+	public void setCompilationLines(List<String> compilationLines) {
+		this.compilationLines = compilationLines;
+	}
+}
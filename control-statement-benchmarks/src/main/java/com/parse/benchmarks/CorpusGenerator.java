@@ -0,0 +1,301 @@
+package com.parse.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The utility class CorpusGenerator. It writes a tree of synthetic Java files
+ * of a given shape: each method nests if / else-if chains, for, while and
+ * do-while loops down to the given depth, the nesting going on in the first
+ * branch only so that the size of a method grows linearly with the depth.
+ *
+ * <p>
+ * The files compile, and the conditions mix the clauses the parser has to
+ * split: comparisons, method calls, negations and string literals holding
+ * the operators.
+ */
+public class CorpusGenerator {
+
+	/**
+	 * The number of files of each package of the tree
+	 */
+	private static final int FILES_PER_PACKAGE = 16;
+
+	/**
+	 * The indent of one level
+	 */
+	private static final String INDENT = "    ";
+
+	/**
+	 * The clauses of the conditions, {0} being replaced by a small number
+	 */
+	private static final String[] CLAUSES = { "x{0} > 3", "values[{0}] != 7", "flag{0}", "!flag{0}",
+			"(x{0} & 4) == 0", "\"a||b\".equals(name)", "count(\"&&\", x{0}) < 2" };
+
+	private CorpusGenerator() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Creates a condition
+	 *
+	 * @param random  The random choices
+	 * @param clauses The number of clauses
+	 * @param first   The first clause, null if none
+	 * @return The condition
+	 */
+	private static String condition(Random random, int clauses, String first) {
+
+		StringBuilder condition = new StringBuilder();
+		for (int counter = 0; counter < clauses; counter++) {
+			String clause = counter == 0 && first != null ? first
+					: CLAUSES[random.nextInt(CLAUSES.length)].replace("{0}", String.valueOf(random.nextInt(3)));
+			if (counter > 0) {
+				condition.append(random.nextBoolean() ? " && " : " || ");
+			}
+			condition.append(clause);
+		}
+		return condition.toString();
+	}
+
+	/**
+	 * Adds a comment line, according to the comment density
+	 *
+	 * @param random The random choices
+	 * @param shape  The shape
+	 * @param indent The indent
+	 * @param lines  The lines
+	 */
+	private static void comment(Random random, CorpusShape shape, String indent, List<String> lines) {
+
+		double draw = random.nextDouble();
+		if (draw < shape.getCommentDensity() / 4) {
+			lines.add(indent + "/*");
+			lines.add(indent + " * Checks the values, e.g. if (x > 0 && y > 0) {");
+			lines.add(indent + " */");
+		} else if (draw < shape.getCommentDensity()) {
+			lines.add(indent + "// Checks the values");
+		}
+	}
+
+	/**
+	 * Adds a simple statement
+	 *
+	 * @param random The random choices
+	 * @param shape  The shape
+	 * @param indent The indent
+	 * @param lines  The lines
+	 */
+	private static void leaf(Random random, CorpusShape shape, String indent, List<String> lines) {
+
+		comment(random, shape, indent, lines);
+		String statement = indent + "sum += x" + random.nextInt(3) + ";";
+		if (random.nextDouble() < shape.getCommentDensity()) {
+			statement += " // Adds the value";
+		}
+		lines.add(statement);
+	}
+
+	/**
+	 * Adds the nested control statements from a level down to the depth
+	 *
+	 * @param random The random choices
+	 * @param shape  The shape
+	 * @param level  The level, 0 for the method body
+	 * @param indent The indent
+	 * @param lines  The lines
+	 */
+	private static void nest(Random random, CorpusShape shape, int level, String indent, List<String> lines) {
+
+		if (level == shape.getDepth()) {
+			leaf(random, shape, indent, lines);
+			return;
+		}
+		comment(random, shape, indent, lines);
+		String inner = indent + INDENT;
+		switch (level % 4) {
+		case 0:
+			lines.add(indent + "if (" + condition(random, shape.getClauses(), null) + ") {");
+			nest(random, shape, level + 1, inner, lines);
+			for (int counter = 1; counter < shape.getChainLength(); counter++) {
+				lines.add(indent + "} else if (" + condition(random, shape.getClauses(), null) + ") {");
+				leaf(random, shape, inner, lines);
+			}
+			lines.add(indent + "} else {");
+			leaf(random, shape, inner, lines);
+			lines.add(indent + "}");
+			break;
+		case 1:
+			lines.add(indent + "for (int i" + level + " = 0; "
+					+ condition(random, shape.getClauses(), "i" + level + " < 3") + "; i" + level + "++) {");
+			nest(random, shape, level + 1, inner, lines);
+			lines.add(indent + "}");
+			break;
+		case 2:
+			lines.add(indent + "int w" + level + " = 0;");
+			lines.add(indent + "while (" + condition(random, shape.getClauses(), "w" + level + " < 3") + ") {");
+			nest(random, shape, level + 1, inner, lines);
+			lines.add(inner + "w" + level + "++;");
+			lines.add(indent + "}");
+			break;
+		default:
+			lines.add(indent + "int d" + level + " = 0;");
+			lines.add(indent + "do {");
+			nest(random, shape, level + 1, inner, lines);
+			lines.add(inner + "d" + level + "++;");
+			lines.add(indent + "} while (" + condition(random, shape.getClauses(), "d" + level + " < 3") + ");");
+			break;
+		}
+	}
+
+	/**
+	 * Creates the lines of a file
+	 *
+	 * @param random      The random choices
+	 * @param shape       The shape
+	 * @param packageName The package name
+	 * @param className   The class name
+	 * @return The lines
+	 */
+	private static List<String> file(Random random, CorpusShape shape, String packageName, String className) {
+
+		List<String> lines = new ArrayList<>();
+		lines.add("package " + packageName + ";");
+		lines.add("");
+		lines.add("public class " + className + " {");
+		lines.add("");
+		lines.add(INDENT + "private int[] values = new int[8];");
+		lines.add("");
+		lines.add(INDENT + "private boolean flag0, flag1, flag2;");
+		lines.add("");
+		lines.add(INDENT + "private String name = \"\";");
+		lines.add("");
+		lines.add(INDENT + "private static int count(String text, int limit) {");
+		lines.add(INDENT + INDENT + "return text.length() + limit;");
+		lines.add(INDENT + "}");
+		for (int method = 0; method < shape.getMethods(); method++) {
+			lines.add("");
+			comment(random, shape, INDENT, lines);
+			lines.add(INDENT + "public int method" + method + "(int x0, int x1, int x2) {");
+			lines.add(INDENT + INDENT + "int sum = 0;");
+			nest(random, shape, 0, INDENT + INDENT, lines);
+			lines.add(INDENT + INDENT + "return sum;");
+			lines.add(INDENT + "}");
+		}
+		lines.add("}");
+		return lines;
+	}
+
+	/**
+	 * Writes the corpus, the files being spread over packages of 16 files
+	 *
+	 * @param root  The root directory
+	 * @param shape The shape
+	 * @return The paths of the files written
+	 * @throws IOException If a file could not be written
+	 */
+	public static List<Path> generate(Path root, CorpusShape shape) throws IOException {
+
+		Random random = new Random(shape.getSeed());
+		List<Path> paths = new ArrayList<>();
+		for (int counter = 0; counter < shape.getFiles(); counter++) {
+			String packageName = "corpus.pkg" + counter / FILES_PER_PACKAGE;
+			String className = "Generated" + counter;
+			Path directory = root.resolve(packageName.replace('.', '/'));
+			Files.createDirectories(directory);
+			Path path = directory.resolve(className + ".java");
+			try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+				for (String line : file(random, shape, packageName, className)) {
+					writer.write(line);
+					writer.newLine();
+				}
+			}
+			paths.add(path);
+		}
+		return paths;
+	}
+
+	/**
+	 * Applies a shape option
+	 *
+	 * @param name  The option name, e.g. depth
+	 * @param value The option value
+	 * @param shape The shape
+	 * @throws IllegalArgumentException If the option or its value is invalid
+	 */
+	static void applyOption(String name, String value, CorpusShape shape) {
+
+		try {
+			switch (name) {
+			case "depth":
+				shape.setDepth(Integer.parseInt(value));
+				return;
+			case "chain":
+				shape.setChainLength(Integer.parseInt(value));
+				return;
+			case "clauses":
+				shape.setClauses(Integer.parseInt(value));
+				return;
+			case "methods":
+				shape.setMethods(Integer.parseInt(value));
+				return;
+			case "files":
+				shape.setFiles(Integer.parseInt(value));
+				return;
+			case "comments":
+				shape.setCommentDensity(Double.parseDouble(value));
+				return;
+			case "seed":
+				shape.setSeed(Long.parseLong(value));
+				return;
+			default:
+				throw new IllegalArgumentException("Unknown option --" + name);
+			}
+		} catch (NumberFormatException exception) {
+			throw new IllegalArgumentException("Invalid value '" + value + "' for --" + name);
+		}
+	}
+
+	/**
+	 * Generates a corpus: output_dir [--depth n] [--chain n] [--clauses n]
+	 * [--methods n] [--files n] [--comments p] [--seed n]
+	 *
+	 * @param args The command line arguments
+	 * @throws IOException If a file could not be written
+	 */
+	public static void main(String[] args) throws IOException {
+
+		CorpusShape shape = new CorpusShape();
+		Path root = null;
+		try {
+			for (int counter = 0; counter < args.length; counter++) {
+				if (args[counter].startsWith("--")) {
+					if (counter + 1 >= args.length) {
+						throw new IllegalArgumentException("Missing value for " + args[counter]);
+					}
+					applyOption(args[counter].substring(2), args[counter + 1], shape);
+					counter++;
+				} else if (root == null) {
+					root = Paths.get(args[counter]);
+				} else {
+					throw new IllegalArgumentException("Unexpected argument " + args[counter]);
+				}
+			}
+			if (root == null) {
+				throw new IllegalArgumentException("Missing output directory");
+			}
+		} catch (IllegalArgumentException exception) {
+			System.out.println("Invalid arguments! " + exception.getMessage());
+			System.exit(1);
+		}
+
+		List<Path> paths = generate(root, shape);
+		System.out.println("Generated " + paths.size() + " files (" + shape + ") in " + root);
+	}
+}
@@ -0,0 +1,119 @@
+package com.parse.benchmarks;
+
+/**
+ * The model CorpusShape. It holds the parameters of a generated corpus.
+ */
+public class CorpusShape {
+
+	/**
+	 * The nesting depth of the control statements of each method
+	 */
+	private int depth = 3;
+
+	/**
+	 * The number of conditions of each if / else-if chain
+	 */
+	private int chainLength = 2;
+
+	/**
+	 * The number of boolean clauses of each condition
+	 */
+	private int clauses = 2;
+
+	/**
+	 * The number of methods of each file
+	 */
+	private int methods = 8;
+
+	/**
+	 * The number of files
+	 */
+	private int files = 8;
+
+	/**
+	 * The probability of a comment before or after a statement, between 0 and 1
+	 */
+	private double commentDensity = 0.2;
+
+	/**
+	 * The seed of the random choices, the same shape and seed give the same files
+	 */
+	private long seed = 42;
+
+	public CorpusShape() {
+		super();
+	}
+
+	public CorpusShape(CorpusShape shape) {
+		super();
+		this.depth = shape.depth;
+		this.chainLength = shape.chainLength;
+		this.clauses = shape.clauses;
+		this.methods = shape.methods;
+		this.files = shape.files;
+		this.commentDensity = shape.commentDensity;
+		this.seed = shape.seed;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	public int getChainLength() {
+		return chainLength;
+	}
+
+	public void setChainLength(int chainLength) {
+		this.chainLength = chainLength;
+	}
+
+	public int getClauses() {
+		return clauses;
+	}
+
+	public void setClauses(int clauses) {
+		this.clauses = clauses;
+	}
+
+	public int getMethods() {
+		return methods;
+	}
+
+	public void setMethods(int methods) {
+		this.methods = methods;
+	}
+
+	public int getFiles() {
+		return files;
+	}
+
+	public void setFiles(int files) {
+		this.files = files;
+	}
+
+	public double getCommentDensity() {
+		return commentDensity;
+	}
+
+	public void setCommentDensity(double commentDensity) {
+		this.commentDensity = commentDensity;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	@Override
+	public String toString() {
+		return "depth=" + depth + ", chain=" + chainLength + ", clauses=" + clauses + ", methods=" + methods
+				+ ", files=" + files + ", comments=" + commentDensity + ", seed=" + seed;
+	}
+}
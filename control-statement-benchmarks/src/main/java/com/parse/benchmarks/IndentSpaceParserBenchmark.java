@@ -0,0 +1,56 @@
+package com.parse.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parse.utils.IndentSpaceParser;
+
+/**
+ * The IndentSpaceParserBenchmark. It measures the counting of the indent
+ * spaces of a line, which is done for every line of every file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndentSpaceParserBenchmark {
+
+	/**
+	 * The number of indent spaces of the line
+	 */
+	@Param({ "0", "8", "32" })
+	private int indentSpaces;
+
+	/**
+	 * The line
+	 */
+	private String line;
+
+	@Setup
+	public void setUp() {
+
+		StringBuilder lineBuilder = new StringBuilder();
+		for (int counter = 0; counter < indentSpaces; counter++) {
+			lineBuilder.append(' ');
+		}
+		line = lineBuilder.append("if (index < rows.length && values[index] != null) {").toString();
+	}
+
+	@Benchmark
+	public int getIndentSpacesCount() {
+		return IndentSpaceParser.getIndentSpacesCount(line);
+	}
+}
@@ -0,0 +1,59 @@
+package com.parse.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parse.utils.JavaFormatter;
+
+/**
+ * The JavaFormatterBenchmark. It measures the formatting of a sample file by
+ * the JDT formatter, the first stage of the transformation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JavaFormatterBenchmark {
+
+	/**
+	 * The sample file name
+	 */
+	@Param({ "Dfp.java", "BlockFieldMatrix.java" })
+	private String sample;
+
+	/**
+	 * The code of the sample
+	 */
+	private String code;
+
+	/**
+	 * The formatter, created once as in a worker thread
+	 */
+	private JavaFormatter formatter;
+
+	@Setup
+	public void setUp() throws IOException {
+
+		code = Samples.read(sample);
+		formatter = new JavaFormatter();
+	}
+
+	@Benchmark
+	public String format() {
+		return formatter.format(code);
+	}
+}
@@ -0,0 +1,110 @@
+package com.parse.benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The OverheadBenchmark. It measures a sample method in its original or its
+ * instrumented variant. Each pair of parameters runs in its own fork, thus
+ * the profile and the compiled code of a variant are not mixed with the other
+ * one.
+ *
+ * <p>
+ * The variant is loaded by its own class loader, isolated from the class path
+ * of the benchmark, and called through a Supplier, which the JIT sees as a
+ * single receiver. {@link OverheadReport} runs it with the compilation log
+ * enabled and compares the variants.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OverheadBenchmark {
+
+	/**
+	 * The system property of the directory of the compiled variants
+	 */
+	static final String CLASSES_PROPERTY = "overhead.classes";
+
+	/**
+	 * The system property of the directory of the compilation logs, where each
+	 * fork records its parameters
+	 */
+	static final String LOGS_PROPERTY = "overhead.logs";
+
+	/**
+	 * The subject, i.e. the sample class and the method
+	 */
+	@Param({ "BlockFieldMatrix.multiply", "BlockFieldMatrix.getSubMatrix", "BlockFieldMatrix.walkInOptimizedOrder",
+			"Dfp.add", "Dfp.multiply", "Dfp.divide", "Dfp.sqrt" })
+	private String subject;
+
+	/**
+	 * The variant, original or instrumented
+	 */
+	@Param({ OverheadSubjects.ORIGINAL, OverheadSubjects.INSTRUMENTED })
+	private String variant;
+
+	/**
+	 * The driver calling the subject
+	 */
+	private Supplier<Object> driver;
+
+	/**
+	 * Gets the process id of the fork
+	 *
+	 * @return The process id
+	 */
+	static String getProcessId() {
+
+		String name = ManagementFactory.getRuntimeMXBean().getName();
+		return name.substring(0, Math.max(0, name.indexOf('@')));
+	}
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() throws IOException, ReflectiveOperationException {
+
+		String classesDirectory = System.getProperty(CLASSES_PROPERTY);
+		Path directory = classesDirectory != null ? Paths.get(classesDirectory)
+				: Files.createTempDirectory("overhead");
+		Path classesPath = OverheadSubjects.prepare(directory, OverheadSubjects.getSample(subject), variant);
+
+		// The parent is the bootstrap loader, thus the variant replaces the class of commons-math3
+		URLClassLoader loader = new URLClassLoader(OverheadSubjects.getClassPath(classesPath), null);
+		driver = (Supplier<Object>) loader.loadClass(OverheadSubjects.getDriverClassName(subject)).getDeclaredConstructor()
+				.newInstance();
+
+		String logsDirectory = System.getProperty(LOGS_PROPERTY);
+		if (logsDirectory != null) {
+			Files.write(Paths.get(logsDirectory, "fork-" + getProcessId() + ".txt"),
+					Collections.singletonList(subject + "\t" + variant));
+		}
+	}
+
+	@Benchmark
+	public Object run() {
+		return driver.get();
+	}
+}
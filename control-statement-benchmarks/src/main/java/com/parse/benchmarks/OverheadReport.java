@@ -0,0 +1,227 @@
+package com.parse.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * The utility class OverheadReport. It runs the {@link OverheadBenchmark} on
+ * the original and the instrumented variant of each subject, with the
+ * compilation log of every fork enabled, and reports side by side the time
+ * per call, the slowdown, and what the JIT did differently: the size of the
+ * compiled code, the deoptimizations, the loops split by the loop
+ * optimizations and the call sites no longer inlined.
+ */
+public class OverheadReport {
+
+	/**
+	 * The name of the report file in the output directory
+	 */
+	private static final String REPORT_FILE_NAME = "overhead-report.txt";
+
+	private OverheadReport() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Reads which fork ran which subject and variant
+	 *
+	 * @param logsPath The directory of the compilation logs
+	 * @return The compilation log of each run, keyed by subject and variant
+	 * @throws IOException If the directory could not be read
+	 */
+	private static Map<String, Path> getLogs(Path logsPath) throws IOException {
+
+		Map<String, Path> logs = new HashMap<>();
+		try (DirectoryStream<Path> forks = Files.newDirectoryStream(logsPath, "fork-*.txt")) {
+			for (Path fork : forks) {
+				String fileName = fork.getFileName().toString();
+				String processId = fileName.substring("fork-".length(), fileName.length() - ".txt".length());
+				// The JVM expands %p of the log file to pid<n>
+				Path logPath = logsPath.resolve("compilation-pid" + processId + ".log");
+				if (Files.exists(logPath)) {
+					logs.put(new String(Files.readAllBytes(fork)).trim(), logPath);
+				}
+			}
+		}
+		return logs;
+	}
+
+	/**
+	 * Summarizes the compilation log of a run
+	 *
+	 * @param logs    The compilation logs, keyed by subject and variant
+	 * @param subject The subject
+	 * @param variant The variant
+	 * @return The summary, empty if the log is missing
+	 * @throws IOException If the log could not be read
+	 */
+	private static CompilationSummary summarize(Map<String, Path> logs, String subject, String variant)
+			throws IOException {
+
+		Path logPath = logs.get(subject + "\t" + variant);
+		if (logPath == null) {
+			return new CompilationSummary();
+		}
+		return CompilationLog.summarize(logPath,
+				OverheadSubjects.getSampleClassName(OverheadSubjects.getSample(subject)),
+				OverheadSubjects.getDriverClassName(subject));
+	}
+
+	/**
+	 * Runs the benchmark and writes the report: [--subject name]... [--out dir]
+	 * [--quick]
+	 *
+	 * @param args The command line arguments
+	 * @throws IOException     If a variant could not be prepared or the report
+	 *                         could not be written
+	 * @throws RunnerException If the benchmark failed
+	 */
+	public static void main(String[] args) throws IOException, RunnerException {
+
+		Set<String> subjects = new LinkedHashSet<>();
+		Path outputPath = Paths.get("overhead");
+		boolean quick = false;
+		try {
+			for (int counter = 0; counter < args.length; counter++) {
+				String arg = args[counter];
+				if ("--quick".equals(arg)) {
+					quick = true;
+				} else if (("--subject".equals(arg) || "--out".equals(arg)) && counter + 1 < args.length) {
+					String value = args[++counter];
+					if ("--out".equals(arg)) {
+						outputPath = Paths.get(value);
+					} else if (OverheadSubjects.getSubjects().contains(value)) {
+						subjects.add(value);
+					} else {
+						throw new IllegalArgumentException("Unknown subject " + value + ", expected one of "
+								+ OverheadSubjects.getSubjects());
+					}
+				} else {
+					throw new IllegalArgumentException(
+							arg.startsWith("--") ? "Missing value for " + arg : "Unexpected argument " + arg);
+				}
+			}
+		} catch (IllegalArgumentException exception) {
+			System.out.println("Invalid arguments! " + exception.getMessage());
+			System.exit(1);
+		}
+		if (subjects.isEmpty()) {
+			subjects.addAll(OverheadSubjects.getSubjects());
+		}
+
+		// The variants are compiled once, ahead of the forks
+		Path classesPath = outputPath.resolve("classes").toAbsolutePath();
+		Path logsPath = outputPath.resolve("logs").toAbsolutePath();
+		Files.createDirectories(logsPath);
+		try (DirectoryStream<Path> oldLogs = Files.newDirectoryStream(logsPath)) {
+			for (Path oldLog : oldLogs) {
+				Files.delete(oldLog);
+			}
+		}
+		for (String subject : subjects) {
+			OverheadSubjects.prepare(classesPath, OverheadSubjects.getSample(subject), OverheadSubjects.ORIGINAL);
+			OverheadSubjects.prepare(classesPath, OverheadSubjects.getSample(subject),
+					OverheadSubjects.INSTRUMENTED);
+		}
+
+		ChainedOptionsBuilder builder = new OptionsBuilder().include(OverheadBenchmark.class.getName())
+				.param("subject", subjects.toArray(new String[0]))
+				.param("variant", OverheadSubjects.ORIGINAL, OverheadSubjects.INSTRUMENTED)
+				.jvmArgsAppend("-XX:+UnlockDiagnosticVMOptions", "-XX:+LogCompilation",
+						"-XX:LogFile=" + logsPath.resolve("compilation-%p.log"),
+						"-D" + OverheadBenchmark.CLASSES_PROPERTY + "=" + classesPath,
+						"-D" + OverheadBenchmark.LOGS_PROPERTY + "=" + logsPath);
+		if (quick) {
+			builder.warmupIterations(2).warmupTime(TimeValue.seconds(1)).measurementIterations(3)
+					.measurementTime(TimeValue.seconds(1));
+		}
+		Collection<RunResult> runResults = new Runner(builder.build()).run();
+
+		Map<String, RunResult> results = new HashMap<>();
+		for (RunResult runResult : runResults) {
+			results.put(runResult.getParams().getParam("subject") + "\t" + runResult.getParams().getParam("variant"),
+					runResult);
+		}
+		Map<String, Path> logs = getLogs(logsPath);
+
+		List<String> table = new ArrayList<>();
+		List<String> details = new ArrayList<>();
+		table.add(String.format(Locale.ROOT, "%-38s %14s %14s %9s %17s %9s %11s %14s", "Subject", "Original us/op",
+				"Instr. us/op", "Slowdown", "C2 code bytes", "Deopts", "Split loops", "Inlining lost"));
+		for (String subject : subjects) {
+			RunResult original = results.get(subject + "\t" + OverheadSubjects.ORIGINAL);
+			RunResult instrumented = results.get(subject + "\t" + OverheadSubjects.INSTRUMENTED);
+			if (original == null || instrumented == null) {
+				table.add(String.format(Locale.ROOT, "%-38s %s", subject, "not run"));
+				continue;
+			}
+			double originalScore = original.getPrimaryResult().getScore();
+			double instrumentedScore = instrumented.getPrimaryResult().getScore();
+			CompilationSummary originalSummary = summarize(logs, subject, OverheadSubjects.ORIGINAL);
+			CompilationSummary instrumentedSummary = summarize(logs, subject, OverheadSubjects.INSTRUMENTED);
+
+			List<String> lostCalls = new ArrayList<>();
+			for (String call : originalSummary.getInlinedCalls()) {
+				String reason = instrumentedSummary.getFailedCalls().get(call);
+				if (reason != null) {
+					lostCalls.add(call + ": " + reason);
+				}
+			}
+			table.add(String.format(Locale.ROOT, "%-38s %14.3f %14.3f %8.2fx %8d -> %-6d %3d -> %-3d %4d -> %-4d %14d",
+					subject, originalScore, instrumentedScore, instrumentedScore / originalScore,
+					originalSummary.getC2CodeBytes(), instrumentedSummary.getC2CodeBytes(),
+					originalSummary.getDeoptimizations(), instrumentedSummary.getDeoptimizations(),
+					originalSummary.getSplitLoops(), instrumentedSummary.getSplitLoops(), lostCalls.size()));
+
+			details.add("");
+			details.add("== " + subject);
+			details.add(String.format(Locale.ROOT, "Time per call: %.3f +- %.3f us original, %.3f +- %.3f us instrumented",
+					originalScore, original.getPrimaryResult().getScoreError(), instrumentedScore,
+					instrumented.getPrimaryResult().getScoreError()));
+			if (instrumentedSummary.getSplitLoops() < originalSummary.getSplitLoops()) {
+				details.add("Loop optimizations lost: " + originalSummary.getSplitLoops() + " loops split originally, "
+						+ instrumentedSummary.getSplitLoops() + " once instrumented");
+			}
+			details.add("Call sites no longer inlined: " + (lostCalls.isEmpty() ? "none" : ""));
+			for (String lostCall : lostCalls) {
+				details.add("    " + lostCall);
+			}
+			for (String variant : new String[] { OverheadSubjects.ORIGINAL, OverheadSubjects.INSTRUMENTED }) {
+				CompilationSummary summary = OverheadSubjects.ORIGINAL.equals(variant) ? originalSummary
+						: instrumentedSummary;
+				details.add("Compilations, " + variant + " (" + summary.getC2Compilations() + " by C2, "
+						+ summary.getOsrCompilations() + " OSR, " + summary.getLoops() + " loops left):");
+				for (String line : summary.getCompilationLines()) {
+					details.add("    " + line);
+				}
+			}
+		}
+
+		System.out.println();
+		table.forEach(System.out::println);
+		List<String> report = new ArrayList<>(table);
+		report.addAll(details);
+		Files.write(outputPath.resolve(REPORT_FILE_NAME), report);
+		System.out.println();
+		System.out.println("Report written to " + outputPath.resolve(REPORT_FILE_NAME) + ", compilation logs in "
+				+ logsPath);
+	}
+}
@@ -0,0 +1,265 @@
+package com.parse.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.parse.Instrumenter;
+import com.parse.exceptions.InstrumentationException;
+
+/**
+ * The utility class OverheadSubjects. It holds the sample methods whose
+ * runtime overhead is measured, and compiles the original and the
+ * instrumented variant of their sample together with a driver calling the
+ * method.
+ *
+ * <p>
+ * The samples are compiled against commons-math3, whose classes they replace.
+ * They were written against a development version of it, thus their
+ * ExtendedFieldElement is renamed to the released RealFieldElement first.
+ */
+public class OverheadSubjects {
+
+	/**
+	 * The original variant
+	 */
+	public static final String ORIGINAL = "original";
+
+	/**
+	 * The instrumented variant
+	 */
+	public static final String INSTRUMENTED = "instrumented";
+
+	/**
+	 * The package of the drivers
+	 */
+	private static final String DRIVER_PACKAGE = "overhead";
+
+	/**
+	 * The expression calling each subject, keyed by the subject name, i.e. the
+	 * sample class and the method
+	 */
+	private static final Map<String, String> SUBJECTS = new LinkedHashMap<>();
+
+	/**
+	 * The fields of the drivers of each sample, used by the expressions
+	 */
+	private static final Map<String, String> DRIVER_FIELDS = new LinkedHashMap<>();
+
+	static {
+		SUBJECTS.put("BlockFieldMatrix.multiply", "a.multiply(b)");
+		SUBJECTS.put("BlockFieldMatrix.getSubMatrix", "a.getSubMatrix(3, 57, 5, 59)");
+		SUBJECTS.put("BlockFieldMatrix.walkInOptimizedOrder", "a.walkInOptimizedOrder(new Sum())");
+		SUBJECTS.put("Dfp.add", "a.add(b)");
+		SUBJECTS.put("Dfp.multiply", "a.multiply(b)");
+		SUBJECTS.put("Dfp.divide", "a.divide(b)");
+		SUBJECTS.put("Dfp.sqrt", "a.sqrt()");
+
+		DRIVER_FIELDS.put("BlockFieldMatrix", String.join("\n", "import org.apache.commons.math3.fraction.Fraction;",
+				"import org.apache.commons.math3.linear.BlockFieldMatrix;",
+				"import org.apache.commons.math3.linear.DefaultFieldMatrixPreservingVisitor;", "%s",
+				"    private static class Sum extends DefaultFieldMatrixPreservingVisitor<Fraction> {",
+				"        private Fraction sum = Fraction.ZERO;",
+				"        Sum() { super(Fraction.ZERO); }",
+				"        public void visit(int row, int column, Fraction value) { sum = sum.add(value); }",
+				"        public Fraction end() { return sum; }", "    }",
+				"    private static BlockFieldMatrix<Fraction> matrix(int size, int seed) {",
+				"        Fraction[][] data = new Fraction[size][size];",
+				"        for (int row = 0; row < size; row++) {",
+				"            for (int column = 0; column < size; column++) {",
+				"                data[row][column] = new Fraction((row + column + seed) % 7 + 1, (row * column + seed) % 5 + 1);",
+				"            }", "        }", "        return new BlockFieldMatrix<Fraction>(data);", "    }",
+				"    private final BlockFieldMatrix<Fraction> a = matrix(64, 1);",
+				"    private final BlockFieldMatrix<Fraction> b = matrix(64, 2);"));
+		DRIVER_FIELDS.put("Dfp", String.join("\n", "import org.apache.commons.math3.dfp.Dfp;",
+				"import org.apache.commons.math3.dfp.DfpField;", "%s",
+				"    private final DfpField field = new DfpField(40);",
+				"    private final Dfp a = field.newDfp(\"3.14159265358979323846264338327950288419716939937510\");",
+				"    private final Dfp b = field.newDfp(\"2.71828182845904523536028747135266249775724709369995\");"));
+	}
+
+	private OverheadSubjects() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Gets the subject names
+	 *
+	 * @return The subject names, e.g. Dfp.add
+	 */
+	public static List<String> getSubjects() {
+		return new ArrayList<>(SUBJECTS.keySet());
+	}
+
+	/**
+	 * Gets the sample of a subject
+	 *
+	 * @param subject The subject name
+	 * @return The sample class name, e.g. Dfp
+	 */
+	public static String getSample(String subject) {
+		return subject.substring(0, subject.indexOf('.'));
+	}
+
+	/**
+	 * Gets the method of a subject
+	 *
+	 * @param subject The subject name
+	 * @return The method name, e.g. add
+	 */
+	public static String getMethod(String subject) {
+		return subject.substring(subject.indexOf('.') + 1);
+	}
+
+	/**
+	 * Gets the binary name of the driver of a subject
+	 *
+	 * @param subject The subject name
+	 * @return The class name
+	 */
+	public static String getDriverClassName(String subject) {
+		return DRIVER_PACKAGE + "." + subject.replace('.', '_');
+	}
+
+	/**
+	 * Gets the binary name of a sample class
+	 *
+	 * @param sample The sample class name, e.g. Dfp
+	 * @return The class name
+	 */
+	public static String getSampleClassName(String sample) {
+		return "Dfp".equals(sample) ? "org.apache.commons.math3.dfp.Dfp"
+				: "org.apache.commons.math3.linear." + sample;
+	}
+
+	/**
+	 * Creates the source of the driver of a subject
+	 *
+	 * @param subject The subject name
+	 * @return The source
+	 */
+	private static String getDriverSource(String subject) {
+
+		String simpleName = subject.replace('.', '_');
+		String header = "public class " + simpleName + " implements java.util.function.Supplier<Object> {";
+		return "package " + DRIVER_PACKAGE + ";\n" + DRIVER_FIELDS.get(getSample(subject)).replace("%s", header)
+				+ "\n    public Object get() {\n        return " + SUBJECTS.get(subject) + ";\n    }\n}\n";
+	}
+
+	/**
+	 * Creates a source file object held in memory
+	 *
+	 * @param className The binary name of the class
+	 * @param code      The code
+	 * @return The file object
+	 */
+	private static JavaFileObject source(String className, String code) {
+
+		return new SimpleJavaFileObject(
+				URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+				JavaFileObject.Kind.SOURCE) {
+
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return code;
+			}
+		};
+	}
+
+	/**
+	 * Compiles a variant of a sample and the drivers of its subjects, unless
+	 * already compiled
+	 *
+	 * @param directory The directory of the compiled variants
+	 * @param sample    The sample class name, e.g. Dfp
+	 * @param variant   The variant, original or instrumented
+	 * @return The directory of the classes
+	 * @throws IOException If the sample could not be instrumented or compiled
+	 */
+	public static synchronized Path prepare(Path directory, String sample, String variant) throws IOException {
+
+		Path classesPath = directory.resolve(sample).resolve(variant);
+		Path completePath = classesPath.resolve(".complete");
+		if (Files.exists(completePath)) {
+			return classesPath;
+		}
+
+		String code = Samples.read(sample + ".java").replace("ExtendedFieldElement", "RealFieldElement");
+		if (INSTRUMENTED.equals(variant)) {
+			try {
+				code = Instrumenter.instrument(code).getCode();
+			} catch (InstrumentationException exception) {
+				throw new IOException("Error instrumenting " + sample + ". Reason: " + exception.getMessage(),
+						exception);
+			}
+		}
+		List<JavaFileObject> sources = new ArrayList<>();
+		sources.add(source(getSampleClassName(sample), code));
+		for (String subject : SUBJECTS.keySet()) {
+			if (getSample(subject).equals(sample)) {
+				sources.add(source(getDriverClassName(subject), getDriverSource(subject)));
+			}
+		}
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IOException("No Java compiler, the overhead benchmark requires a JDK");
+		}
+		Files.createDirectories(classesPath);
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null,
+				StandardCharsets.UTF_8)) {
+			List<String> options = Arrays.asList("-nowarn", "-proc:none", "-d", classesPath.toString(), "-cp",
+					System.getProperty("java.class.path"));
+			if (!compiler.getTask(null, fileManager, diagnostics, options, null, sources).call()) {
+				StringBuilder message = new StringBuilder("Error compiling the " + variant + " " + sample + ":");
+				for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+					message.append("\n").append(diagnostic.getMessage(null));
+				}
+				throw new IOException(message.toString());
+			}
+		}
+		Files.write(completePath, Collections.singletonList(variant));
+		return classesPath;
+	}
+
+	/**
+	 * Gets the class path of a compiled variant: its classes, then the class
+	 * path of the JVM for the rest of commons-math3
+	 *
+	 * @param classesPath The directory of the classes
+	 * @return The class path
+	 * @throws MalformedURLException If an entry of the class path is invalid
+	 */
+	public static URL[] getClassPath(Path classesPath) throws MalformedURLException {
+
+		List<URL> urls = new ArrayList<>();
+		urls.add(classesPath.toUri().toURL());
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			if (!entry.isEmpty()) {
+				urls.add(Paths.get(entry).toUri().toURL());
+			}
+		}
+		return urls.toArray(new URL[0]);
+	}
+}
@@ -0,0 +1,81 @@
+package com.parse.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parse.models.PredicateInfo;
+import com.parse.utils.PredicateParser;
+
+/**
+ * The PredicateParserBenchmark. It measures the splitting of a condition into
+ * its sub-predicates, through the entry points of the if and while statements,
+ * for chains of && and || of growing length.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicateParserBenchmark {
+
+	/**
+	 * The number of operands of the condition
+	 */
+	@Param({ "2", "8", "64" })
+	private int chainLength;
+
+	/**
+	 * The if statement
+	 */
+	private String ifStatement;
+
+	/**
+	 * The while statement
+	 */
+	private String whileStatement;
+
+	@Setup
+	public void setUp() {
+
+		StringBuilder condition = new StringBuilder();
+		for (int counter = 0; counter < chainLength; counter++) {
+			if (counter > 0) {
+				condition.append(counter % 2 == 0 ? " || " : " && ");
+			}
+			condition.append("(values[").append(counter).append("] > limit(\"a&&b\", ").append(counter).append("))");
+		}
+		ifStatement = "        if (" + condition + ") {";
+		whileStatement = "        while (" + condition + ") {";
+	}
+
+	@TearDown
+	public void tearDown() {
+		PredicateParser.clearLocalPredicateNumbering();
+	}
+
+	@Benchmark
+	public PredicateInfo processIfStatement() {
+		// Keeps the predicate numbers, thus the statements, of the same length
+		PredicateParser.setLocalPredicateNumbering(1);
+		return PredicateParser.processIfStatement(ifStatement);
+	}
+
+	@Benchmark
+	public PredicateInfo processWhileStatement() {
+		PredicateParser.setLocalPredicateNumbering(1);
+		return PredicateParser.processWhileStatement(whileStatement);
+	}
+}
@@ -0,0 +1,40 @@
+package com.parse.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The utility class Samples. It reads the sample files packaged with the
+ * benchmarks.
+ */
+public class Samples {
+
+	private Samples() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Reads a sample file
+	 *
+	 * @param fileName The file name, e.g. Dfp.java
+	 * @return The code
+	 * @throws IOException If the sample is not packaged or could not be read
+	 */
+	public static String read(String fileName) throws IOException {
+
+		try (InputStream input = Samples.class.getResourceAsStream("/samples/" + fileName)) {
+			if (input == null) {
+				throw new IOException("Missing sample " + fileName);
+			}
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = input.read(buffer)) != -1) {
+				output.write(buffer, 0, count);
+			}
+			return new String(output.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package com.parse.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The utility class ScalingBenchmark. It sweeps the dimensions of a generated
+ * corpus one at a time, runs the tool over each corpus in a fresh JVM and
+ * reports the throughput, the peak resident set size and the garbage
+ * collection time as CSV.
+ *
+ * <p>
+ * For each dimension the time is fitted as a power of the size of the corpus
+ * in bytes, as the lines do not grow with the clauses, after subtracting the fixed cost of a run over a single tiny file. A
+ * dimension whose exponent exceeds the threshold is reported as superlinear,
+ * and the exit status is then 1.
+ */
+public class ScalingBenchmark {
+
+	/**
+	 * The default sweeps, one dimension at a time
+	 */
+	private static final String[] DEFAULT_SWEEPS = { "depth=1,2,4,8,16", "chain=1,4,16,64", "clauses=1,4,16,64",
+			"methods=8,16,32,64", "files=8,16,32,64" };
+
+	/**
+	 * The default exponent above which the time is reported as superlinear
+	 */
+	private static final double DEFAULT_THRESHOLD = 1.3;
+
+	private ScalingBenchmark() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Deletes a directory and its content
+	 *
+	 * @param directory The directory
+	 * @throws IOException If a file could not be deleted
+	 */
+	private static void delete(Path directory) throws IOException {
+
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	/**
+	 * Runs the tool over a generated corpus
+	 *
+	 * @param workPath  The work directory
+	 * @param dimension The swept dimension
+	 * @param value     The value of the dimension
+	 * @param shape     The shape of the corpus
+	 * @param threads   The number of worker threads of the tool
+	 * @param jvmArgs   The arguments of the JVM running the tool
+	 * @return The costs
+	 * @throws IOException          If the corpus could not be written or the
+	 *                              tool failed
+	 * @throws InterruptedException If interrupted while waiting for the tool
+	 */
+	private static ScalingResultInfo measure(Path workPath, String dimension, String value, CorpusShape shape,
+			int threads, List<String> jvmArgs) throws IOException, InterruptedException {
+
+		Path corpusPath = workPath.resolve("corpus");
+		Path outputPath = workPath.resolve("output");
+		Path resultPath = workPath.resolve("result.txt");
+		delete(corpusPath);
+		delete(outputPath);
+		Files.deleteIfExists(resultPath);
+
+		List<Path> files = CorpusGenerator.generate(corpusPath, shape);
+		long lines = 0;
+		long bytes = 0;
+		for (Path file : files) {
+			try (Stream<String> fileLines = Files.lines(file)) {
+				lines += fileLines.count();
+			}
+			bytes += Files.size(file);
+		}
+
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(jvmArgs);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ScalingProbe.class.getName());
+		command.add(resultPath.toString());
+		command.addAll(Arrays.asList("--threads", String.valueOf(threads), outputPath.toString(),
+				corpusPath.toString()));
+		File logFile = workPath.resolve("tool.log").toFile();
+		Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(Redirect.appendTo(logFile)).start();
+		int exitCode = process.waitFor();
+		if (exitCode != 0 || !Files.exists(resultPath)) {
+			throw new IOException("The tool failed with exit code " + exitCode + ", see " + logFile);
+		}
+
+		String[] costs = new String(Files.readAllBytes(resultPath)).trim().split("\t");
+		return new ScalingResultInfo(dimension, value, files.size(), lines, bytes, Long.parseLong(costs[0]),
+				Long.parseLong(costs[1]), Long.parseLong(costs[2]), Long.parseLong(costs[3]));
+	}
+
+	/**
+	 * Fits the time as a power of the size, by least squares on the logarithms
+	 *
+	 * @param results    The results of a dimension
+	 * @param fixedNanos The fixed cost of a run, subtracted from the times
+	 * @return The exponent, NaN if the size does not vary
+	 */
+	static double getExponent(List<ScalingResultInfo> results, long fixedNanos) {
+
+		int count = results.size();
+		double sumX = 0;
+		double sumY = 0;
+		double sumXX = 0;
+		double sumXY = 0;
+		for (ScalingResultInfo result : results) {
+			double x = Math.log(result.getBytes());
+			double y = Math.log(Math.max(result.getNanos() - fixedNanos, 1_000_000L));
+			sumX += x;
+			sumY += y;
+			sumXX += x * x;
+			sumXY += x * y;
+		}
+		double denominator = count * sumXX - sumX * sumX;
+		if (count < 2 || denominator < 1e-9) {
+			return Double.NaN;
+		}
+		return (count * sumXY - sumX * sumY) / denominator;
+	}
+
+	/**
+	 * Runs the sweeps: [--sweep name=v1,v2,...]... [--depth n] [--chain n]
+	 * [--clauses n] [--methods n] [--files n] [--comments p] [--seed n]
+	 * [--threads n] [--jvm-arg arg]... [--threshold x] [--csv file] [--work dir]
+	 *
+	 * @param args The command line arguments
+	 * @throws IOException          If a corpus could not be written or the tool
+	 *                              failed
+	 * @throws InterruptedException If interrupted while waiting for the tool
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		CorpusShape baseShape = new CorpusShape();
+		Map<String, String[]> sweeps = new LinkedHashMap<>();
+		List<String> jvmArgs = new ArrayList<>();
+		int threads = 1;
+		double threshold = DEFAULT_THRESHOLD;
+		Path csvPath = Paths.get("scaling.csv");
+		Path workPath = null;
+		try {
+			for (int counter = 0; counter < args.length; counter++) {
+				String arg = args[counter];
+				if (!arg.startsWith("--") || counter + 1 >= args.length) {
+					throw new IllegalArgumentException(
+							arg.startsWith("--") ? "Missing value for " + arg : "Unexpected argument " + arg);
+				}
+				String value = args[++counter];
+				if ("--sweep".equals(arg)) {
+					String[] parts = value.split("=", 2);
+					if (parts.length != 2) {
+						throw new IllegalArgumentException("Invalid sweep '" + value + "', expected name=v1,v2,...");
+					}
+					sweeps.put(parts[0], parts[1].split(","));
+				} else if ("--threads".equals(arg)) {
+					threads = Integer.parseInt(value);
+				} else if ("--jvm-arg".equals(arg)) {
+					jvmArgs.add(value);
+				} else if ("--threshold".equals(arg)) {
+					threshold = Double.parseDouble(value);
+				} else if ("--csv".equals(arg)) {
+					csvPath = Paths.get(value);
+				} else if ("--work".equals(arg)) {
+					workPath = Paths.get(value);
+				} else {
+					CorpusGenerator.applyOption(arg.substring(2), value, baseShape);
+				}
+			}
+			if (sweeps.isEmpty()) {
+				for (String sweep : DEFAULT_SWEEPS) {
+					String[] parts = sweep.split("=", 2);
+					sweeps.put(parts[0], parts[1].split(","));
+				}
+			}
+			for (Map.Entry<String, String[]> sweep : sweeps.entrySet()) {
+				for (String value : sweep.getValue()) {
+					CorpusGenerator.applyOption(sweep.getKey(), value, new CorpusShape(baseShape));
+				}
+			}
+		} catch (IllegalArgumentException exception) {
+			System.out.println("Invalid arguments! " + exception.getMessage());
+			System.exit(1);
+		}
+
+		boolean temporary = workPath == null;
+		if (temporary) {
+			workPath = Files.createTempDirectory("scaling");
+		} else {
+			Files.createDirectories(workPath);
+		}
+		List<String> superlinear = new ArrayList<>();
+		try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(csvPath))) {
+			System.out.println("Base shape: " + baseShape);
+			System.out.println(ScalingResultInfo.CSV_HEADER);
+			csv.println(ScalingResultInfo.CSV_HEADER);
+
+			// The fixed cost of a run: the JVM, the loading and the warm-up of the formatters
+			CorpusShape tinyShape = new CorpusShape(baseShape);
+			tinyShape.setFiles(1);
+			tinyShape.setMethods(1);
+			tinyShape.setDepth(0);
+			ScalingResultInfo fixed = measure(workPath, "fixed", "-", tinyShape, threads, jvmArgs);
+			System.out.println(fixed.toCsv());
+			csv.println(fixed.toCsv());
+
+			Map<String, Double> exponents = new LinkedHashMap<>();
+			for (Map.Entry<String, String[]> sweep : sweeps.entrySet()) {
+				List<ScalingResultInfo> results = new ArrayList<>();
+				for (String value : sweep.getValue()) {
+					CorpusShape shape = new CorpusShape(baseShape);
+					CorpusGenerator.applyOption(sweep.getKey(), value, shape);
+					ScalingResultInfo result = measure(workPath, sweep.getKey(), value, shape, threads, jvmArgs);
+					System.out.println(result.toCsv());
+					csv.println(result.toCsv());
+					csv.flush();
+					results.add(result);
+				}
+				exponents.put(sweep.getKey(), getExponent(results, fixed.getNanos()));
+			}
+
+			System.out.println();
+			for (Map.Entry<String, Double> exponent : exponents.entrySet()) {
+				boolean flagged = exponent.getValue() > threshold;
+				if (flagged) {
+					superlinear.add(exponent.getKey());
+				}
+				System.out.println(String.format(Locale.ROOT, "%-10s time ~ size^%.2f%s", exponent.getKey(),
+						exponent.getValue(), flagged ? "  SUPERLINEAR" : ""));
+			}
+		} finally {
+			if (temporary) {
+				delete(workPath);
+			}
+		}
+		System.out.println("Results written to " + csvPath);
+		if (!superlinear.isEmpty()) {
+			System.out.println("Superlinear in " + String.join(", ", superlinear) + " (threshold " + threshold + ")");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.parse.benchmarks;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.parse.TaskExecutor;
+
+/**
+ * The utility class ScalingProbe. It runs the tool in the JVM started for a
+ * single measurement, and writes its costs when the JVM exits: the elapsed
+ * time, the peak resident set size and the garbage collection time.
+ */
+public class ScalingProbe {
+
+	private ScalingProbe() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Gets the peak resident set size of the JVM
+	 *
+	 * @return The peak in kB, -1 if unknown, i.e. not on Linux
+	 */
+	private static long getPeakRssKb() {
+
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+				if (line.startsWith("VmHWM:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", ""));
+				}
+			}
+		} catch (IOException | NumberFormatException exception) {
+			// Reported as unknown
+		}
+		return -1;
+	}
+
+	/**
+	 * Runs the tool: result_file tool_arguments...
+	 *
+	 * @param args The command line arguments
+	 */
+	public static void main(String[] args) {
+
+		Path resultPath = Paths.get(args[0]);
+		long start = System.nanoTime();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			long elapsedNanos = System.nanoTime() - start;
+			long gcMillis = 0;
+			long gcCount = 0;
+			for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+				gcMillis += Math.max(0, collector.getCollectionTime());
+				gcCount += Math.max(0, collector.getCollectionCount());
+			}
+			List<String> result = Collections.singletonList(
+					elapsedNanos + "\t" + getPeakRssKb() + "\t" + gcMillis + "\t" + gcCount);
+			try {
+				Files.write(resultPath, result);
+			} catch (IOException exception) {
+				System.out.println("Error writing the result. Reason: " + exception.getLocalizedMessage());
+			}
+		}));
+		TaskExecutor.main(Arrays.copyOfRange(args, 1, args.length));
+	}
+}
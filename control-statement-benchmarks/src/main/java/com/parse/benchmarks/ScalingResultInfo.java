@@ -0,0 +1,161 @@
+package com.parse.benchmarks;
+
+import java.util.Locale;
+
+/**
+ * The model ScalingResultInfo. It holds the costs of running the tool over a
+ * generated corpus.
+ */
+public class ScalingResultInfo {
+
+	/**
+	 * The header of the CSV lines
+	 */
+	public static final String CSV_HEADER = "dimension,value,files,lines,bytes,seconds,files_per_sec,lines_per_sec,"
+			+ "peak_rss_kb,gc_millis,gc_count";
+
+	/**
+	 * The swept dimension of the shape, e.g. depth
+	 */
+	private String dimension;
+
+	/**
+	 * The value of the dimension
+	 */
+	private String value;
+
+	/**
+	 * The number of files
+	 */
+	private int files;
+
+	/**
+	 * The number of lines of the files
+	 */
+	private long lines;
+
+	/**
+	 * The size of the files in bytes
+	 */
+	private long bytes;
+
+	/**
+	 * The elapsed time of the tool in nanoseconds
+	 */
+	private long nanos;
+
+	/**
+	 * The peak resident set size in kB, -1 if unknown
+	 */
+	private long peakRssKb;
+
+	/**
+	 * The garbage collection time in milliseconds
+	 */
+	private long gcMillis;
+
+	/**
+	 * The number of garbage collections
+	 */
+	private long gcCount;
+
+	public ScalingResultInfo(String dimension, String value, int files, long lines, long bytes, long nanos, long peakRssKb,
+			long gcMillis, long gcCount) {
+		super();
+		this.dimension = dimension;
+		this.value = value;
+		this.files = files;
+		this.lines = lines;
+		this.bytes = bytes;
+		this.nanos = nanos;
+		this.peakRssKb = peakRssKb;
+		this.gcMillis = gcMillis;
+		this.gcCount = gcCount;
+	}
+
+	public String getDimension() {
+		return dimension;
+	}
+
+	public void setDimension(String dimension) {
+		this.dimension = dimension;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	public void setValue(String value) {
+		this.value = value;
+	}
+
+	public int getFiles() {
+		return files;
+	}
+
+	public void setFiles(int files) {
+		this.files = files;
+	}
+
+	public long getLines() {
+		return lines;
+	}
+
+	public void setLines(long lines) {
+		this.lines = lines;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	public void setNanos(long nanos) {
+		this.nanos = nanos;
+	}
+
+	public long getPeakRssKb() {
+		return peakRssKb;
+	}
+
+	public void setPeakRssKb(long peakRssKb) {
+		this.peakRssKb = peakRssKb;
+	}
+
+	public long getGcMillis() {
+		return gcMillis;
+	}
+
+	public void setGcMillis(long gcMillis) {
+		this.gcMillis = gcMillis;
+	}
+
+	public long getGcCount() {
+		return gcCount;
+	}
+
+	public void setGcCount(long gcCount) {
+		this.gcCount = gcCount;
+	}
+
+	public double getSeconds() {
+		return nanos / 1e9;
+	}
+
+	/**
+	 * Formats the result as a CSV line, in the order of {@link #CSV_HEADER}
+	 *
+	 * @return The CSV line
+	 */
+	public String toCsv() {
+		return String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%.3f,%.2f,%.1f,%d,%d,%d", dimension, value, files,
+				lines, bytes, getSeconds(), files / getSeconds(), lines / getSeconds(), peakRssKb, gcMillis, gcCount);
+	}
+}
@@ -0,0 +1,54 @@
+package com.parse.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parse.Instrumenter;
+import com.parse.exceptions.InstrumentationException;
+import com.parse.models.InstrumentationResult;
+
+/**
+ * The TransformBenchmark. It measures the whole transformation of a sample
+ * file, from the formatting to the instrumented code and its line numbers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformBenchmark {
+
+	/**
+	 * The sample file name
+	 */
+	@Param({ "Dfp.java", "BlockFieldMatrix.java" })
+	private String sample;
+
+	/**
+	 * The code of the sample
+	 */
+	private String code;
+
+	@Setup
+	public void setUp() throws IOException {
+		code = Samples.read(sample);
+	}
+
+	@Benchmark
+	public InstrumentationResult instrument() throws InstrumentationException {
+		return Instrumenter.instrument(code);
+	}
+}
@@ -0,0 +1,225 @@
+package com.parse.maven;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import com.parse.Instrumenter;
+import com.parse.models.InstrumentationOptions;
+import com.parse.models.InstrumentationResult;
+import com.parse.models.ProcessedFileInfo;
+import com.parse.utils.CorpusManifest;
+import com.parse.utils.PredicateRecorder;
+import com.parse.utils.ShardSelector;
+import com.parse.utils.SharedWorkDirectory;
+import com.parse.utils.SourceWalker;
+
+/**
+ * The InstrumentMojo. It instruments the main sources of the module in the
+ * build's own JVM and writes them to the generated sources directory, which
+ * replaces the source directory as compile source root.
+ *
+ * <p>
+ * The build is incremental: a file whose content did not change since the last
+ * build, according to the state file, is not instrumented again. The new
+ * predicates are numbered after the ones already recorded in the manifest, so
+ * that the names stay unique within the module. A source that could not be
+ * instrumented is compiled as is, and tried again by the next build.
+ */
+@Mojo(name = "instrument", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class InstrumentMojo extends AbstractMojo {
+
+	/**
+	 * The name of the file holding the hash of each instrumented source
+	 */
+	private static final String STATE_FILE_NAME = "instrumentation-state.txt";
+
+	/**
+	 * The hash recorded for a source that could not be instrumented, it never
+	 * matches, thus the source is tried again by the next build
+	 */
+	private static final String FAILED_HASH = "failed";
+
+	/**
+	 * The project
+	 */
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
+	private MavenProject project;
+
+	/**
+	 * The directory of the sources to instrument
+	 */
+	@Parameter(defaultValue = "${project.build.sourceDirectory}", required = true)
+	private File sourceDirectory;
+
+	/**
+	 * The directory of the instrumented sources
+	 */
+	@Parameter(defaultValue = "${project.build.directory}/generated-sources/control-statement", required = true)
+	private File outputDirectory;
+
+	/**
+	 * The directory of the predicate files, the manifest and the state file
+	 */
+	@Parameter(defaultValue = "${project.build.directory}/control-statement", required = true)
+	private File recordDirectory;
+
+	/**
+	 * If the instrumentation is skipped
+	 */
+	@Parameter(property = "control-statement.skip", defaultValue = "false")
+	private boolean skip;
+
+	@Override
+	public void execute() throws MojoExecutionException {
+
+		if (skip || !sourceDirectory.isDirectory()) {
+			getLog().info("Skipping the instrumentation.");
+			return;
+		}
+
+		try {
+			Files.createDirectories(outputDirectory.toPath());
+			Files.createDirectories(recordDirectory.toPath());
+			instrument();
+		} catch (IOException ioException) {
+			throw new MojoExecutionException("Error instrumenting " + sourceDirectory, ioException);
+		}
+
+		project.getCompileSourceRoots().remove(sourceDirectory.getAbsolutePath());
+		project.addCompileSourceRoot(outputDirectory.getAbsolutePath());
+	}
+
+	/**
+	 * Instruments the sources changed since the last build
+	 *
+	 * @throws IOException If the sources or the records could not be accessed
+	 */
+	private void instrument() throws IOException {
+
+		Path sourceRoot = sourceDirectory.toPath();
+		Path outputRoot = outputDirectory.toPath();
+		Path recordRoot = recordDirectory.toPath();
+		Path statePath = recordRoot.resolve(STATE_FILE_NAME);
+		Path manifestPath = recordRoot.resolve(CorpusManifest.MANIFEST_FILE_NAME);
+
+		Map<String, String> previousHashes = readState(statePath);
+		Map<String, ProcessedFileInfo> previousFiles = new HashMap<>();
+		if (Files.exists(manifestPath) && !previousHashes.isEmpty()) {
+			CorpusManifest.read(manifestPath).forEach(file -> previousFiles.put(file.getRelativePath(), file));
+		}
+		InstrumentationOptions options = new InstrumentationOptions();
+		options.setFirstPredicateNumber(CorpusManifest.getNextPredicateNumber(previousFiles.values()));
+
+		List<Path> sourcePaths;
+		try (SourceWalker walker = new SourceWalker(sourceRoot, Collections.emptyList(), Collections.emptyList(),
+				false)) {
+			walker.setWarningLog(getLog()::warn);
+			sourcePaths = walker.stream().sorted().collect(Collectors.toList());
+		}
+
+		Map<String, String> currentHashes = new TreeMap<>();
+		List<ProcessedFileInfo> processedFiles = new ArrayList<>();
+		int instrumentedCount = 0;
+		for (Path sourcePath : sourcePaths) {
+			String relativePath = ShardSelector.getRelativePath(sourceRoot, sourcePath);
+			String code = new String(Files.readAllBytes(sourcePath));
+			String hash = SharedWorkDirectory.hash(code);
+			Path outputPath = outputRoot.resolve(relativePath);
+			currentHashes.put(relativePath, hash);
+
+			if (hash.equals(previousHashes.get(relativePath)) && Files.exists(outputPath)) {
+				ProcessedFileInfo previousFile = previousFiles.get(relativePath);
+				if (previousFile != null) {
+					processedFiles.add(previousFile);
+				}
+				continue;
+			}
+
+			Files.createDirectories(outputPath.getParent());
+			try {
+				InstrumentationResult result = Instrumenter.instrument(code, options);
+				SharedWorkDirectory.writeAtomically(outputPath, result.getCode());
+				PredicateRecorder.record(sourcePath, recordRoot, result.getPredicates(), result.getLineNumbers());
+				ProcessedFileInfo processedFileInfo = new ProcessedFileInfo(relativePath,
+						PredicateRecorder.getRecordFileName(sourcePath), result.getPredicates(),
+						result.getLineNumbers());
+				processedFiles.add(processedFileInfo);
+				options.setFirstPredicateNumber(Math.max(options.getFirstPredicateNumber(),
+						CorpusManifest.getNextPredicateNumber(Collections.singletonList(processedFileInfo))));
+				instrumentedCount++;
+			} catch (Exception exception) {
+				// The build goes on with the original source
+				getLog().warn("Error instrumenting " + relativePath + ", Reason: " + exception.getLocalizedMessage());
+				SharedWorkDirectory.writeAtomically(outputPath, code);
+				currentHashes.put(relativePath, FAILED_HASH);
+			}
+		}
+
+		// Removing the sources deleted since the last build
+		for (String relativePath : previousHashes.keySet()) {
+			if (!currentHashes.containsKey(relativePath)) {
+				Files.deleteIfExists(outputRoot.resolve(relativePath));
+			}
+		}
+
+		CorpusManifest.write(manifestPath, processedFiles);
+		writeState(statePath, currentHashes);
+		getLog().info("Instrumented " + instrumentedCount + " of " + sourcePaths.size() + " files.");
+	}
+
+	/**
+	 * Reads the hash of each source instrumented by the last build
+	 *
+	 * @param statePath The state file path
+	 * @return The hashes, keyed by the relative path
+	 * @throws IOException If the state file could not be read
+	 */
+	private static Map<String, String> readState(Path statePath) throws IOException {
+
+		Map<String, String> hashes = new HashMap<>();
+		if (!Files.exists(statePath)) {
+			return hashes;
+		}
+		for (String line : Files.readAllLines(statePath)) {
+			String[] fields = line.split("\t", 2);
+			if (fields.length == 2) {
+				hashes.put(fields[1], fields[0]);
+			}
+		}
+		return hashes;
+	}
+
+	/**
+	 * Writes the hash of each instrumented source
+	 *
+	 * @param statePath The state file path
+	 * @param hashes    The hashes, keyed by the relative path
+	 * @throws IOException If the state file could not be written
+	 */
+	private static void writeState(Path statePath, Map<String, String> hashes) throws IOException {
+
+		try (BufferedWriter writer = Files.newBufferedWriter(statePath)) {
+			for (Map.Entry<String, String> entry : hashes.entrySet()) {
+				writer.write(entry.getValue() + "\t" + entry.getKey());
+				writer.newLine();
+			}
+		}
+	}
+}
@@ -0,0 +1,500 @@
+package com.parse;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.parse.models.ExecutionOptions;
+import com.parse.models.FailureInfo;
+import com.parse.models.InstrumentationResult;
+import com.parse.models.PredicateInfo;
+import com.parse.models.ProcessedFileInfo;
+import com.parse.utils.CorpusManifest;
+import com.parse.utils.PredicateParser;
+import com.parse.utils.SourceWalker;
+
+/**
+ * The InstrumentationDaemon. It serves the instrumentation requests from a
+ * single long-running JVM, thus the formatters are loaded, initialized and
+ * compiled by the JIT once, and the worker threads keep their formatters
+ * between the requests.
+ *
+ * <p>
+ * The requests are read from the standard input or from the connections to a
+ * TCP port of the loopback interface, one request per line:
+ *
+ * <pre>
+ * SOURCE n                               instrument the n source lines that follow
+ * INSTRUMENT output directory TAB path   instrument a file or a directory in place
+ * STATS                                  report the request and cache statistics
+ * PING                                   check the daemon is alive
+ * SHUTDOWN                               finish the pending requests and stop
+ * </pre>
+ *
+ * A reply is either 'ERROR reason', or 'OK' followed by counts; the lines
+ * following the reply add up to the sum of its counts. 'SOURCE' is answered by
+ * the number of code lines and of predicates, followed by the instrumented
+ * code and the predicates as in the manifest. 'INSTRUMENT' is answered by the
+ * number of processed and failed files, followed by their relative paths and
+ * by the failures as in the failures file.
+ *
+ * <p>
+ * The work of the requests is queued by priority: the sources and the single
+ * files are interactive and overtake the files of the directories still queued.
+ * The files of a directory are queued one after the other, in the order of a
+ * batch run, and each 'INSTRUMENT' request numbers its predicates from P0, thus
+ * it names them as a batch run of the same path does.
+ */
+public class InstrumentationDaemon {
+
+	/**
+	 * The priority of the sources and the single files
+	 */
+	private static final int INTERACTIVE_PRIORITY = 0;
+
+	/**
+	 * The priority of the files of a directory
+	 */
+	private static final int BULK_PRIORITY = 1;
+
+	/**
+	 * The time the idle workers wait before checking if the daemon stopped
+	 */
+	private static final long WORKER_POLL_MILLIS = 200;
+
+	/**
+	 * The execution options
+	 */
+	private final ExecutionOptions options;
+
+	/**
+	 * The work waiting for a worker, by priority
+	 */
+	private final PriorityBlockingQueue<DaemonTask<?>> taskQueue = new PriorityBlockingQueue<>();
+
+	/**
+	 * The sequence of the queued work, to keep the order within a priority
+	 */
+	private final AtomicLong taskSequence = new AtomicLong();
+
+	/**
+	 * The number of requests served
+	 */
+	private final AtomicLong requestCount = new AtomicLong();
+
+	/**
+	 * The worker threads
+	 */
+	private final List<Thread> workers = new ArrayList<>();
+
+	/**
+	 * The server socket, null when serving the standard input
+	 */
+	private ServerSocket serverSocket;
+
+	/**
+	 * The connected clients
+	 */
+	private final Set<Socket> clientSockets = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * If the daemon accepts requests
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * The work queued by a request
+	 */
+	private class DaemonTask<T> extends FutureTask<T> implements Comparable<DaemonTask<?>> {
+
+		private final int priority;
+
+		private final long sequence = taskSequence.getAndIncrement();
+
+		DaemonTask(int priority, Callable<T> callable) {
+			super(callable);
+			this.priority = priority;
+		}
+
+		@Override
+		public int compareTo(DaemonTask<?> other) {
+
+			int comparison = Integer.compare(priority, other.priority);
+			return comparison != 0 ? comparison : Long.compare(sequence, other.sequence);
+		}
+	}
+
+	public InstrumentationDaemon(ExecutionOptions options) {
+		super();
+		this.options = options;
+	}
+
+	/**
+	 * Starts the workers
+	 */
+	private void startWorkers() {
+
+		for (int i = 0; i < options.getThreads(); i++) {
+			Thread worker = new Thread(() -> {
+				while (running || !taskQueue.isEmpty()) {
+					try {
+						DaemonTask<?> task = taskQueue.poll(WORKER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+						if (task != null) {
+							task.run();
+						}
+					} catch (InterruptedException interruptedException) {
+						return;
+					}
+				}
+			}, "instrumentation-worker-" + i);
+			worker.start();
+			workers.add(worker);
+		}
+	}
+
+	/**
+	 * Waits for the workers to finish the queued work
+	 */
+	private void stopWorkers() {
+
+		running = false;
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Queues the work and waits for its result
+	 *
+	 * @param priority The priority
+	 * @param callable The work
+	 * @return The result
+	 * @throws Exception If the work failed
+	 */
+	private <T> T execute(int priority, Callable<T> callable) throws Exception {
+
+		DaemonTask<T> task = new DaemonTask<>(priority, callable);
+		taskQueue.add(task);
+		return getResult(task);
+	}
+
+	/**
+	 * Waits for the result of queued work
+	 *
+	 * @param task The work
+	 * @return The result
+	 * @throws Exception If the work failed
+	 */
+	private static <T> T getResult(DaemonTask<T> task) throws Exception {
+
+		try {
+			return task.get();
+		} catch (ExecutionException executionException) {
+			Throwable cause = executionException.getCause();
+			throw cause instanceof Exception ? (Exception) cause : executionException;
+		}
+	}
+
+	/**
+	 * Instruments the source lines following the request
+	 *
+	 * @param argument The number of lines
+	 * @param reader   The request reader
+	 * @return The reply
+	 * @throws Exception If the source could not be instrumented
+	 */
+	private List<String> instrumentSource(String argument, BufferedReader reader) throws Exception {
+
+		int lineCount = Integer.parseInt(argument.trim());
+		StringBuilder codeBuilder = new StringBuilder();
+		for (int i = 0; i < lineCount; i++) {
+			String line = reader.readLine();
+			if (line == null) {
+				throw new IOException("Expected " + lineCount + " lines, got " + i);
+			}
+			codeBuilder.append(line).append("\n");
+		}
+
+		InstrumentationResult result = execute(INTERACTIVE_PRIORITY,
+				() -> TaskExecutor.instrumentCachedSource(codeBuilder.toString()));
+		String[] codeLines = result.getCode().split("\n");
+		List<String> reply = new ArrayList<>();
+		reply.add("OK " + codeLines.length + " " + result.getPredicates().size());
+		Collections.addAll(reply, codeLines);
+		for (PredicateInfo predicateInfo : result.getPredicates()) {
+			reply.add(CorpusManifest.formatPredicate(predicateInfo, result.getLineNumbers()));
+		}
+		return reply;
+	}
+
+	/**
+	 * Instruments a file or the Java files of a directory in place, writing the
+	 * predicate files and the manifest to the output directory
+	 *
+	 * @param argument The output directory and the input path, tab separated
+	 * @return The reply
+	 * @throws Exception If the files could not be instrumented
+	 */
+	private List<String> instrumentPath(String argument) throws Exception {
+
+		String[] paths = argument.split("\t");
+		if (paths.length != 2) {
+			throw new IllegalArgumentException("Expected an output directory and an input path");
+		}
+		Path outputPath = Paths.get(paths[0]);
+		Path inputPath = Paths.get(paths[1]);
+		if (!Files.exists(inputPath)) {
+			throw new IOException("No such file " + inputPath);
+		}
+		Files.createDirectories(outputPath);
+
+		List<FailureInfo> failures = Collections.synchronizedList(new ArrayList<>());
+		List<ProcessedFileInfo> processedFiles = new ArrayList<>();
+		int[] nextPredicateNumber = { 0 };
+		if (!Files.isDirectory(inputPath)) {
+			ProcessedFileInfo processedFileInfo = execute(INTERACTIVE_PRIORITY,
+					() -> processPath(inputPath, inputPath, outputPath, failures, nextPredicateNumber));
+			if (processedFileInfo != null) {
+				processedFiles.add(processedFileInfo);
+			}
+		} else {
+			try (SourceWalker walker = new SourceWalker(inputPath, options.getIncludeGlobs(),
+					options.getExcludeGlobs(), options.isDefaultExcludes())) {
+				Iterator<Path> pathIterator = walker.stream().iterator();
+				while (pathIterator.hasNext()) {
+					Path path = pathIterator.next();
+					ProcessedFileInfo processedFileInfo = execute(BULK_PRIORITY,
+							() -> processPath(inputPath, path, outputPath, failures, nextPredicateNumber));
+					if (processedFileInfo != null) {
+						processedFiles.add(processedFileInfo);
+					}
+				}
+			}
+		}
+		CorpusManifest.write(outputPath.resolve(CorpusManifest.MANIFEST_FILE_NAME), processedFiles);
+
+		List<String> reply = new ArrayList<>();
+		reply.add("OK " + processedFiles.size() + " " + failures.size());
+		processedFiles.stream().map(ProcessedFileInfo::getRelativePath).sorted().forEach(reply::add);
+		synchronized (failures) {
+			reply.addAll(failures.stream()
+					.map(failureInfo -> failureInfo.getPath() + "\t" + toSingleLine(failureInfo.getReason()))
+					.collect(Collectors.toList()));
+		}
+		return reply;
+	}
+
+	/**
+	 * Processes a file of a request, numbering its predicates after those of the
+	 * files of the request processed before it
+	 *
+	 * @param inputRoot           The input path of the request
+	 * @param inputFilePath       The file
+	 * @param outputPath          The output directory of the request
+	 * @param failures            The list the failure is added to
+	 * @param nextPredicateNumber The next predicate number of the request,
+	 *                            updated once the file is processed
+	 * @return The processed file, null if it could not be processed
+	 */
+	private static ProcessedFileInfo processPath(Path inputRoot, Path inputFilePath, Path outputPath,
+			List<FailureInfo> failures, int[] nextPredicateNumber) {
+
+		PredicateParser.setLocalPredicateNumbering(nextPredicateNumber[0]);
+		try {
+			return TaskExecutor.processPath(inputRoot, inputFilePath, outputPath, failures);
+		} finally {
+			nextPredicateNumber[0] = PredicateParser.getNextLocalPredicateNumber();
+			PredicateParser.clearLocalPredicateNumbering();
+		}
+	}
+
+	/**
+	 * Replaces the line breaks of a text, so that it fits on a reply line
+	 *
+	 * @param text The text
+	 * @return The single line text
+	 */
+	private static String toSingleLine(String text) {
+
+		return String.valueOf(text).replaceAll("[\\r\\n]+", " ");
+	}
+
+	/**
+	 * Stops accepting requests
+	 */
+	private void shutdown() {
+
+		running = false;
+		if (serverSocket != null) {
+			try {
+				serverSocket.close();
+			} catch (IOException ioException) {
+				System.out.println("Error closing the daemon socket.");
+			}
+		}
+	}
+
+	/**
+	 * Handles a single request
+	 *
+	 * @param request The request line
+	 * @param reader  The request reader, for the requests spanning several lines
+	 * @return The reply
+	 */
+	private List<String> handle(String request, BufferedReader reader) {
+
+		requestCount.incrementAndGet();
+		int separator = request.indexOf(' ');
+		String command = separator == -1 ? request.trim() : request.substring(0, separator);
+		String argument = separator == -1 ? "" : request.substring(separator + 1);
+		try {
+			switch (command) {
+			case "SOURCE":
+				return instrumentSource(argument, reader);
+			case "INSTRUMENT":
+				return instrumentPath(argument);
+			case "STATS":
+				return Arrays.asList("OK 1", "requests=" + requestCount.get() + " queued=" + taskQueue.size() + " "
+						+ TaskExecutor.getCacheStatistics());
+			case "PING":
+				return Collections.singletonList("OK 0");
+			case "SHUTDOWN":
+				// The socket is closed once the reply is sent
+				running = false;
+				return Collections.singletonList("OK 0");
+			default:
+				return Collections.singletonList("ERROR Unknown request " + toSingleLine(command));
+			}
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			return Collections.singletonList("ERROR Interrupted");
+		} catch (Exception exception) {
+			return Collections.singletonList("ERROR " + toSingleLine(exception.getLocalizedMessage()));
+		}
+	}
+
+	/**
+	 * Serves the requests of a single client, until it disconnects or the daemon
+	 * stops
+	 *
+	 * @param inputStream  The requests
+	 * @param outputStream The replies
+	 * @throws IOException If the client could not be read or written
+	 */
+	private void serveClient(InputStream inputStream, OutputStream outputStream) throws IOException {
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		String request;
+		while (running && (request = reader.readLine()) != null) {
+			if (request.trim().isEmpty()) {
+				continue;
+			}
+			for (String line : handle(request, reader)) {
+				writer.write(line);
+				writer.newLine();
+			}
+			writer.flush();
+		}
+		if (!running) {
+			shutdown();
+		}
+	}
+
+	/**
+	 * Serves the requests of the standard input. The replies take over the
+	 * standard output, the progress messages go to the standard error instead.
+	 *
+	 * @throws IOException If the standard streams could not be used
+	 */
+	public void serveStandardInput() throws IOException {
+
+		PrintStream replyStream = System.out;
+		System.setOut(System.err);
+		startWorkers();
+		try {
+			serveClient(System.in, replyStream);
+		} finally {
+			stopWorkers();
+		}
+	}
+
+	/**
+	 * Serves the connections to a port of the loopback interface, each client
+	 * on its own thread
+	 *
+	 * @param port The port
+	 * @throws IOException If the port could not be bound
+	 */
+	public void serveLoopback(int port) throws IOException {
+
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		System.out.println("Listening on " + serverSocket.getLocalSocketAddress());
+		startWorkers();
+		try {
+			while (running) {
+				Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException ioException) {
+					// Closed by a shutdown request
+					break;
+				}
+				clientSockets.add(socket);
+				new Thread(() -> {
+					try (Socket client = socket) {
+						serveClient(client.getInputStream(), client.getOutputStream());
+					} catch (IOException ioException) {
+						if (running) {
+							System.out.println("Error serving a client. Reason: " + ioException.getLocalizedMessage());
+						}
+					} finally {
+						clientSockets.remove(socket);
+					}
+				}, "instrumentation-client").start();
+			}
+		} finally {
+			shutdown();
+			stopWorkers();
+			// Disconnecting the idle clients
+			for (Socket socket : clientSockets) {
+				try {
+					socket.close();
+				} catch (IOException ioException) {
+					System.out.println("Error closing a client connection.");
+				}
+			}
+		}
+	}
+}
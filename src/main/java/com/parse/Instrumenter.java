@@ -0,0 +1,96 @@
+package com.parse;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.google.googlejavaformat.java.FormatterException;
+import com.parse.exceptions.InstrumentationException;
+import com.parse.models.InstrumentationOptions;
+import com.parse.models.InstrumentationResult;
+import com.parse.utils.PredicateParser;
+
+/**
+ * The utility class Instrumenter. It holds the entry points of the
+ * transformation for the tools embedding it, such as the build plugins and the
+ * test harnesses, which run it in their own JVM.
+ *
+ * <p>
+ * The sources are instrumented in memory: nothing is read from or written to
+ * the file system, and nothing is printed. The methods are thread-safe, every
+ * call numbers its predicates on its own, starting from the first predicate
+ * number of the options, thus the result of a source does not depend on the
+ * other calls.
+ */
+public class Instrumenter {
+
+	private Instrumenter() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Instruments the code of a single Java file
+	 *
+	 * @param source  The code
+	 * @param options The options
+	 * @return The instrumented code, its predicates and their line numbers
+	 * @throws InstrumentationException If the code could not be instrumented
+	 */
+	public static InstrumentationResult instrument(CharSequence source, InstrumentationOptions options)
+			throws InstrumentationException {
+
+		PredicateParser.setLocalPredicateNumbering(options.getFirstPredicateNumber());
+		try {
+			return TaskExecutor.instrumentSource(source.toString(), options.getTimeBudgetMillis(),
+					options.getAllocationBudgetBytes());
+		} catch (FormatterException | RuntimeException exception) {
+			throw new InstrumentationException(String.valueOf(exception.getLocalizedMessage()), exception);
+		} finally {
+			PredicateParser.clearLocalPredicateNumbering();
+		}
+	}
+
+	/**
+	 * Instruments the code of a single Java file with the default options
+	 *
+	 * @param source The code
+	 * @return The instrumented code, its predicates and their line numbers
+	 * @throws InstrumentationException If the code could not be instrumented
+	 */
+	public static InstrumentationResult instrument(CharSequence source) throws InstrumentationException {
+
+		return instrument(source, new InstrumentationOptions());
+	}
+
+	/**
+	 * Instruments the code of several Java files in parallel. Every source is
+	 * instrumented as by {@link #instrument(CharSequence, InstrumentationOptions)}.
+	 *
+	 * @param sources The codes
+	 * @param options The options
+	 * @return The results, in the order of the sources
+	 * @throws InstrumentationException If a source could not be instrumented, the
+	 *                                  first one in order is reported
+	 */
+	public static List<InstrumentationResult> instrumentAll(List<? extends CharSequence> sources,
+			InstrumentationOptions options) throws InstrumentationException {
+
+		InstrumentationResult[] results = new InstrumentationResult[sources.size()];
+		InstrumentationException[] failures = new InstrumentationException[sources.size()];
+		IntStream.range(0, sources.size()).parallel().forEach(index -> {
+			try {
+				results[index] = instrument(sources.get(index), options);
+			} catch (InstrumentationException exception) {
+				failures[index] = exception;
+			}
+		});
+
+		for (int index = 0; index < failures.length; index++) {
+			if (failures[index] != null) {
+				throw new InstrumentationException("Source " + index + ": " + failures[index].getMessage(),
+						failures[index].getCause());
+			}
+		}
+		return Arrays.asList(results);
+	}
+}
@@ -1,42 +1,213 @@
 package com.parse;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.FileVisitOption;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.googlejavaformat.java.Formatter;
+import com.google.googlejavaformat.java.FormatterException;
 import com.google.googlejavaformat.java.JavaFormatterOptions;
 import com.google.googlejavaformat.java.JavaFormatterOptions.Style;
 import com.parse.constants.Keywords;
+import com.parse.events.ProcessingEvents;
+import com.parse.exceptions.BudgetExceededException;
+import com.parse.models.CompileErrorInfo;
+import com.parse.models.ExecutionOptions;
+import com.parse.models.FailureInfo;
+import com.parse.models.FileComplexityInfo;
+import com.parse.models.FileTimingInfo;
+import com.parse.models.InstrumentationResult;
 import com.parse.models.PredicateInfo;
+import com.parse.models.ProcessedFileInfo;
+import com.parse.models.ShardStrategy;
+import com.parse.models.SourceChunk;
+import com.parse.utils.ComplexityReport;
+import com.parse.utils.ComplexityScanner;
+import com.parse.utils.ConcurrencyController;
+import com.parse.utils.CostModel;
+import com.parse.utils.DelimiterScanner;
+import com.parse.utils.CorpusManifest;
+import com.parse.utils.FailureLog;
 import com.parse.utils.IndentSpaceParser;
+import com.parse.utils.InstrumentationCache;
 import com.parse.utils.JavaFormatter;
+import com.parse.utils.MetricsServer;
+import com.parse.utils.NumberingSequencer;
+import com.parse.utils.OptionsParser;
 import com.parse.utils.PredicateParser;
+import com.parse.utils.ProcessingBudget;
+import com.parse.utils.ProgressReporter;
+import com.parse.utils.RunReports;
+import com.parse.utils.RunStatistics;
 import com.parse.utils.PredicateRecorder;
+import com.parse.utils.PredicateStore;
+import com.parse.utils.ShardSelector;
+import com.parse.utils.SharedWorkDirectory;
+import com.parse.utils.SourceChunker;
+import com.parse.utils.SourceTokens;
+import com.parse.utils.SourceWalker;
+import com.parse.utils.SourceWatcher;
+import com.parse.utils.StageTimer;
+import com.parse.utils.StageTimer.Stage;
+import com.parse.verification.CompileVerifier;
+import com.parse.verification.DifferentialHarness;
 
 /**
  * The controller TaskExecutor. It holds the control of the application.
  */
 public class TaskExecutor {
 
-	private static Formatter gooleFormatter = new Formatter(JavaFormatterOptions.builder().style(Style.GOOGLE).build());
+	/**
+	 * The holder of the google formatter, which is thread-safe. It is created on
+	 * the first use, thus the modes that do not format never load it.
+	 */
+	private static class GoogleFormatterHolder {
+
+		private static final Formatter gooleFormatter = new Formatter(
+				JavaFormatterOptions.builder().style(Style.GOOGLE).build());
+	}
+
+	/**
+	 * The Eclipse formatter of each worker thread, it is not thread-safe. It is
+	 * created on the first use by the thread.
+	 */
+	private static ThreadLocal<JavaFormatter> formatter = ThreadLocal.withInitial(() -> new JavaFormatter());
+
+	/**
+	 * The list of predicate information of the file processed by each worker
+	 * thread
+	 */
+	private static ThreadLocal<List<PredicateInfo>> predicateInfoList = new ThreadLocal<>();
+
+	/**
+	 * The list of processed files, recorded in the manifest
+	 */
+	private static List<ProcessedFileInfo> processedFileList = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * The store holding the predicates of the processed files
+	 */
+	private static PredicateStore predicateStore = new PredicateStore();
+
+	/**
+	 * The list of files that could not be processed
+	 */
+	private static List<FailureInfo> failureList = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * The statistics of the run, null if the run is not timed
+	 */
+	private static RunStatistics runStatistics;
+
+	/**
+	 * The features and the processing time of the files, null if they are not
+	 * reported
+	 */
+	private static ComplexityReport complexityReport;
+
+	/**
+	 * The wall-clock budget of a single file in milliseconds, zero if unlimited
+	 */
+	private static long fileTimeBudgetMillis;
+
+	/**
+	 * The allocation budget of a single file in bytes, zero if unlimited
+	 */
+	private static long fileAllocationBudgetBytes;
 
-	private static JavaFormatter formatter = new JavaFormatter();
+	/**
+	 * The results of the recently instrumented sources, null if not cached
+	 */
+	private static InstrumentationCache instrumentationCache;
 
 	/**
-	 * The list of predicate information
+	 * The size from which a file is processed one member at a time, zero if
+	 * never
 	 */
-	private static List<PredicateInfo> predicateInfoList;
+	private static long streamThresholdBytes;
+
+	/**
+	 * If every processed file is reported on the console
+	 */
+	private static boolean verbose = true;
+
+	/**
+	 * The progress of the run, null if it is not reported
+	 */
+	private static ProgressReporter progressReporter;
+
+	/**
+	 * The log of the files that could not be processed, with their exceptions,
+	 * null if there is none
+	 */
+	private static FailureLog failureLog;
+
+	/**
+	 * The controller admitting the files of the current pool of workers, null
+	 * if the files are processed one at a time
+	 */
+	private static volatile ConcurrencyController concurrencyController;
+
+	/**
+	 * The server of the live metrics, null if they are not served
+	 */
+	private static MetricsServer metricsServer;
+
+	/**
+	 * The sequencer of the numbering of the current pool of workers, null if the
+	 * files are processed one at a time
+	 */
+	private static volatile NumberingSequencer numberingSequencer;
+
+	/**
+	 * Waits for the turn of the file processed by the current thread to number
+	 * its predicates, if the numbering is sequenced
+	 */
+	private static void awaitNumberingTurn() {
+
+		NumberingSequencer sequencer = numberingSequencer;
+		if (sequencer != null) {
+			sequencer.awaitTurn();
+		}
+	}
+
+	/**
+	 * Finishes the turn of the file processed by the current thread to number
+	 * its predicates, if the numbering is sequenced
+	 */
+	private static void finishNumberingTurn() {
+
+		NumberingSequencer sequencer = numberingSequencer;
+		if (sequencer != null) {
+			sequencer.finishTurn();
+		}
+	}
 
 	/**
 	 * Removes comment from the line of code
@@ -44,16 +215,25 @@ public class TaskExecutor {
 	 * @param line The line
 	 * @return The stripped line
 	 */
-	private static String removeSingleLineComment(String line) {
+	static String removeSingleLineComment(String line) {
 
 		char[] chars = line.toCharArray();
 		int counter = 0;
 		int totalChars = chars.length;
 		StringBuilder codeBuilder = new StringBuilder();
 		while (counter < totalChars) {
+			// Only the delimiters are looked at one at a time
+			counter = DelimiterScanner.appendUntilDelimiter(codeBuilder, chars, counter, totalChars);
+			if (counter == totalChars) {
+				break;
+			}
 			if (chars[counter] == '"') {
 				codeBuilder.append(chars[counter++]);
 				while (counter < totalChars) {
+					counter = DelimiterScanner.appendUntilDelimiter(codeBuilder, chars, counter, totalChars);
+					if (counter == totalChars) {
+						break;
+					}
 					codeBuilder.append(chars[counter]);
 					if (chars[counter] == '"' && counter - 1 >= 0 && chars[counter - 1] != '\\') {
 						break;
@@ -74,16 +254,25 @@ public class TaskExecutor {
 	/**
 	 * Removes multi-line comments from the code
 	 */
-	private static String removeMultilineComment(String code) {
+	static String removeMultilineComment(String code) {
 
 		char[] chars = code.toCharArray();
 		StringBuilder codeBuilder = new StringBuilder();
 		int counter = 0;
 		int totalChars = chars.length;
 		while (counter < totalChars) {
+			// Only the delimiters are looked at one at a time
+			counter = DelimiterScanner.appendUntilDelimiter(codeBuilder, chars, counter, totalChars);
+			if (counter == totalChars) {
+				break;
+			}
 			if (chars[counter] == '"') {
 				codeBuilder.append(chars[counter++]);
 				while (counter < totalChars) {
+					counter = DelimiterScanner.appendUntilDelimiter(codeBuilder, chars, counter, totalChars);
+					if (counter == totalChars) {
+						break;
+					}
 					codeBuilder.append(chars[counter]);
 					if (chars[counter] == '"' && counter - 1 >= 0 && chars[counter - 1] != '\\') {
 						break;
@@ -92,8 +281,16 @@ public class TaskExecutor {
 				}
 			} else if (chars[counter] == '/' && counter + 1 < totalChars && chars[counter + 1] == '*') {
 				while (counter < totalChars) {
+					counter = DelimiterScanner.indexOfDelimiter(chars, counter, totalChars);
+					if (counter == totalChars) {
+						break;
+					}
 					if (chars[counter] == '"') {
 						while (counter < totalChars) {
+							counter = DelimiterScanner.indexOfDelimiter(chars, counter, totalChars);
+							if (counter == totalChars) {
+								break;
+							}
 							if (chars[counter] == '"' && counter - 1 >= 0 && chars[counter - 1] != '\\') {
 								break;
 							}
@@ -140,6 +337,7 @@ public class TaskExecutor {
 					|| (!codeline.trim().startsWith("}") && (codeline.trim().startsWith("//")
 							|| codeline.trim().startsWith("/*") || codeline.trim().startsWith("*")
 							|| IndentSpaceParser.getIndentSpacesCount(codeline) != indentedSpaceCount + 4)))) {
+				ProcessingBudget.checkpoint();
 				statementBuilder.append(removeSingleLineComment(codeline));
 				startPos++;
 				codeline = lines.get(startPos);
@@ -150,7 +348,7 @@ public class TaskExecutor {
 		PredicateInfo predicateInfo = PredicateParser.processIfStatement(statement);
 
 		if (predicateInfo != null) {
-			predicateInfoList.add(predicateInfo);
+			predicateInfoList.get().add(predicateInfo);
 			updatedLines.add(predicateInfo.getPredicateInitStatement());
 			updatedLines.add(predicateInfo.getConvertedStatement());
 		} else {
@@ -162,6 +360,7 @@ public class TaskExecutor {
 		List<String> innerBodyLines = new ArrayList<>();
 		int bodyLineCounter = startPos;
 		while (bodyLineCounter < totalLines) {
+			ProcessingBudget.checkpoint();
 			String line = lines.get(bodyLineCounter);
 			if (StringUtils.isNotBlank(line.trim())) {
 				if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
@@ -209,6 +408,7 @@ public class TaskExecutor {
 		String line = lines.get(bodyLineCounter + 1).trim();
 		while (bodyLineCounter + 1 < totalLines
 				&& (line.startsWith(Keywords.ELSE_IF_I) || line.startsWith(Keywords.ELSE_IF_II))) {
+			ProcessingBudget.checkpoint();
 
 			bodyLineCounter++;
 
@@ -228,6 +428,7 @@ public class TaskExecutor {
 								|| StringUtils.isEmpty(codeline.trim()) || codeline.trim().startsWith("/*")
 								|| codeline.trim().startsWith("*")
 								|| IndentSpaceParser.getIndentSpacesCount(codeline) != indentedSpaceCount + 4)))) {
+					ProcessingBudget.checkpoint();
 					statementBuilder.append(removeSingleLineComment(codeline));
 					bodyLineCounter++;
 					codeline = lines.get(bodyLineCounter);
@@ -238,7 +439,7 @@ public class TaskExecutor {
 			PredicateInfo predicateInfo = PredicateParser.processElseIfStatement(statement);
 
 			if (predicateInfo != null) {
-				predicateInfoList.add(predicateInfo);
+				predicateInfoList.get().add(predicateInfo);
 				updatedLines.add(pos++, predicateInfo.getPredicateInitStatement());
 				updatedLines.add(predicateInfo.getConvertedStatement());
 			} else {
@@ -250,6 +451,7 @@ public class TaskExecutor {
 
 			List<String> innerBodyLines = new ArrayList<>();
 			while (bodyLineCounter < totalLines) {
+				ProcessingBudget.checkpoint();
 				line = lines.get(bodyLineCounter);
 				if (StringUtils.isNotBlank(line.trim())) {
 					if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
@@ -309,6 +511,7 @@ public class TaskExecutor {
 			List<String> innerBodyLines = new ArrayList<>();
 
 			while (bodyLineCounter < totalLines) {
+				ProcessingBudget.checkpoint();
 				line = lines.get(bodyLineCounter);
 				if (StringUtils.isNotBlank(line.trim())) {
 					if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
@@ -395,6 +598,7 @@ public class TaskExecutor {
 					|| (!codeline.trim().startsWith("}") && (codeline.trim().startsWith("//")
 							|| codeline.trim().startsWith("/*") || codeline.trim().startsWith("*")
 							|| IndentSpaceParser.getIndentSpacesCount(codeline) != indentedSpaceCount + 4)))) {
+				ProcessingBudget.checkpoint();
 				statementBuilder.append(removeSingleLineComment(codeline));
 				startPos++;
 				codeline = lines.get(startPos);
@@ -405,7 +609,7 @@ public class TaskExecutor {
 		PredicateInfo predicateInfo = PredicateParser.processForStatement(statement);
 
 		if (predicateInfo != null) {
-			predicateInfoList.add(predicateInfo);
+			predicateInfoList.get().add(predicateInfo);
 			updatedLines.add(predicateInfo.getPredicateInitStatement());
 			updatedLines.add(predicateInfo.getConvertedStatement());
 		} else {
@@ -418,6 +622,7 @@ public class TaskExecutor {
 		List<String> innerBodyLines = new ArrayList<>();
 		int bodyLineCounter = startPos;
 		while (bodyLineCounter < totalLines) {
+			ProcessingBudget.checkpoint();
 			String line = lines.get(bodyLineCounter);
 			if (StringUtils.isNotBlank(line.trim())) {
 				if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
@@ -468,6 +673,7 @@ public class TaskExecutor {
 					|| (!codeline.trim().startsWith("}") && (codeline.trim().startsWith("//")
 							|| codeline.trim().startsWith("/*") || codeline.trim().startsWith("*")
 							|| IndentSpaceParser.getIndentSpacesCount(codeline) != indentedSpaceCount + 4)))) {
+				ProcessingBudget.checkpoint();
 				statementBuilder.append(removeSingleLineComment(codeline));
 				startPos++;
 				codeline = lines.get(startPos);
@@ -478,7 +684,7 @@ public class TaskExecutor {
 		PredicateInfo predicateInfo = PredicateParser.processWhileStatement(statement);
 
 		if (predicateInfo != null) {
-			predicateInfoList.add(predicateInfo);
+			predicateInfoList.get().add(predicateInfo);
 			updatedLines.add(predicateInfo.getPredicateInitStatement());
 			updatedLines.add(predicateInfo.getConvertedStatement());
 		} else {
@@ -491,6 +697,7 @@ public class TaskExecutor {
 		List<String> innerBodyLines = new ArrayList<>();
 		int bodyLineCounter = startPos;
 		while (bodyLineCounter < totalLines) {
+			ProcessingBudget.checkpoint();
 			String line = lines.get(bodyLineCounter);
 			if (StringUtils.isNotBlank(line.trim())) {
 				if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
@@ -534,6 +741,7 @@ public class TaskExecutor {
 		List<String> innerBodyLines = new ArrayList<>();
 		int bodyLineCounter = startPos + 1;
 		while (bodyLineCounter < totalLines) {
+			ProcessingBudget.checkpoint();
 			String line = lines.get(bodyLineCounter);
 			if (StringUtils.isNotBlank(line.trim())) {
 				if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
@@ -555,6 +763,7 @@ public class TaskExecutor {
 			while (bodyLineCounter < totalLines && (StringUtils.isBlank(codeline)
 					|| (!codeline.trim().endsWith(";") && (codeline.trim().startsWith("//")
 							|| codeline.trim().startsWith("/*") || codeline.trim().startsWith("*"))))) {
+				ProcessingBudget.checkpoint();
 				statementBuilder.append(removeSingleLineComment(codeline));
 				bodyLineCounter++;
 				codeline = lines.get(bodyLineCounter);
@@ -565,7 +774,7 @@ public class TaskExecutor {
 		PredicateInfo predicateInfo = PredicateParser.processDoWhileStatement(statement);
 
 		if (predicateInfo != null) {
-			predicateInfoList.add(predicateInfo);
+			predicateInfoList.get().add(predicateInfo);
 			updatedLines.addAll(process(innerBodyLines));
 			updatedLines.add(pos++, predicateInfo.getPredicateInitStatement());
 			updatedLines.add(predicateInfo.getConvertedStatement());
@@ -588,6 +797,7 @@ public class TaskExecutor {
 		int totalLines = lines.size();
 
 		for (int i = 0; i < totalLines; i++) {
+			ProcessingBudget.checkpoint();
 			if (lines.get(i).trim().startsWith(Keywords.FOR)) {
 				i = processForLoop(lines, updatedLines, i, totalLines);
 			} else if (lines.get(i).trim().startsWith(Keywords.WHILE)) {
@@ -608,47 +818,921 @@ public class TaskExecutor {
 	 * 
 	 * @param code     The code
 	 * @param filePath The file path
+	 * @throws IOException If the updated code could not be saved
 	 */
-	private static void saveUpdatedCode(String code, Path filePath) {
+	private static void saveUpdatedCode(String code, Path filePath) throws IOException {
 
 		try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath.toFile()))) {
 			writer.write(code);
 			writer.flush();
-		} catch (IOException ioException) {
-			System.out.println("Error saving the updated code.");
 		}
 	}
 
+	/**
+	 * Instruments the code, the predicates found are collected in the predicate
+	 * information list
+	 * 
+	 * @param code          The code
+	 * @param lastNumbering If the file numbers no more predicates after this code
+	 * @return The updated code
+	 * @throws FormatterException      If the updated code could not be formatted
+	 * @throws BudgetExceededException If the file exceeded its budget
+	 */
+	private static String instrument(String code, boolean lastNumbering) throws FormatterException {
+
+		long stageStart = StageTimer.begin();
+		String formattedJava = formatter.get().format(code);
+		StageTimer.add(Stage.PRE_FORMAT, stageStart);
+		ProcessingBudget.verify();
+		predicateInfoList.set(new ArrayList<>());
+		awaitNumberingTurn();
+		stageStart = StageTimer.begin();
+		List<String> updatedLines = process(Arrays.asList(formattedJava.split("\n")));
+		StageTimer.add(Stage.TRANSFORM, stageStart);
+		if (lastNumbering) {
+			finishNumberingTurn();
+		}
+		ProcessingBudget.verify();
+
+		StringBuilder codeBuilder = new StringBuilder();
+		for (String line : updatedLines) {
+			codeBuilder.append(line);
+			codeBuilder.append("\n");
+		}
+		stageStart = StageTimer.begin();
+		String formattedUpdatedCode = GoogleFormatterHolder.gooleFormatter.formatSource(codeBuilder.toString());
+		StageTimer.add(Stage.GOOGLE_FORMAT, stageStart);
+		ProcessingBudget.verify();
+		return formattedUpdatedCode;
+	}
+
+	/**
+	 * Instruments a member of a top-level type on its own, wrapped in a type of
+	 * the same name. The predicates found are collected in the predicate
+	 * information list.
+	 * 
+	 * @param member          The member, with the comments before it
+	 * @param typeDeclaration The declaration of the top-level type, e.g. 'class
+	 *                        Foo'
+	 * @return The updated lines of the member
+	 * @throws FormatterException      If the updated member could not be formatted
+	 * @throws BudgetExceededException If the file exceeded its budget
+	 * @throws IllegalStateException   If the updated member lost some of the code
+	 */
+	private static List<String> instrumentMember(String member, String typeDeclaration) throws FormatterException {
+
+		long stageStart = StageTimer.begin();
+		String formattedJava = formatter.get().format(typeDeclaration + " {\n" + member + "\n}\n");
+		StageTimer.add(Stage.PRE_FORMAT, stageStart);
+		awaitNumberingTurn();
+		stageStart = StageTimer.begin();
+		List<String> updatedLines = process(Arrays.asList(formattedJava.split("\n")));
+		StageTimer.add(Stage.TRANSFORM, stageStart);
+
+		StringBuilder codeBuilder = new StringBuilder();
+		for (String line : updatedLines) {
+			codeBuilder.append(line);
+			codeBuilder.append("\n");
+		}
+		stageStart = StageTimer.begin();
+		List<String> lines = Arrays
+				.asList(GoogleFormatterHolder.gooleFormatter.formatSource(codeBuilder.toString()).split("\n"));
+		StageTimer.add(Stage.GOOGLE_FORMAT, stageStart);
+		// Removing the wrapping class and the blank lines around the member
+		int start = 1;
+		int end = lines.size() - 1;
+		while (start < end && lines.get(start).trim().isEmpty()) {
+			start++;
+		}
+		while (end > start && lines.get(end - 1).trim().isEmpty()) {
+			end--;
+		}
+		List<String> memberLines = lines.subList(start, end);
+		if (!SourceTokens.keepsCode(member, String.join("\n", memberLines))) {
+			throw new IllegalStateException("The instrumented member lost some of the code, the file is left untouched: "
+					+ StringUtils.abbreviate(member.trim(), 80));
+		}
+		return memberLines;
+	}
+
+	/**
+	 * Formats the header of a top-level type, up to its opening brace
+	 * 
+	 * @param header The header
+	 * @return The formatted lines of the header
+	 * @throws FormatterException If the header could not be formatted
+	 */
+	private static List<String> formatHeader(String header) throws FormatterException {
+
+		long stageStart = StageTimer.begin();
+		List<String> lines = new ArrayList<>(
+				Arrays.asList(GoogleFormatterHolder.gooleFormatter.formatSource(header + "}").split("\n")));
+		StageTimer.add(Stage.GOOGLE_FORMAT, stageStart);
+		int last = lines.size() - 1;
+		lines.set(last, StringUtils.removeEnd(lines.get(last), "}"));
+		return lines;
+	}
+
+	/**
+	 * Instruments the code one chunk at a time, the header, each member and the
+	 * closing brace of the top-level types, and writes each chunk once it is
+	 * instrumented. Only the current chunk is held in memory.
+	 * 
+	 * @param reader The code
+	 * @param writer The updated code
+	 * @return The predicates and their line numbers, without the code
+	 * @throws IOException             If the code could not be read or written
+	 * @throws FormatterException      If a chunk could not be formatted
+	 * @throws BudgetExceededException If the file exceeded its budget
+	 */
+	static InstrumentationResult instrumentStreaming(Reader reader, Writer writer)
+			throws IOException, FormatterException {
+
+		List<PredicateInfo> predicates = new ArrayList<>();
+		Map<String, String> lineNumbers = new HashMap<>();
+		SourceChunker chunker = new SourceChunker(reader);
+		int writtenLines = 0;
+		boolean firstMember = true;
+		try {
+			SourceChunk chunk;
+			while ((chunk = chunker.next()) != null) {
+				predicateInfoList.set(new ArrayList<>());
+				List<String> lines;
+				switch (chunk.getKind()) {
+				case HEADER:
+					lines = formatHeader(chunk.getText());
+					firstMember = true;
+					break;
+				case MEMBER:
+					if (StringUtils.isBlank(chunk.getText())) {
+						continue;
+					}
+					lines = new ArrayList<>(instrumentMember(chunk.getText(), chunker.getTypeDeclaration()));
+					if (!firstMember) {
+						lines.add(0, "");
+					}
+					firstMember = false;
+					break;
+				case FOOTER:
+					lines = Collections.singletonList("}");
+					break;
+				case TYPE:
+					lines = Arrays.asList(instrument(chunk.getText(), false).split("\n"));
+					break;
+				default:
+					lines = Arrays.asList(chunk.getText().trim().split("\n"));
+					break;
+				}
+				ProcessingBudget.verify();
+
+				List<PredicateInfo> chunkPredicates = predicateInfoList.get();
+				long stageStart = StageTimer.begin();
+				Map<String, String> chunkLineNumbers = PredicateRecorder.getLineNumbers(lines, chunkPredicates);
+				for (PredicateInfo predicateInfo : chunkPredicates) {
+					List<String> numbers = new ArrayList<>();
+					for (String number : StringUtils.split(chunkLineNumbers.get(predicateInfo.getName()), ", ")) {
+						numbers.add(String.valueOf(Integer.parseInt(number) + writtenLines));
+					}
+					lineNumbers.put(predicateInfo.getName(), String.join(", ", numbers));
+				}
+				predicates.addAll(chunkPredicates);
+				StageTimer.add(Stage.RECORD, stageStart);
+
+				stageStart = StageTimer.begin();
+				for (String line : lines) {
+					writer.write(line);
+					writer.write("\n");
+				}
+				StageTimer.add(Stage.WRITE, stageStart);
+				writtenLines += lines.size();
+			}
+		} finally {
+			finishNumberingTurn();
+			predicateInfoList.remove();
+		}
+		return new InstrumentationResult(null, predicates, lineNumbers);
+	}
+
+	/**
+	 * Instruments a file one member at a time within the file budget, and
+	 * replaces it atomically once it is complete
+	 * 
+	 * @param filePath The file path
+	 * @return The predicates and their line numbers, without the code
+	 * @throws IOException             If the file could not be read or written
+	 * @throws FormatterException      If a chunk could not be formatted
+	 * @throws BudgetExceededException If the file exceeded its budget
+	 */
+	private static InstrumentationResult instrumentFileStreaming(Path filePath) throws IOException, FormatterException {
+
+		Path temporaryPath = filePath.resolveSibling(filePath.getFileName() + "." + System.nanoTime() + ".tmp");
+		try {
+			ProcessingBudget.start(fileTimeBudgetMillis, fileAllocationBudgetBytes);
+			InstrumentationResult result;
+			try (BufferedReader reader = Files.newBufferedReader(filePath);
+					BufferedWriter writer = Files.newBufferedWriter(temporaryPath)) {
+				result = instrumentStreaming(reader, writer);
+			}
+			Files.move(temporaryPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return result;
+		} finally {
+			ProcessingBudget.clear();
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+	/**
+	 * Instruments the code of a source replied to within the file budget. The
+	 * result is taken from, and added to, the instrumentation cache if there is
+	 * one, thus a source seen again gets the same predicate names.
+	 * 
+	 * @param code The code
+	 * @return The result
+	 * @throws FormatterException      If the updated code could not be formatted
+	 * @throws BudgetExceededException If the file exceeded its budget
+	 */
+	static InstrumentationResult instrumentCachedSource(String code) throws FormatterException {
+
+		String contentHash = null;
+		if (instrumentationCache != null) {
+			contentHash = SharedWorkDirectory.hash(code);
+			InstrumentationResult cachedResult = instrumentationCache.get(contentHash);
+			if (cachedResult != null) {
+				return cachedResult;
+			}
+		}
+
+		InstrumentationResult result = instrumentSource(code, fileTimeBudgetMillis, fileAllocationBudgetBytes);
+		if (instrumentationCache != null) {
+			instrumentationCache.put(contentHash, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Instruments the code within the given budget
+	 * 
+	 * @param code              The code
+	 * @param maxMillis         The maximum wall-clock time, zero if unlimited
+	 * @param maxAllocatedBytes The maximum allocated bytes, zero if unlimited
+	 * @return The result
+	 * @throws FormatterException      If the updated code could not be formatted
+	 * @throws BudgetExceededException If the code exceeded its budget
+	 */
+	static InstrumentationResult instrumentSource(String code, long maxMillis, long maxAllocatedBytes)
+			throws FormatterException {
+
+		try {
+			ProcessingBudget.start(maxMillis, maxAllocatedBytes);
+			String formattedUpdatedCode = instrument(code, true);
+			List<PredicateInfo> predicates = predicateInfoList.get();
+			long stageStart = StageTimer.begin();
+			Map<String, String> lineNumbers = PredicateRecorder
+					.getLineNumbers(Arrays.asList(formattedUpdatedCode.split("\n")), predicates);
+			StageTimer.add(Stage.RECORD, stageStart);
+			return new InstrumentationResult(formattedUpdatedCode, predicates, lineNumbers);
+		} finally {
+			ProcessingBudget.clear();
+			predicateInfoList.remove();
+		}
+	}
+
+	/**
+	 * Gets the statistics of the instrumentation cache
+	 * 
+	 * @return The statistics, as 'name=value' pairs
+	 */
+	static String getCacheStatistics() {
+
+		return instrumentationCache == null ? "entries=0" : instrumentationCache.getStatistics();
+	}
+
 	/**
 	 * Processes the input file path
 	 * 
+	 * @param inputRoot     The input root
 	 * @param inputFilePath The input file path
 	 * @param outputPath    The output path
+	 * @param failures      The list the failure is added to
+	 * @return The processed file, null if it could not be processed
 	 */
-	private static void processPath(Path inputFilePath, Path outputPath) {
+	static ProcessedFileInfo processPath(Path inputRoot, Path inputFilePath, Path outputPath,
+			List<FailureInfo> failures) {
 
+		StageTimer.start(inputFilePath.toString());
+		ProcessingEvents.beginFile(inputFilePath);
 		try {
-			System.out.println("Processing " + inputFilePath.toString());
-			String formattedJava = formatter.format(new String(Files.readAllBytes(inputFilePath)));
-			predicateInfoList = new ArrayList<>();
-			List<String> updatedLines = process(Arrays.asList(formattedJava.split("\n")));
+			if (verbose) {
+				System.out.println("Processing " + inputFilePath.toString());
+			}
+			InstrumentationResult result;
+			FileComplexityInfo complexity = null;
+			long inputBytes = Files.size(inputFilePath);
+			StageTimer.setInputBytes(inputBytes);
+			if (streamThresholdBytes > 0 && inputBytes >= streamThresholdBytes) {
+				if (complexityReport != null) {
+					try (Reader reader = Files.newBufferedReader(inputFilePath)) {
+						complexity = ComplexityScanner.scan(reader);
+					}
+				}
+				// The updated code is saved while it is instrumented
+				result = instrumentFileStreaming(inputFilePath);
+			} else {
+				long stageStart = StageTimer.begin();
+				String code = new String(Files.readAllBytes(inputFilePath));
+				StageTimer.add(Stage.READ, stageStart);
+				if (complexityReport != null) {
+					complexity = ComplexityScanner.scan(new StringReader(code));
+				}
+				result = instrumentSource(code, fileTimeBudgetMillis, fileAllocationBudgetBytes);
 
-			// Saving the updated code
-			StringBuilder codeBuilder = new StringBuilder();
-			for (String line : updatedLines) {
-				codeBuilder.append(line);
-				codeBuilder.append("\n");
+				// Saving the updated code
+				stageStart = StageTimer.begin();
+				saveUpdatedCode(result.getCode(), inputFilePath);
+				StageTimer.add(Stage.WRITE, stageStart);
 			}
-			String formattedUpdatedCode = gooleFormatter.formatSource(codeBuilder.toString());
-			saveUpdatedCode(formattedUpdatedCode, inputFilePath);
 
 			// Creating the predicates file
-			PredicateRecorder.create(inputFilePath, outputPath, predicateInfoList);
-			System.out.println("COMPLETED.");
+			long stageStart = StageTimer.begin();
+			PredicateRecorder.record(inputFilePath, outputPath, result.getPredicates(), result.getLineNumbers());
+			StageTimer.add(Stage.RECORD, stageStart);
+			if (verbose) {
+				System.out.println("COMPLETED.");
+			}
+			ProcessingEvents.endFile(result.getCode(), result.getPredicates().size());
+			FileTimingInfo timing = StageTimer.finish();
+			if (runStatistics != null) {
+				runStatistics.record(timing, result.getPredicates());
+			}
+			if (complexity != null) {
+				complexity.setPath(ShardSelector.getRelativePath(inputRoot, inputFilePath));
+				complexity.setBytes(inputBytes);
+				complexity.setPredicates(result.getPredicates().size());
+				complexity.setMillis(timing.getNanos() / 1e6);
+				complexityReport.record(complexity);
+			}
+			return new ProcessedFileInfo(ShardSelector.getRelativePath(inputRoot, inputFilePath),
+					PredicateRecorder.getRecordFileName(inputFilePath), result.getPredicates(),
+					result.getLineNumbers());
+		} catch (BudgetExceededException exception) {
+			if (verbose) {
+				System.out.println("Aborted, the file is left untouched. File: " + inputFilePath.toString()
+						+ ", Reason: " + exception.getLocalizedMessage());
+			}
+			failures.add(new FailureInfo(inputFilePath.toString(), exception.getLocalizedMessage()));
+			logFailure(inputFilePath, exception);
+			ProcessingEvents.failFile(exception.getLocalizedMessage());
 		} catch (Exception exception) {
-			System.out.println("Error formatting the code. File: " + inputFilePath.toString() + ", Reason: "
+			if (verbose) {
+				System.out.println("Error formatting the code. File: " + inputFilePath.toString() + ", Reason: "
+						+ exception.getLocalizedMessage());
+			}
+			failures.add(new FailureInfo(inputFilePath.toString(), String.valueOf(exception.getLocalizedMessage())));
+			logFailure(inputFilePath, exception);
+			ProcessingEvents.failFile(exception.getLocalizedMessage());
+		} finally {
+			// A file which failed before its predicates were numbered passes its turn
+			finishNumberingTurn();
+			// The timing of a file which could not be processed is discarded
+			StageTimer.finish();
+		}
+		return null;
+	}
+
+	/**
+	 * Processes the input file path, recording the outcome for the manifest of
+	 * the run
+	 * 
+	 * @param inputRoot     The input root
+	 * @param inputFilePath The input file path
+	 * @param outputPath    The output path
+	 */
+	private static void processPath(Path inputRoot, Path inputFilePath, Path outputPath) {
+
+		ProcessedFileInfo processedFileInfo = processPath(inputRoot, inputFilePath, outputPath, failureList);
+		recordPath(processedFileInfo);
+	}
+
+	/**
+	 * Records the outcome of a file for the manifest and the progress of the
+	 * run
+	 * 
+	 * @param processedFileInfo The processed file, null if it could not be
+	 *                          processed
+	 */
+	private static void recordPath(ProcessedFileInfo processedFileInfo) {
+
+		if (processedFileInfo != null) {
+			processedFileList.add(predicateStore.compact(processedFileInfo));
+		}
+		if (progressReporter != null) {
+			progressReporter.fileDone(processedFileInfo != null);
+		}
+	}
+
+	/**
+	 * Adds a file that could not be processed to the failure log, if there is
+	 * one
+	 * 
+	 * @param inputFilePath The input file path
+	 * @param exception     The exception
+	 */
+	private static void logFailure(Path inputFilePath, Throwable exception) {
+
+		FailureLog log = failureLog;
+		if (log != null) {
+			log.add(inputFilePath, exception);
+		}
+	}
+
+	/**
+	 * Processes the files with a pool of worker threads. The controller admits
+	 * the files one by one, thus a blocked admission also holds back the walk.
+	 *
+	 * <p>
+	 * The files number their predicates from the shared numbering in the order
+	 * they are dispatched in, each one a contiguous block, as they would one at a
+	 * time. The predicate names thus do not depend on the number of threads nor
+	 * on the order the files complete in.
+	 * 
+	 * @param inputRoot  The input root
+	 * @param inputPaths The input file paths, in a deterministic order
+	 * @param outputPath The output path
+	 * @param options    The execution options
+	 */
+	private static void processPaths(Path inputRoot, Stream<Path> inputPaths, Path outputPath,
+			ExecutionOptions options) {
+
+		if (options.getThreads() == 1) {
+			inputPaths.forEach(path -> processPath(inputRoot, path, outputPath));
+			return;
+		}
+
+		ConcurrencyController controller = new ConcurrencyController(options.getThreads(),
+				ConcurrencyController.getHeapCeiling(options.getHeapCeilingPercent()));
+		concurrencyController = controller;
+		NumberingSequencer sequencer = new NumberingSequencer();
+		numberingSequencer = sequencer;
+		ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
+		try {
+			Iterator<Path> iterator = inputPaths.iterator();
+			for (long turn = 0; iterator.hasNext(); turn++) {
+				Path path = iterator.next();
+				long fileTurn = turn;
+				long estimatedBytes = controller.estimate(path);
+				controller.acquire(estimatedBytes);
+				executor.execute(() -> {
+					sequencer.assign(fileTurn);
+					try {
+						processPath(inputRoot, path, outputPath);
+					} finally {
+						controller.release(estimatedBytes);
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException interruptedException) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			concurrencyController = null;
+			numberingSequencer = null;
+		}
+	}
+
+	/**
+	 * Processes a file leased from the shared work directory. The result is
+	 * committed before the record is written and the file replaced, and only if
+	 * the lease is still held, thus a worker which lost its lease never
+	 * overwrites the output of the new owner, and a worker reclaiming the file
+	 * after a stall recognizes an already replaced file and does not instrument
+	 * it twice. A file which could not be read or written is marked as failed.
+	 * 
+	 * @param workDirectory The shared work directory
+	 * @param inputRoot     The input root
+	 * @param inputFilePath The input file path
+	 * @param outputPath    The output path
+	 * @throws IOException If the work directory is not accessible
+	 */
+	private static void processLeasedPath(SharedWorkDirectory workDirectory, Path inputRoot, Path inputFilePath,
+			Path outputPath) throws IOException {
+
+		String relativePath = ShardSelector.getRelativePath(inputRoot, inputFilePath);
+		StageTimer.start(inputFilePath.toString());
+		try {
+			if (verbose) {
+				System.out.println("Processing " + inputFilePath.toString());
+			}
+			long stageStart = StageTimer.begin();
+			byte[] bytes;
+			try {
+				bytes = Files.readAllBytes(inputFilePath);
+			} catch (IOException ioException) {
+				failLeasedPath(workDirectory, relativePath, inputFilePath, ioException);
+				return;
+			}
+			String code = new String(bytes);
+			StageTimer.add(Stage.READ, stageStart);
+			StageTimer.setInputBytes(bytes.length);
+			if (SharedWorkDirectory.hash(code).equals(workDirectory.getCommittedHash(relativePath))) {
+				workDirectory.markDone(relativePath);
+				if (verbose) {
+					System.out.println("COMPLETED, committed by a stalled worker.");
+				}
+				return;
+			}
+
+			InstrumentationResult result = instrumentSource(code, fileTimeBudgetMillis, fileAllocationBudgetBytes);
+			String formattedUpdatedCode = result.getCode();
+			if (!workDirectory.isLeaseHeld(relativePath) || !workDirectory.isSlotHeld()) {
+				System.out.println("Lease lost, leaving " + inputFilePath.toString() + " to its new owner.");
+				return;
+			}
+			workDirectory.commit(new ProcessedFileInfo(relativePath, PredicateRecorder.getRecordFileName(inputFilePath),
+					result.getPredicates(), result.getLineNumbers()), SharedWorkDirectory.hash(formattedUpdatedCode),
+					PredicateParser.getNextPredicateNumber());
+			try {
+				stageStart = StageTimer.begin();
+				PredicateRecorder.record(inputFilePath, outputPath, result.getPredicates(), result.getLineNumbers());
+				StageTimer.add(Stage.RECORD, stageStart);
+				stageStart = StageTimer.begin();
+				SharedWorkDirectory.writeAtomically(inputFilePath, formattedUpdatedCode);
+				StageTimer.add(Stage.WRITE, stageStart);
+			} catch (IOException ioException) {
+				// The file is left untouched, thus it is not part of the results
+				workDirectory.withdraw(relativePath);
+				failLeasedPath(workDirectory, relativePath, inputFilePath, ioException);
+				return;
+			}
+			workDirectory.markDone(relativePath);
+			if (verbose) {
+				System.out.println("COMPLETED.");
+			}
+			if (runStatistics != null) {
+				runStatistics.record(StageTimer.finish(), result.getPredicates());
+			}
+		} catch (FormatterException | RuntimeException exception) {
+			failLeasedPath(workDirectory, relativePath, inputFilePath, exception);
+		} finally {
+			// The timing of a file which was not processed is discarded
+			StageTimer.finish();
+		}
+	}
+
+	/**
+	 * Marks a leased file as failed, so that no worker retries it, and reports
+	 * it
+	 * 
+	 * @param workDirectory The shared work directory
+	 * @param relativePath  The file path, relative to the input root
+	 * @param inputFilePath The input file path
+	 * @param exception     The exception
+	 * @throws IOException If the work directory is not accessible
+	 */
+	private static void failLeasedPath(SharedWorkDirectory workDirectory, String relativePath, Path inputFilePath,
+			Exception exception) throws IOException {
+
+		if (verbose) {
+			System.out.println("Error processing the file. File: " + inputFilePath.toString() + ", Reason: "
 					+ exception.getLocalizedMessage());
 		}
+		workDirectory.markFailed(relativePath, String.valueOf(exception.getLocalizedMessage()));
+		failureList.add(new FailureInfo(inputFilePath.toString(), String.valueOf(exception.getLocalizedMessage())));
+		logFailure(inputFilePath, exception);
+	}
+
+	/**
+	 * Processes the files together with the other workers sharing the work
+	 * directory, until every file is either done or failed
+	 * 
+	 * @param options    The execution options
+	 * @param inputRoot  The input root
+	 * @param inputPaths The input file paths
+	 */
+	private static void processWorkDirectory(ExecutionOptions options, Path inputRoot, List<Path> inputPaths) {
+
+		Path outputPath = options.getOutputPath();
+		SharedWorkDirectory workDirectory = null;
+		try {
+			workDirectory = new SharedWorkDirectory(options.getWorkDirectory(), options.getLeaseExpiryMillis());
+			int workerSlot = workDirectory.claimWorkerSlot(options.getMaxWorkers());
+			PredicateParser.setPredicateNumbering(workDirectory.getFirstPredicateNumber(), options.getMaxWorkers());
+			System.out.println("Worker " + workerSlot + " joined " + options.getWorkDirectory());
+			workDirectory.startHeartbeat();
+
+			List<Path> pendingPaths = new ArrayList<>(inputPaths);
+			while (!pendingPaths.isEmpty()) {
+				List<Path> leasedElsewhere = new ArrayList<>();
+				for (Path path : pendingPaths) {
+					String relativePath = ShardSelector.getRelativePath(inputRoot, path);
+					if (workDirectory.isFinished(relativePath)) {
+						continue;
+					}
+					if (!workDirectory.isSlotHeld()) {
+						System.out.println("Worker " + workerSlot
+								+ " was reclaimed after a stall, leaving the remaining files to the other workers.");
+						return;
+					}
+					if (!workDirectory.tryClaim(relativePath)) {
+						leasedElsewhere.add(path);
+						continue;
+					}
+					try {
+						processLeasedPath(workDirectory, inputRoot, path, outputPath);
+					} finally {
+						workDirectory.release(relativePath);
+					}
+				}
+				pendingPaths = leasedElsewhere;
+				if (!pendingPaths.isEmpty()) {
+					// Waiting for the other workers, or for their leases to expire
+					Thread.sleep(Math.min(1000, options.getLeaseExpiryMillis() / 4));
+				}
+			}
+
+			Path manifestPath = outputPath.resolve(CorpusManifest.MANIFEST_FILE_NAME);
+			Path temporaryPath = outputPath.resolve(CorpusManifest.MANIFEST_FILE_NAME + "." + System.nanoTime());
+			CorpusManifest.write(temporaryPath, workDirectory.readResults());
+			Files.move(temporaryPath, manifestPath, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			reportFailures(outputPath, false);
+			reportStatistics(outputPath.resolve(RunStatistics.REPORT_FILE_NAME));
+		} catch (IOException ioException) {
+			System.out.println("Error using the work directory. Reason: " + ioException.getLocalizedMessage());
+			System.exit(1);
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (workDirectory != null) {
+				workDirectory.stopHeartbeat();
+				workDirectory.releaseWorkerSlot();
+			}
+		}
+	}
+
+	/**
+	 * Reports the files that could not be processed, in the failures file of the
+	 * output directory. The failure log is closed, unless the input is watched
+	 * next: the watch loop adds its failures to it until the process stops.
+	 * 
+	 * @param outputPath The output path
+	 * @param watching   If the input is watched next
+	 */
+	private static void reportFailures(Path outputPath, boolean watching) {
+
+		FailureLog log = failureLog;
+		if (log != null && !watching) {
+			failureLog = null;
+			log.close();
+		}
+		RunReports.reportFailures(outputPath, failureList, log);
+	}
+
+	/**
+	 * Starts serving the live metrics of the run on a loopback port. The run
+	 * goes on without them if the port could not be bound.
+	 * 
+	 * @param port The port
+	 */
+	private static void startMetrics(int port) {
+
+		try {
+			metricsServer = new MetricsServer(port, runStatistics);
+		} catch (IOException ioException) {
+			System.out.println("Error starting the metrics server. Reason: " + ioException.getLocalizedMessage());
+			return;
+		}
+		metricsServer.addCounter("files_failed_total", "The files which could not be processed.",
+				() -> failureList.size());
+		metricsServer.addGauge("files_discovered", "The files of the run, once they are counted.", () -> {
+			ProgressReporter reporter = progressReporter;
+			return reporter != null ? reporter.getTotal() : -1;
+		});
+		metricsServer.addGauge("files_pending", "The files of the run not processed yet.", () -> {
+			ProgressReporter reporter = progressReporter;
+			return reporter != null && reporter.getTotal() >= 0
+					? Math.max(0, reporter.getTotal() - reporter.getDone())
+					: -1;
+		});
+		metricsServer.addGauge("admission_queue_length", "The files waiting for a worker and for heap.", () -> {
+			ConcurrencyController controller = concurrencyController;
+			return controller != null ? controller.getWaitingFiles() : 0;
+		});
+		metricsServer.addGauge("workers_active", "The files being processed by the pool of workers.", () -> {
+			ConcurrencyController controller = concurrencyController;
+			return controller != null ? controller.getActiveWorkers() : 0;
+		});
+		metricsServer.addGauge("workers_limit", "The workers currently allowed by the heap.", () -> {
+			ConcurrencyController controller = concurrencyController;
+			return controller != null ? controller.getWorkerLimit() : -1;
+		});
+		metricsServer.addGauge("failure_log_queue_length", "The failures not written to the failure log yet.",
+				() -> {
+					FailureLog log = failureLog;
+					return log != null ? log.getPendingEntries() : 0;
+				});
+		metricsServer.start();
+		System.out.println("Serving the metrics on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+				+ metricsServer.getPort() + MetricsServer.METRICS_PATH);
+	}
+
+	/**
+	 * Stops serving the live metrics, if they are served
+	 */
+	private static void stopMetrics() {
+
+		if (metricsServer != null) {
+			metricsServer.stop();
+			metricsServer = null;
+		}
+	}
+
+	/**
+	 * Reports the statistics of the run, as a summary and as a JSON report
+	 * 
+	 * @param reportPath The JSON report path
+	 */
+	private static void reportStatistics(Path reportPath) {
+
+		if (runStatistics == null || runStatistics.getFileCount() == 0) {
+			return;
+		}
+		System.out.println("Run summary:");
+		for (String line : runStatistics.getSummary()) {
+			System.out.println(line);
+		}
+		try {
+			runStatistics.writeJson(reportPath);
+		} catch (IOException ioException) {
+			System.out.println("Error writing the run report.");
+		}
+	}
+
+	/**
+	 * Reports the features and the processing time of the files as a CSV file,
+	 * and writes the cost model fitted on them
+	 * 
+	 * @param reportPath The CSV report path
+	 * @param modelPath  The cost model path
+	 */
+	private static void reportComplexity(Path reportPath, Path modelPath) {
+
+		if (complexityReport == null || complexityReport.getFileCount() == 0) {
+			return;
+		}
+		try {
+			complexityReport.writeCsv(reportPath);
+		} catch (IOException ioException) {
+			System.out.println("Error writing the complexity report.");
+		}
+		CostModel costModel = complexityReport.fitCostModel();
+		try {
+			costModel.write(modelPath);
+		} catch (IOException ioException) {
+			System.out.println("Error writing the cost model.");
+		}
+		System.out.println(String.format(Locale.ROOT, "Cost model fitted on %d files, r2 %.3f, see %s",
+				costModel.getFileCount(), costModel.getRSquared(), modelPath));
+	}
+
+	/**
+	 * Compiles the instrumented files and writes the compile errors, mapped to
+	 * their predicates, to the output directory
+	 * 
+	 * @param options The execution options
+	 */
+	private static void verify(ExecutionOptions options) {
+
+		try {
+			long start = System.currentTimeMillis();
+			Map<String, byte[]> classes = new ConcurrentHashMap<>();
+			List<CompileErrorInfo> errors = CompileVerifier.verify(options.getInputPath(), processedFileList,
+					options.getVerifyClasspath(), options.getThreads(), classes);
+			Path verificationPath = options.getOutputPath().resolve(CompileVerifier.VERIFICATION_FILE_NAME);
+			CompileVerifier.write(verificationPath, errors);
+			long predicateErrors = errors.stream().filter(error -> error.getPredicate() != null).count();
+			System.out.println("Verified " + processedFileList.size() + " files in "
+					+ (System.currentTimeMillis() - start) + " ms: " + classes.size() + " classes, " + errors.size()
+					+ " compile errors, " + predicateErrors + " on instrumented lines, see " + verificationPath);
+		} catch (IOException ioException) {
+			System.out.println("Error verifying the instrumented files. Reason: " + ioException.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Watches the input and instruments the changed files again, until the
+	 * process is stopped. The predicate files and the manifest are updated in
+	 * place. The files written by the tool itself are recognized by their hash
+	 * and not instrumented twice. The files that could not be instrumented are
+	 * always printed, and added to the failure log, which is closed when the
+	 * process stops.
+	 *
+	 * <p>
+	 * The changed files go on numbering their predicates above the highest number
+	 * of the run, within the numbering of the shard, thus their names never
+	 * collide with the names of the other files.
+	 * 
+	 * @param options The execution options
+	 */
+	private static void watch(ExecutionOptions options) {
+
+		Path inputPath = options.getInputPath();
+		Path outputPath = options.getOutputPath();
+		Path manifestPath = outputPath.resolve(CorpusManifest.MANIFEST_FILE_NAME);
+		Map<String, ProcessedFileInfo> processedFiles = new TreeMap<>();
+		Map<Path, String> writtenHashes = new HashMap<>();
+		synchronized (processedFileList) {
+			for (ProcessedFileInfo processedFileInfo : processedFileList) {
+				processedFiles.put(processedFileInfo.getRelativePath(), processedFileInfo);
+			}
+		}
+		FailureLog log = failureLog;
+		if (log != null) {
+			Runtime.getRuntime().addShutdownHook(new Thread(log::close, "failure-log-close"));
+		}
+		int shardStart = options.isSharded() ? options.getShardIndex() : 0;
+		int predicateStep = options.isSharded() ? options.getShardCount() : 1;
+		int nextPredicateNumber = Math.max(PredicateParser.getNextPredicateNumber(),
+				CorpusManifest.getNextPredicateNumber(processedFiles.values()));
+		nextPredicateNumber += Math.floorMod(shardStart - nextPredicateNumber, predicateStep);
+		PredicateParser.setLocalPredicateNumbering(nextPredicateNumber, predicateStep);
+
+		try (SourceWalker walker = new SourceWalker(inputPath, options.getIncludeGlobs(), options.getExcludeGlobs(),
+				options.isDefaultExcludes());
+				SourceWatcher watcher = new SourceWatcher(inputPath, walker::accepts,
+						SourceWatcher.DEFAULT_DEBOUNCE_MILLIS)) {
+			for (String relativePath : processedFiles.keySet()) {
+				Path path = inputPath.toFile().isDirectory() ? inputPath.resolve(relativePath) : inputPath;
+				writtenHashes.put(path.toAbsolutePath(), SharedWorkDirectory.hash(new String(Files.readAllBytes(path))));
+			}
+			System.out.println("Watching " + inputPath + " for changes.");
+
+			while (true) {
+				Set<Path> changedPaths = watcher.awaitChanges();
+				long startNanos = System.nanoTime();
+				int instrumentedCount = 0;
+				for (Path path : changedPaths) {
+					String relativePath = inputPath.toFile().isDirectory()
+							? ShardSelector.getRelativePath(inputPath, path)
+							: ShardSelector.getRelativePath(inputPath, inputPath);
+					if (!Files.exists(path)) {
+						processedFiles.remove(relativePath);
+						writtenHashes.remove(path.toAbsolutePath());
+						continue;
+					}
+					String hash = SharedWorkDirectory.hash(new String(Files.readAllBytes(path)));
+					if (hash.equals(writtenHashes.get(path.toAbsolutePath()))) {
+						continue;
+					}
+					List<FailureInfo> failures = new ArrayList<>();
+					ProcessedFileInfo processedFileInfo = processPath(inputPath, path, outputPath, failures);
+					for (FailureInfo failureInfo : failures) {
+						System.out.println("Could not instrument " + failureInfo.getPath() + ". Reason: "
+								+ failureInfo.getReason() + (log != null ? ", see " + log.getLogPath() : ""));
+					}
+					if (processedFileInfo != null) {
+						processedFiles.put(relativePath, processedFileInfo);
+						writtenHashes.put(path.toAbsolutePath(),
+								SharedWorkDirectory.hash(new String(Files.readAllBytes(path))));
+						instrumentedCount++;
+					}
+				}
+				CorpusManifest.write(manifestPath, new ArrayList<>(processedFiles.values()));
+				if (instrumentedCount > 0) {
+					System.out.println("Instrumented " + instrumentedCount + " changed files in "
+							+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms.");
+				}
+			}
+		} catch (IOException ioException) {
+			System.out.println("Error watching " + inputPath + ". Reason: " + ioException.getLocalizedMessage());
+			System.exit(1);
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		} finally {
+			PredicateParser.clearLocalPredicateNumbering();
+		}
+	}
+
+	/**
+	 * Serves the instrumentation requests until a shutdown request
+	 * 
+	 * @param options The execution options
+	 */
+	private static void serve(ExecutionOptions options) {
+
+		instrumentationCache = new InstrumentationCache(options.getCacheSize());
+		InstrumentationDaemon daemon = new InstrumentationDaemon(options);
+		try {
+			if (options.getDaemonPort() > 0) {
+				daemon.serveLoopback(options.getDaemonPort());
+			} else {
+				daemon.serveStandardInput();
+			}
+		} catch (IOException ioException) {
+			System.out.println("Error running the daemon. Reason: " + ioException.getLocalizedMessage());
+			System.exit(1);
+		}
 	}
 
 	/**
@@ -658,12 +1742,34 @@ public class TaskExecutor {
 	 */
 	public static void main(String[] args) {
 
-		if (args.length != 2) {
-			System.out.println("Invalid arguments!");
+		ExecutionOptions options = null;
+		try {
+			options = OptionsParser.parse(args);
+		} catch (IllegalArgumentException exception) {
+			System.out.println("Invalid arguments! " + exception.getMessage());
 			System.exit(1);
 		}
 
-		Path outputPath = Paths.get(args[0]);
+		if (options.isMerge()) {
+			RunReports.merge(options);
+			return;
+		}
+		if (options.isDifferential()) {
+			System.exit(DifferentialHarness.run(options) ? 0 : 1);
+		}
+
+		fileTimeBudgetMillis = options.getFileTimeBudgetMillis();
+		fileAllocationBudgetBytes = options.getFileAllocationBudgetBytes();
+		streamThresholdBytes = options.getStreamThresholdBytes();
+		if (options.isDaemon()) {
+			serve(options);
+			return;
+		}
+
+		verbose = options.isVerbose();
+		runStatistics = new RunStatistics();
+		complexityReport = new ComplexityReport();
+		Path outputPath = options.getOutputPath();
 		if (!outputPath.toFile().exists()) {
 			try {
 				Files.createDirectories(outputPath);
@@ -671,17 +1777,104 @@ public class TaskExecutor {
 				System.out.println("Error creating the output directory.");
 			}
 		}
+		failureLog = new FailureLog(outputPath);
+		if (options.getWorkDirectory() == null) {
+			progressReporter = new ProgressReporter();
+			progressReporter.start(options.getProgressIntervalMillis());
+		}
+		if (options.getMetricsPort() > 0) {
+			startMetrics(options.getMetricsPort());
+		}
 
-		Path inputPath = Paths.get(args[1]);
-		if (inputPath.toFile().isDirectory()) {
-			try (Stream<Path> pathStream = Files.walk(inputPath, FileVisitOption.FOLLOW_LINKS)) {
-				pathStream.filter(path -> path.toString().endsWith(".java"))
-						.forEach(path -> processPath(path, outputPath));
-			} catch (IOException e) {
-				System.out.println("Error walking the directory tree");
+		Path inputPath = options.getInputPath();
+		CostModel costModel = null;
+		if (options.getShardStrategy() == ShardStrategy.COST) {
+			try {
+				costModel = CostModel.read(options.getCostModelPath());
+			} catch (IOException ioException) {
+				System.out.println("Invalid arguments! Could not read the cost model. Reason: "
+						+ ioException.getLocalizedMessage());
+				System.exit(1);
+			}
+		}
+		if (options.isSharded()) {
+			// Each shard numbers its predicates differently, thus the names never collide
+			PredicateParser.setPredicateNumbering(options.getShardIndex(), options.getShardCount());
+		}
+
+		if (!inputPath.toFile().isDirectory()) {
+			if (options.getWorkDirectory() != null) {
+				processWorkDirectory(options, inputPath, Arrays.asList(inputPath));
+				stopMetrics();
+				return;
+			} else if (!options.isSharded() || options.getShardIndex() == 0) {
+				progressReporter.setTotal(1);
+				processPath(inputPath, inputPath, outputPath);
+			} else {
+				progressReporter.setTotal(0);
 			}
 		} else {
-			processPath(inputPath, outputPath);
+			try (SourceWalker walker = new SourceWalker(inputPath, options.getIncludeGlobs(),
+					options.getExcludeGlobs(), options.isDefaultExcludes())) {
+				if (options.getWorkDirectory() != null) {
+					processWorkDirectory(options, inputPath, walker.stream().collect(Collectors.toList()));
+					stopMetrics();
+					return;
+				} else if (options.isSharded()) {
+					List<Path> shardPaths = ShardSelector.select(inputPath, walker.stream().collect(Collectors.toList()),
+							options.getShardIndex(), options.getShardCount(), options.getShardStrategy(),
+							costModel);
+					System.out.println("Shard " + options.getShardIndex() + "/" + options.getShardCount() + ": "
+							+ shardPaths.size() + " files");
+					progressReporter.setTotal(shardPaths.size());
+					processPaths(inputPath, shardPaths.stream(), outputPath, options);
+				} else {
+					// The total is counted by a walk of its own, running ahead of the processing
+					ExecutionOptions walkOptions = options;
+					progressReporter.countTotal(() -> {
+						try (SourceWalker counter = new SourceWalker(inputPath, walkOptions.getIncludeGlobs(),
+								walkOptions.getExcludeGlobs(), walkOptions.isDefaultExcludes())) {
+							return counter.stream().count();
+						}
+					});
+					// The files are processed while the walk goes on
+					processPaths(inputPath, walker.stream(), outputPath, options);
+				}
+			}
+		}
+
+		progressReporter.stop();
+		progressReporter = null;
+
+		// Creating the manifest of the run
+		String manifestFileName = options.isSharded()
+				? CorpusManifest.getShardManifestFileName(options.getShardIndex(), options.getShardCount())
+				: CorpusManifest.MANIFEST_FILE_NAME;
+		try {
+			CorpusManifest.write(outputPath.resolve(manifestFileName), processedFileList);
+		} catch (IOException ioException) {
+			System.out.println("Error writing the manifest.");
+		}
+		reportFailures(outputPath, options.isWatch());
+		reportStatistics(outputPath.resolve(options.isSharded()
+				? RunStatistics.getShardReportFileName(options.getShardIndex(), options.getShardCount())
+				: RunStatistics.REPORT_FILE_NAME));
+		reportComplexity(
+				outputPath.resolve(options.isSharded()
+						? ComplexityReport.getShardFileName(ComplexityReport.REPORT_FILE_NAME,
+								options.getShardIndex(), options.getShardCount())
+						: ComplexityReport.REPORT_FILE_NAME),
+				outputPath.resolve(options.isSharded()
+						? ComplexityReport.getShardFileName(CostModel.MODEL_FILE_NAME, options.getShardIndex(),
+								options.getShardCount())
+						: CostModel.MODEL_FILE_NAME));
+
+		if (options.isVerify()) {
+			verify(options);
+		}
+		if (options.isWatch()) {
+			watch(options);
 		}
+		stopMetrics();
 	}
 }
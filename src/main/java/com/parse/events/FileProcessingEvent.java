@@ -0,0 +1,56 @@
+package com.parse.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The flight recorder event of the processing of a file, from reading it to
+ * writing its predicate file.
+ */
+@Name("com.parse.FileProcessing")
+@Label("File Processing")
+@Category("Control Statement Modifier")
+@Description("The instrumentation of a Java file")
+public class FileProcessingEvent extends jdk.jfr.Event {
+
+	/**
+	 * The file path
+	 */
+	@Label("Path")
+	String path;
+
+	/**
+	 * The number of lines of the updated file
+	 */
+	@Label("Lines")
+	int lineCount;
+
+	/**
+	 * The number of predicates found
+	 */
+	@Label("Predicates")
+	int predicateCount;
+
+	/**
+	 * The size of the file before the processing
+	 */
+	@Label("Bytes In")
+	@DataAmount
+	long bytesIn;
+
+	/**
+	 * The size of the file after the processing
+	 */
+	@Label("Bytes Out")
+	@DataAmount
+	long bytesOut;
+
+	/**
+	 * The reason the file could not be processed, null if it was processed
+	 */
+	@Label("Failure")
+	String failure;
+}
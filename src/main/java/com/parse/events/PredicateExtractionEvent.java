@@ -0,0 +1,57 @@
+package com.parse.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The flight recorder event of the extraction of a predicate from a control
+ * statement.
+ */
+@Name("com.parse.PredicateExtraction")
+@Label("Predicate Extraction")
+@Category("Control Statement Modifier")
+@Description("The replacement of the condition of a control statement by a predicate")
+public class PredicateExtractionEvent extends jdk.jfr.Event {
+
+	/**
+	 * The file path, null if the statement is not processed as part of a file
+	 */
+	@Label("Path")
+	String path;
+
+	/**
+	 * The predicate name
+	 */
+	@Label("Predicate")
+	String predicate;
+
+	/**
+	 * The type of the control statement
+	 */
+	@Label("Type")
+	String type;
+
+	/**
+	 * The number of predicates declared for the statement, one per clause of
+	 * the condition
+	 */
+	@Label("Predicates")
+	int predicateCount;
+
+	/**
+	 * The length of the statement
+	 */
+	@Label("Bytes In")
+	@DataAmount
+	long bytesIn;
+
+	/**
+	 * The length of the declarations and of the converted statement
+	 */
+	@Label("Bytes Out")
+	@DataAmount
+	long bytesOut;
+}
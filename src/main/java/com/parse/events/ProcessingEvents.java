@@ -0,0 +1,254 @@
+package com.parse.events;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.parse.models.PredicateInfo;
+import com.parse.utils.StageTimer.Stage;
+
+import jdk.jfr.EventType;
+
+/**
+ * The utility class ProcessingEvents. It emits the flight recorder events of
+ * the processing of the files, of its stages and of the predicate extractions.
+ *
+ * <p>
+ * While no recording is running, or on a JVM without the flight recorder,
+ * every call returns after checking a flag, no event is created and nothing
+ * is measured. The events of the file processed by a thread are kept in
+ * thread locals, as the stages of a file never overlap.
+ */
+public class ProcessingEvents {
+
+	/**
+	 * If the JVM provides the flight recorder
+	 */
+	private static final boolean AVAILABLE = isAvailable();
+
+	/**
+	 * The holder of the event types. The flight recorder classes are loaded
+	 * only if the JVM provides them.
+	 */
+	private static class EventTypeHolder {
+
+		private static final EventType FILE = EventType.getEventType(FileProcessingEvent.class);
+
+		private static final EventType STAGE = EventType.getEventType(StageEvent.class);
+
+		private static final EventType PREDICATE = EventType.getEventType(PredicateExtractionEvent.class);
+	}
+
+	/**
+	 * The event of the file processed by each thread, null if the thread is not
+	 * processing a file or no recording was running when it started
+	 */
+	private static final ThreadLocal<FileProcessingEvent> FILE_EVENT = new ThreadLocal<>();
+
+	/**
+	 * The event of the current stage of each thread
+	 */
+	private static final ThreadLocal<StageEvent> STAGE_EVENT = new ThreadLocal<>();
+
+	private ProcessingEvents() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	private static boolean isAvailable() {
+
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException | LinkageError exception) {
+			return false;
+		}
+	}
+
+	/**
+	 * Begins the event of a file processed by the current thread
+	 *
+	 * @param filePath The file path
+	 */
+	public static void beginFile(Path filePath) {
+
+		if (!AVAILABLE || !(EventTypeHolder.FILE.isEnabled() || EventTypeHolder.STAGE.isEnabled()
+				|| EventTypeHolder.PREDICATE.isEnabled())) {
+			return;
+		}
+		FileProcessingEvent event = new FileProcessingEvent();
+		event.path = filePath.toString();
+		event.bytesIn = size(filePath);
+		FILE_EVENT.set(event);
+		event.begin();
+	}
+
+	/**
+	 * Commits the event of the file processed by the current thread
+	 *
+	 * @param code           The updated code, null if it is only in the file
+	 * @param predicateCount The number of predicates found
+	 */
+	public static void endFile(String code, int predicateCount) {
+
+		FileProcessingEvent event = removeFileEvent();
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			Path filePath = Paths.get(event.path);
+			event.lineCount = code != null ? StringUtils.countMatches(code, '\n') : countLines(filePath);
+			event.predicateCount = predicateCount;
+			event.bytesOut = size(filePath);
+			event.commit();
+		}
+	}
+
+	/**
+	 * Commits the event of the file the current thread could not process
+	 *
+	 * @param reason The reason
+	 */
+	public static void failFile(String reason) {
+
+		FileProcessingEvent event = removeFileEvent();
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.failure = String.valueOf(reason);
+			event.commit();
+		}
+	}
+
+	/**
+	 * Removes the event of the file processed by the current thread
+	 *
+	 * @return The event, null if there is none
+	 */
+	private static FileProcessingEvent removeFileEvent() {
+
+		if (!AVAILABLE) {
+			return null;
+		}
+		FileProcessingEvent event = FILE_EVENT.get();
+		FILE_EVENT.remove();
+		STAGE_EVENT.remove();
+		return event;
+	}
+
+	/**
+	 * Begins the event of a stage of the file processed by the current thread
+	 */
+	public static void beginStage() {
+
+		if (!AVAILABLE || !EventTypeHolder.STAGE.isEnabled()) {
+			return;
+		}
+		StageEvent event = new StageEvent();
+		STAGE_EVENT.set(event);
+		event.begin();
+	}
+
+	/**
+	 * Commits the event of the current stage of the current thread
+	 *
+	 * @param stage The stage
+	 */
+	public static void endStage(Stage stage) {
+
+		if (!AVAILABLE || !EventTypeHolder.STAGE.isEnabled()) {
+			return;
+		}
+		StageEvent event = STAGE_EVENT.get();
+		STAGE_EVENT.remove();
+		if (event == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			FileProcessingEvent fileEvent = FILE_EVENT.get();
+			event.stage = stage.getLabel();
+			event.path = fileEvent != null ? fileEvent.path : null;
+			event.bytesIn = fileEvent != null ? fileEvent.bytesIn : 0;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Begins the event of a predicate extraction
+	 *
+	 * @return The event, null if no recording is running
+	 */
+	public static PredicateExtractionEvent beginPredicate() {
+
+		if (!AVAILABLE || !EventTypeHolder.PREDICATE.isEnabled()) {
+			return null;
+		}
+		PredicateExtractionEvent event = new PredicateExtractionEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Commits the event of a predicate extraction. Nothing is committed if the
+	 * statement had no predicate.
+	 *
+	 * @param event         The event, null if no recording was running
+	 * @param statement     The statement
+	 * @param predicateInfo The predicate, null if none was extracted
+	 */
+	public static void endPredicate(PredicateExtractionEvent event, String statement, PredicateInfo predicateInfo) {
+
+		if (event == null || predicateInfo == null) {
+			return;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			FileProcessingEvent fileEvent = FILE_EVENT.get();
+			event.path = fileEvent != null ? fileEvent.path : null;
+			event.predicate = predicateInfo.getName();
+			event.type = predicateInfo.getType();
+			event.predicateCount = StringUtils.countMatches(predicateInfo.getPredicateInitStatement(), "boolean ");
+			event.bytesIn = statement.length();
+			event.bytesOut = predicateInfo.getPredicateInitStatement().length()
+					+ predicateInfo.getConvertedStatement().length();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Gets the size of a file
+	 *
+	 * @param filePath The file path
+	 * @return The size, -1 if it is not known
+	 */
+	private static long size(Path filePath) {
+
+		try {
+			return Files.size(filePath);
+		} catch (IOException ioException) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Counts the lines of a file
+	 *
+	 * @param filePath The file path
+	 * @return The number of lines, -1 if it is not known
+	 */
+	private static int countLines(Path filePath) {
+
+		try (Stream<String> lines = Files.lines(filePath)) {
+			return (int) lines.count();
+		} catch (IOException | RuntimeException exception) {
+			return -1;
+		}
+	}
+}
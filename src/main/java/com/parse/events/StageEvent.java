@@ -0,0 +1,38 @@
+package com.parse.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The flight recorder event of a stage of the processing of a file, e.g. the
+ * Eclipse pre-format or the line transform. A stage run once per member of a
+ * streamed file has an event per member.
+ */
+@Name("com.parse.Stage")
+@Label("Processing Stage")
+@Category("Control Statement Modifier")
+@Description("A stage of the instrumentation of a Java file")
+public class StageEvent extends jdk.jfr.Event {
+
+	/**
+	 * The name of the stage
+	 */
+	@Label("Stage")
+	String stage;
+
+	/**
+	 * The file path
+	 */
+	@Label("Path")
+	String path;
+
+	/**
+	 * The size of the file before the processing
+	 */
+	@Label("File Bytes In")
+	@DataAmount
+	long bytesIn;
+}
@@ -0,0 +1,14 @@
+package com.parse.exceptions;
+
+/**
+ * The exception BudgetExceededException. It is thrown at a checkpoint when the
+ * processing of a file exceeded its time or allocation budget.
+ */
+public class BudgetExceededException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public BudgetExceededException(String message) {
+		super(message);
+	}
+}
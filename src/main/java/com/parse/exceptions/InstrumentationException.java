@@ -0,0 +1,14 @@
+package com.parse.exceptions;
+
+/**
+ * The exception InstrumentationException. It is thrown by the embedding API
+ * when a source could not be instrumented.
+ */
+public class InstrumentationException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public InstrumentationException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,69 @@
+package com.parse.models;
+
+/**
+ * The model CompileErrorInfo. It holds a compile error of an instrumented file
+ * and the predicate it was mapped to.
+ */
+public class CompileErrorInfo {
+
+	/**
+	 * The file path, relative to the input root
+	 */
+	private String relativePath;
+
+	/**
+	 * The line number in the instrumented file
+	 */
+	private long lineNumber;
+
+	/**
+	 * The predicate the line belongs to, null if the error is not on an
+	 * instrumented line
+	 */
+	private PredicateInfo predicate;
+
+	/**
+	 * The compiler message
+	 */
+	private String message;
+
+	public CompileErrorInfo(String relativePath, long lineNumber, PredicateInfo predicate, String message) {
+		super();
+		this.relativePath = relativePath;
+		this.lineNumber = lineNumber;
+		this.predicate = predicate;
+		this.message = message;
+	}
+
+	public String getRelativePath() {
+		return relativePath;
+	}
+
+	public void setRelativePath(String relativePath) {
+		this.relativePath = relativePath;
+	}
+
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	public void setLineNumber(long lineNumber) {
+		this.lineNumber = lineNumber;
+	}
+
+	public PredicateInfo getPredicate() {
+		return predicate;
+	}
+
+	public void setPredicate(PredicateInfo predicate) {
+		this.predicate = predicate;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+}
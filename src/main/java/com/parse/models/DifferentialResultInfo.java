@@ -0,0 +1,106 @@
+package com.parse.models;
+
+/**
+ * The model DifferentialResultInfo. It holds the outcome of running a class of
+ * the original and of the instrumented subject.
+ */
+public class DifferentialResultInfo {
+
+	/**
+	 * The binary name of the class
+	 */
+	private String className;
+
+	/**
+	 * If both versions produced the same output and exception
+	 */
+	private boolean same;
+
+	/**
+	 * The outcome of the original version
+	 */
+	private String originalOutcome;
+
+	/**
+	 * The outcome of the instrumented version
+	 */
+	private String instrumentedOutcome;
+
+	/**
+	 * The median run time of the original version in nanoseconds
+	 */
+	private long originalNanos;
+
+	/**
+	 * The median run time of the instrumented version in nanoseconds
+	 */
+	private long instrumentedNanos;
+
+	public DifferentialResultInfo(String className, String originalOutcome, String instrumentedOutcome,
+			long originalNanos, long instrumentedNanos) {
+		super();
+		this.className = className;
+		this.same = originalOutcome.equals(instrumentedOutcome);
+		this.originalOutcome = originalOutcome;
+		this.instrumentedOutcome = instrumentedOutcome;
+		this.originalNanos = originalNanos;
+		this.instrumentedNanos = instrumentedNanos;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public void setClassName(String className) {
+		this.className = className;
+	}
+
+	public boolean isSame() {
+		return same;
+	}
+
+	public void setSame(boolean same) {
+		this.same = same;
+	}
+
+	public String getOriginalOutcome() {
+		return originalOutcome;
+	}
+
+	public void setOriginalOutcome(String originalOutcome) {
+		this.originalOutcome = originalOutcome;
+	}
+
+	public String getInstrumentedOutcome() {
+		return instrumentedOutcome;
+	}
+
+	public void setInstrumentedOutcome(String instrumentedOutcome) {
+		this.instrumentedOutcome = instrumentedOutcome;
+	}
+
+	public long getOriginalNanos() {
+		return originalNanos;
+	}
+
+	public void setOriginalNanos(long originalNanos) {
+		this.originalNanos = originalNanos;
+	}
+
+	public long getInstrumentedNanos() {
+		return instrumentedNanos;
+	}
+
+	public void setInstrumentedNanos(long instrumentedNanos) {
+		this.instrumentedNanos = instrumentedNanos;
+	}
+
+	/**
+	 * Gets the run time of the instrumented version relative to the original one
+	 *
+	 * @return The slowdown, 1 if equally fast
+	 */
+	public double getSlowdown() {
+		return originalNanos == 0 ? 1 : (double) instrumentedNanos / originalNanos;
+	}
+}
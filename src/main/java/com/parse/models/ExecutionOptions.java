@@ -0,0 +1,428 @@
+package com.parse.models;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The model ExecutionOptions. It holds the options of a single execution of
+ * the application.
+ */
+public class ExecutionOptions {
+
+	/**
+	 * If the execution merges the shard outputs instead of processing files
+	 */
+	private boolean merge;
+
+	/**
+	 * If the execution serves the instrumentation requests instead of processing
+	 * files
+	 */
+	private boolean daemon;
+
+	/**
+	 * The loopback port the daemon listens on, zero to serve the standard input
+	 */
+	private int daemonPort;
+
+	/**
+	 * The number of sources whose results are kept by the daemon
+	 */
+	private int cacheSize = 256;
+
+	/**
+	 * The output directory path
+	 */
+	private Path outputPath;
+
+	/**
+	 * The input path, a single Java file or a directory
+	 */
+	private Path inputPath;
+
+	/**
+	 * The shard outputs to merge
+	 */
+	private List<Path> mergeInputPaths = new ArrayList<>();
+
+	/**
+	 * The zero based index of the shard processed by this execution
+	 */
+	private int shardIndex = 0;
+
+	/**
+	 * The total number of shards
+	 */
+	private int shardCount = 1;
+
+	/**
+	 * The strategy used to assign files to the shards
+	 */
+	private ShardStrategy shardStrategy = ShardStrategy.HASH;
+
+	/**
+	 * The cost model of a previous run, used by the cost shard strategy
+	 */
+	private Path costModelPath;
+
+	/**
+	 * The shared work directory, null if the files are not distributed
+	 * dynamically
+	 */
+	private Path workDirectory;
+
+	/**
+	 * The time after which the lease of a stalled worker is reclaimed, in
+	 * milliseconds
+	 */
+	private long leaseExpiryMillis = 60000;
+
+	/**
+	 * The maximum number of workers sharing a work directory
+	 */
+	private int maxWorkers = 64;
+
+	/**
+	 * The globs a file must match, relative to the input directory
+	 */
+	private List<String> includeGlobs = new ArrayList<>();
+
+	/**
+	 * The globs of the excluded files and directories, relative to the input
+	 * directory
+	 */
+	private List<String> excludeGlobs = new ArrayList<>();
+
+	/**
+	 * If the build output directories are skipped
+	 */
+	private boolean defaultExcludes = true;
+
+	/**
+	 * The wall-clock budget of a single file in milliseconds, zero if unlimited
+	 */
+	private long fileTimeBudgetMillis;
+
+	/**
+	 * The allocation budget of a single file in bytes, zero if unlimited
+	 */
+	private long fileAllocationBudgetBytes;
+
+	/**
+	 * The size from which a file is processed one member at a time, in bytes,
+	 * zero if never
+	 */
+	private long streamThresholdBytes;
+
+	/**
+	 * The maximum number of files processed at the same time
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The heap ceiling the workers stay below, as a percentage of the maximum
+	 * heap
+	 */
+	private int heapCeilingPercent = 75;
+
+	/**
+	 * If every processed file is reported on the console, instead of the
+	 * periodic progress only
+	 */
+	private boolean verbose;
+
+	/**
+	 * The interval between two progress reports
+	 */
+	private long progressIntervalMillis = 10000;
+
+	/**
+	 * The loopback port the metrics are served on, zero if they are not
+	 */
+	private int metricsPort;
+
+	/**
+	 * If the input is watched and the changed files instrumented again after the
+	 * first run
+	 */
+	private boolean watch;
+
+	/**
+	 * If the original and the instrumented subject are run and compared
+	 */
+	private boolean differential;
+
+	/**
+	 * The number of runs of each version of a class by the differential harness
+	 */
+	private int runs = 5;
+
+	/**
+	 * The maximum time of a run of the differential harness in milliseconds
+	 */
+	private long runTimeoutMillis = 60000;
+
+	/**
+	 * If the instrumented files are compiled after the run, to find the ones the
+	 * transformation broke
+	 */
+	private boolean verify;
+
+	/**
+	 * The class path the instrumented files are compiled against, null if none
+	 */
+	private String verifyClasspath;
+
+	public boolean isMerge() {
+		return merge;
+	}
+
+	public void setMerge(boolean merge) {
+		this.merge = merge;
+	}
+
+	public boolean isDaemon() {
+		return daemon;
+	}
+
+	public void setDaemon(boolean daemon) {
+		this.daemon = daemon;
+	}
+
+	public int getDaemonPort() {
+		return daemonPort;
+	}
+
+	public void setDaemonPort(int daemonPort) {
+		this.daemonPort = daemonPort;
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public Path getOutputPath() {
+		return outputPath;
+	}
+
+	public void setOutputPath(Path outputPath) {
+		this.outputPath = outputPath;
+	}
+
+	public Path getInputPath() {
+		return inputPath;
+	}
+
+	public void setInputPath(Path inputPath) {
+		this.inputPath = inputPath;
+	}
+
+	public List<Path> getMergeInputPaths() {
+		return mergeInputPaths;
+	}
+
+	public void setMergeInputPaths(List<Path> mergeInputPaths) {
+		this.mergeInputPaths = mergeInputPaths;
+	}
+
+	public int getShardIndex() {
+		return shardIndex;
+	}
+
+	public void setShardIndex(int shardIndex) {
+		this.shardIndex = shardIndex;
+	}
+
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	public void setShardCount(int shardCount) {
+		this.shardCount = shardCount;
+	}
+
+	public ShardStrategy getShardStrategy() {
+		return shardStrategy;
+	}
+
+	public void setShardStrategy(ShardStrategy shardStrategy) {
+		this.shardStrategy = shardStrategy;
+	}
+
+	public Path getCostModelPath() {
+		return costModelPath;
+	}
+
+	public void setCostModelPath(Path costModelPath) {
+		this.costModelPath = costModelPath;
+	}
+
+	public Path getWorkDirectory() {
+		return workDirectory;
+	}
+
+	public void setWorkDirectory(Path workDirectory) {
+		this.workDirectory = workDirectory;
+	}
+
+	public long getLeaseExpiryMillis() {
+		return leaseExpiryMillis;
+	}
+
+	public void setLeaseExpiryMillis(long leaseExpiryMillis) {
+		this.leaseExpiryMillis = leaseExpiryMillis;
+	}
+
+	public int getMaxWorkers() {
+		return maxWorkers;
+	}
+
+	public void setMaxWorkers(int maxWorkers) {
+		this.maxWorkers = maxWorkers;
+	}
+
+	public List<String> getIncludeGlobs() {
+		return includeGlobs;
+	}
+
+	public void setIncludeGlobs(List<String> includeGlobs) {
+		this.includeGlobs = includeGlobs;
+	}
+
+	public List<String> getExcludeGlobs() {
+		return excludeGlobs;
+	}
+
+	public void setExcludeGlobs(List<String> excludeGlobs) {
+		this.excludeGlobs = excludeGlobs;
+	}
+
+	public boolean isDefaultExcludes() {
+		return defaultExcludes;
+	}
+
+	public void setDefaultExcludes(boolean defaultExcludes) {
+		this.defaultExcludes = defaultExcludes;
+	}
+
+	public long getFileTimeBudgetMillis() {
+		return fileTimeBudgetMillis;
+	}
+
+	public void setFileTimeBudgetMillis(long fileTimeBudgetMillis) {
+		this.fileTimeBudgetMillis = fileTimeBudgetMillis;
+	}
+
+	public long getFileAllocationBudgetBytes() {
+		return fileAllocationBudgetBytes;
+	}
+
+	public void setFileAllocationBudgetBytes(long fileAllocationBudgetBytes) {
+		this.fileAllocationBudgetBytes = fileAllocationBudgetBytes;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public long getStreamThresholdBytes() {
+		return streamThresholdBytes;
+	}
+
+	public void setStreamThresholdBytes(long streamThresholdBytes) {
+		this.streamThresholdBytes = streamThresholdBytes;
+	}
+
+	public int getHeapCeilingPercent() {
+		return heapCeilingPercent;
+	}
+
+	public void setHeapCeilingPercent(int heapCeilingPercent) {
+		this.heapCeilingPercent = heapCeilingPercent;
+	}
+
+	public boolean isVerbose() {
+		return verbose;
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	public long getProgressIntervalMillis() {
+		return progressIntervalMillis;
+	}
+
+	public void setProgressIntervalMillis(long progressIntervalMillis) {
+		this.progressIntervalMillis = progressIntervalMillis;
+	}
+
+	public int getMetricsPort() {
+		return metricsPort;
+	}
+
+	public void setMetricsPort(int metricsPort) {
+		this.metricsPort = metricsPort;
+	}
+
+	public boolean isWatch() {
+		return watch;
+	}
+
+	public void setWatch(boolean watch) {
+		this.watch = watch;
+	}
+
+	public boolean isDifferential() {
+		return differential;
+	}
+
+	public void setDifferential(boolean differential) {
+		this.differential = differential;
+	}
+
+	public int getRuns() {
+		return runs;
+	}
+
+	public void setRuns(int runs) {
+		this.runs = runs;
+	}
+
+	public long getRunTimeoutMillis() {
+		return runTimeoutMillis;
+	}
+
+	public void setRunTimeoutMillis(long runTimeoutMillis) {
+		this.runTimeoutMillis = runTimeoutMillis;
+	}
+
+	public boolean isVerify() {
+		return verify;
+	}
+
+	public void setVerify(boolean verify) {
+		this.verify = verify;
+	}
+
+	public String getVerifyClasspath() {
+		return verifyClasspath;
+	}
+
+	public void setVerifyClasspath(String verifyClasspath) {
+		this.verifyClasspath = verifyClasspath;
+	}
+
+	public boolean isSharded() {
+		return shardCount > 1;
+	}
+}
@@ -0,0 +1,40 @@
+package com.parse.models;
+
+/**
+ * The model FailureInfo. It holds the information of a file that could not be
+ * processed and was left untouched.
+ */
+public class FailureInfo {
+
+	/**
+	 * The file path
+	 */
+	private String path;
+
+	/**
+	 * The failure reason
+	 */
+	private String reason;
+
+	public FailureInfo(String path, String reason) {
+		super();
+		this.path = path;
+		this.reason = reason;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public void setReason(String reason) {
+		this.reason = reason;
+	}
+}
@@ -0,0 +1,197 @@
+package com.parse.models;
+
+import java.util.Locale;
+
+/**
+ * The model FileComplexityInfo. It holds the features of a Java file that the
+ * processing cost depends on, and the cost measured when it was processed.
+ */
+public class FileComplexityInfo {
+
+	/**
+	 * The header of the CSV lines
+	 */
+	public static final String CSV_HEADER = "path,lines,bytes,max_depth,if,else_if,for,while,do_while,max_clauses,"
+			+ "predicates,millis";
+
+	/**
+	 * The file path, relative to the input root
+	 */
+	private String path;
+
+	/**
+	 * The number of lines
+	 */
+	private int lines;
+
+	/**
+	 * The size of the file in bytes
+	 */
+	private long bytes;
+
+	/**
+	 * The maximum nesting depth of the control statements with a block
+	 */
+	private int maxDepth;
+
+	/**
+	 * The number of 'if' statements
+	 */
+	private int ifCount;
+
+	/**
+	 * The number of 'else-if' statements
+	 */
+	private int elseIfCount;
+
+	/**
+	 * The number of 'for' statements
+	 */
+	private int forCount;
+
+	/**
+	 * The number of 'while' statements
+	 */
+	private int whileCount;
+
+	/**
+	 * The number of 'do-while' statements
+	 */
+	private int doWhileCount;
+
+	/**
+	 * The maximum number of clauses of a condition, joined by '&&' or '||'
+	 */
+	private int maxClauses;
+
+	/**
+	 * The number of predicates emitted
+	 */
+	private int predicates;
+
+	/**
+	 * The processing time in milliseconds
+	 */
+	private double millis;
+
+	public FileComplexityInfo() {
+		super();
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public int getLines() {
+		return lines;
+	}
+
+	public void setLines(int lines) {
+		this.lines = lines;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	public int getIfCount() {
+		return ifCount;
+	}
+
+	public void setIfCount(int ifCount) {
+		this.ifCount = ifCount;
+	}
+
+	public int getElseIfCount() {
+		return elseIfCount;
+	}
+
+	public void setElseIfCount(int elseIfCount) {
+		this.elseIfCount = elseIfCount;
+	}
+
+	public int getForCount() {
+		return forCount;
+	}
+
+	public void setForCount(int forCount) {
+		this.forCount = forCount;
+	}
+
+	public int getWhileCount() {
+		return whileCount;
+	}
+
+	public void setWhileCount(int whileCount) {
+		this.whileCount = whileCount;
+	}
+
+	public int getDoWhileCount() {
+		return doWhileCount;
+	}
+
+	public void setDoWhileCount(int doWhileCount) {
+		this.doWhileCount = doWhileCount;
+	}
+
+	public int getMaxClauses() {
+		return maxClauses;
+	}
+
+	public void setMaxClauses(int maxClauses) {
+		this.maxClauses = maxClauses;
+	}
+
+	public int getPredicates() {
+		return predicates;
+	}
+
+	public void setPredicates(int predicates) {
+		this.predicates = predicates;
+	}
+
+	public double getMillis() {
+		return millis;
+	}
+
+	public void setMillis(double millis) {
+		this.millis = millis;
+	}
+
+	/**
+	 * Gets the number of control statements
+	 *
+	 * @return The number of control statements of every type
+	 */
+	public int getStatementCount() {
+		return ifCount + elseIfCount + forCount + whileCount + doWhileCount;
+	}
+
+	/**
+	 * Formats the file as a CSV line, in the order of {@link #CSV_HEADER}
+	 *
+	 * @return The CSV line
+	 */
+	public String toCsv() {
+
+		String quotedPath = path.matches("[^,\"\r\n]*") ? path : "\"" + path.replace("\"", "\"\"") + "\"";
+		return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%.3f", quotedPath, lines, bytes, maxDepth,
+				ifCount, elseIfCount, forCount, whileCount, doWhileCount, maxClauses, predicates, millis);
+	}
+}
@@ -0,0 +1,97 @@
+package com.parse.models;
+
+/**
+ * The model FileTimingInfo. It holds the time the processing of a file took,
+ * and the bytes it allocated.
+ */
+public class FileTimingInfo {
+
+	/**
+	 * The file path
+	 */
+	private String path;
+
+	/**
+	 * The time of all the stages in nanoseconds
+	 */
+	private long nanos;
+
+	/**
+	 * The time of each stage in nanoseconds, indexed by the ordinal of the stage
+	 */
+	private long[] stageNanos;
+
+	/**
+	 * The size of the file before the processing
+	 */
+	private long inputBytes;
+
+	/**
+	 * The bytes allocated by all the stages
+	 */
+	private long allocatedBytes;
+
+	/**
+	 * The bytes allocated by each stage, indexed by the ordinal of the stage
+	 */
+	private long[] stageAllocatedBytes;
+
+	public FileTimingInfo(String path, long nanos, long[] stageNanos, long inputBytes, long allocatedBytes,
+			long[] stageAllocatedBytes) {
+		super();
+		this.path = path;
+		this.nanos = nanos;
+		this.stageNanos = stageNanos;
+		this.inputBytes = inputBytes;
+		this.allocatedBytes = allocatedBytes;
+		this.stageAllocatedBytes = stageAllocatedBytes;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	public void setNanos(long nanos) {
+		this.nanos = nanos;
+	}
+
+	public long[] getStageNanos() {
+		return stageNanos;
+	}
+
+	public void setStageNanos(long[] stageNanos) {
+		this.stageNanos = stageNanos;
+	}
+
+	public long getInputBytes() {
+		return inputBytes;
+	}
+
+	public void setInputBytes(long inputBytes) {
+		this.inputBytes = inputBytes;
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public void setAllocatedBytes(long allocatedBytes) {
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	public long[] getStageAllocatedBytes() {
+		return stageAllocatedBytes;
+	}
+
+	public void setStageAllocatedBytes(long[] stageAllocatedBytes) {
+		this.stageAllocatedBytes = stageAllocatedBytes;
+	}
+}
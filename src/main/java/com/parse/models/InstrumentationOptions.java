@@ -0,0 +1,48 @@
+package com.parse.models;
+
+/**
+ * The model InstrumentationOptions. It holds the options of the instrumentation
+ * of in-memory sources.
+ */
+public class InstrumentationOptions {
+
+	/**
+	 * The number of the first predicate of a source
+	 */
+	private int firstPredicateNumber = 0;
+
+	/**
+	 * The wall-clock budget of a single source in milliseconds, zero if
+	 * unlimited
+	 */
+	private long timeBudgetMillis;
+
+	/**
+	 * The allocation budget of a single source in bytes, zero if unlimited
+	 */
+	private long allocationBudgetBytes;
+
+	public int getFirstPredicateNumber() {
+		return firstPredicateNumber;
+	}
+
+	public void setFirstPredicateNumber(int firstPredicateNumber) {
+		this.firstPredicateNumber = firstPredicateNumber;
+	}
+
+	public long getTimeBudgetMillis() {
+		return timeBudgetMillis;
+	}
+
+	public void setTimeBudgetMillis(long timeBudgetMillis) {
+		this.timeBudgetMillis = timeBudgetMillis;
+	}
+
+	public long getAllocationBudgetBytes() {
+		return allocationBudgetBytes;
+	}
+
+	public void setAllocationBudgetBytes(long allocationBudgetBytes) {
+		this.allocationBudgetBytes = allocationBudgetBytes;
+	}
+}
@@ -0,0 +1,58 @@
+package com.parse.models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The model InstrumentationResult. It holds the outcome of instrumenting a
+ * single source.
+ */
+public class InstrumentationResult {
+
+	/**
+	 * The instrumented and formatted code
+	 */
+	private String code;
+
+	/**
+	 * The predicates found in the code
+	 */
+	private List<PredicateInfo> predicates;
+
+	/**
+	 * The line numbers of each predicate in the instrumented code, keyed by the
+	 * predicate name
+	 */
+	private Map<String, String> lineNumbers;
+
+	public InstrumentationResult(String code, List<PredicateInfo> predicates, Map<String, String> lineNumbers) {
+		super();
+		this.code = code;
+		this.predicates = predicates;
+		this.lineNumbers = lineNumbers;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public List<PredicateInfo> getPredicates() {
+		return predicates;
+	}
+
+	public void setPredicates(List<PredicateInfo> predicates) {
+		this.predicates = predicates;
+	}
+
+	public Map<String, String> getLineNumbers() {
+		return lineNumbers;
+	}
+
+	public void setLineNumbers(Map<String, String> lineNumbers) {
+		this.lineNumbers = lineNumbers;
+	}
+}
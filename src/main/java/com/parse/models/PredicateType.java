@@ -0,0 +1,39 @@
+package com.parse.models;
+
+/**
+ * The type of the control statement of a predicate, with the label it is
+ * recorded with.
+ */
+public enum PredicateType {
+	IF("IF"), ELSE_IF("ELSE-IF"), FOR("FOR"), WHILE("WHILE"), DO_WHILE("DO-WHILE");
+
+	/**
+	 * The label of the type in the records
+	 */
+	private final String label;
+
+	private PredicateType(String label) {
+		this.label = label;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Gets the type of a label
+	 *
+	 * @param label The label
+	 * @return The type
+	 * @throws IllegalArgumentException If the label is unknown
+	 */
+	public static PredicateType fromLabel(String label) {
+
+		for (PredicateType type : values()) {
+			if (type.label.equals(label)) {
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("Unknown predicate type " + label);
+	}
+}
@@ -0,0 +1,156 @@
+package com.parse.models;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.parse.utils.PredicateStore;
+
+/**
+ * The model ProcessedFileInfo. It holds the outcome of processing a single
+ * input file, as recorded in the corpus manifest.
+ *
+ * <p>
+ * The predicates are either held in lists or read from a predicate store,
+ * which keeps them compactly for the large runs. The getters return the same
+ * views in both cases.
+ */
+public class ProcessedFileInfo {
+
+	/**
+	 * The file path, relative to the input root
+	 */
+	private String relativePath;
+
+	/**
+	 * The name of the predicate record file in the output directory
+	 */
+	private String recordFileName;
+
+	/**
+	 * The predicates found in the file
+	 */
+	private List<PredicateInfo> predicates;
+
+	/**
+	 * The line numbers of each predicate, keyed by the predicate name
+	 */
+	private Map<String, String> lineNumbers;
+
+	/**
+	 * The store holding the predicates, null if they are held in the lists
+	 */
+	private PredicateStore store;
+
+	/**
+	 * The id of the first predicate in the store
+	 */
+	private int firstId;
+
+	/**
+	 * The number of predicates in the store
+	 */
+	private int count;
+
+	public ProcessedFileInfo(String relativePath, String recordFileName, List<PredicateInfo> predicates,
+			Map<String, String> lineNumbers) {
+		super();
+		this.relativePath = relativePath;
+		this.recordFileName = recordFileName;
+		this.predicates = predicates;
+		this.lineNumbers = lineNumbers;
+	}
+
+	public ProcessedFileInfo(String relativePath, String recordFileName, PredicateStore store, int firstId,
+			int count) {
+		super();
+		this.relativePath = relativePath;
+		this.recordFileName = recordFileName;
+		this.store = store;
+		this.firstId = firstId;
+		this.count = count;
+	}
+
+	public String getRelativePath() {
+		return relativePath;
+	}
+
+	public void setRelativePath(String relativePath) {
+		this.relativePath = relativePath;
+	}
+
+	public String getRecordFileName() {
+		return recordFileName;
+	}
+
+	public void setRecordFileName(String recordFileName) {
+		this.recordFileName = recordFileName;
+	}
+
+	/**
+	 * Gets the predicates. The predicates read from a store are created on
+	 * access, without the statements emitted into the code.
+	 *
+	 * @return The predicates
+	 */
+	public List<PredicateInfo> getPredicates() {
+
+		if (store == null) {
+			return predicates;
+		}
+		PredicateStore store = this.store;
+		int firstId = this.firstId;
+		int count = this.count;
+		return new AbstractList<PredicateInfo>() {
+
+			@Override
+			public PredicateInfo get(int index) {
+				if (index < 0 || index >= count) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+				}
+				return store.get(firstId + index);
+			}
+
+			@Override
+			public int size() {
+				return count;
+			}
+		};
+	}
+
+	public void setPredicates(List<PredicateInfo> predicates) {
+		if (store != null) {
+			this.lineNumbers = getLineNumbers();
+		}
+		this.predicates = predicates;
+		this.store = null;
+	}
+
+	/**
+	 * Gets the line numbers of each predicate. The line numbers read from a store
+	 * are collected on access.
+	 *
+	 * @return The line numbers, keyed by the predicate name
+	 */
+	public Map<String, String> getLineNumbers() {
+
+		if (store == null) {
+			return lineNumbers;
+		}
+		Map<String, String> storedLineNumbers = new HashMap<>();
+		for (int id = firstId; id < firstId + count; id++) {
+			storedLineNumbers.put(store.getName(id), store.getLineNumbers(id));
+		}
+		return storedLineNumbers;
+	}
+
+	public void setLineNumbers(Map<String, String> lineNumbers) {
+		if (store != null) {
+			this.predicates = new ArrayList<>(getPredicates());
+		}
+		this.lineNumbers = lineNumbers;
+		this.store = null;
+	}
+}
@@ -0,0 +1,8 @@
+package com.parse.models;
+
+/**
+ * The strategy used to assign the discovered files to the shards.
+ */
+public enum ShardStrategy {
+	HASH, SIZE, COST;
+}
@@ -0,0 +1,67 @@
+package com.parse.models;
+
+/**
+ * The model SourceChunk. It holds a part of a Java file, as read by the
+ * streaming processing.
+ */
+public class SourceChunk {
+
+	/**
+	 * The kinds of chunks
+	 */
+	public enum Kind {
+		/**
+		 * The text up to and including the opening brace of a top-level class or
+		 * interface, e.g. the package, the imports and the declaration
+		 */
+		HEADER,
+		/**
+		 * A member of a top-level class or interface, with the comments before it
+		 */
+		MEMBER,
+		/**
+		 * The closing brace of a top-level class or interface
+		 */
+		FOOTER,
+		/**
+		 * A whole top-level enum or annotation type, which is not split
+		 */
+		TYPE,
+		/**
+		 * The text after the last top-level type
+		 */
+		TRAILER;
+	}
+
+	/**
+	 * The kind of the chunk
+	 */
+	private Kind kind;
+
+	/**
+	 * The text of the chunk
+	 */
+	private String text;
+
+	public SourceChunk(Kind kind, String text) {
+		super();
+		this.kind = kind;
+		this.text = text;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public void setKind(Kind kind) {
+		this.kind = kind;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public void setText(String text) {
+		this.text = text;
+	}
+}
@@ -0,0 +1,229 @@
+package com.parse.slim;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.parse.exceptions.BudgetExceededException;
+import com.parse.models.CompileErrorInfo;
+import com.parse.models.ExecutionOptions;
+import com.parse.models.FailureInfo;
+import com.parse.models.InstrumentationResult;
+import com.parse.models.ProcessedFileInfo;
+import com.parse.utils.CorpusManifest;
+import com.parse.utils.FailureLog;
+import com.parse.utils.OptionsParser;
+import com.parse.utils.PredicateParser;
+import com.parse.utils.PredicateRecorder;
+import com.parse.utils.ProcessingBudget;
+import com.parse.utils.ProgressReporter;
+import com.parse.utils.RunReports;
+import com.parse.utils.ShardSelector;
+import com.parse.utils.SourceWalker;
+import com.parse.verification.CompileVerifier;
+
+/**
+ * The SlimTaskExecutor. It is the entry point of the slim artifact, which
+ * instruments the files with the {@link TreeInstrumenter} and thus neither
+ * loads JDT nor google-java-format.
+ *
+ * <p>
+ * It takes the options of the default executor and writes the same predicate
+ * files, manifest and failure list. The files are processed one at a time; the
+ * daemon, the shared work directory and the watch mode are only available in
+ * the default artifact.
+ */
+public class SlimTaskExecutor {
+
+	/**
+	 * The options of the default engine the slim engine does not support
+	 */
+	private static final List<String> IGNORED_OPTIONS = Arrays.asList("--stream-above", "--heap-ceiling",
+			"--metrics-port");
+
+	/**
+	 * The options the slim engine only uses to verify the instrumented files
+	 */
+	private static final List<String> VERIFY_OPTIONS = Arrays.asList("--threads", "--verify-classpath");
+
+	private SlimTaskExecutor() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Processes the input file path
+	 *
+	 * @param inputRoot     The input root
+	 * @param inputFilePath The input file path
+	 * @param outputPath    The output path
+	 * @param options       The execution options
+	 * @param failures      The list the failure is added to
+	 * @param failureLog    The log the exception of the failure is added to
+	 * @return The processed file, null if it could not be processed
+	 */
+	private static ProcessedFileInfo processPath(Path inputRoot, Path inputFilePath, Path outputPath,
+			ExecutionOptions options, List<FailureInfo> failures, FailureLog failureLog) {
+
+		try {
+			if (options.isVerbose()) {
+				System.out.println("Processing " + inputFilePath.toString());
+			}
+			InstrumentationResult result;
+			try {
+				ProcessingBudget.start(options.getFileTimeBudgetMillis(), options.getFileAllocationBudgetBytes());
+				result = TreeInstrumenter.instrument(new String(Files.readAllBytes(inputFilePath)));
+			} finally {
+				ProcessingBudget.clear();
+			}
+
+			// Saving the updated code
+			Files.write(inputFilePath, result.getCode().getBytes());
+
+			// Creating the predicates file
+			PredicateRecorder.record(inputFilePath, outputPath, result.getPredicates(), result.getLineNumbers());
+			if (options.isVerbose()) {
+				System.out.println("COMPLETED.");
+			}
+			return new ProcessedFileInfo(ShardSelector.getRelativePath(inputRoot, inputFilePath),
+					PredicateRecorder.getRecordFileName(inputFilePath), result.getPredicates(),
+					result.getLineNumbers());
+		} catch (BudgetExceededException exception) {
+			if (options.isVerbose()) {
+				System.out.println("Aborted, the file is left untouched. File: " + inputFilePath.toString()
+						+ ", Reason: " + exception.getLocalizedMessage());
+			}
+			failures.add(new FailureInfo(inputFilePath.toString(), exception.getLocalizedMessage()));
+			failureLog.add(inputFilePath, exception);
+		} catch (Exception exception) {
+			if (options.isVerbose()) {
+				System.out.println("Error parsing the code. File: " + inputFilePath.toString() + ", Reason: "
+						+ exception.getLocalizedMessage());
+			}
+			failures.add(new FailureInfo(inputFilePath.toString(), String.valueOf(exception.getLocalizedMessage())));
+			failureLog.add(inputFilePath, exception);
+		}
+		return null;
+	}
+
+	/**
+	 * Execution starts from here
+	 *
+	 * @param args The command line arguments
+	 */
+	public static void main(String[] args) {
+
+		ExecutionOptions options = null;
+		try {
+			options = OptionsParser.parse(args);
+		} catch (IllegalArgumentException exception) {
+			System.out.println("Invalid arguments! " + exception.getMessage());
+			System.exit(1);
+		}
+		if (options.isMerge()) {
+			RunReports.merge(options);
+			return;
+		}
+		if (options.isDaemon() || options.isDifferential() || options.isWatch()
+				|| options.getWorkDirectory() != null) {
+			System.out.println(
+					"Invalid arguments! The daemon, differential, --watch and --work-dir need the default artifact.");
+			System.exit(1);
+		}
+		List<String> arguments = Arrays.asList(args);
+		for (String ignoredOption : IGNORED_OPTIONS) {
+			if (arguments.contains(ignoredOption)) {
+				System.out.println("The slim engine ignores " + ignoredOption + ".");
+			}
+		}
+		if (!options.isVerify()) {
+			for (String verifyOption : VERIFY_OPTIONS) {
+				if (arguments.contains(verifyOption)) {
+					System.out.println("The slim engine processes the files one at a time and ignores "
+							+ verifyOption + " without --verify.");
+				}
+			}
+		}
+
+		Path outputPath = options.getOutputPath();
+		if (!outputPath.toFile().exists()) {
+			try {
+				Files.createDirectories(outputPath);
+			} catch (IOException ioException) {
+				System.out.println("Error creating the output directory.");
+			}
+		}
+
+		Path inputPath = options.getInputPath();
+		if (options.isSharded()) {
+			// Each shard numbers its predicates differently, thus the names never collide
+			PredicateParser.setPredicateNumbering(options.getShardIndex(), options.getShardCount());
+		}
+
+		List<FailureInfo> failures = new ArrayList<>();
+		List<ProcessedFileInfo> processedFiles = new ArrayList<>();
+		List<Path> inputPaths = Collections.emptyList();
+		if (!inputPath.toFile().isDirectory()) {
+			if (!options.isSharded() || options.getShardIndex() == 0) {
+				inputPaths = Collections.singletonList(inputPath);
+			}
+		} else {
+			try (SourceWalker walker = new SourceWalker(inputPath, options.getIncludeGlobs(),
+					options.getExcludeGlobs(), options.isDefaultExcludes())) {
+				inputPaths = walker.stream().sorted().collect(Collectors.toList());
+				if (options.isSharded()) {
+					inputPaths = ShardSelector.select(inputPath, inputPaths, options.getShardIndex(),
+							options.getShardCount(), options.getShardStrategy());
+					System.out.println("Shard " + options.getShardIndex() + "/" + options.getShardCount() + ": "
+							+ inputPaths.size() + " files");
+				}
+			}
+		}
+		FailureLog failureLog = new FailureLog(outputPath);
+		ProgressReporter progressReporter = new ProgressReporter();
+		progressReporter.setTotal(inputPaths.size());
+		progressReporter.start(options.getProgressIntervalMillis());
+		for (Path path : inputPaths) {
+			ProcessedFileInfo processedFileInfo = processPath(inputPath, path, outputPath, options, failures,
+					failureLog);
+			if (processedFileInfo != null) {
+				processedFiles.add(processedFileInfo);
+			}
+			progressReporter.fileDone(processedFileInfo != null);
+		}
+		progressReporter.stop();
+
+		// Creating the manifest of the run
+		String manifestFileName = options.isSharded()
+				? CorpusManifest.getShardManifestFileName(options.getShardIndex(), options.getShardCount())
+				: CorpusManifest.MANIFEST_FILE_NAME;
+		try {
+			CorpusManifest.write(outputPath.resolve(manifestFileName), processedFiles);
+		} catch (IOException ioException) {
+			System.out.println("Error writing the manifest.");
+		}
+		failureLog.close();
+		RunReports.reportFailures(outputPath, failures, failureLog);
+
+		if (options.isVerify()) {
+			try {
+				Map<String, byte[]> classes = new ConcurrentHashMap<>();
+				List<CompileErrorInfo> errors = CompileVerifier.verify(inputPath, processedFiles,
+						options.getVerifyClasspath(), options.getThreads(), classes);
+				Path verificationPath = outputPath.resolve(CompileVerifier.VERIFICATION_FILE_NAME);
+				CompileVerifier.write(verificationPath, errors);
+				System.out.println("Verified " + processedFiles.size() + " files: " + classes.size() + " classes, "
+						+ errors.size() + " compile errors, see " + verificationPath);
+			} catch (IOException ioException) {
+				System.out.println(
+						"Error verifying the instrumented files. Reason: " + ioException.getLocalizedMessage());
+			}
+		}
+	}
+}
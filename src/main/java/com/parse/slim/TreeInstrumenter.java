@@ -0,0 +1,362 @@
+package com.parse.slim;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import com.parse.models.InstrumentationResult;
+import com.parse.models.PredicateInfo;
+import com.parse.utils.PredicateParser;
+import com.parse.utils.PredicateRecorder;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.CaseTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.DoWhileLoopTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.ForLoopTree;
+import com.sun.source.tree.IfTree;
+import com.sun.source.tree.LabeledStatementTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.WhileLoopTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+/**
+ * The utility class TreeInstrumenter. It holds an alternative engine that
+ * finds the control statements with the syntax tree of the JDK's own compiler
+ * (JDK 9+), instead of formatting the code with JDT and google-java-format and
+ * matching its lines.
+ *
+ * <p>
+ * The predicates are built by {@link PredicateParser}, thus the records are the
+ * same as the ones of the default engine. The code is edited in place and not
+ * formatted: the conditions are replaced, and the predicate declarations are
+ * inserted on their own line before the statement, or before the first 'if' of
+ * an 'else-if' chain. A statement that is not directly in a block, e.g. the
+ * body of a loop without braces, is wrapped in a block with its declarations.
+ */
+public class TreeInstrumenter {
+
+	private TreeInstrumenter() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * The in-memory source given to the compiler
+	 */
+	private static class SourceObject extends SimpleJavaFileObject {
+
+		/**
+		 * The code
+		 */
+		private final String code;
+
+		SourceObject(String code) {
+			super(URI.create("string:///Source.java"), JavaFileObject.Kind.SOURCE);
+			this.code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+
+	/**
+	 * A replacement of a range of the code
+	 */
+	private static class Edit {
+
+		/**
+		 * The start of the range
+		 */
+		private final int start;
+
+		/**
+		 * The end of the range, exclusive
+		 */
+		private final int end;
+
+		/**
+		 * The new text of the range
+		 */
+		private final String replacement;
+
+		Edit(int start, int end, String replacement) {
+			this.start = start;
+			this.end = end;
+			this.replacement = replacement;
+		}
+	}
+
+	/**
+	 * The scanner collecting the edits of the control statements
+	 */
+	private static class ControlStatementScanner extends TreePathScanner<Void, Void> {
+
+		/**
+		 * The original code
+		 */
+		private final String code;
+
+		/**
+		 * The positions of the trees in the code
+		 */
+		private final SourcePositions positions;
+
+		/**
+		 * The parsed code
+		 */
+		private final CompilationUnitTree unit;
+
+		/**
+		 * The predicates, in the order of the statements
+		 */
+		private final List<PredicateInfo> predicates = new ArrayList<>();
+
+		/**
+		 * The replacements of the conditions
+		 */
+		private final List<Edit> edits = new ArrayList<>();
+
+		/**
+		 * The predicate declarations to insert, keyed by the statement they precede
+		 */
+		private final Map<StatementTree, StringBuilder> declarations = new LinkedHashMap<>();
+
+		/**
+		 * The statements to wrap in a block with their declarations
+		 */
+		private final Set<StatementTree> wrappedStatements = new LinkedHashSet<>();
+
+		ControlStatementScanner(String code, SourcePositions positions, CompilationUnitTree unit) {
+			this.code = code;
+			this.positions = positions;
+			this.unit = unit;
+		}
+
+		private int getStart(Tree tree) {
+			return (int) positions.getStartPosition(unit, tree);
+		}
+
+		private int getEnd(Tree tree) {
+			return (int) positions.getEndPosition(unit, tree);
+		}
+
+		/**
+		 * Gets the condition on a single line. The source text is kept unless it
+		 * spans several lines or holds comments, then the tree is printed instead.
+		 */
+		private String getConditionText(ExpressionTree condition) {
+
+			String text = code.substring(getStart(condition), getEnd(condition));
+			if (text.contains("\n") || text.contains("//") || text.contains("/*")) {
+				text = condition.toString().replaceAll("\\s*\\n\\s*", " ");
+			}
+			return text;
+		}
+
+		/**
+		 * Gets the statement the declarations are inserted before: the first 'if' of
+		 * an 'else-if' chain, including its labels
+		 */
+		private StatementTree getAnchor(TreePath path) {
+
+			TreePath anchorPath = path;
+			while (anchorPath.getParentPath().getLeaf() instanceof IfTree
+					&& ((IfTree) anchorPath.getParentPath().getLeaf()).getElseStatement() == anchorPath.getLeaf()) {
+				anchorPath = anchorPath.getParentPath();
+			}
+			while (anchorPath.getParentPath().getLeaf() instanceof LabeledStatementTree) {
+				anchorPath = anchorPath.getParentPath();
+			}
+			Tree parent = anchorPath.getParentPath().getLeaf();
+			StatementTree anchor = (StatementTree) anchorPath.getLeaf();
+			if (!(parent instanceof BlockTree) && !(parent instanceof CaseTree)) {
+				wrappedStatements.add(anchor);
+			}
+			return anchor;
+		}
+
+		/**
+		 * Instruments a control statement
+		 *
+		 * @param type      The statement type
+		 * @param condition The condition
+		 */
+		private void instrument(String type, ExpressionTree condition) {
+
+			// The parentheses of the statement itself are not part of the condition
+			ExpressionTree expression = condition instanceof ParenthesizedTree && !"FOR".equals(type)
+					? ((ParenthesizedTree) condition).getExpression()
+					: condition;
+			String text = getConditionText(expression);
+
+			PredicateInfo predicateInfo;
+			String replacement;
+			switch (type) {
+			case "IF":
+				predicateInfo = PredicateParser.processIfStatement("if (" + text + ") {");
+				replacement = predicateInfo == null ? null : predicateInfo.getControl();
+				break;
+			case "ELSE-IF":
+				predicateInfo = PredicateParser.processElseIfStatement("else if (" + text + ") {");
+				replacement = predicateInfo == null ? null : predicateInfo.getControl();
+				break;
+			case "FOR":
+				predicateInfo = PredicateParser.processForStatement("for (; " + text + "; )");
+				replacement = predicateInfo == null ? null : predicateInfo.getControl();
+				break;
+			case "WHILE":
+				predicateInfo = PredicateParser.processWhileStatement("while (" + text + ") {");
+				replacement = predicateInfo == null ? null : predicateInfo.getControl();
+				break;
+			default:
+				predicateInfo = PredicateParser.processDoWhileStatement("} while (" + text + ");");
+				replacement = predicateInfo == null ? null
+						: predicateInfo.getName() + "=" + predicateInfo.getControl();
+				break;
+			}
+			if (predicateInfo == null) {
+				return;
+			}
+
+			predicates.add(predicateInfo);
+			edits.add(new Edit(getStart(expression), getEnd(expression), replacement));
+			declarations.computeIfAbsent(getAnchor(getCurrentPath()), anchor -> new StringBuilder())
+					.append(predicateInfo.getPredicateInitStatement());
+		}
+
+		@Override
+		public Void visitIf(IfTree node, Void unused) {
+
+			Tree parent = getCurrentPath().getParentPath().getLeaf();
+			boolean elseIf = parent instanceof IfTree && ((IfTree) parent).getElseStatement() == node;
+			instrument(elseIf ? "ELSE-IF" : "IF", node.getCondition());
+			// The condition is replaced as a whole, thus not scanned
+			scan(node.getThenStatement(), unused);
+			scan(node.getElseStatement(), unused);
+			return null;
+		}
+
+		@Override
+		public Void visitForLoop(ForLoopTree node, Void unused) {
+
+			if (node.getCondition() != null) {
+				instrument("FOR", node.getCondition());
+			}
+			scan(node.getInitializer(), unused);
+			scan(node.getUpdate(), unused);
+			scan(node.getStatement(), unused);
+			return null;
+		}
+
+		@Override
+		public Void visitWhileLoop(WhileLoopTree node, Void unused) {
+
+			instrument("WHILE", node.getCondition());
+			scan(node.getStatement(), unused);
+			return null;
+		}
+
+		@Override
+		public Void visitDoWhileLoop(DoWhileLoopTree node, Void unused) {
+
+			instrument("DO-WHILE", node.getCondition());
+			scan(node.getStatement(), unused);
+			return null;
+		}
+
+		/**
+		 * Gets the indentation of the line of a position
+		 */
+		private String getIndentation(int position) {
+
+			int lineStart = code.lastIndexOf('\n', position - 1) + 1;
+			int counter = lineStart;
+			while (counter < position && Character.isWhitespace(code.charAt(counter))) {
+				counter++;
+			}
+			return code.substring(lineStart, counter);
+		}
+
+		/**
+		 * Applies the edits to the code
+		 */
+		private String apply() {
+
+			for (Map.Entry<StatementTree, StringBuilder> entry : declarations.entrySet()) {
+				int start = getStart(entry.getKey());
+				if (wrappedStatements.contains(entry.getKey())) {
+					edits.add(new Edit(start, start, "{ " + entry.getValue() + " "));
+					int end = getEnd(entry.getKey());
+					edits.add(new Edit(end, end, " }"));
+				} else {
+					edits.add(new Edit(start, start, entry.getValue() + "\n" + getIndentation(start)));
+				}
+			}
+
+			// From the end, so that the positions of the remaining edits stay valid
+			List<Edit> sortedEdits = new ArrayList<>(edits);
+			sortedEdits.sort(Comparator.comparingInt((Edit edit) -> edit.start).reversed());
+			StringBuilder codeBuilder = new StringBuilder(code);
+			for (Edit edit : sortedEdits) {
+				codeBuilder.replace(edit.start, edit.end, edit.replacement);
+			}
+			return codeBuilder.toString();
+		}
+	}
+
+	/**
+	 * Instruments the code of a single Java file
+	 *
+	 * @param code The code
+	 * @return The instrumented code, its predicates and their line numbers
+	 * @throws IOException If the code could not be parsed
+	 */
+	public static InstrumentationResult instrument(String code) throws IOException {
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IOException("The Java compiler is not available, a JDK is required");
+		}
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		JavacTask task = (JavacTask) compiler.getTask(null, null, diagnostics, Arrays.asList("-proc:none"), null,
+				Collections.singletonList(new SourceObject(code)));
+		Iterable<? extends CompilationUnitTree> units = task.parse();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+				throw new IOException(diagnostic.getLineNumber() + ":" + diagnostic.getColumnNumber() + ": "
+						+ diagnostic.getMessage(null));
+			}
+		}
+
+		SourcePositions positions = Trees.instance(task).getSourcePositions();
+		CompilationUnitTree unit = units.iterator().next();
+		ControlStatementScanner scanner = new ControlStatementScanner(code, positions, unit);
+		scanner.scan(unit, null);
+		String updatedCode = scanner.apply();
+		return new InstrumentationResult(updatedCode, scanner.predicates,
+				PredicateRecorder.getLineNumbers(Arrays.asList(updatedCode.split("\n")), scanner.predicates));
+	}
+}
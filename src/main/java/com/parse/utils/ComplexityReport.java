@@ -0,0 +1,99 @@
+package com.parse.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.parse.models.FileComplexityInfo;
+
+/**
+ * The ComplexityReport. It collects the features and the processing time of
+ * the files processed by a run, writes them as a CSV file for the capacity
+ * planning, and fits the cost model of the run on them.
+ */
+public class ComplexityReport {
+
+	/**
+	 * The name of the CSV file in the output directory
+	 */
+	public static final String REPORT_FILE_NAME = "complexity.csv";
+
+	/**
+	 * The files recorded
+	 */
+	private final List<FileComplexityInfo> files = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Gets the name of an output file of a shard, e.g. 'complexity-0-of-4.csv'
+	 *
+	 * @param fileName   The name of the output file of an unsharded run
+	 * @param shardIndex The shard index
+	 * @param shardCount The shard count
+	 * @return The file name of the shard
+	 */
+	public static String getShardFileName(String fileName, int shardIndex, int shardCount) {
+
+		int extension = fileName.lastIndexOf('.');
+		return fileName.substring(0, extension) + "-" + shardIndex + "-of-" + shardCount
+				+ fileName.substring(extension);
+	}
+
+	/**
+	 * Records a processed file
+	 *
+	 * @param complexity The features of the file, with its predicates and its
+	 *                   processing time
+	 */
+	public void record(FileComplexityInfo complexity) {
+		files.add(complexity);
+	}
+
+	/**
+	 * Gets the number of files recorded
+	 *
+	 * @return The number of files
+	 */
+	public int getFileCount() {
+		return files.size();
+	}
+
+	/**
+	 * Writes the CSV file, the files sorted by their path
+	 *
+	 * @param reportPath The report path
+	 * @throws IOException If the report could not be written
+	 */
+	public void writeCsv(Path reportPath) throws IOException {
+
+		List<FileComplexityInfo> sortedFiles;
+		synchronized (files) {
+			sortedFiles = new ArrayList<>(files);
+		}
+		sortedFiles.sort(Comparator.comparing(FileComplexityInfo::getPath));
+		try (BufferedWriter writer = Files.newBufferedWriter(reportPath)) {
+			writer.write(FileComplexityInfo.CSV_HEADER);
+			writer.newLine();
+			for (FileComplexityInfo complexity : sortedFiles) {
+				writer.write(complexity.toCsv());
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Fits the cost model on the files recorded
+	 *
+	 * @return The cost model
+	 */
+	public CostModel fitCostModel() {
+
+		synchronized (files) {
+			return CostModel.fit(new ArrayList<>(files));
+		}
+	}
+}
@@ -0,0 +1,475 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.parse.models.FileComplexityInfo;
+
+/**
+ * The ComplexityScanner. It reads a Java file once, before it is processed,
+ * and measures the features its processing cost depends on: the lines, the
+ * control statements of each type, the maximum nesting depth of the control
+ * statements and the maximum number of clauses of a condition.
+ *
+ * <p>
+ * Only the tokens are followed, the syntax is not checked. The body of a
+ * control statement without braces ends at its semicolon, or at the closing
+ * brace of the block it ends with. The clauses of a 'for' are counted in its
+ * condition only.
+ */
+public class ComplexityScanner {
+
+	/**
+	 * The kind of a block opened by no control statement
+	 */
+	private static final int NO_CONTROL = 0;
+
+	/**
+	 * The kind of a block opened by an 'if', 'else', 'for' or 'while'
+	 */
+	private static final int CONTROL = 1;
+
+	/**
+	 * The kind of a block opened by a 'do'
+	 */
+	private static final int DO_CONTROL = 2;
+
+	/**
+	 * The kind of the body without braces of an 'if', 'else', 'for' or 'while'
+	 */
+	private static final int CONTROL_STATEMENT = 3;
+
+	/**
+	 * The kind of the body without braces of a 'do'
+	 */
+	private static final int DO_STATEMENT = 4;
+
+	/**
+	 * The source
+	 */
+	private final PushbackReader reader;
+
+	/**
+	 * The features measured
+	 */
+	private final FileComplexityInfo complexity = new FileComplexityInfo();
+
+	/**
+	 * The kinds of the open blocks and bodies, the innermost first
+	 */
+	private final Deque<Integer> blocks = new ArrayDeque<>();
+
+	/**
+	 * The number of newlines read
+	 */
+	private int newlines;
+
+	/**
+	 * The last character read, -1 if none
+	 */
+	private int lastCharacter = -1;
+
+	/**
+	 * The depth of the parentheses
+	 */
+	private int parenthesisDepth;
+
+	/**
+	 * The number of open blocks and bodies of control statements
+	 */
+	private int controlDepth;
+
+	/**
+	 * The kind of block the body of the current control statement starts
+	 */
+	private int pendingBlock = NO_CONTROL;
+
+	/**
+	 * If the next token starts the body of a control statement
+	 */
+	private boolean bodyPending;
+
+	/**
+	 * If the pending body is the one of an 'else'
+	 */
+	private boolean elseBody;
+
+	/**
+	 * The previous token if it is an identifier, empty for the other tokens
+	 */
+	private String previousToken = "";
+
+	/**
+	 * If the last token closed the body of a 'do'
+	 */
+	private boolean closedDoBody;
+
+	/**
+	 * If the current token follows the body of a 'do'
+	 */
+	private boolean afterDoBody;
+
+	/**
+	 * If the next opening parenthesis starts a condition
+	 */
+	private boolean awaitingCondition;
+
+	/**
+	 * If the condition is the header of a 'for'
+	 */
+	private boolean forCondition;
+
+	/**
+	 * If the condition is followed by a body, i.e. it is not the one of a
+	 * 'do-while'
+	 */
+	private boolean bodyCondition;
+
+	/**
+	 * If the current position is inside a condition
+	 */
+	private boolean inCondition;
+
+	/**
+	 * The number of semicolons read in the header of the current 'for'
+	 */
+	private int forSemicolons;
+
+	/**
+	 * The number of clauses of the current condition
+	 */
+	private int clauses;
+
+	private ComplexityScanner(Reader reader) {
+		super();
+		this.reader = new PushbackReader(reader, 2);
+	}
+
+	/**
+	 * Measures the features of a Java file. The size in bytes is left to the
+	 * caller, the predicates and the processing time are only known once the
+	 * file is processed.
+	 *
+	 * @param reader The code
+	 * @return The features, without the path
+	 * @throws IOException If the code could not be read
+	 */
+	public static FileComplexityInfo scan(Reader reader) throws IOException {
+
+		ComplexityScanner scanner = new ComplexityScanner(reader);
+		scanner.scan();
+		return scanner.complexity;
+	}
+
+	/**
+	 * Reads the next character
+	 *
+	 * @return The character, -1 at the end
+	 * @throws IOException If the source could not be read
+	 */
+	private int read() throws IOException {
+
+		int character = reader.read();
+		if (character == '\n') {
+			newlines++;
+		}
+		if (character != -1) {
+			lastCharacter = character;
+		}
+		return character;
+	}
+
+	/**
+	 * Reads the next character if it is the expected one
+	 *
+	 * @param expected The expected character
+	 * @return If the character was read
+	 * @throws IOException If the source could not be read
+	 */
+	private boolean readIf(int expected) throws IOException {
+
+		int character = reader.read();
+		if (character == expected) {
+			if (character == '\n') {
+				newlines++;
+			}
+			lastCharacter = character;
+			return true;
+		}
+		if (character != -1) {
+			reader.unread(character);
+		}
+		return false;
+	}
+
+	private void scan() throws IOException {
+
+		int character;
+		while ((character = read()) != -1) {
+			if (character == '/' && readIf('/')) {
+				while ((character = read()) != -1 && character != '\n') {
+					// Skipping the comment
+				}
+			} else if (character == '/' && readIf('*')) {
+				int previous = 0;
+				while ((character = read()) != -1 && !(previous == '*' && character == '/')) {
+					previous = character;
+				}
+			} else if (character == '"') {
+				beginToken(character, null);
+				skipString();
+				previousToken = "";
+			} else if (character == '\'') {
+				beginToken(character, null);
+				skipLiteral('\'');
+				previousToken = "";
+			} else if (Character.isJavaIdentifierStart(character)) {
+				StringBuilder identifier = new StringBuilder().append((char) character);
+				while ((character = reader.read()) != -1 && Character.isJavaIdentifierPart(character)) {
+					identifier.append((char) character);
+					lastCharacter = character;
+				}
+				if (character != -1) {
+					reader.unread(character);
+				}
+				onIdentifier(identifier.toString());
+			} else if (!Character.isWhitespace(character)) {
+				onPunctuation(character);
+			}
+		}
+
+		complexity.setLines(newlines + (lastCharacter != -1 && lastCharacter != '\n' ? 1 : 0));
+	}
+
+	/**
+	 * Skips a string literal or a text block, after its first quote
+	 *
+	 * @throws IOException If the source could not be read
+	 */
+	private void skipString() throws IOException {
+
+		if (!readIf('"')) {
+			skipLiteral('"');
+		} else if (readIf('"')) {
+			int quotes = 0;
+			int character;
+			while (quotes < 3 && (character = read()) != -1) {
+				if (character == '\\') {
+					read();
+					quotes = 0;
+				} else {
+					quotes = character == '"' ? quotes + 1 : 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Skips a string or character literal, after its opening quote
+	 *
+	 * @param quote The quote
+	 * @throws IOException If the source could not be read
+	 */
+	private void skipLiteral(int quote) throws IOException {
+
+		int character;
+		while ((character = read()) != -1 && character != quote && character != '\n') {
+			if (character == '\\') {
+				read();
+			}
+		}
+	}
+
+	/**
+	 * Begins a token. If the token starts the pending body of a control
+	 * statement without braces, the body is opened. The 'if' of an 'else-if'
+	 * continues the chain, thus it does not nest.
+	 *
+	 * @param character  The first character of the token
+	 * @param identifier The identifier, null if the token is not one
+	 * @return If the token is the opening brace of a pending body
+	 */
+	private boolean beginToken(int character, String identifier) {
+
+		afterDoBody = closedDoBody;
+		closedDoBody = false;
+		if (!bodyPending) {
+			return false;
+		}
+		bodyPending = false;
+		if (character == '{') {
+			return true;
+		}
+		if (character != ';' && !(elseBody && "if".equals(identifier))) {
+			open(pendingBlock == DO_CONTROL ? DO_STATEMENT : CONTROL_STATEMENT);
+		}
+		pendingBlock = NO_CONTROL;
+		return false;
+	}
+
+	/**
+	 * Opens a block or a body
+	 *
+	 * @param kind The kind of the block
+	 */
+	private void open(int kind) {
+
+		blocks.push(kind);
+		if (kind != NO_CONTROL) {
+			controlDepth++;
+			complexity.setMaxDepth(Math.max(complexity.getMaxDepth(), controlDepth));
+		}
+	}
+
+	/**
+	 * Closes the bodies without braces ending with the current token. The
+	 * statement of a 'do' goes on with its condition, thus the bodies around it
+	 * stay open.
+	 */
+	private void closeStatements() {
+
+		while (!closedDoBody && !blocks.isEmpty()
+				&& (blocks.peek() == CONTROL_STATEMENT || blocks.peek() == DO_STATEMENT)) {
+			closedDoBody = blocks.pop() == DO_STATEMENT;
+			controlDepth--;
+		}
+	}
+
+	/**
+	 * Handles an identifier or a keyword
+	 *
+	 * @param identifier The identifier
+	 */
+	private void onIdentifier(String identifier) {
+
+		beginToken(identifier.charAt(0), identifier);
+		switch (identifier) {
+		case "if":
+			if ("else".equals(previousToken)) {
+				complexity.setElseIfCount(complexity.getElseIfCount() + 1);
+			} else {
+				complexity.setIfCount(complexity.getIfCount() + 1);
+			}
+			startCondition(false, true);
+			pendingBlock = CONTROL;
+			break;
+		case "else":
+			startBody(CONTROL, true);
+			break;
+		case "for":
+			complexity.setForCount(complexity.getForCount() + 1);
+			startCondition(true, true);
+			pendingBlock = CONTROL;
+			break;
+		case "while":
+			if (afterDoBody) {
+				complexity.setDoWhileCount(complexity.getDoWhileCount() + 1);
+				startCondition(false, false);
+			} else {
+				complexity.setWhileCount(complexity.getWhileCount() + 1);
+				startCondition(false, true);
+				pendingBlock = CONTROL;
+			}
+			break;
+		case "do":
+			startBody(DO_CONTROL, false);
+			break;
+		default:
+			break;
+		}
+		previousToken = identifier;
+	}
+
+	/**
+	 * Starts waiting for the condition of a control statement
+	 *
+	 * @param forHeader If the condition is the header of a 'for'
+	 * @param hasBody   If the condition is followed by a body
+	 */
+	private void startCondition(boolean forHeader, boolean hasBody) {
+
+		awaitingCondition = true;
+		forCondition = forHeader;
+		bodyCondition = hasBody;
+	}
+
+	/**
+	 * Starts waiting for the body of a control statement
+	 *
+	 * @param kind       The kind of block the body starts
+	 * @param isElseBody If the body is the one of an 'else'
+	 */
+	private void startBody(int kind, boolean isElseBody) {
+
+		pendingBlock = kind;
+		bodyPending = true;
+		elseBody = isElseBody;
+	}
+
+	/**
+	 * Handles a punctuation character or an operator
+	 *
+	 * @param character The first character
+	 * @throws IOException If the source could not be read
+	 */
+	private void onPunctuation(int character) throws IOException {
+
+		boolean body = beginToken(character, null);
+		previousToken = "";
+		switch (character) {
+		case '(':
+			parenthesisDepth++;
+			if (awaitingCondition && parenthesisDepth == 1) {
+				awaitingCondition = false;
+				inCondition = true;
+				forSemicolons = 0;
+				clauses = 1;
+			}
+			break;
+		case ')':
+			if (inCondition && parenthesisDepth == 1) {
+				inCondition = false;
+				complexity.setMaxClauses(Math.max(complexity.getMaxClauses(), clauses));
+				if (bodyCondition) {
+					startBody(pendingBlock, false);
+				}
+			}
+			parenthesisDepth = Math.max(0, parenthesisDepth - 1);
+			break;
+		case ';':
+			if (inCondition && forCondition && parenthesisDepth == 1) {
+				forSemicolons++;
+			} else if (parenthesisDepth == 0) {
+				closeStatements();
+			}
+			break;
+		case '&':
+		case '|':
+			if (readIf(character) && inCondition && (!forCondition || forSemicolons == 1)) {
+				clauses++;
+			}
+			break;
+		case '{':
+			open(body ? pendingBlock : NO_CONTROL);
+			pendingBlock = NO_CONTROL;
+			break;
+		case '}':
+			closeStatements();
+			Integer closedBlock = blocks.poll();
+			closedDoBody = closedBlock != null && closedBlock == DO_CONTROL;
+			if (closedBlock != null && closedBlock != NO_CONTROL) {
+				controlDepth--;
+			}
+			if (closedBlock != null && closedBlock == CONTROL) {
+				// The statement of a 'do' block goes on with its condition
+				closeStatements();
+			}
+			break;
+		default:
+			break;
+		}
+	}
+}
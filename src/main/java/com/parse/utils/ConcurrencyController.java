@@ -0,0 +1,263 @@
+package com.parse.utils;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * The ConcurrencyController. It decides how many files are processed at the
+ * same time, so that the workers use the available heap without crossing the
+ * heap ceiling.
+ *
+ * <p>
+ * Every file reserves an estimate of the memory it needs, derived from its
+ * size. A file is admitted when a worker is free and the reservations, plus the
+ * heap that was live after the last collection and does not belong to the
+ * workers, fit below the ceiling. The number of workers follows an additive
+ * increase, multiplicative decrease rule driven by the heap usage after the
+ * collections: it halves when the live heap comes close to the ceiling and
+ * grows by one while there is plenty of room.
+ */
+public class ConcurrencyController {
+
+	/**
+	 * The estimated heap needed per byte of source: the source, the pre-formatted
+	 * copy, the split lines, the updated lines, the joined code and the
+	 * formatters' own structures
+	 */
+	private static final long BYTES_PER_SOURCE_BYTE = 48;
+
+	/**
+	 * The estimated heap needed by any file, regardless of its size
+	 */
+	private static final long BYTES_PER_FILE = 2L << 20;
+
+	/**
+	 * The live heap fraction above which the workers are halved
+	 */
+	private static final double SHRINK_THRESHOLD = 0.9;
+
+	/**
+	 * The live heap fraction below which a worker is added
+	 */
+	private static final double GROW_THRESHOLD = 0.6;
+
+	/**
+	 * The heap usage
+	 */
+	private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+	/**
+	 * The names of the heap memory pools
+	 */
+	private final Set<String> heapPoolNames = new HashSet<>();
+
+	/**
+	 * The maximum number of workers
+	 */
+	private final int maxWorkers;
+
+	/**
+	 * The heap ceiling in bytes
+	 */
+	private final long heapCeilingBytes;
+
+	/**
+	 * The current number of workers allowed
+	 */
+	private int workerLimit;
+
+	/**
+	 * The number of files being processed
+	 */
+	private int activeWorkers;
+
+	/**
+	 * The memory reserved by the files being processed
+	 */
+	private long reservedBytes;
+
+	/**
+	 * The heap live after the last collection that does not belong to the
+	 * workers
+	 */
+	private long baselineBytes;
+
+	/**
+	 * The number of files waiting to be admitted
+	 */
+	private int waitingFiles;
+
+	public ConcurrencyController(int maxWorkers, long heapCeilingBytes) {
+		super();
+		this.maxWorkers = maxWorkers;
+		this.heapCeilingBytes = heapCeilingBytes;
+		this.workerLimit = Math.max(1, Math.min(maxWorkers, Runtime.getRuntime().availableProcessors()));
+		this.baselineBytes = memoryBean.getHeapMemoryUsage().getUsed();
+		listenToCollections();
+	}
+
+	/**
+	 * Gets the heap ceiling as a fraction of the maximum heap
+	 *
+	 * @param percent The percentage of the maximum heap
+	 * @return The heap ceiling in bytes
+	 */
+	public static long getHeapCeiling(int percent) {
+
+		long maxHeap = Runtime.getRuntime().maxMemory();
+		return maxHeap == Long.MAX_VALUE ? Long.MAX_VALUE : maxHeap / 100 * percent;
+	}
+
+	/**
+	 * Registers for the collection notifications. On a JVM without them the
+	 * heap usage is sampled when the workers finish instead.
+	 */
+	private void listenToCollections() {
+
+		for (MemoryPoolMXBean poolBean : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (poolBean.getType() == MemoryType.HEAP) {
+				heapPoolNames.add(poolBean.getName());
+			}
+		}
+		try {
+			for (GarbageCollectorMXBean collectorBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+				if (collectorBean instanceof NotificationEmitter) {
+					((NotificationEmitter) collectorBean).addNotificationListener((notification, handback) -> {
+						if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+								.equals(notification.getType())) {
+							GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+									.from((CompositeData) notification.getUserData());
+							long usedAfterCollection = 0;
+							for (Map.Entry<String, MemoryUsage> entry : info.getGcInfo().getMemoryUsageAfterGc()
+									.entrySet()) {
+								if (heapPoolNames.contains(entry.getKey())) {
+									usedAfterCollection += entry.getValue().getUsed();
+								}
+							}
+							onCollection(usedAfterCollection);
+						}
+					}, null, null);
+				}
+			}
+		} catch (LinkageError error) {
+			// Not a HotSpot compatible JVM
+		}
+	}
+
+	/**
+	 * Adapts the number of workers to the heap live after a collection
+	 *
+	 * @param usedAfterCollection The heap used after the collection
+	 */
+	private synchronized void onCollection(long usedAfterCollection) {
+
+		baselineBytes = Math.max(0, usedAfterCollection - reservedBytes);
+		if (usedAfterCollection > heapCeilingBytes * SHRINK_THRESHOLD) {
+			workerLimit = Math.max(1, workerLimit / 2);
+		} else if (usedAfterCollection < heapCeilingBytes * GROW_THRESHOLD && activeWorkers >= workerLimit) {
+			workerLimit = Math.min(maxWorkers, workerLimit + 1);
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Estimates the heap needed to process a file
+	 *
+	 * @param path The file path
+	 * @return The estimated bytes
+	 */
+	public long estimate(Path path) {
+
+		try {
+			return BYTES_PER_FILE + Files.size(path) * BYTES_PER_SOURCE_BYTE;
+		} catch (Exception exception) {
+			return BYTES_PER_FILE;
+		}
+	}
+
+	/**
+	 * Waits until a file with the estimated memory can be admitted. A file is
+	 * always admitted when no other file is processed, so the run makes progress
+	 * even if a single file does not fit.
+	 *
+	 * @param estimatedBytes The estimated bytes
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public synchronized void acquire(long estimatedBytes) throws InterruptedException {
+
+		waitingFiles++;
+		try {
+			while (activeWorkers > 0 && (activeWorkers >= workerLimit
+					|| baselineBytes + reservedBytes + estimatedBytes > heapCeilingBytes)) {
+				wait();
+			}
+		} finally {
+			waitingFiles--;
+		}
+		activeWorkers++;
+		reservedBytes += estimatedBytes;
+	}
+
+	/**
+	 * Releases the memory reserved by a processed file
+	 *
+	 * @param estimatedBytes The estimated bytes
+	 */
+	public synchronized void release(long estimatedBytes) {
+
+		activeWorkers--;
+		reservedBytes -= estimatedBytes;
+
+		// The current usage includes garbage, it only ever allows to grow
+		long used = memoryBean.getHeapMemoryUsage().getUsed();
+		if (activeWorkers + 1 >= workerLimit && used < heapCeilingBytes * GROW_THRESHOLD
+				&& workerLimit < maxWorkers) {
+			workerLimit++;
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Gets the current number of workers allowed
+	 *
+	 * @return The worker limit
+	 */
+	public synchronized int getWorkerLimit() {
+
+		return workerLimit;
+	}
+
+	/**
+	 * Gets the number of files being processed
+	 *
+	 * @return The active workers
+	 */
+	public synchronized int getActiveWorkers() {
+
+		return activeWorkers;
+	}
+
+	/**
+	 * Gets the number of files waiting to be admitted
+	 *
+	 * @return The waiting files
+	 */
+	public synchronized int getWaitingFiles() {
+
+		return waitingFiles;
+	}
+}
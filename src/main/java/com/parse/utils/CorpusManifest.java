@@ -0,0 +1,272 @@
+package com.parse.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.parse.models.PredicateInfo;
+import com.parse.models.ProcessedFileInfo;
+
+/**
+ * The utility class CorpusManifest. It holds implementation to write the
+ * manifest of a run and to merge the manifests of several shards into one
+ * corpus manifest.
+ *
+ * <p>
+ * The manifest is a tab separated file. An 'F' line starts a file and is
+ * followed by one 'P' line per predicate of that file:
+ *
+ * <pre>
+ * F  relative path  record file
+ * P  name  type  line numbers  control
+ * </pre>
+ * 
+ * Lines starting with '#' are comments.
+ */
+public class CorpusManifest {
+
+	/**
+	 * The merged manifest file name
+	 */
+	public static final String MANIFEST_FILE_NAME = "manifest.txt";
+
+	/**
+	 * The shard manifest file name pattern
+	 */
+	private static final Pattern SHARD_MANIFEST_PATTERN = Pattern.compile("manifest-(\\d+)-of-(\\d+)\\.txt");
+
+	/**
+	 * The pattern of the predicate names, capturing the predicate number
+	 */
+	private static final Pattern PREDICATE_NAME_PATTERN = Pattern.compile("P(\\d+)");
+
+	private CorpusManifest() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Gets the manifest file name of a shard
+	 *
+	 * @param shardIndex The shard index
+	 * @param shardCount The total number of shards
+	 * @return The file name
+	 */
+	public static String getShardManifestFileName(int shardIndex, int shardCount) {
+
+		return "manifest-" + shardIndex + "-of-" + shardCount + ".txt";
+	}
+
+	/**
+	 * Makes the value safe for a tab separated line
+	 *
+	 * @param value The value
+	 * @return The escaped value
+	 */
+	private static String escape(String value) {
+
+		return value == null ? "" : value.replaceAll("[\\t\\r\\n]+", " ").trim();
+	}
+
+	/**
+	 * Writes the manifest, the files are ordered by their relative path
+	 *
+	 * @param manifestPath The manifest path
+	 * @param files        The processed files
+	 * @throws IOException If the manifest could not be written
+	 */
+	public static void write(Path manifestPath, List<ProcessedFileInfo> files) throws IOException {
+
+		write(manifestPath, files, null);
+	}
+
+	/**
+	 * Writes the manifest, starting with a comment line
+	 *
+	 * @param manifestPath The manifest path
+	 * @param files        The processed files
+	 * @param comment      The comment, ignored if null
+	 * @throws IOException If the manifest could not be written
+	 */
+	public static void write(Path manifestPath, List<ProcessedFileInfo> files, String comment) throws IOException {
+
+		List<ProcessedFileInfo> sortedFiles = new ArrayList<>(files);
+		sortedFiles.sort(Comparator.comparing(ProcessedFileInfo::getRelativePath));
+
+		try (BufferedWriter writer = Files.newBufferedWriter(manifestPath)) {
+			if (comment != null) {
+				writer.write("# " + escape(comment));
+				writer.newLine();
+			}
+			for (ProcessedFileInfo file : sortedFiles) {
+				writer.write(String.join("\t", "F", escape(file.getRelativePath()), file.getRecordFileName()));
+				writer.newLine();
+				// The line numbers read from a store are collected once per file
+				Map<String, String> lineNumbers = file.getLineNumbers();
+				for (PredicateInfo predicateInfo : file.getPredicates()) {
+					writer.write(formatPredicate(predicateInfo, lineNumbers));
+					writer.newLine();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Formats the manifest line of a predicate
+	 *
+	 * @param predicateInfo The predicate
+	 * @param lineNumbers   The line numbers of each predicate, keyed by the
+	 *                      predicate name
+	 * @return The line
+	 */
+	public static String formatPredicate(PredicateInfo predicateInfo, Map<String, String> lineNumbers) {
+
+		return String.join("\t", "P", predicateInfo.getName(), predicateInfo.getType(),
+				escape(lineNumbers.get(predicateInfo.getName())), escape(predicateInfo.getControl()));
+	}
+
+	/**
+	 * Gets the number following the highest predicate number of the files, to
+	 * go on numbering after them
+	 *
+	 * @param files The processed files
+	 * @return The next predicate number
+	 */
+	public static int getNextPredicateNumber(Iterable<ProcessedFileInfo> files) {
+
+		int nextNumber = 0;
+		for (ProcessedFileInfo file : files) {
+			for (PredicateInfo predicateInfo : file.getPredicates()) {
+				Matcher matcher = PREDICATE_NAME_PATTERN.matcher(predicateInfo.getName());
+				if (matcher.matches()) {
+					nextNumber = Math.max(nextNumber, Integer.parseInt(matcher.group(1)) + 1);
+				}
+			}
+		}
+		return nextNumber;
+	}
+
+	/**
+	 * Reads a manifest
+	 *
+	 * @param manifestPath The manifest path
+	 * @return The processed files
+	 * @throws IOException If the manifest could not be read
+	 */
+	public static List<ProcessedFileInfo> read(Path manifestPath) throws IOException {
+
+		List<ProcessedFileInfo> files = new ArrayList<>();
+		ProcessedFileInfo file = null;
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(manifestPath)) {
+			lineNumber++;
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\t", -1);
+			if ("F".equals(fields[0]) && fields.length == 3) {
+				file = new ProcessedFileInfo(fields[1], fields[2], new ArrayList<>(), new HashMap<>());
+				files.add(file);
+			} else if ("P".equals(fields[0]) && fields.length == 5 && file != null) {
+				file.getPredicates().add(new PredicateInfo(fields[1], fields[2], fields[4], null, null));
+				file.getLineNumbers().put(fields[1], fields[3]);
+			} else {
+				throw new IOException("Malformed manifest line " + lineNumber + " in " + manifestPath);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Merges the shard manifests found in the shard output directories into a
+	 * single corpus manifest. The predicate record files are copied into the
+	 * output directory as well, thus the merge fails if two files record their
+	 * predicates in the same file rather than overwrite one record with the other.
+	 *
+	 * @param outputDirectory  The merged output directory
+	 * @param shardDirectories The shard output directories
+	 * @return The number of merged files
+	 * @throws IOException If the shards are incomplete or inconsistent
+	 */
+	public static int merge(Path outputDirectory, List<Path> shardDirectories) throws IOException {
+
+		Map<Integer, Path> shardManifests = new TreeMap<>();
+		int shardCount = -1;
+		for (Path shardDirectory : shardDirectories) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(shardDirectory, "manifest-*.txt")) {
+				for (Path manifestPath : stream) {
+					Matcher matcher = SHARD_MANIFEST_PATTERN.matcher(manifestPath.getFileName().toString());
+					if (!matcher.matches()) {
+						continue;
+					}
+					int shardIndex = Integer.parseInt(matcher.group(1));
+					int count = Integer.parseInt(matcher.group(2));
+					if (shardCount != -1 && shardCount != count) {
+						throw new IOException("Shard manifests disagree on the shard count: " + shardCount + " and "
+								+ count + " (" + manifestPath + ")");
+					}
+					shardCount = count;
+					if (shardManifests.put(shardIndex, manifestPath) != null) {
+						throw new IOException("Shard " + shardIndex + " found more than once (" + manifestPath + ")");
+					}
+				}
+			}
+		}
+
+		if (shardCount == -1) {
+			throw new IOException("No shard manifests found");
+		}
+		for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+			if (!shardManifests.containsKey(shardIndex)) {
+				throw new IOException("Missing manifest of shard " + shardIndex + "/" + shardCount);
+			}
+		}
+
+		Map<String, ProcessedFileInfo> mergedFiles = new LinkedHashMap<>();
+		Set<String> predicateNames = new HashSet<>();
+		Map<String, String> recordFileSources = new HashMap<>();
+		Files.createDirectories(outputDirectory);
+		for (Path manifestPath : shardManifests.values()) {
+			for (ProcessedFileInfo file : read(manifestPath)) {
+				if (mergedFiles.put(file.getRelativePath(), file) != null) {
+					throw new IOException("File " + file.getRelativePath() + " was processed by more than one shard");
+				}
+				for (PredicateInfo predicateInfo : file.getPredicates()) {
+					if (!predicateNames.add(predicateInfo.getName())) {
+						throw new IOException("Predicate " + predicateInfo.getName() + " is not unique, found again in "
+								+ file.getRelativePath());
+					}
+				}
+
+				String recordSource = recordFileSources.putIfAbsent(file.getRecordFileName(), file.getRelativePath());
+				if (recordSource != null) {
+					throw new IOException("Files " + recordSource + " and " + file.getRelativePath()
+							+ " both record their predicates in " + file.getRecordFileName());
+				}
+
+				Path recordPath = manifestPath.resolveSibling(file.getRecordFileName());
+				Path targetRecordPath = outputDirectory.resolve(file.getRecordFileName());
+				if (Files.exists(recordPath)
+						&& (!Files.exists(targetRecordPath) || !Files.isSameFile(recordPath, targetRecordPath))) {
+					Files.copy(recordPath, targetRecordPath, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+
+		write(outputDirectory.resolve(MANIFEST_FILE_NAME), new ArrayList<>(mergedFiles.values()));
+		return mergedFiles.size();
+	}
+}
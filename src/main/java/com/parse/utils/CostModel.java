@@ -0,0 +1,291 @@
+package com.parse.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import com.parse.models.FileComplexityInfo;
+
+/**
+ * The CostModel. It estimates the processing time of a Java file from the
+ * features measured by the {@link ComplexityScanner}, as a linear function:
+ * the intercept plus the sum of each feature times its coefficient.
+ *
+ * <p>
+ * The model is fitted by least squares on the files of a run, and written
+ * next to the manifest, so that a later run can balance its shards by the
+ * estimated cost with '--shard-by cost --cost-model file'.
+ */
+public class CostModel {
+
+	/**
+	 * The name of the model in the output directory
+	 */
+	public static final String MODEL_FILE_NAME = "cost-model.txt";
+
+	/**
+	 * The names of the features, in the order of the coefficients
+	 */
+	private static final String[] FEATURE_NAMES = { "lines", "statements", "max_depth", "max_clauses" };
+
+	/**
+	 * The name of the intercept in the model file
+	 */
+	private static final String INTERCEPT_NAME = "intercept";
+
+	/**
+	 * The regularization of the standardized fit, which keeps collinear
+	 * features, e.g. the lines and the statements of similar files, solvable
+	 */
+	private static final double RIDGE = 1e-6;
+
+	/**
+	 * The estimated time of a file without any feature, in milliseconds
+	 */
+	private double intercept;
+
+	/**
+	 * The milliseconds each unit of a feature adds
+	 */
+	private double[] coefficients;
+
+	/**
+	 * The coefficient of determination of the fit, NaN if unknown
+	 */
+	private double rSquared = Double.NaN;
+
+	/**
+	 * The number of files the model was fitted on
+	 */
+	private int fileCount;
+
+	public CostModel(double intercept, double[] coefficients) {
+		super();
+		this.intercept = intercept;
+		this.coefficients = coefficients;
+	}
+
+	public double getIntercept() {
+		return intercept;
+	}
+
+	public double[] getCoefficients() {
+		return coefficients;
+	}
+
+	public double getRSquared() {
+		return rSquared;
+	}
+
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * Gets the features of a file, in the order of the coefficients
+	 *
+	 * @param complexity The features of the file
+	 * @return The features
+	 */
+	private static double[] getFeatures(FileComplexityInfo complexity) {
+
+		return new double[] { complexity.getLines(), complexity.getStatementCount(), complexity.getMaxDepth(),
+				complexity.getMaxClauses() };
+	}
+
+	/**
+	 * Estimates the processing time of a file
+	 *
+	 * @param complexity The features of the file
+	 * @return The estimated time in milliseconds, never negative
+	 */
+	public double predict(FileComplexityInfo complexity) {
+
+		double[] features = getFeatures(complexity);
+		double millis = intercept;
+		for (int feature = 0; feature < features.length; feature++) {
+			millis += coefficients[feature] * features[feature];
+		}
+		return Math.max(0, millis);
+	}
+
+	/**
+	 * Fits the model to the measured processing times of the files by least
+	 * squares. The features are standardized for the fit, a feature constant
+	 * over the files gets no coefficient.
+	 *
+	 * @param files The files, with their processing time
+	 * @return The model
+	 */
+	public static CostModel fit(List<FileComplexityInfo> files) {
+
+		int featureCount = FEATURE_NAMES.length;
+		int fileCount = files.size();
+		double[][] features = new double[fileCount][];
+		double[] millis = new double[fileCount];
+		double[] means = new double[featureCount];
+		double meanMillis = 0;
+		for (int file = 0; file < fileCount; file++) {
+			features[file] = getFeatures(files.get(file));
+			millis[file] = files.get(file).getMillis();
+			meanMillis += millis[file] / fileCount;
+			for (int feature = 0; feature < featureCount; feature++) {
+				means[feature] += features[file][feature] / fileCount;
+			}
+		}
+		double[] deviations = new double[featureCount];
+		for (int file = 0; file < fileCount; file++) {
+			for (int feature = 0; feature < featureCount; feature++) {
+				double difference = features[file][feature] - means[feature];
+				deviations[feature] += difference * difference;
+			}
+		}
+		for (int feature = 0; feature < featureCount; feature++) {
+			deviations[feature] = Math.sqrt(deviations[feature] / Math.max(1, fileCount));
+		}
+
+		// The normal equations of the standardized, centered features
+		double[][] system = new double[featureCount][featureCount + 1];
+		for (int file = 0; file < fileCount; file++) {
+			double[] standardized = new double[featureCount];
+			for (int feature = 0; feature < featureCount; feature++) {
+				standardized[feature] = deviations[feature] == 0 ? 0
+						: (features[file][feature] - means[feature]) / deviations[feature];
+			}
+			for (int row = 0; row < featureCount; row++) {
+				for (int column = 0; column < featureCount; column++) {
+					system[row][column] += standardized[row] * standardized[column];
+				}
+				system[row][featureCount] += standardized[row] * (millis[file] - meanMillis);
+			}
+		}
+		for (int row = 0; row < featureCount; row++) {
+			system[row][row] += RIDGE * Math.max(1, fileCount);
+		}
+		double[] standardizedCoefficients = solve(system);
+
+		double[] coefficients = new double[featureCount];
+		double intercept = meanMillis;
+		for (int feature = 0; feature < featureCount; feature++) {
+			coefficients[feature] = deviations[feature] == 0 ? 0
+					: standardizedCoefficients[feature] / deviations[feature];
+			intercept -= coefficients[feature] * means[feature];
+		}
+		CostModel model = new CostModel(intercept, coefficients);
+		model.fileCount = fileCount;
+
+		double residualSum = 0;
+		double totalSum = 0;
+		for (int file = 0; file < fileCount; file++) {
+			double estimate = intercept;
+			for (int feature = 0; feature < featureCount; feature++) {
+				estimate += coefficients[feature] * features[file][feature];
+			}
+			residualSum += (millis[file] - estimate) * (millis[file] - estimate);
+			totalSum += (millis[file] - meanMillis) * (millis[file] - meanMillis);
+		}
+		model.rSquared = totalSum == 0 ? Double.NaN : 1 - residualSum / totalSum;
+		return model;
+	}
+
+	/**
+	 * Solves a linear system by Gaussian elimination with partial pivoting
+	 *
+	 * @param system The augmented matrix of the system, it is modified
+	 * @return The solution, zero for the unknowns of a singular system
+	 */
+	private static double[] solve(double[][] system) {
+
+		int size = system.length;
+		for (int pivot = 0; pivot < size; pivot++) {
+			int best = pivot;
+			for (int row = pivot + 1; row < size; row++) {
+				if (Math.abs(system[row][pivot]) > Math.abs(system[best][pivot])) {
+					best = row;
+				}
+			}
+			double[] swapped = system[pivot];
+			system[pivot] = system[best];
+			system[best] = swapped;
+			if (Math.abs(system[pivot][pivot]) < 1e-12) {
+				continue;
+			}
+			for (int row = pivot + 1; row < size; row++) {
+				double factor = system[row][pivot] / system[pivot][pivot];
+				for (int column = pivot; column <= size; column++) {
+					system[row][column] -= factor * system[pivot][column];
+				}
+			}
+		}
+		double[] solution = new double[size];
+		for (int row = size - 1; row >= 0; row--) {
+			if (Math.abs(system[row][row]) < 1e-12) {
+				continue;
+			}
+			double value = system[row][size];
+			for (int column = row + 1; column < size; column++) {
+				value -= system[row][column] * solution[column];
+			}
+			solution[row] = value / system[row][row];
+		}
+		return solution;
+	}
+
+	/**
+	 * Writes the model
+	 *
+	 * @param modelPath The model path
+	 * @throws IOException If the model could not be written
+	 */
+	public void write(Path modelPath) throws IOException {
+
+		try (BufferedWriter writer = Files.newBufferedWriter(modelPath)) {
+			writer.write("# millis = intercept + the sum of each feature times its coefficient");
+			writer.newLine();
+			writer.write(String.format(Locale.ROOT, "# fitted on %d files, r2 %.4f", fileCount, rSquared));
+			writer.newLine();
+			writer.write(INTERCEPT_NAME + "\t" + intercept);
+			writer.newLine();
+			for (int feature = 0; feature < FEATURE_NAMES.length; feature++) {
+				writer.write(FEATURE_NAMES[feature] + "\t" + coefficients[feature]);
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Reads a model written by {@link #write(Path)}
+	 *
+	 * @param modelPath The model path
+	 * @return The model
+	 * @throws IOException If the model could not be read or is malformed
+	 */
+	public static CostModel read(Path modelPath) throws IOException {
+
+		double intercept = 0;
+		double[] coefficients = new double[FEATURE_NAMES.length];
+		for (String line : Files.readAllLines(modelPath)) {
+			if (line.trim().isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\t");
+			try {
+				int feature = Arrays.asList(FEATURE_NAMES).indexOf(fields[0]);
+				if (fields.length == 2 && INTERCEPT_NAME.equals(fields[0])) {
+					intercept = Double.parseDouble(fields[1]);
+				} else if (fields.length == 2 && feature >= 0) {
+					coefficients[feature] = Double.parseDouble(fields[1]);
+				} else {
+					throw new IOException("Invalid cost model line '" + line + "' in " + modelPath);
+				}
+			} catch (NumberFormatException exception) {
+				throw new IOException("Invalid cost model line '" + line + "' in " + modelPath);
+			}
+		}
+		return new CostModel(intercept, coefficients);
+	}
+}
@@ -0,0 +1,178 @@
+package com.parse.utils;
+
+/**
+ * The utility class DelimiterScanner. It finds the next character the code
+ * scanners act on: a quote, the slash or the star of a comment, the '&amp;' or
+ * '|' of an operator, or a parenthesis. The scanners copy or skip the
+ * characters in between in bulk and handle only these hits one at a time.
+ *
+ * <p>
+ * Four characters are compared at a time, as the 16 bit lanes of a long. On
+ * JDK 17+, when the classes are built with the 'vector' profile and the JVM is
+ * started with '--add-modules jdk.incubator.vector', a vector register of
+ * characters is compared at a time instead.
+ */
+public class DelimiterScanner {
+
+	/**
+	 * The finder of the delimiters
+	 */
+	interface Finder {
+
+		/**
+		 * Finds the first delimiter
+		 *
+		 * @param chars The characters
+		 * @param from  The index of the first character searched
+		 * @param to    The index after the last character searched
+		 * @return The index of the delimiter, the end index if there is none
+		 */
+		int find(char[] chars, int from, int to);
+	}
+
+	/**
+	 * The finder using the Vector API, built from src/main/java17
+	 */
+	private static final String VECTOR_FINDER_CLASS = "com.parse.utils.VectorDelimiterFinder";
+
+	/**
+	 * The lowest bit of each lane of a long
+	 */
+	private static final long LANE_LOW_BITS = 0x0001000100010001L;
+
+	/**
+	 * The highest bit of each lane of a long
+	 */
+	private static final long LANE_HIGH_BITS = 0x8000800080008000L;
+
+	/**
+	 * Each delimiter repeated in the four lanes of a long
+	 */
+	private static final long[] DELIMITER_LANES = { '"' * LANE_LOW_BITS, '\'' * LANE_LOW_BITS,
+			'/' * LANE_LOW_BITS, '*' * LANE_LOW_BITS, '&' * LANE_LOW_BITS, '|' * LANE_LOW_BITS, '(' * LANE_LOW_BITS,
+			')' * LANE_LOW_BITS };
+
+	/**
+	 * The finder used
+	 */
+	private static final Finder FINDER = loadFinder();
+
+	private DelimiterScanner() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Loads the finder using the Vector API, or the one comparing the lanes of a
+	 * long if the JVM does not provide the Vector API
+	 *
+	 * @return The finder
+	 */
+	private static Finder loadFinder() {
+
+		try {
+			Finder finder = (Finder) Class.forName(VECTOR_FINDER_CLASS).getDeclaredConstructor().newInstance();
+			// The module is only linked on the first search
+			finder.find(new char[64], 0, 64);
+			return finder;
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException exception) {
+			return DelimiterScanner::findInLanes;
+		}
+	}
+
+	/**
+	 * Gets the name of the finder used
+	 *
+	 * @return 'vector' or 'swar'
+	 */
+	public static String getFinderName() {
+
+		return FINDER.getClass().getName().equals(VECTOR_FINDER_CLASS) ? "vector" : "swar";
+	}
+
+	/**
+	 * Finds the first delimiter
+	 *
+	 * @param chars The characters
+	 * @param from  The index of the first character searched
+	 * @param to    The index after the last character searched
+	 * @return The index of the delimiter, the end index if there is none
+	 */
+	public static int indexOfDelimiter(char[] chars, int from, int to) {
+
+		return FINDER.find(chars, from, to);
+	}
+
+	/**
+	 * Appends the characters up to the first delimiter
+	 *
+	 * @param builder The builder the characters are appended to
+	 * @param chars   The characters
+	 * @param from    The index of the first character searched
+	 * @param to      The index after the last character searched
+	 * @return The index of the delimiter, the end index if there is none
+	 */
+	public static int appendUntilDelimiter(StringBuilder builder, char[] chars, int from, int to) {
+
+		int delimiter = FINDER.find(chars, from, to);
+		builder.append(chars, from, delimiter - from);
+		return delimiter;
+	}
+
+	/**
+	 * Finds the first delimiter, four characters at a time. A lane holding a
+	 * delimiter is zero once the word is xor-ed with the delimiter; subtracting
+	 * one from each lane then sets the highest bit of that lane. A borrow only
+	 * ever sets the bits of the lanes above a zero one, thus the lowest bit set
+	 * is the first delimiter.
+	 *
+	 * @param chars The characters
+	 * @param from  The index of the first character searched
+	 * @param to    The index after the last character searched
+	 * @return The index of the delimiter, the end index if there is none
+	 */
+	static int findInLanes(char[] chars, int from, int to) {
+
+		int index = from;
+		for (; index + 4 <= to; index += 4) {
+			long word = chars[index] | (long) chars[index + 1] << 16 | (long) chars[index + 2] << 32
+					| (long) chars[index + 3] << 48;
+			long found = 0;
+			for (long delimiterLanes : DELIMITER_LANES) {
+				long lanes = word ^ delimiterLanes;
+				found |= (lanes - LANE_LOW_BITS) & ~lanes & LANE_HIGH_BITS;
+			}
+			if (found != 0) {
+				return index + (Long.numberOfTrailingZeros(found) >>> 4);
+			}
+		}
+		for (; index < to; index++) {
+			if (isDelimiter(chars[index])) {
+				return index;
+			}
+		}
+		return to;
+	}
+
+	/**
+	 * Checks if a character is a delimiter
+	 *
+	 * @param character The character
+	 * @return If the character is a delimiter
+	 */
+	static boolean isDelimiter(char character) {
+
+		switch (character) {
+		case '"':
+		case '\'':
+		case '/':
+		case '*':
+		case '&':
+		case '|':
+		case '(':
+		case ')':
+			return true;
+		default:
+			return false;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.parse.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The FailureLog. It writes the files that could not be processed to the
+ * failure log of the output directory, with the full stack trace of their
+ * exception. The entries are written by a background thread, the log is
+ * created with the first one.
+ */
+public class FailureLog {
+
+	/**
+	 * The name of the failure log in the output directory
+	 */
+	public static final String LOG_FILE_NAME = "failures.log";
+
+	/**
+	 * The log path
+	 */
+	private final Path logPath;
+
+	/**
+	 * The thread writing the entries
+	 */
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "failure-log");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The number of entries not written yet
+	 */
+	private final AtomicInteger pendingEntries = new AtomicInteger();
+
+	/**
+	 * The log, null until the first entry
+	 */
+	private PrintWriter log;
+
+	public FailureLog(Path outputPath) {
+		super();
+		this.logPath = outputPath.resolve(LOG_FILE_NAME);
+	}
+
+	public Path getLogPath() {
+		return logPath;
+	}
+
+	public int getPendingEntries() {
+		return pendingEntries.get();
+	}
+
+	/**
+	 * Adds a file that could not be processed
+	 *
+	 * @param filePath  The file path
+	 * @param exception The exception
+	 */
+	public void add(Path filePath, Throwable exception) {
+
+		Instant time = Instant.now();
+		pendingEntries.incrementAndGet();
+		writer.execute(() -> {
+			try {
+				if (log == null) {
+					BufferedWriter fileWriter = Files.newBufferedWriter(logPath);
+					log = new PrintWriter(fileWriter);
+				}
+				log.println(time + "\t" + filePath);
+				exception.printStackTrace(log);
+				log.println();
+				log.flush();
+			} catch (IOException ioException) {
+				System.out.println("Error writing the failure log. Reason: " + ioException.getLocalizedMessage());
+			} finally {
+				pendingEntries.decrementAndGet();
+			}
+		});
+	}
+
+	/**
+	 * Writes the pending entries and closes the log
+	 */
+	public void close() {
+
+		writer.execute(() -> {
+			if (log != null) {
+				log.close();
+			}
+		});
+		writer.shutdown();
+		try {
+			writer.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The IgnoreRules. It holds the rules of a single '.gitignore' file. The
+ * supported syntax is the common subset of git's: comments, negation with '!',
+ * directory only rules with a trailing '/', rules anchored to the directory of
+ * the file when they contain a '/', and the '*', '?', '[...]' and '**'
+ * wildcards.
+ */
+public class IgnoreRules {
+
+	/**
+	 * The directory the rules are relative to
+	 */
+	private final Path baseDirectory;
+
+	/**
+	 * The rule patterns, in the order of the file
+	 */
+	private final List<Pattern> patterns = new ArrayList<>();
+
+	/**
+	 * If the rule at the same position is a negation
+	 */
+	private final List<Boolean> negations = new ArrayList<>();
+
+	/**
+	 * If the rule at the same position applies to directories only
+	 */
+	private final List<Boolean> directoryOnly = new ArrayList<>();
+
+	public IgnoreRules(Path baseDirectory, List<String> lines) {
+		super();
+		this.baseDirectory = baseDirectory;
+		lines.forEach(this::addRule);
+	}
+
+	/**
+	 * Reads the rules of a '.gitignore' file
+	 *
+	 * @param ignoreFilePath The '.gitignore' file path
+	 * @return The rules
+	 * @throws IOException If the file could not be read
+	 */
+	public static IgnoreRules read(Path ignoreFilePath) throws IOException {
+
+		return new IgnoreRules(ignoreFilePath.getParent(), Files.readAllLines(ignoreFilePath));
+	}
+
+	/**
+	 * Converts a glob of the rule into a regular expression
+	 *
+	 * @param glob The glob
+	 * @return The regular expression
+	 */
+	private static String toRegex(String glob) {
+
+		StringBuilder regexBuilder = new StringBuilder();
+		char[] chars = glob.toCharArray();
+		int counter = 0;
+		while (counter < chars.length) {
+			char current = chars[counter];
+			if (current == '*' && counter + 1 < chars.length && chars[counter + 1] == '*') {
+				if (counter + 2 < chars.length && chars[counter + 2] == '/') {
+					regexBuilder.append("(.*/)?");
+					counter += 3;
+				} else {
+					regexBuilder.append(".*");
+					counter += 2;
+				}
+				continue;
+			}
+			if (current == '*') {
+				regexBuilder.append("[^/]*");
+			} else if (current == '?') {
+				regexBuilder.append("[^/]");
+			} else if (current == '[') {
+				int end = glob.indexOf(']', counter + 1);
+				if (end == -1) {
+					regexBuilder.append("\\[");
+				} else {
+					String charClass = glob.substring(counter + 1, end);
+					regexBuilder.append('[')
+							.append(charClass.startsWith("!") ? "^" + charClass.substring(1) : charClass)
+							.append(']');
+					counter = end;
+				}
+			} else if (current == '\\' && counter + 1 < chars.length) {
+				regexBuilder.append(Pattern.quote(String.valueOf(chars[++counter])));
+			} else {
+				regexBuilder.append(Pattern.quote(String.valueOf(current)));
+			}
+			counter++;
+		}
+		return regexBuilder.toString();
+	}
+
+	/**
+	 * Adds a rule
+	 *
+	 * @param line The line of the '.gitignore' file
+	 */
+	private void addRule(String line) {
+
+		String rule = line.replaceAll("(?<!\\\\)\\s+$", "");
+		if (rule.isEmpty() || rule.startsWith("#")) {
+			return;
+		}
+
+		boolean negation = rule.startsWith("!");
+		if (negation) {
+			rule = rule.substring(1);
+		}
+		boolean onlyDirectories = rule.endsWith("/");
+		if (onlyDirectories) {
+			rule = rule.substring(0, rule.length() - 1);
+		}
+		if (rule.isEmpty()) {
+			return;
+		}
+
+		// A rule without a slash matches at any depth, otherwise it is anchored
+		boolean anchored = rule.contains("/");
+		if (rule.startsWith("/")) {
+			rule = rule.substring(1);
+		}
+		patterns.add(Pattern.compile((anchored ? "" : "(.*/)?") + toRegex(rule)));
+		negations.add(negation);
+		directoryOnly.add(onlyDirectories);
+	}
+
+	/**
+	 * Checks the path against the rules
+	 *
+	 * @param path      The path
+	 * @param directory If the path is a directory
+	 * @return True if ignored, false if explicitly not ignored and null if no rule
+	 *         matched
+	 */
+	public Boolean isIgnored(Path path, boolean directory) {
+
+		if (!path.startsWith(baseDirectory)) {
+			return null;
+		}
+		String relativePath = ShardSelector.getRelativePath(baseDirectory, path);
+		Boolean ignored = null;
+		for (int i = 0; i < patterns.size(); i++) {
+			if ((directory || !directoryOnly.get(i)) && patterns.get(i).matcher(relativePath).matches()) {
+				ignored = !negations.get(i);
+			}
+		}
+		return ignored;
+	}
+
+	/**
+	 * Checks the path against a chain of rules, the innermost directory's rules
+	 * last, as git does
+	 *
+	 * @param rulesChain The chain of rules
+	 * @param path       The path
+	 * @param directory  If the path is a directory
+	 * @return If the path is ignored
+	 */
+	public static boolean isIgnored(List<IgnoreRules> rulesChain, Path path, boolean directory) {
+
+		boolean ignored = false;
+		for (IgnoreRules rules : rulesChain) {
+			Boolean result = rules.isIgnored(path, directory);
+			if (result != null) {
+				ignored = result;
+			}
+		}
+		return ignored;
+	}
+}
@@ -0,0 +1,83 @@
+package com.parse.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.parse.models.InstrumentationResult;
+
+/**
+ * The InstrumentationCache. It holds the results of the recently instrumented
+ * sources, keyed by the hash of their content, and evicts the least recently
+ * used one when full. A source seen again is not formatted nor parsed again,
+ * and gets the very same predicate names. It thus only serves the sources
+ * replied to, never the files instrumented in place, whose predicate names
+ * must be unique in their manifest.
+ */
+public class InstrumentationCache {
+
+	/**
+	 * The results, in the order of their last use
+	 */
+	private final Map<String, InstrumentationResult> results;
+
+	/**
+	 * The number of lookups that found a result
+	 */
+	private long hits;
+
+	/**
+	 * The number of lookups that did not find a result
+	 */
+	private long misses;
+
+	public InstrumentationCache(int maxEntries) {
+		super();
+		this.results = new LinkedHashMap<String, InstrumentationResult>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, InstrumentationResult> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Gets the result of a source
+	 *
+	 * @param contentHash The hash of the source
+	 * @return The result, null if not cached
+	 */
+	public synchronized InstrumentationResult get(String contentHash) {
+
+		InstrumentationResult result = results.get(contentHash);
+		if (result == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the result of a source
+	 *
+	 * @param contentHash The hash of the source
+	 * @param result      The result
+	 */
+	public synchronized void put(String contentHash, InstrumentationResult result) {
+
+		results.put(contentHash, result);
+	}
+
+	/**
+	 * Gets the statistics of the cache
+	 *
+	 * @return The statistics, as 'name=value' pairs
+	 */
+	public synchronized String getStatistics() {
+
+		return "entries=" + results.size() + " hits=" + hits + " misses=" + misses;
+	}
+}
@@ -0,0 +1,142 @@
+package com.parse.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram. It counts durations in buckets of logarithmic width,
+ * 16 buckets per power of two, thus a percentile is read within about 6% of
+ * its exact value whatever the number of durations. The durations are
+ * recorded without locking, from any thread.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of buckets per power of two, as a number of bits
+	 */
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/**
+	 * The number of buckets per power of two
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The number of durations in each bucket
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+	/**
+	 * The number of durations
+	 */
+	private final AtomicLong count = new AtomicLong();
+
+	/**
+	 * The sum of the durations
+	 */
+	private final AtomicLong total = new AtomicLong();
+
+	/**
+	 * The longest duration
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Gets the bucket of a duration
+	 *
+	 * @param value The duration, not negative
+	 * @return The index of the bucket
+	 */
+	private static int getBucket(long value) {
+
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Gets the highest duration of a bucket
+	 *
+	 * @param bucket The index of the bucket
+	 * @return The highest duration
+	 */
+	private static long getHighestValue(int bucket) {
+
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long subBucket = SUB_BUCKETS + bucket % SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Records a duration
+	 *
+	 * @param value The duration, a negative one is recorded as zero
+	 */
+	public void record(long value) {
+
+		long duration = Math.max(0, value);
+		counts.incrementAndGet(getBucket(duration));
+		count.incrementAndGet();
+		total.addAndGet(duration);
+		max.accumulateAndGet(duration, Math::max);
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getTotal() {
+		return total.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Gets the number of durations at or below a bound. A bucket holding the
+	 * bound is counted above it, thus the count is within the width of a
+	 * bucket.
+	 *
+	 * @param bound The bound
+	 * @return The number of durations
+	 */
+	public long getCountAtOrBelow(long bound) {
+
+		long counted = 0;
+		for (int bucket = 0; bucket < counts.length() && getHighestValue(bucket) <= bound; bucket++) {
+			counted += counts.get(bucket);
+		}
+		return counted;
+	}
+
+	/**
+	 * Gets a percentile of the durations
+	 *
+	 * @param percentile The percentile, between 0 and 100
+	 * @return The duration at or below which the given percentage of the
+	 *         durations are, zero if no duration was recorded
+	 */
+	public long getPercentile(double percentile) {
+
+		long recorded = count.get();
+		if (recorded == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+		long seen = 0;
+		for (int bucket = 0; bucket < counts.length(); bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= rank) {
+				return Math.min(getHighestValue(bucket), max.get());
+			}
+		}
+		return max.get();
+	}
+}
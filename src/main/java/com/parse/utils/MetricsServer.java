@@ -0,0 +1,336 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+import com.parse.models.PredicateType;
+import com.parse.utils.StageTimer.Stage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The MetricsServer. It serves the live metrics of a run in the Prometheus
+ * text format, so that a scraper can graph the progress of a long run and
+ * catch its stalls: the files processed, the predicates of each type, the
+ * latency of each stage, the queues and the heap.
+ *
+ * <p>
+ * The server listens on the loopback interface only. The metrics are read
+ * from the run statistics and the registered gauges when they are scraped,
+ * the workers do not do anything more while it runs.
+ */
+public class MetricsServer {
+
+	/**
+	 * The path the metrics are served on
+	 */
+	public static final String METRICS_PATH = "/metrics";
+
+	/**
+	 * The content type of the Prometheus text format
+	 */
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/**
+	 * The prefix of the metric names
+	 */
+	private static final String PREFIX = "csm_";
+
+	/**
+	 * The upper bounds of the latency buckets in seconds
+	 */
+	private static final double[] BUCKET_SECONDS = { 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 60 };
+
+	/**
+	 * The metric registered by the caller
+	 */
+	private static class Metric {
+
+		/**
+		 * The metric name, without the prefix
+		 */
+		private final String name;
+
+		/**
+		 * The metric type, 'counter' or 'gauge'
+		 */
+		private final String type;
+
+		/**
+		 * The description
+		 */
+		private final String help;
+
+		/**
+		 * The value, a negative one is not known and not served
+		 */
+		private final LongSupplier value;
+
+		private Metric(String name, String type, String help, LongSupplier value) {
+			super();
+			this.name = name;
+			this.type = type;
+			this.help = help;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The server
+	 */
+	private final HttpServer server;
+
+	/**
+	 * The thread answering the requests
+	 */
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "metrics-server");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The statistics of the run
+	 */
+	private final RunStatistics runStatistics;
+
+	/**
+	 * The memory bean, read for the heap usage
+	 */
+	private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+	/**
+	 * The metrics registered by the caller, in the order of registration
+	 */
+	private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Creates the server, bound to the loopback interface
+	 *
+	 * @param port          The port, zero for any free port
+	 * @param runStatistics The statistics of the run
+	 * @throws IOException If the port could not be bound
+	 */
+	public MetricsServer(int port, RunStatistics runStatistics) throws IOException {
+		super();
+		this.runStatistics = runStatistics;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.server.createContext(METRICS_PATH, this::handle);
+		this.server.setExecutor(executor);
+	}
+
+	/**
+	 * Gets the port the server listens on
+	 *
+	 * @return The port
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Registers a counter, a value which only ever grows
+	 *
+	 * @param name  The metric name, without the prefix
+	 * @param help  The description
+	 * @param value The value
+	 */
+	public void addCounter(String name, String help, LongSupplier value) {
+		metrics.add(new Metric(name, "counter", help, value));
+	}
+
+	/**
+	 * Registers a gauge, a value which goes up and down
+	 *
+	 * @param name  The metric name, without the prefix
+	 * @param help  The description
+	 * @param value The value, negative while it is not known
+	 */
+	public void addGauge(String name, String help, LongSupplier value) {
+		metrics.add(new Metric(name, "gauge", help, value));
+	}
+
+	/**
+	 * Starts serving the metrics
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops serving the metrics, without waiting for the open exchanges
+	 */
+	public void stop() {
+
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Answers a request
+	 *
+	 * @param exchange The exchange
+	 * @throws IOException If the answer could not be sent
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+
+		try {
+			String method = exchange.getRequestMethod();
+			if (!METRICS_PATH.equals(exchange.getRequestURI().getPath())) {
+				exchange.sendResponseHeaders(404, -1);
+			} else if (!"GET".equals(method) && !"HEAD".equals(method)) {
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				exchange.sendResponseHeaders(405, -1);
+			} else {
+				byte[] body = getMetrics().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+				if ("HEAD".equals(method)) {
+					exchange.sendResponseHeaders(200, -1);
+				} else {
+					exchange.sendResponseHeaders(200, body.length);
+					try (OutputStream responseBody = exchange.getResponseBody()) {
+						responseBody.write(body);
+					}
+				}
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Gets the metrics in the Prometheus text format
+	 *
+	 * @return The metrics
+	 */
+	public String getMetrics() {
+
+		StringBuilder text = new StringBuilder();
+		addHeader(text, "files_processed_total", "counter", "The files processed.");
+		addSample(text, "files_processed_total", "", runStatistics.getFileCount());
+		for (Metric metric : metrics) {
+			long value = metric.value.getAsLong();
+			if (value >= 0) {
+				addHeader(text, metric.name, metric.type, metric.help);
+				addSample(text, metric.name, "", value);
+			}
+		}
+
+		addHeader(text, "predicates_total", "counter", "The predicates emitted, by control statement type.");
+		for (PredicateType type : PredicateType.values()) {
+			addSample(text, "predicates_total", "type=\"" + type.getLabel() + "\"",
+					runStatistics.getPredicateCount(type));
+		}
+		addHeader(text, "input_bytes_total", "counter", "The size of the files processed before the processing.");
+		addSample(text, "input_bytes_total", "", runStatistics.getInputBytes());
+		long lastRecordMillis = runStatistics.getLastRecordMillis();
+		if (lastRecordMillis > 0) {
+			addHeader(text, "last_file_timestamp_seconds", "gauge", "The time the last file was processed.");
+			addSample(text, "last_file_timestamp_seconds", "", lastRecordMillis / 1000.0);
+		}
+
+		addHeader(text, "stage_duration_seconds", "histogram", "The time of each processing stage of a file.");
+		for (Stage stage : Stage.values()) {
+			addHistogram(text, "stage_duration_seconds", "stage=\"" + stage.getLabel() + "\"",
+					runStatistics.getStageHistogram(stage));
+		}
+		addHeader(text, "file_duration_seconds", "histogram", "The time of a file, all stages together.");
+		addHistogram(text, "file_duration_seconds", "", runStatistics.getFileHistogram());
+		if (ThreadAllocation.isSupported()) {
+			addHeader(text, "stage_allocated_bytes_total", "counter", "The bytes allocated by each processing stage.");
+			for (Stage stage : Stage.values()) {
+				addSample(text, "stage_allocated_bytes_total", "stage=\"" + stage.getLabel() + "\"",
+						runStatistics.getStageAllocatedBytes(stage));
+			}
+		}
+
+		MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+		addHeader(text, "heap_used_bytes", "gauge", "The heap in use, including garbage.");
+		addSample(text, "heap_used_bytes", "", heap.getUsed());
+		addHeader(text, "heap_committed_bytes", "gauge", "The heap committed by the JVM.");
+		addSample(text, "heap_committed_bytes", "", heap.getCommitted());
+		if (heap.getMax() >= 0) {
+			addHeader(text, "heap_max_bytes", "gauge", "The maximum heap.");
+			addSample(text, "heap_max_bytes", "", heap.getMax());
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Adds the header of a metric
+	 *
+	 * @param text The metrics
+	 * @param name The metric name, without the prefix
+	 * @param type The metric type
+	 * @param help The description
+	 */
+	private static void addHeader(StringBuilder text, String name, String type, String help) {
+
+		text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+	}
+
+	/**
+	 * Adds a sample of a metric
+	 *
+	 * @param text   The metrics
+	 * @param name   The sample name, without the prefix
+	 * @param labels The labels, e.g. 'stage="read"', empty if none
+	 * @param value  The value
+	 */
+	private static void addSample(StringBuilder text, String name, String labels, double value) {
+
+		text.append(PREFIX).append(name);
+		if (!labels.isEmpty()) {
+			text.append('{').append(labels).append('}');
+		}
+		text.append(' ').append(format(value)).append('\n');
+	}
+
+	/**
+	 * Adds the samples of a latency histogram, in seconds
+	 *
+	 * @param text      The metrics
+	 * @param name      The metric name, without the prefix
+	 * @param labels    The labels of the histogram, empty if none
+	 * @param histogram The histogram, in nanoseconds
+	 */
+	private static void addHistogram(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+
+		// The count is read first and caps the buckets, which a worker may have just incremented
+		long count = histogram.getCount();
+		String separator = labels.isEmpty() ? "" : labels + ",";
+		for (double bound : BUCKET_SECONDS) {
+			long counted = Math.min(count, histogram.getCountAtOrBelow((long) (bound * 1e9)));
+			addSample(text, name + "_bucket", separator + "le=\"" + format(bound) + "\"", counted);
+		}
+		addSample(text, name + "_bucket", separator + "le=\"+Inf\"", count);
+		addSample(text, name + "_sum", labels, histogram.getTotal() / 1e9);
+		addSample(text, name + "_count", labels, count);
+	}
+
+	/**
+	 * Formats a value
+	 *
+	 * @param value The value
+	 * @return The value, without a fraction if it is a whole number
+	 */
+	private static String format(double value) {
+
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+}
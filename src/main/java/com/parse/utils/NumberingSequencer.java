@@ -0,0 +1,89 @@
+package com.parse.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The NumberingSequencer. It lets the workers number the predicates of their
+ * files in the order the files were dispatched in, so that every file takes a
+ * contiguous block of the shared numbering and the names do not depend on the
+ * number of threads.
+ *
+ * <p>
+ * Only the numbering is sequenced, the reading and the formatting of the files
+ * still overlap. A file which fails before its predicates are numbered passes
+ * its turn, and the time waited for a turn is not counted against the budget
+ * of the file.
+ */
+public class NumberingSequencer {
+
+	/**
+	 * The turn of the file processed by the current thread, null if none
+	 */
+	private final ThreadLocal<Long> assignedTurn = new ThreadLocal<>();
+
+	/**
+	 * The turn of the next file to number its predicates
+	 */
+	private long currentTurn;
+
+	/**
+	 * The turns finished ahead of the current one
+	 */
+	private final Set<Long> finishedTurns = new HashSet<>();
+
+	/**
+	 * Assigns its turn to the file processed by the current thread
+	 *
+	 * @param turn The turn, the index of the file in the dispatch order
+	 */
+	public void assign(long turn) {
+		assignedTurn.set(turn);
+	}
+
+	/**
+	 * Waits for the turn of the file processed by the current thread. Returns
+	 * at once if the thread has no turn, or once its turn has come.
+	 *
+	 * @throws IllegalStateException If the thread was interrupted while waiting
+	 */
+	public void awaitTurn() {
+
+		Long turn = assignedTurn.get();
+		if (turn == null) {
+			return;
+		}
+		long startNanos = System.nanoTime();
+		synchronized (this) {
+			try {
+				while (currentTurn < turn) {
+					wait();
+				}
+			} catch (InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting to number the predicates");
+			}
+		}
+		ProcessingBudget.exclude(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Finishes the turn of the file processed by the current thread, whether or
+	 * not its predicates were numbered. Does nothing if the thread has no turn.
+	 */
+	public void finishTurn() {
+
+		Long turn = assignedTurn.get();
+		if (turn == null) {
+			return;
+		}
+		assignedTurn.remove();
+		synchronized (this) {
+			finishedTurns.add(turn);
+			while (finishedTurns.remove(currentTurn)) {
+				currentTurn++;
+			}
+			notifyAll();
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package com.parse.utils;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.parse.models.ExecutionOptions;
+import com.parse.models.ShardStrategy;
+
+/**
+ * The utility class OptionsParser. It holds implementation to parse the command
+ * line arguments.
+ *
+ * <pre>
+ * [options] &lt;output directory&gt; &lt;input path&gt;
+ *
+ * --shard i/N                 process the shard i of N
+ * --shard-by hash|size|cost   assign the files to the shards by path hash, by size or by estimated cost
+ * --cost-model file           the cost model of a previous run, used by --shard-by cost
+ * --work-dir dir              share the files with the other workers using this directory
+ * --lease-expiry seconds      reclaim the files of a worker silent for this long
+ * --max-workers n             the maximum number of workers sharing the work directory
+ * --include glob              process only the files matching the glob, repeatable
+ * --exclude glob              skip the files and directories matching the glob, repeatable
+ * --no-default-excludes       walk the target, build and .gradle directories as well
+ * --file-time-budget ms       abort the files taking longer, leaving them untouched
+ * --file-allocation-budget mb abort the files allocating more, leaving them untouched
+ * --stream-above kb           process the larger files one member at a time
+ * --threads n                 process up to n files at the same time
+ * --heap-ceiling percent      the share of the maximum heap the workers stay below
+ * --watch                     keep running and instrument the files again as they change
+ * --verbose                   report every processed file instead of the periodic progress
+ * --progress-interval seconds report the progress this often
+ * --metrics-port n            serve the live metrics on the loopback port n at /metrics
+ * --verify                    compile the instrumented files and report the errors
+ * --verify-classpath path     the class path of the verification compile
+ *
+ * merge &lt;output directory&gt; &lt;shard output directory&gt;...
+ *
+ * daemon [options]
+ *
+ * --port n                    listen on the loopback port n instead of the standard input
+ * --cache-size n              keep the results of the last n sources
+ *
+ * differential [options] &lt;input path&gt;
+ *
+ * --verify-classpath path     the class path of the subject
+ * --runs n                    run each version of a class n times
+ * --run-timeout seconds       abandon the runs taking longer
+ * </pre>
+ */
+public class OptionsParser {
+
+	/**
+	 * The merge sub-command
+	 */
+	private static final String MERGE_COMMAND = "merge";
+
+	/**
+	 * The daemon sub-command
+	 */
+	private static final String DAEMON_COMMAND = "daemon";
+
+	/**
+	 * The differential sub-command
+	 */
+	private static final String DIFFERENTIAL_COMMAND = "differential";
+
+	private OptionsParser() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Gets the value of an option
+	 *
+	 * @param args    The command line arguments
+	 * @param counter The option position
+	 * @return The option value
+	 */
+	private static String getValue(String[] args, int counter) {
+
+		if (counter + 1 >= args.length) {
+			throw new IllegalArgumentException("Missing value for " + args[counter]);
+		}
+		return args[counter + 1];
+	}
+
+	/**
+	 * Gets the positive integer value of an option
+	 *
+	 * @param args    The command line arguments
+	 * @param counter The option position
+	 * @return The option value
+	 */
+	private static int getPositiveInt(String[] args, int counter) {
+
+		String value = getValue(args, counter);
+		try {
+			int number = Integer.parseInt(value);
+			if (number > 0) {
+				return number;
+			}
+		} catch (NumberFormatException exception) {
+			// Reported below
+		}
+		throw new IllegalArgumentException("Invalid value '" + value + "' for " + args[counter]);
+	}
+
+	/**
+	 * Parses the shard specification, i.e. 'i/N'
+	 *
+	 * @param value   The shard specification
+	 * @param options The options
+	 */
+	private static void parseShard(String value, ExecutionOptions options) {
+
+		String[] parts = value.split("/");
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Invalid shard '" + value + "', expected i/N");
+		}
+		try {
+			int shardIndex = Integer.parseInt(parts[0].trim());
+			int shardCount = Integer.parseInt(parts[1].trim());
+			if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+				throw new IllegalArgumentException("Invalid shard '" + value + "', expected 0 <= i < N");
+			}
+			options.setShardIndex(shardIndex);
+			options.setShardCount(shardCount);
+		} catch (NumberFormatException exception) {
+			throw new IllegalArgumentException("Invalid shard '" + value + "', expected i/N");
+		}
+	}
+
+	/**
+	 * Parses the command line arguments
+	 *
+	 * @param args The command line arguments
+	 * @return The execution options
+	 */
+	public static ExecutionOptions parse(String[] args) {
+
+		ExecutionOptions options = new ExecutionOptions();
+		List<String> positional = new ArrayList<>();
+		int counter = 0;
+
+		if (args.length > 0 && MERGE_COMMAND.equals(args[0])) {
+			options.setMerge(true);
+			counter++;
+		} else if (args.length > 0 && DAEMON_COMMAND.equals(args[0])) {
+			options.setDaemon(true);
+			counter++;
+		} else if (args.length > 0 && DIFFERENTIAL_COMMAND.equals(args[0])) {
+			options.setDifferential(true);
+			counter++;
+		}
+
+		while (counter < args.length) {
+			String arg = args[counter];
+			if ("--shard".equals(arg)) {
+				parseShard(getValue(args, counter), options);
+				counter++;
+			} else if ("--shard-by".equals(arg)) {
+				try {
+					options.setShardStrategy(
+							ShardStrategy.valueOf(getValue(args, counter).toUpperCase(Locale.ENGLISH)));
+				} catch (IllegalArgumentException exception) {
+					throw new IllegalArgumentException("Unknown shard strategy " + args[counter + 1]);
+				}
+				counter++;
+			} else if ("--cost-model".equals(arg)) {
+				options.setCostModelPath(Paths.get(getValue(args, counter)));
+				counter++;
+			} else if ("--work-dir".equals(arg)) {
+				options.setWorkDirectory(Paths.get(getValue(args, counter)));
+				counter++;
+			} else if ("--lease-expiry".equals(arg)) {
+				options.setLeaseExpiryMillis(getPositiveInt(args, counter) * 1000L);
+				counter++;
+			} else if ("--max-workers".equals(arg)) {
+				options.setMaxWorkers(getPositiveInt(args, counter));
+				counter++;
+			} else if ("--include".equals(arg)) {
+				options.getIncludeGlobs().add(getValue(args, counter));
+				counter++;
+			} else if ("--exclude".equals(arg)) {
+				options.getExcludeGlobs().add(getValue(args, counter));
+				counter++;
+			} else if ("--no-default-excludes".equals(arg)) {
+				options.setDefaultExcludes(false);
+			} else if ("--file-time-budget".equals(arg)) {
+				options.setFileTimeBudgetMillis(getPositiveInt(args, counter));
+				counter++;
+			} else if ("--file-allocation-budget".equals(arg)) {
+				options.setFileAllocationBudgetBytes(getPositiveInt(args, counter) * 1024L * 1024L);
+				counter++;
+			} else if ("--stream-above".equals(arg)) {
+				options.setStreamThresholdBytes(getPositiveInt(args, counter) * 1024L);
+				counter++;
+			} else if ("--threads".equals(arg)) {
+				options.setThreads(getPositiveInt(args, counter));
+				counter++;
+			} else if ("--heap-ceiling".equals(arg)) {
+				options.setHeapCeilingPercent(Math.min(100, getPositiveInt(args, counter)));
+				counter++;
+			} else if ("--verbose".equals(arg)) {
+				options.setVerbose(true);
+			} else if ("--progress-interval".equals(arg)) {
+				options.setProgressIntervalMillis(getPositiveInt(args, counter) * 1000L);
+				counter++;
+			} else if ("--metrics-port".equals(arg)) {
+				options.setMetricsPort(getPositiveInt(args, counter));
+				counter++;
+			} else if ("--watch".equals(arg)) {
+				options.setWatch(true);
+			} else if ("--verify".equals(arg)) {
+				options.setVerify(true);
+			} else if ("--verify-classpath".equals(arg)) {
+				options.setVerify(true);
+				options.setVerifyClasspath(getValue(args, counter));
+				counter++;
+			} else if ("--runs".equals(arg)) {
+				options.setRuns(getPositiveInt(args, counter));
+				counter++;
+			} else if ("--run-timeout".equals(arg)) {
+				options.setRunTimeoutMillis(getPositiveInt(args, counter) * 1000L);
+				counter++;
+			} else if ("--port".equals(arg)) {
+				options.setDaemonPort(getPositiveInt(args, counter));
+				counter++;
+			} else if ("--cache-size".equals(arg)) {
+				options.setCacheSize(getPositiveInt(args, counter));
+				counter++;
+			} else if (arg.startsWith("--")) {
+				throw new IllegalArgumentException("Unknown option " + arg);
+			} else {
+				positional.add(arg);
+			}
+			counter++;
+		}
+
+		if (options.isMerge()) {
+			if (positional.size() < 2) {
+				throw new IllegalArgumentException("merge expects an output directory and the shard outputs");
+			}
+			options.setOutputPath(Paths.get(positional.get(0)));
+			for (String path : positional.subList(1, positional.size())) {
+				options.getMergeInputPaths().add(Paths.get(path));
+			}
+		} else if (options.isDaemon()) {
+			if (!positional.isEmpty()) {
+				throw new IllegalArgumentException("daemon expects no paths, they are given by the requests");
+			}
+		} else if (options.isDifferential()) {
+			if (positional.size() != 1) {
+				throw new IllegalArgumentException("differential expects an input path");
+			}
+			options.setInputPath(Paths.get(positional.get(0)));
+		} else {
+			if (positional.size() != 2) {
+				throw new IllegalArgumentException("Expected an output directory and an input path");
+			}
+			options.setOutputPath(Paths.get(positional.get(0)));
+			options.setInputPath(Paths.get(positional.get(1)));
+		}
+		if (options.isSharded() && options.getWorkDirectory() != null) {
+			throw new IllegalArgumentException("--shard and --work-dir cannot be combined");
+		}
+		if (options.getShardStrategy() == ShardStrategy.COST && options.getCostModelPath() == null) {
+			throw new IllegalArgumentException("--shard-by cost expects a --cost-model");
+		}
+		if (options.isWatch() && (options.isSharded() || options.getWorkDirectory() != null)) {
+			throw new IllegalArgumentException("--watch cannot be combined with --shard or --work-dir");
+		}
+		if (options.isVerify() && (options.isWatch() || options.getWorkDirectory() != null)) {
+			throw new IllegalArgumentException("--verify cannot be combined with --watch or --work-dir");
+		}
+		return options;
+	}
+}
@@ -8,6 +8,8 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.parse.events.PredicateExtractionEvent;
+import com.parse.events.ProcessingEvents;
 import com.parse.models.PredicateInfo;
 import com.parse.models.ProcessedStatementInfo;
 
@@ -23,9 +25,15 @@ public class PredicateParser {
 	private static AtomicInteger predicateCounter = new AtomicInteger();
 
 	/**
-	 * The atomic boolean counter
+	 * The step between two consecutive predicate numbers
 	 */
-	private static AtomicInteger booleanCounter = new AtomicInteger();
+	private static int predicateStep = 1;
+
+	/**
+	 * The next predicate number and the step of the current thread, they
+	 * override the shared numbering when set
+	 */
+	private static final ThreadLocal<int[]> localPredicateNumbering = new ThreadLocal<>();
 
 	/**
 	 * The if statement pattern
@@ -56,8 +64,109 @@ public class PredicateParser {
 		// Its a utility class. Thus instantiation is not allowed.
 	}
 
+	/**
+	 * Sets the predicate numbering. The shard 'i' of 'N' numbers its predicates
+	 * i, i + N, i + 2N ... so that the predicate names stay unique across shards.
+	 * 
+	 * @param start The first predicate number
+	 * @param step  The step between two consecutive predicate numbers
+	 */
+	public static void setPredicateNumbering(int start, int step) {
+
+		predicateCounter = new AtomicInteger(start);
+		predicateStep = step;
+	}
+
+	/**
+	 * Sets the predicate numbering of the current thread, independent of the
+	 * shared numbering and of the other threads
+	 * 
+	 * @param start The first predicate number
+	 */
+	public static void setLocalPredicateNumbering(int start) {
+
+		setLocalPredicateNumbering(start, 1);
+	}
+
+	/**
+	 * Sets the predicate numbering of the current thread, independent of the
+	 * shared numbering and of the other threads. The numbering goes on across the
+	 * files the thread processes until it is cleared.
+	 * 
+	 * @param start The first predicate number
+	 * @param step  The step between two consecutive predicate numbers
+	 */
+	public static void setLocalPredicateNumbering(int start, int step) {
+
+		localPredicateNumbering.set(new int[] { start, step });
+	}
+
+	/**
+	 * Restores the shared predicate numbering for the current thread
+	 */
+	public static void clearLocalPredicateNumbering() {
+
+		localPredicateNumbering.remove();
+	}
+
+	/**
+	 * Gets the number the shared numbering gives to the next predicate
+	 * 
+	 * @return The predicate number
+	 */
+	public static int getNextPredicateNumber() {
+
+		return predicateCounter.get();
+	}
+
+	/**
+	 * Gets the number the numbering of the current thread gives to the next
+	 * predicate, the shared numbering if the thread has none of its own
+	 * 
+	 * @return The predicate number
+	 */
+	public static int getNextLocalPredicateNumber() {
+
+		int[] localNumbering = localPredicateNumbering.get();
+		return localNumbering != null ? localNumbering[0] : predicateCounter.get();
+	}
+
+	/**
+	 * Gets the next predicate number
+	 * 
+	 * @return The predicate number
+	 */
+	private static Integer nextPredicateNumber() {
+
+		int[] localNumbering = localPredicateNumbering.get();
+		if (localNumbering != null) {
+			int predicateNumber = localNumbering[0];
+			localNumbering[0] = addStep(predicateNumber, localNumbering[1]);
+			return predicateNumber;
+		}
+		int step = predicateStep;
+		return predicateCounter.getAndUpdate(predicateNumber -> addStep(predicateNumber, step));
+	}
+
+	/**
+	 * Adds the step to a predicate number
+	 * 
+	 * @param predicateNumber The predicate number
+	 * @param step            The step
+	 * @return The next predicate number
+	 * @throws IllegalStateException If the next number does not fit in an int
+	 */
+	private static int addStep(int predicateNumber, int step) {
+
+		if (predicateNumber > Integer.MAX_VALUE - step) {
+			throw new IllegalStateException(
+					"The predicate numbers are exhausted after P" + predicateNumber);
+		}
+		return predicateNumber + step;
+	}
+
 	private static ProcessedStatementInfo processStatement(String statement, Integer predicateId,
-			boolean insertPredicate) {
+			boolean insertPredicate, AtomicInteger booleanCounter) {
 
 		ProcessedStatementInfo processedStatementInfo = new ProcessedStatementInfo();
 		char[] chars = statement.toCharArray();
@@ -68,9 +177,19 @@ public class PredicateParser {
 		List<String> predicates = new ArrayList<>();
 
 		while (counter < totalChars) {
+			ProcessingBudget.checkpoint();
+			// Only the delimiters are looked at one at a time
+			counter = DelimiterScanner.appendUntilDelimiter(statementBuilder, chars, counter, totalChars);
+			if (counter == totalChars) {
+				break;
+			}
 			if (chars[counter] == '"') {
 				statementBuilder.append(chars[counter++]);
 				while (counter < totalChars) {
+					counter = DelimiterScanner.appendUntilDelimiter(statementBuilder, chars, counter, totalChars);
+					if (counter == totalChars) {
+						break;
+					}
 					if (chars[counter] == '"' && chars[counter - 1] != '\\') {
 						statementBuilder.append(chars[counter++]);
 						break;
@@ -80,6 +199,10 @@ public class PredicateParser {
 			} else if (chars[counter] == '\'') {
 				statementBuilder.append(chars[counter++]);
 				while (counter < totalChars) {
+					counter = DelimiterScanner.appendUntilDelimiter(statementBuilder, chars, counter, totalChars);
+					if (counter == totalChars) {
+						break;
+					}
 					if (chars[counter] == '\'' && chars[counter - 1] != '\\') {
 						statementBuilder.append(chars[counter++]);
 						break;
@@ -96,7 +219,8 @@ public class PredicateParser {
 				while (counter < totalChars) {
 					subStatementBuilder.append(chars[counter++]);
 				}
-				ProcessedStatementInfo subdiv = processStatement(subStatementBuilder.toString(), predicateId, true);
+				ProcessedStatementInfo subdiv = processStatement(subStatementBuilder.toString(), predicateId, true,
+						booleanCounter);
 				statementBuilder.append(subdiv.getConvertedStatement());
 				predicates.addAll(subdiv.getPredicates());
 				break;
@@ -105,9 +229,18 @@ public class PredicateParser {
 				int bracesCount = 1;
 				StringBuilder subStatementBuilder = new StringBuilder();
 				while (counter < totalChars) {
+					counter = DelimiterScanner.appendUntilDelimiter(subStatementBuilder, chars, counter, totalChars);
+					if (counter == totalChars) {
+						break;
+					}
 					if (chars[counter] == '"') {
 						subStatementBuilder.append(chars[counter++]);
 						while (counter < totalChars) {
+							counter = DelimiterScanner.appendUntilDelimiter(subStatementBuilder, chars, counter,
+									totalChars);
+							if (counter == totalChars) {
+								break;
+							}
 							if (chars[counter] == '"' && chars[counter - 1] != '\\') {
 								subStatementBuilder.append(chars[counter++]);
 								break;
@@ -117,6 +250,11 @@ public class PredicateParser {
 					} else if (chars[counter] == '\'') {
 						subStatementBuilder.append(chars[counter++]);
 						while (counter < totalChars) {
+							counter = DelimiterScanner.appendUntilDelimiter(subStatementBuilder, chars, counter,
+									totalChars);
+							if (counter == totalChars) {
+								break;
+							}
 							if (chars[counter] == '\'' && chars[counter - 1] != '\\') {
 								subStatementBuilder.append(chars[counter++]);
 								break;
@@ -137,7 +275,8 @@ public class PredicateParser {
 						subStatementBuilder.append(chars[counter++]);
 					}
 				}
-				ProcessedStatementInfo subdiv = processStatement(subStatementBuilder.toString(), predicateId, false);
+				ProcessedStatementInfo subdiv = processStatement(subStatementBuilder.toString(), predicateId, false,
+						booleanCounter);
 				statementBuilder.append(subdiv.getConvertedStatement());
 				subStatementBuilder.append(")");
 				predicates.addAll(subdiv.getPredicates());
@@ -169,13 +308,27 @@ public class PredicateParser {
 	 */
 	public static PredicateInfo processIfStatement(String statement) {
 
-		Matcher matcher = IF_PATTERN.matcher(statement);
+		PredicateExtractionEvent event = ProcessingEvents.beginPredicate();
+		PredicateInfo predicateInfo = extractIfStatement(statement);
+		ProcessingEvents.endPredicate(event, statement, predicateInfo);
+		return predicateInfo;
+	}
+
+	/**
+	 * Extracts the predicate of the 'if' statement
+	 * 
+	 * @param statement The statement
+	 * @return The processed predicate information, null if it has none
+	 */
+	private static PredicateInfo extractIfStatement(String statement) {
+
+		Matcher matcher = IF_PATTERN.matcher(ProcessingBudget.guard(statement));
 		if (matcher.find()) {
 			String control = matcher.group(2).trim();
 			if (!StringUtils.equals("true", control)) {
-				Integer counter = predicateCounter.getAndIncrement();
-				booleanCounter = new AtomicInteger();
-				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true);
+				Integer counter = nextPredicateNumber();
+				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true,
+						new AtomicInteger());
 				String predicateName = "P" + counter;
 				StringBuilder predicateInitStatementBuilder = new StringBuilder();
 				for (String predicate : processedStatementInfo.getPredicates()) {
@@ -200,13 +353,27 @@ public class PredicateParser {
 	 */
 	public static PredicateInfo processElseIfStatement(String statement) {
 
-		Matcher matcher = ELSE_IF_PATTERN.matcher(statement);
+		PredicateExtractionEvent event = ProcessingEvents.beginPredicate();
+		PredicateInfo predicateInfo = extractElseIfStatement(statement);
+		ProcessingEvents.endPredicate(event, statement, predicateInfo);
+		return predicateInfo;
+	}
+
+	/**
+	 * Extracts the predicate of the 'else-if' statement
+	 * 
+	 * @param statement The statement
+	 * @return The processed predicate information, null if it has none
+	 */
+	private static PredicateInfo extractElseIfStatement(String statement) {
+
+		Matcher matcher = ELSE_IF_PATTERN.matcher(ProcessingBudget.guard(statement));
 		if (matcher.find()) {
 			String control = matcher.group(2).trim();
 			if (!StringUtils.equals("true", control)) {
-				Integer counter = predicateCounter.getAndIncrement();
-				booleanCounter = new AtomicInteger();
-				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true);
+				Integer counter = nextPredicateNumber();
+				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true,
+						new AtomicInteger());
 				String predicateName = "P" + counter;
 				StringBuilder predicateInitStatementBuilder = new StringBuilder();
 				for (String predicate : processedStatementInfo.getPredicates()) {
@@ -231,14 +398,28 @@ public class PredicateParser {
 	 */
 	public static PredicateInfo processForStatement(String statement) {
 
-		Matcher matcher = FOR_PATTERN.matcher(statement);
+		PredicateExtractionEvent event = ProcessingEvents.beginPredicate();
+		PredicateInfo predicateInfo = extractForStatement(statement);
+		ProcessingEvents.endPredicate(event, statement, predicateInfo);
+		return predicateInfo;
+	}
+
+	/**
+	 * Extracts the predicate of the 'for' statement
+	 * 
+	 * @param statement The statement
+	 * @return The processed predicate information, null if it has none
+	 */
+	private static PredicateInfo extractForStatement(String statement) {
+
+		Matcher matcher = FOR_PATTERN.matcher(ProcessingBudget.guard(statement));
 		if (matcher.find()) {
 			String control = matcher.group(2).trim();
 			if (StringUtils.isNotBlank(control) && !StringUtils.equals("true", control)) {
 
-				Integer counter = predicateCounter.getAndIncrement();
-				booleanCounter = new AtomicInteger();
-				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true);
+				Integer counter = nextPredicateNumber();
+				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true,
+						new AtomicInteger());
 				String predicateName = "P" + counter;
 				StringBuilder predicateInitStatementBuilder = new StringBuilder();
 				for (String predicate : processedStatementInfo.getPredicates()) {
@@ -263,13 +444,27 @@ public class PredicateParser {
 	 */
 	public static PredicateInfo processWhileStatement(String statement) {
 
-		Matcher matcher = WHILE_PATTERN.matcher(statement);
+		PredicateExtractionEvent event = ProcessingEvents.beginPredicate();
+		PredicateInfo predicateInfo = extractWhileStatement(statement);
+		ProcessingEvents.endPredicate(event, statement, predicateInfo);
+		return predicateInfo;
+	}
+
+	/**
+	 * Extracts the predicate of the 'while' statement
+	 * 
+	 * @param statement The statement
+	 * @return The processed predicate information, null if it has none
+	 */
+	private static PredicateInfo extractWhileStatement(String statement) {
+
+		Matcher matcher = WHILE_PATTERN.matcher(ProcessingBudget.guard(statement));
 		if (matcher.find()) {
 			String control = matcher.group(2).trim();
 			if (!StringUtils.equals("true", control)) {
-				Integer counter = predicateCounter.getAndIncrement();
-				booleanCounter = new AtomicInteger();
-				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true);
+				Integer counter = nextPredicateNumber();
+				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true,
+						new AtomicInteger());
 				String predicateName = "P" + counter;
 				StringBuilder predicateInitStatementBuilder = new StringBuilder();
 				for (String predicate : processedStatementInfo.getPredicates()) {
@@ -294,11 +489,25 @@ public class PredicateParser {
 	 */
 	public static PredicateInfo processDoWhileStatement(String statement) {
 
-		Matcher matcher = DO_WHILE_PATTERN.matcher(statement);
+		PredicateExtractionEvent event = ProcessingEvents.beginPredicate();
+		PredicateInfo predicateInfo = extractDoWhileStatement(statement);
+		ProcessingEvents.endPredicate(event, statement, predicateInfo);
+		return predicateInfo;
+	}
+
+	/**
+	 * Extracts the predicate of the 'do-while' statement
+	 * 
+	 * @param statement The statement
+	 * @return The processed predicate information, null if it has none
+	 */
+	private static PredicateInfo extractDoWhileStatement(String statement) {
+
+		Matcher matcher = DO_WHILE_PATTERN.matcher(ProcessingBudget.guard(statement));
 		if (matcher.find()) {
 			String control = matcher.group(2).trim();
 			if (!StringUtils.equals("true", control)) {
-				String predicateName = "P" + predicateCounter.getAndIncrement();
+				String predicateName = "P" + nextPredicateNumber();
 				String predicateInitStatement = StringUtils.join("boolean", " ", predicateName, "=", "false", ";");
 				String convertedStatement = StringUtils.join("} while(", predicateName, "=", control, ")", ";");
 				return new PredicateInfo(predicateName, "DO-WHILE", control, predicateInitStatement, convertedStatement);
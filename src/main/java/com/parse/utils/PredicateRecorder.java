@@ -9,7 +9,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,9 +27,11 @@ import com.parse.models.PredicateInfo;
 public class PredicateRecorder {
 
 	/**
-	 * The predicate pattern
+	 * The pattern of a predicate evaluation, the assignment of the predicate or
+	 * of one of its sub-predicates, formatted or as the slim engine inserts it.
+	 * The formatter may wrap a long condition right after the '='.
 	 */
-	private static final Pattern PREDICATE_PATTERN = Pattern.compile("(boolean )?(P_\\d+) \\=.*");
+	private static final Pattern PREDICATE_PATTERN = Pattern.compile("\\((P\\d+)(_\\d+)? ?=(?!=)");
 
 	private PredicateRecorder() {
 		// Its a utility class. Thus instantiation is not allowed.
@@ -44,38 +49,99 @@ public class PredicateRecorder {
 	}
 
 	/**
-	 * Creates the predicate file
+	 * Gets the name of the predicate file created for the code
 	 * 
-	 * @param codePath          The code path
-	 * @param outputDirectory   The output directory
+	 * @param codePath The code path
+	 * @return The predicate file name
+	 */
+	public static String getRecordFileName(Path codePath) {
+
+		return getFileName(codePath) + ".txt";
+	}
+
+	/**
+	 * Gets the line numbers of each predicate in the code
 	 * 
+	 * @param lines             The lines of code
 	 * @param predicateInfoList The predicates info list
+	 * @return The line numbers of each predicate, keyed by the predicate name
 	 */
-	public static void create(Path codePath, Path outputDirectory, List<PredicateInfo> predicateInfoList) {
+	public static Map<String, String> getLineNumbers(List<String> lines, List<PredicateInfo> predicateInfoList) {
 
 		HashMap<String, String> predicateLineNumberMap = new HashMap<>();
 		predicateInfoList.forEach(predicateInfo -> predicateLineNumberMap.put(predicateInfo.getName(), ""));
 
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter(
-				Paths.get(outputDirectory.toString() + File.separator + getFileName(codePath) + ".txt").toFile()))) {
-			List<String> lines = Files.readAllLines(codePath);
-			Integer lineNumber = 1;
-			for (String line : lines) {
-				Matcher matcher = PREDICATE_PATTERN.matcher(line.trim());
-				if (matcher.find()) {
-					String predicate = matcher.group(2);
-					if (predicateLineNumberMap.containsKey(predicate)) {
-						String value = predicateLineNumberMap.get(predicate);
-						if (StringUtils.isBlank(value)) {
-							predicateLineNumberMap.put(predicate, lineNumber.toString());
-						} else {
-							predicateLineNumberMap.put(predicate, value + ", " + lineNumber.toString());
-						}
+		Integer lineNumber = 1;
+		for (String line : lines) {
+			Matcher matcher = PREDICATE_PATTERN.matcher(line);
+			Set<String> recordedPredicates = new HashSet<>();
+			while (matcher.find()) {
+				String predicate = matcher.group(1);
+				if (predicateLineNumberMap.containsKey(predicate) && recordedPredicates.add(predicate)) {
+					String value = predicateLineNumberMap.get(predicate);
+					if (StringUtils.isBlank(value)) {
+						predicateLineNumberMap.put(predicate, lineNumber.toString());
+					} else {
+						predicateLineNumberMap.put(predicate, value + ", " + lineNumber.toString());
 					}
 				}
-				lineNumber++;
 			}
+			lineNumber++;
+		}
+		return predicateLineNumberMap;
+	}
+
+	/**
+	 * Creates the predicate file
+	 * 
+	 * @param codePath          The code path
+	 * @param outputDirectory   The output directory
+	 * 
+	 * @param predicateInfoList The predicates info list
+	 * @return The line numbers of each predicate, keyed by the predicate name
+	 */
+	public static Map<String, String> create(Path codePath, Path outputDirectory,
+			List<PredicateInfo> predicateInfoList) {
 
+		try {
+			return create(codePath, outputDirectory, predicateInfoList, Files.readAllLines(codePath));
+		} catch (IOException ioException) {
+			System.out.println("Error recording the predicates.");
+		}
+		return new HashMap<>();
+	}
+
+	/**
+	 * Creates the predicate file from the updated lines of code
+	 * 
+	 * @param codePath          The code path
+	 * @param outputDirectory   The output directory
+	 * @param predicateInfoList The predicates info list
+	 * @param lines             The updated lines of code
+	 * @return The line numbers of each predicate, keyed by the predicate name
+	 */
+	public static Map<String, String> create(Path codePath, Path outputDirectory, List<PredicateInfo> predicateInfoList,
+			List<String> lines) {
+
+		Map<String, String> predicateLineNumberMap = getLineNumbers(lines, predicateInfoList);
+		record(codePath, outputDirectory, predicateInfoList, predicateLineNumberMap);
+		return predicateLineNumberMap;
+	}
+
+	/**
+	 * Creates the predicate file from the known line numbers
+	 * 
+	 * @param codePath               The code path
+	 * @param outputDirectory        The output directory
+	 * @param predicateInfoList      The predicates info list
+	 * @param predicateLineNumberMap The line numbers of each predicate, keyed by
+	 *                               the predicate name
+	 */
+	public static void record(Path codePath, Path outputDirectory, List<PredicateInfo> predicateInfoList,
+			Map<String, String> predicateLineNumberMap) {
+
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(
+				Paths.get(outputDirectory.toString() + File.separator + getRecordFileName(codePath)).toFile()))) {
 			predicateInfoList.forEach(predicateInfo -> {
 				try {
 					writer.append(StringUtils.join(
@@ -0,0 +1,204 @@
+package com.parse.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.parse.models.PredicateInfo;
+import com.parse.models.PredicateType;
+import com.parse.models.ProcessedFileInfo;
+
+/**
+ * The PredicateStore. It keeps the predicates of a run compactly, as arrays
+ * indexed by an int id instead of an object per predicate: the number of the
+ * predicate name, its type as a byte, and the offsets of its control in a
+ * shared char arena and of its line numbers in a shared int arena.
+ *
+ * <p>
+ * The predicates are appended and never removed. The statements emitted into
+ * the code are not kept, the predicates read back have none, as the ones read
+ * from a manifest. The store is thread-safe.
+ */
+public class PredicateStore {
+
+	/**
+	 * The pattern of a predicate name
+	 */
+	private static final Pattern PREDICATE_NAME_PATTERN = Pattern.compile("P(\\d+)");
+
+	/**
+	 * The initial capacity of the arrays
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * The number of predicates
+	 */
+	private int size;
+
+	/**
+	 * The number of each predicate name
+	 */
+	private int[] numbers = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The ordinal of the type of each predicate
+	 */
+	private byte[] types = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * The offset of the control of each predicate in the char arena, the control
+	 * ends at the offset of the next predicate
+	 */
+	private int[] controlOffsets = new int[INITIAL_CAPACITY + 1];
+
+	/**
+	 * The controls of all the predicates
+	 */
+	private char[] controlArena = new char[INITIAL_CAPACITY * 32];
+
+	/**
+	 * The offset of the line numbers of each predicate in the int arena, they end
+	 * at the offset of the next predicate
+	 */
+	private int[] lineOffsets = new int[INITIAL_CAPACITY + 1];
+
+	/**
+	 * The line numbers of all the predicates
+	 */
+	private int[] lineArena = new int[INITIAL_CAPACITY * 2];
+
+	/**
+	 * Makes room for one more predicate, with its control and line numbers
+	 *
+	 * @param controlLength The length of the control
+	 * @param lineCount     The number of line numbers
+	 */
+	private void ensureCapacity(int controlLength, int lineCount) {
+
+		if (size == numbers.length) {
+			int capacity = numbers.length * 2;
+			numbers = Arrays.copyOf(numbers, capacity);
+			types = Arrays.copyOf(types, capacity);
+			controlOffsets = Arrays.copyOf(controlOffsets, capacity + 1);
+			lineOffsets = Arrays.copyOf(lineOffsets, capacity + 1);
+		}
+		int controlEnd = controlOffsets[size] + controlLength;
+		if (controlEnd > controlArena.length) {
+			controlArena = Arrays.copyOf(controlArena, Math.max(controlEnd, controlArena.length * 2));
+		}
+		int lineEnd = lineOffsets[size] + lineCount;
+		if (lineEnd > lineArena.length) {
+			lineArena = Arrays.copyOf(lineArena, Math.max(lineEnd, lineArena.length * 2));
+		}
+	}
+
+	/**
+	 * Appends a predicate
+	 *
+	 * @param predicateInfo The predicate
+	 * @param lineNumbers   The line numbers, comma separated, null if unknown
+	 * @return The id of the predicate
+	 * @throws IllegalArgumentException If the name or the type of the predicate is
+	 *                                  not one the parser creates
+	 */
+	public synchronized int add(PredicateInfo predicateInfo, String lineNumbers) {
+
+		Matcher matcher = PREDICATE_NAME_PATTERN.matcher(predicateInfo.getName());
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("Unexpected predicate name " + predicateInfo.getName());
+		}
+		PredicateType type = PredicateType.fromLabel(predicateInfo.getType());
+		String control = predicateInfo.getControl();
+		String[] lines = StringUtils.split(StringUtils.defaultString(lineNumbers), ", ");
+
+		ensureCapacity(control.length(), lines.length);
+		int id = size;
+		numbers[id] = Integer.parseInt(matcher.group(1));
+		types[id] = (byte) type.ordinal();
+		control.getChars(0, control.length(), controlArena, controlOffsets[id]);
+		controlOffsets[id + 1] = controlOffsets[id] + control.length();
+		for (int counter = 0; counter < lines.length; counter++) {
+			lineArena[lineOffsets[id] + counter] = Integer.parseInt(lines[counter]);
+		}
+		lineOffsets[id + 1] = lineOffsets[id] + lines.length;
+		size++;
+		return id;
+	}
+
+	/**
+	 * Appends the predicates of a file, their ids follow each other
+	 *
+	 * @param predicates  The predicates
+	 * @param lineNumbers The line numbers of each predicate, keyed by the
+	 *                    predicate name
+	 * @return The id of the first predicate
+	 */
+	public synchronized int addAll(List<PredicateInfo> predicates, Map<String, String> lineNumbers) {
+
+		int firstId = size;
+		for (PredicateInfo predicateInfo : predicates) {
+			add(predicateInfo, lineNumbers.get(predicateInfo.getName()));
+		}
+		return firstId;
+	}
+
+	/**
+	 * Moves the predicates of a processed file to the store
+	 *
+	 * @param file The processed file
+	 * @return The processed file, reading its predicates from the store
+	 */
+	public ProcessedFileInfo compact(ProcessedFileInfo file) {
+
+		int firstId = addAll(file.getPredicates(), file.getLineNumbers());
+		return new ProcessedFileInfo(file.getRelativePath(), file.getRecordFileName(), this, firstId,
+				file.getPredicates().size());
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized String getName(int id) {
+		return "P" + numbers[id];
+	}
+
+	public synchronized PredicateType getType(int id) {
+		return PredicateType.values()[types[id]];
+	}
+
+	public synchronized String getControl(int id) {
+		return new String(controlArena, controlOffsets[id], controlOffsets[id + 1] - controlOffsets[id]);
+	}
+
+	/**
+	 * Gets the line numbers of a predicate
+	 *
+	 * @param id The id of the predicate
+	 * @return The line numbers, comma separated
+	 */
+	public synchronized String getLineNumbers(int id) {
+
+		List<String> lines = new ArrayList<>();
+		for (int offset = lineOffsets[id]; offset < lineOffsets[id + 1]; offset++) {
+			lines.add(String.valueOf(lineArena[offset]));
+		}
+		return String.join(", ", lines);
+	}
+
+	/**
+	 * Gets a predicate, without the statements emitted into the code
+	 *
+	 * @param id The id of the predicate
+	 * @return The predicate
+	 */
+	public synchronized PredicateInfo get(int id) {
+		return new PredicateInfo(getName(id), getType(id).getLabel(), getControl(id), null, null);
+	}
+}
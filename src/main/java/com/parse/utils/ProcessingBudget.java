@@ -0,0 +1,199 @@
+package com.parse.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import com.parse.exceptions.BudgetExceededException;
+
+/**
+ * The ProcessingBudget. It holds the wall-clock and allocation budget of the
+ * file processed by the current thread.
+ *
+ * <p>
+ * The budget is enforced cooperatively: the processing loops call
+ * {@link #checkpoint()}, and the regular expressions run on the text wrapped by
+ * {@link #guard(CharSequence)}, so that a backtracking match is aborted too.
+ * An exceeded budget raises a {@link BudgetExceededException}. Without a budget
+ * both calls cost a thread local lookup.
+ */
+public class ProcessingBudget {
+
+	/**
+	 * The budget of the current thread
+	 */
+	private static final ThreadLocal<ProcessingBudget> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * The number of checkpoints between two allocation checks, minus one
+	 */
+	private static final int ALLOCATION_CHECK_MASK = 0xFF;
+
+	/**
+	 * The number of characters read by a guarded match between two checkpoints,
+	 * minus one
+	 */
+	private static final int GUARD_CHECK_MASK = 0xFFF;
+
+	/**
+	 * The start time, moved forward by the waits excluded from the budget
+	 */
+	private long startNanos;
+
+	/**
+	 * The maximum wall-clock time
+	 */
+	private final long maxNanos;
+
+	/**
+	 * The bytes allocated by the thread when the budget started
+	 */
+	private final long startAllocatedBytes;
+
+	/**
+	 * The maximum bytes the thread may allocate, zero if unlimited
+	 */
+	private final long maxAllocatedBytes;
+
+	/**
+	 * The number of checkpoints passed
+	 */
+	private int checkpoints;
+
+	private ProcessingBudget(long maxMillis, long maxAllocatedBytes) {
+		super();
+		this.startNanos = System.nanoTime();
+		this.maxNanos = maxMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(maxMillis) : Long.MAX_VALUE;
+		this.maxAllocatedBytes = maxAllocatedBytes > 0 && ThreadAllocation.isSupported() ? maxAllocatedBytes : 0;
+		this.startAllocatedBytes = this.maxAllocatedBytes > 0 ? ThreadAllocation.getAllocatedBytes() : 0;
+	}
+
+	/**
+	 * Starts the budget of the current thread
+	 *
+	 * @param maxMillis         The maximum wall-clock time, zero if unlimited
+	 * @param maxAllocatedBytes The maximum allocated bytes, zero if unlimited
+	 */
+	public static void start(long maxMillis, long maxAllocatedBytes) {
+
+		if (maxMillis > 0 || maxAllocatedBytes > 0) {
+			CURRENT.set(new ProcessingBudget(maxMillis, maxAllocatedBytes));
+		} else {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Ends the budget of the current thread
+	 */
+	public static void clear() {
+
+		CURRENT.remove();
+	}
+
+	/**
+	 * Excludes a wait of the current thread from its time budget, e.g. for its
+	 * turn to number the predicates of its file
+	 *
+	 * @param nanos The time waited
+	 */
+	public static void exclude(long nanos) {
+
+		ProcessingBudget budget = CURRENT.get();
+		if (budget != null) {
+			budget.startNanos += nanos;
+		}
+	}
+
+	/**
+	 * Checks the budget of the current thread
+	 *
+	 * @throws BudgetExceededException If the budget is exceeded
+	 */
+	public static void checkpoint() {
+
+		ProcessingBudget budget = CURRENT.get();
+		if (budget != null) {
+			budget.check();
+		}
+	}
+
+	/**
+	 * Checks the budget of the current thread, including the allocation on every
+	 * call. To be used between the stages of the processing.
+	 *
+	 * @throws BudgetExceededException If the budget is exceeded
+	 */
+	public static void verify() {
+
+		ProcessingBudget budget = CURRENT.get();
+		if (budget != null) {
+			budget.checkpoints = ALLOCATION_CHECK_MASK;
+			budget.check();
+		}
+	}
+
+	/**
+	 * Wraps the text, so that matching it checks the budget of the current thread
+	 *
+	 * @param text The text
+	 * @return The guarded text, or the text itself if there is no budget
+	 */
+	public static CharSequence guard(CharSequence text) {
+
+		ProcessingBudget budget = CURRENT.get();
+		return budget == null ? text : budget.new GuardedCharSequence(text);
+	}
+
+	private void check() {
+
+		long elapsedNanos = System.nanoTime() - startNanos;
+		if (elapsedNanos > maxNanos) {
+			throw new BudgetExceededException(
+					"Time budget exceeded after " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms");
+		}
+		if (maxAllocatedBytes > 0 && (++checkpoints & ALLOCATION_CHECK_MASK) == 0) {
+			long allocatedBytes = ThreadAllocation.getAllocatedBytes() - startAllocatedBytes;
+			if (allocatedBytes > maxAllocatedBytes) {
+				throw new BudgetExceededException(
+						"Allocation budget exceeded after " + (allocatedBytes >> 20) + " MB");
+			}
+		}
+	}
+
+	/**
+	 * The text checking the budget while it is read
+	 */
+	private class GuardedCharSequence implements CharSequence {
+
+		private final CharSequence text;
+
+		private int reads;
+
+		GuardedCharSequence(CharSequence text) {
+			this.text = text;
+		}
+
+		@Override
+		public char charAt(int index) {
+
+			if ((++reads & GUARD_CHECK_MASK) == 0) {
+				check();
+			}
+			return text.charAt(index);
+		}
+
+		@Override
+		public int length() {
+			return text.length();
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return text.subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return text.toString();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.parse.utils;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ProgressReporter. It prints the progress of a run from a background
+ * thread at a fixed interval: the files done out of the total, the rate, the
+ * estimated time left and the failures. The workers only count, thus the
+ * number of lines printed does not depend on the number of files.
+ */
+public class ProgressReporter {
+
+	/**
+	 * The start of the run
+	 */
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * The number of files done, processed or failed
+	 */
+	private final AtomicLong done = new AtomicLong();
+
+	/**
+	 * The number of files that could not be processed
+	 */
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * The total number of files, -1 while it is not known
+	 */
+	private volatile long total = -1;
+
+	/**
+	 * The number of files done at the last report
+	 */
+	private long reportedDone;
+
+	/**
+	 * The thread printing the progress
+	 */
+	private ScheduledExecutorService reporter;
+
+	/**
+	 * Starts printing the progress
+	 *
+	 * @param intervalMillis The interval between two reports
+	 */
+	public void start(long intervalMillis) {
+
+		reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "progress-reporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		reporter.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops printing the progress, and prints the final one
+	 */
+	public void stop() {
+
+		if (reporter != null) {
+			reporter.shutdownNow();
+			try {
+				reporter.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		report();
+	}
+
+	public long getDone() {
+		return done.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	/**
+	 * Counts the total number of files on the reporting thread, e.g. by a walk
+	 * of the input running ahead of the processing
+	 *
+	 * @param counter The counter of the files
+	 */
+	public void countTotal(Callable<Long> counter) {
+
+		reporter.execute(() -> {
+			try {
+				total = counter.call();
+			} catch (Exception exception) {
+				// The progress is reported without the total
+			}
+		});
+	}
+
+	/**
+	 * Counts a file done
+	 *
+	 * @param processed If the file was processed, false if it failed
+	 */
+	public void fileDone(boolean processed) {
+
+		done.incrementAndGet();
+		if (!processed) {
+			failed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Formats a duration
+	 *
+	 * @param seconds The duration in seconds
+	 * @return The formatted duration, e.g. '1h 02m 03s'
+	 */
+	private static String formatDuration(long seconds) {
+
+		if (seconds >= 3600) {
+			return String.format(Locale.ROOT, "%dh %02dm %02ds", seconds / 3600, seconds / 60 % 60, seconds % 60);
+		} else if (seconds >= 60) {
+			return String.format(Locale.ROOT, "%dm %02ds", seconds / 60, seconds % 60);
+		}
+		return seconds + "s";
+	}
+
+	/**
+	 * Prints the progress, unless no file was done since the last report
+	 */
+	private synchronized void report() {
+
+		long doneFiles = done.get();
+		if (doneFiles == reportedDone) {
+			return;
+		}
+		reportedDone = doneFiles;
+
+		double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+		double rate = doneFiles / seconds;
+		long totalFiles = total;
+		StringBuilder line = new StringBuilder("Progress: ").append(doneFiles);
+		if (totalFiles >= 0) {
+			double percent = totalFiles == 0 ? 100 : 100.0 * doneFiles / totalFiles;
+			line.append('/').append(totalFiles).append(" files").append(String.format(Locale.ROOT, " (%.1f%%)", percent));
+		} else {
+			line.append(" files");
+		}
+		line.append(String.format(Locale.ROOT, ", %.2f files/s", rate));
+		if (totalFiles >= 0 && rate > 0) {
+			long secondsLeft = (long) Math.ceil(Math.max(0, totalFiles - doneFiles) / rate);
+			line.append(", ETA ").append(formatDuration(secondsLeft));
+		}
+		line.append(", ").append(failed.get()).append(" failures");
+		System.out.println(line);
+	}
+}
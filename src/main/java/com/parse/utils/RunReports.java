@@ -0,0 +1,77 @@
+package com.parse.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.parse.models.ExecutionOptions;
+import com.parse.models.FailureInfo;
+
+/**
+ * The utility class RunReports. It holds the outputs shared by the default and
+ * the slim executors: the merge of the shard outputs and the list of the files
+ * that could not be processed.
+ */
+public class RunReports {
+
+	/**
+	 * The name of the file listing the files that could not be processed
+	 */
+	public static final String FAILURES_FILE_NAME = "failures.txt";
+
+	private RunReports() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Merges the shard outputs into a single corpus manifest, the process exits
+	 * if they could not be merged
+	 *
+	 * @param options The execution options
+	 */
+	public static void merge(ExecutionOptions options) {
+
+		try {
+			int fileCount = CorpusManifest.merge(options.getOutputPath(), options.getMergeInputPaths());
+			System.out.println("Merged " + fileCount + " files into "
+					+ options.getOutputPath().resolve(CorpusManifest.MANIFEST_FILE_NAME));
+		} catch (IOException ioException) {
+			System.out.println("Error merging the shard outputs. Reason: " + ioException.getLocalizedMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Writes the files that could not be processed to the failures file of the
+	 * output directory
+	 *
+	 * @param outputPath The output path
+	 * @param failures   The failures
+	 * @param failureLog The closed log of the exceptions of the failures, null if
+	 *                   there is none
+	 */
+	public static void reportFailures(Path outputPath, List<FailureInfo> failures, FailureLog failureLog) {
+
+		List<FailureInfo> reportedFailures;
+		synchronized (failures) {
+			reportedFailures = new ArrayList<>(failures);
+		}
+		if (reportedFailures.isEmpty()) {
+			return;
+		}
+		Path failuresPath = outputPath.resolve(FAILURES_FILE_NAME);
+		try (BufferedWriter writer = Files.newBufferedWriter(failuresPath)) {
+			for (FailureInfo failureInfo : reportedFailures) {
+				writer.write(failureInfo.getPath() + "\t" + failureInfo.getReason());
+				writer.newLine();
+			}
+		} catch (IOException ioException) {
+			System.out.println("Error writing the failures.");
+		}
+		System.out.println(reportedFailures.size() + " files could not be processed, see " + failuresPath
+				+ (failureLog != null ? " and the stack traces in " + failureLog.getLogPath() : ""));
+	}
+}
@@ -0,0 +1,446 @@
+package com.parse.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.parse.models.FileTimingInfo;
+import com.parse.models.PredicateInfo;
+import com.parse.models.PredicateType;
+import com.parse.utils.StageTimer.Stage;
+
+/**
+ * The RunStatistics. It aggregates the stage times of the files processed by
+ * a run into histograms, adds up the bytes each stage allocates, keeps the
+ * slowest and the most allocating files, and reports them at the end of the
+ * run: as a summary on the console and as a JSON report.
+ *
+ * <p>
+ * The allocation is reported relative to the size of the input, as bytes
+ * allocated per input byte, thus runs on different corpora compare.
+ */
+public class RunStatistics {
+
+	/**
+	 * The name of the JSON report in the output directory
+	 */
+	public static final String REPORT_FILE_NAME = "run-report.json";
+
+	/**
+	 * The number of slowest and of most allocating files reported
+	 */
+	private static final int TOP_FILES_COUNT = 10;
+
+	/**
+	 * The percentiles reported
+	 */
+	private static final double[] PERCENTILES = { 50, 95, 99 };
+
+	/**
+	 * The start of the run
+	 */
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * The histogram of each stage
+	 */
+	private final Map<Stage, LatencyHistogram> stageHistograms = new EnumMap<>(Stage.class);
+
+	/**
+	 * The histogram of the files, all stages together
+	 */
+	private final LatencyHistogram fileHistogram = new LatencyHistogram();
+
+	/**
+	 * The number of predicates of the files
+	 */
+	private final AtomicLong predicates = new AtomicLong();
+
+	/**
+	 * The number of predicates of each type, indexed by the ordinal of the type
+	 */
+	private final AtomicLongArray typePredicates = new AtomicLongArray(PredicateType.values().length);
+
+	/**
+	 * The time the last file was recorded, zero if none was
+	 */
+	private final AtomicLong lastRecordMillis = new AtomicLong();
+
+	/**
+	 * The size of the files before the processing
+	 */
+	private final AtomicLong inputBytes = new AtomicLong();
+
+	/**
+	 * The bytes allocated by each stage, indexed by the ordinal of the stage
+	 */
+	private final AtomicLongArray stageAllocatedBytes = new AtomicLongArray(Stage.values().length);
+
+	/**
+	 * The slowest files, the fastest of them first
+	 */
+	private final PriorityQueue<FileTimingInfo> slowestFiles = new PriorityQueue<>(
+			Comparator.comparingLong(FileTimingInfo::getNanos));
+
+	/**
+	 * The files allocating the most, the least allocating of them first
+	 */
+	private final PriorityQueue<FileTimingInfo> allocatingFiles = new PriorityQueue<>(
+			Comparator.comparingLong(FileTimingInfo::getAllocatedBytes));
+
+	public RunStatistics() {
+		super();
+		for (Stage stage : Stage.values()) {
+			stageHistograms.put(stage, new LatencyHistogram());
+		}
+	}
+
+	/**
+	 * Gets the name of the JSON report of a shard
+	 *
+	 * @param shardIndex The shard index
+	 * @param shardCount The shard count
+	 * @return The report file name
+	 */
+	public static String getShardReportFileName(int shardIndex, int shardCount) {
+
+		return "run-report-" + shardIndex + "-of-" + shardCount + ".json";
+	}
+
+	/**
+	 * Records a processed file
+	 *
+	 * @param timing     The timing of the file
+	 * @param predicates The predicates of the file
+	 */
+	public void record(FileTimingInfo timing, List<PredicateInfo> predicates) {
+
+		for (Stage stage : Stage.values()) {
+			stageHistograms.get(stage).record(timing.getStageNanos()[stage.ordinal()]);
+			stageAllocatedBytes.addAndGet(stage.ordinal(), timing.getStageAllocatedBytes()[stage.ordinal()]);
+		}
+		fileHistogram.record(timing.getNanos());
+		this.predicates.addAndGet(predicates.size());
+		for (PredicateInfo predicateInfo : predicates) {
+			typePredicates.incrementAndGet(PredicateType.fromLabel(predicateInfo.getType()).ordinal());
+		}
+		inputBytes.addAndGet(timing.getInputBytes());
+		lastRecordMillis.set(System.currentTimeMillis());
+
+		offer(slowestFiles, timing);
+		offer(allocatingFiles, timing);
+	}
+
+	/**
+	 * Adds a file to the top files, if it ranks among them
+	 *
+	 * @param topFiles The top files, the lowest ranking first
+	 * @param timing   The timing of the file
+	 */
+	private static void offer(PriorityQueue<FileTimingInfo> topFiles, FileTimingInfo timing) {
+
+		synchronized (topFiles) {
+			if (topFiles.size() < TOP_FILES_COUNT || topFiles.comparator().compare(topFiles.peek(), timing) < 0) {
+				topFiles.add(timing);
+				if (topFiles.size() > TOP_FILES_COUNT) {
+					topFiles.poll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of files recorded
+	 *
+	 * @return The number of files
+	 */
+	public long getFileCount() {
+		return fileHistogram.getCount();
+	}
+
+	public LatencyHistogram getStageHistogram(Stage stage) {
+		return stageHistograms.get(stage);
+	}
+
+	public LatencyHistogram getFileHistogram() {
+		return fileHistogram;
+	}
+
+	public long getPredicateCount() {
+		return predicates.get();
+	}
+
+	/**
+	 * Gets the number of predicates of a type
+	 *
+	 * @param type The predicate type
+	 * @return The number of predicates
+	 */
+	public long getPredicateCount(PredicateType type) {
+		return typePredicates.get(type.ordinal());
+	}
+
+	public long getInputBytes() {
+		return inputBytes.get();
+	}
+
+	/**
+	 * Gets the bytes allocated by a stage
+	 *
+	 * @param stage The stage
+	 * @return The allocated bytes
+	 */
+	public long getStageAllocatedBytes(Stage stage) {
+		return stageAllocatedBytes.get(stage.ordinal());
+	}
+
+	public long getLastRecordMillis() {
+		return lastRecordMillis.get();
+	}
+
+	/**
+	 * Gets the top files
+	 *
+	 * @param topFiles The top files, the lowest ranking first
+	 * @return The top files, the highest ranking first
+	 */
+	private static List<FileTimingInfo> getTopFiles(PriorityQueue<FileTimingInfo> topFiles) {
+
+		List<FileTimingInfo> files;
+		synchronized (topFiles) {
+			files = new ArrayList<>(topFiles);
+		}
+		files.sort(topFiles.comparator().reversed());
+		return files;
+	}
+
+	/**
+	 * Gets the bytes allocated per input byte
+	 *
+	 * @param allocatedBytes The allocated bytes
+	 * @param inputBytes     The size of the input
+	 * @return The bytes allocated per input byte, zero without input
+	 */
+	private static double getAllocationRatio(long allocatedBytes, long inputBytes) {
+		return inputBytes == 0 ? 0 : (double) allocatedBytes / inputBytes;
+	}
+
+	/**
+	 * Formats a number of bytes in megabytes
+	 *
+	 * @param bytes The number of bytes
+	 * @return The formatted number
+	 */
+	private static String toMegabytes(long bytes) {
+		return String.format(Locale.ROOT, "%.1f", bytes / 1048576.0);
+	}
+
+	/**
+	 * Formats a duration in milliseconds
+	 *
+	 * @param nanos The duration in nanoseconds
+	 * @return The formatted duration
+	 */
+	private static String toMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	/**
+	 * Formats the line of a histogram
+	 *
+	 * @param name      The name of the histogram
+	 * @param histogram The histogram
+	 * @return The line
+	 */
+	private static String getLine(String name, LatencyHistogram histogram) {
+
+		return String.format(Locale.ROOT, "%-14s %7d %11s %11s %11s %11s %11.3f", name, histogram.getCount(),
+				toMillis(histogram.getPercentile(PERCENTILES[0])), toMillis(histogram.getPercentile(PERCENTILES[1])),
+				toMillis(histogram.getPercentile(PERCENTILES[2])), toMillis(histogram.getMax()),
+				histogram.getTotal() / 1e9);
+	}
+
+	/**
+	 * Formats the allocation columns of a line
+	 *
+	 * @param allocatedBytes The allocated bytes
+	 * @return The columns
+	 */
+	private String getAllocationColumns(long allocatedBytes) {
+
+		return String.format(Locale.ROOT, " %11s %9.1f", toMegabytes(allocatedBytes),
+				getAllocationRatio(allocatedBytes, inputBytes.get()));
+	}
+
+	/**
+	 * Gets the summary of the run
+	 *
+	 * @return The lines of the summary
+	 */
+	public List<String> getSummary() {
+
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		long files = fileHistogram.getCount();
+		List<String> lines = new ArrayList<>();
+		lines.add(String.format(Locale.ROOT, "%d files in %.3f s: %.2f files/s, %d predicates, %.1f predicates/s",
+				files, seconds, files / seconds, predicates.get(), predicates.get() / seconds));
+		boolean allocation = ThreadAllocation.isSupported();
+		String header = String.format(Locale.ROOT, "%-14s %7s %11s %11s %11s %11s %11s", "Stage", "Files", "p50 ms",
+				"p95 ms", "p99 ms", "max ms", "total s");
+		lines.add(allocation ? header + String.format(Locale.ROOT, " %11s %9s", "alloc MB", "B/in-B") : header);
+		long allocatedBytes = 0;
+		for (Stage stage : Stage.values()) {
+			String line = getLine(stage.getLabel(), stageHistograms.get(stage));
+			long stageBytes = stageAllocatedBytes.get(stage.ordinal());
+			lines.add(allocation ? line + getAllocationColumns(stageBytes) : line);
+			allocatedBytes += stageBytes;
+		}
+		String line = getLine("file", fileHistogram);
+		lines.add(allocation ? line + getAllocationColumns(allocatedBytes) : line);
+
+		lines.add("Slowest files:");
+		for (FileTimingInfo file : getTopFiles(slowestFiles)) {
+			StringBuilder stages = new StringBuilder();
+			for (Stage stage : Stage.values()) {
+				stages.append(stages.length() == 0 ? "" : ", ").append(stage.getLabel()).append(' ')
+						.append(toMillis(file.getStageNanos()[stage.ordinal()]));
+			}
+			lines.add(String.format(Locale.ROOT, "%11s ms  %s (%s)", toMillis(file.getNanos()), file.getPath(),
+					stages));
+		}
+		if (allocation) {
+			lines.add("Most allocating files:");
+			for (FileTimingInfo file : getTopFiles(allocatingFiles)) {
+				StringBuilder stages = new StringBuilder();
+				for (Stage stage : Stage.values()) {
+					stages.append(stages.length() == 0 ? "" : ", ").append(stage.getLabel()).append(' ')
+							.append(toMegabytes(file.getStageAllocatedBytes()[stage.ordinal()]));
+				}
+				lines.add(String.format(Locale.ROOT, "%11s MB  %7.1f B/in-B  %s (%s)",
+						toMegabytes(file.getAllocatedBytes()),
+						getAllocationRatio(file.getAllocatedBytes(), file.getInputBytes()), file.getPath(), stages));
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Escapes a string for JSON
+	 *
+	 * @param value The string
+	 * @return The escaped string, with its quotes
+	 */
+	private static String quote(String value) {
+
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char character : value.toCharArray()) {
+			if (character == '"' || character == '\\') {
+				quoted.append('\\').append(character);
+			} else if (character < 0x20) {
+				quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) character));
+			} else {
+				quoted.append(character);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Formats a histogram as the members of a JSON object
+	 *
+	 * @param histogram The histogram
+	 * @return The members, without the braces
+	 */
+	private static String toJsonMembers(LatencyHistogram histogram) {
+
+		return String.format(Locale.ROOT,
+				"\"count\": %d, \"p50Nanos\": %d, \"p95Nanos\": %d, \"p99Nanos\": %d, \"maxNanos\": %d, \"totalNanos\": %d",
+				histogram.getCount(), histogram.getPercentile(PERCENTILES[0]),
+				histogram.getPercentile(PERCENTILES[1]), histogram.getPercentile(PERCENTILES[2]), histogram.getMax(),
+				histogram.getTotal());
+	}
+
+	/**
+	 * Formats the values of each stage as a JSON object
+	 *
+	 * @param values The value of each stage, indexed by the ordinal of the stage
+	 * @return The JSON object
+	 */
+	private static String toJson(long[] values) {
+
+		StringBuilder stages = new StringBuilder("{");
+		for (Stage stage : Stage.values()) {
+			stages.append(stage.ordinal() == 0 ? "" : ", ").append(quote(stage.getLabel())).append(": ")
+					.append(values[stage.ordinal()]);
+		}
+		return stages.append('}').toString();
+	}
+
+	/**
+	 * Writes the JSON report of the run
+	 *
+	 * @param reportPath The report path
+	 * @throws IOException If the report could not be written
+	 */
+	public void writeJson(Path reportPath) throws IOException {
+
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		long files = fileHistogram.getCount();
+		long allocatedBytes = 0;
+		for (Stage stage : Stage.values()) {
+			allocatedBytes += stageAllocatedBytes.get(stage.ordinal());
+		}
+		try (BufferedWriter writer = Files.newBufferedWriter(reportPath)) {
+			writer.write("{\n");
+			writer.write(String.format(Locale.ROOT,
+					"  \"files\": %d,\n  \"predicates\": %d,\n  \"elapsedSeconds\": %.3f,\n"
+							+ "  \"filesPerSecond\": %.3f,\n  \"predicatesPerSecond\": %.3f,\n",
+					files, predicates.get(), seconds, files / seconds, predicates.get() / seconds));
+			writer.write(String.format(Locale.ROOT,
+					"  \"allocationCounted\": %b,\n  \"inputBytes\": %d,\n  \"allocatedBytes\": %d,\n"
+							+ "  \"allocatedBytesPerInputByte\": %.3f,\n",
+					ThreadAllocation.isSupported(), inputBytes.get(), allocatedBytes,
+					getAllocationRatio(allocatedBytes, inputBytes.get())));
+			writer.write("  \"stages\": {\n");
+			for (Stage stage : Stage.values()) {
+				long stageBytes = stageAllocatedBytes.get(stage.ordinal());
+				writer.write("    " + quote(stage.getLabel()) + ": {" + toJsonMembers(stageHistograms.get(stage))
+						+ String.format(Locale.ROOT, ", \"allocatedBytes\": %d, \"allocatedBytesPerInputByte\": %.3f}",
+								stageBytes, getAllocationRatio(stageBytes, inputBytes.get()))
+						+ (stage.ordinal() < Stage.values().length - 1 ? ",\n" : "\n"));
+			}
+			writer.write("  },\n");
+			writer.write("  \"file\": {" + toJsonMembers(fileHistogram) + "},\n");
+			writer.write("  \"slowestFiles\": [");
+			List<FileTimingInfo> slowest = getTopFiles(slowestFiles);
+			for (int counter = 0; counter < slowest.size(); counter++) {
+				FileTimingInfo file = slowest.get(counter);
+				writer.write((counter == 0 ? "\n" : ",\n") + "    {\"path\": " + quote(file.getPath()) + ", \"nanos\": "
+						+ file.getNanos() + ", \"stageNanos\": " + toJson(file.getStageNanos()) + "}");
+			}
+			writer.write(slowest.isEmpty() ? "],\n" : "\n  ],\n");
+			writer.write("  \"mostAllocatingFiles\": [");
+			List<FileTimingInfo> allocating = ThreadAllocation.isSupported() ? getTopFiles(allocatingFiles)
+					: new ArrayList<>();
+			for (int counter = 0; counter < allocating.size(); counter++) {
+				FileTimingInfo file = allocating.get(counter);
+				writer.write((counter == 0 ? "\n" : ",\n") + "    {\"path\": " + quote(file.getPath())
+						+ ", \"inputBytes\": " + file.getInputBytes() + ", \"allocatedBytes\": "
+						+ file.getAllocatedBytes() + ", \"stageAllocatedBytes\": "
+						+ toJson(file.getStageAllocatedBytes()) + "}");
+			}
+			writer.write(allocating.isEmpty() ? "]\n" : "\n  ]\n");
+			writer.write("}\n");
+		}
+	}
+}
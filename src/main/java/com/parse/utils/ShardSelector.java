@@ -0,0 +1,150 @@
+package com.parse.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.parse.models.ShardStrategy;
+
+/**
+ * The utility class ShardSelector. It holds implementation to deterministically
+ * select the files of a shard. Every host running the same shard count over the
+ * same tree computes the same assignment, so the shards never overlap.
+ */
+public class ShardSelector {
+
+	private ShardSelector() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Gets the path relative to the input root, using '/' as the separator on
+	 * every platform
+	 *
+	 * @param root The input root
+	 * @param path The file path
+	 * @return The relative path
+	 */
+	public static String getRelativePath(Path root, Path path) {
+
+		Path relativePath = root.equals(path) ? path.getFileName() : root.relativize(path);
+		return relativePath.toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Gets the shard of a file by hashing its relative path
+	 *
+	 * @param relativePath The relative path
+	 * @param shardCount   The total number of shards
+	 * @return The shard index
+	 */
+	private static int getHashShard(String relativePath, int shardCount) {
+
+		CRC32 crc = new CRC32();
+		crc.update(relativePath.getBytes(StandardCharsets.UTF_8));
+		return (int) (crc.getValue() % shardCount);
+	}
+
+	/**
+	 * Gets the cost of a file, its size or, with a cost model, its estimated
+	 * processing time in microseconds
+	 *
+	 * @param path      The file path
+	 * @param costModel The cost model, null to use the size
+	 * @return The cost
+	 */
+	private static long getCost(Path path, CostModel costModel) {
+
+		if (costModel != null) {
+			try (Reader reader = Files.newBufferedReader(path)) {
+				return Math.round(costModel.predict(ComplexityScanner.scan(reader)) * 1000);
+			} catch (IOException ioException) {
+				// Falling back to the size of the file
+			}
+		}
+		try {
+			return Files.size(path);
+		} catch (IOException ioException) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Selects the files belonging to a shard. The selected files are sorted by
+	 * their relative path so that the predicate numbering of a shard is
+	 * reproducible.
+	 *
+	 * @param root       The input root
+	 * @param files      All the discovered files
+	 * @param shardIndex The shard index
+	 * @param shardCount The total number of shards
+	 * @param strategy   The shard strategy
+	 * @return The files of the shard
+	 */
+	public static List<Path> select(Path root, List<Path> files, int shardIndex, int shardCount,
+			ShardStrategy strategy) {
+
+		return select(root, files, shardIndex, shardCount, strategy, null);
+	}
+
+	/**
+	 * Selects the files belonging to a shard. The selected files are sorted by
+	 * their relative path so that the predicate numbering of a shard is
+	 * reproducible.
+	 *
+	 * @param root       The input root
+	 * @param files      All the discovered files
+	 * @param shardIndex The shard index
+	 * @param shardCount The total number of shards
+	 * @param strategy   The shard strategy
+	 * @param costModel  The cost model of the cost strategy, null for the others
+	 * @return The files of the shard
+	 */
+	public static List<Path> select(Path root, List<Path> files, int shardIndex, int shardCount,
+			ShardStrategy strategy, CostModel costModel) {
+
+		List<Path> sortedFiles = new ArrayList<>(files);
+		sortedFiles.sort(Comparator.comparing(path -> getRelativePath(root, path)));
+		List<Path> selectedFiles = new ArrayList<>();
+
+		if (strategy == ShardStrategy.HASH) {
+			for (Path path : sortedFiles) {
+				if (getHashShard(getRelativePath(root, path), shardCount) == shardIndex) {
+					selectedFiles.add(path);
+				}
+			}
+			return selectedFiles;
+		}
+
+		// Greedy bin packing, the costliest file goes to the least loaded shard
+		List<long[]> costs = new ArrayList<>();
+		for (int i = 0; i < sortedFiles.size(); i++) {
+			costs.add(new long[] { getCost(sortedFiles.get(i), strategy == ShardStrategy.COST ? costModel : null), i });
+		}
+		costs.sort((first, second) -> first[0] != second[0] ? Long.compare(second[0], first[0])
+				: Long.compare(first[1], second[1]));
+
+		long[] loads = new long[shardCount];
+		for (long[] cost : costs) {
+			int leastLoaded = 0;
+			for (int shard = 1; shard < shardCount; shard++) {
+				if (loads[shard] < loads[leastLoaded]) {
+					leastLoaded = shard;
+				}
+			}
+			loads[leastLoaded] += Math.max(1, cost[0]);
+			if (leastLoaded == shardIndex) {
+				selectedFiles.add(sortedFiles.get((int) cost[1]));
+			}
+		}
+		selectedFiles.sort(Comparator.comparing(path -> getRelativePath(root, path)));
+		return selectedFiles;
+	}
+}
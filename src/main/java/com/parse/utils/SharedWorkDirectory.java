@@ -0,0 +1,545 @@
+package com.parse.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.parse.models.ProcessedFileInfo;
+
+/**
+ * The SharedWorkDirectory. It lets several processes, on one host or on hosts
+ * sharing a network file system, divide the files among themselves without a
+ * coordinator.
+ *
+ * <p>
+ * A file is claimed by atomically creating its lease file. The owner refreshes
+ * the modification time of its leases periodically; a lease whose modification
+ * time did not change for the lease expiry, as observed on the local clock, is
+ * considered stalled and may be reclaimed by any worker. The directory layout
+ * is:
+ *
+ * <pre>
+ * workers/worker-N.lease  the worker slots, leased like the files
+ * workers/worker-N.next   the next predicate number of a slot
+ * leases/ID.lease         the files being processed
+ * results/ID.txt          the manifest of a committed file
+ * done/ID.done            the committed files
+ * failed/ID.failed        the files that could not be processed
+ * </pre>
+ */
+public class SharedWorkDirectory {
+
+	/**
+	 * The prefix of the comment line holding the hash of the committed code
+	 */
+	private static final String COMMIT_HASH_PREFIX = "# sha256 ";
+
+	/**
+	 * The root of the shared work directory
+	 */
+	private final Path root;
+
+	/**
+	 * The lease expiry, in milliseconds
+	 */
+	private final long leaseExpiryMillis;
+
+	/**
+	 * The worker name written into the leases, for diagnostics
+	 */
+	private final String workerName;
+
+	/**
+	 * The leases held by this worker
+	 */
+	private final Set<Path> heldLeases = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The leases held by other workers: last seen modification time and the local
+	 * time at which it was first seen
+	 */
+	private final Map<Path, long[]> observedLeases = new ConcurrentHashMap<>();
+
+	/**
+	 * The worker slot held by this worker, -1 if none
+	 */
+	private int workerSlot = -1;
+
+	/**
+	 * The heartbeat scheduler
+	 */
+	private ScheduledExecutorService heartbeat;
+
+	public SharedWorkDirectory(Path root, long leaseExpiryMillis) throws IOException {
+		super();
+		this.root = root;
+		this.leaseExpiryMillis = leaseExpiryMillis;
+		this.workerName = ManagementFactory.getRuntimeMXBean().getName();
+		for (String directory : new String[] { "workers", "leases", "results", "done", "failed" }) {
+			Files.createDirectories(root.resolve(directory));
+		}
+	}
+
+	/**
+	 * Gets the hex encoded SHA-256 of the text
+	 *
+	 * @param text The text
+	 * @return The hash
+	 */
+	public static String hash(String text) {
+
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hashBuilder = new StringBuilder();
+			for (byte value : digest) {
+				hashBuilder.append(String.format("%02x", value));
+			}
+			return hashBuilder.toString();
+		} catch (NoSuchAlgorithmException exception) {
+			throw new IllegalStateException("SHA-256 is not available", exception);
+		}
+	}
+
+	/**
+	 * Gets the id of a file, safe to be used as a file name
+	 *
+	 * @param relativePath The file path, relative to the input root
+	 * @return The id
+	 */
+	private static String getId(String relativePath) {
+
+		return hash(relativePath).substring(0, 32);
+	}
+
+	private Path getLeasePath(String relativePath) {
+		return root.resolve("leases").resolve(getId(relativePath) + ".lease");
+	}
+
+	private Path getSlotPath(int slot) {
+		return root.resolve("workers").resolve("worker-" + slot + ".lease");
+	}
+
+	private Path getSlotNumberPath(int slot) {
+		return root.resolve("workers").resolve("worker-" + slot + ".next");
+	}
+
+	private Path getResultPath(String relativePath) {
+		return root.resolve("results").resolve(getId(relativePath) + ".txt");
+	}
+
+	private Path getDonePath(String relativePath) {
+		return root.resolve("done").resolve(getId(relativePath) + ".done");
+	}
+
+	private Path getFailedPath(String relativePath) {
+		return root.resolve("failed").resolve(getId(relativePath) + ".failed");
+	}
+
+	/**
+	 * Writes the content to a temporary file and atomically moves it to the
+	 * target, so that readers never see a partially written file
+	 *
+	 * @param target  The target path
+	 * @param content The content
+	 * @throws IOException If the file could not be written
+	 */
+	public static void writeAtomically(Path target, String content) throws IOException {
+
+		Path temporaryPath = target.resolveSibling(target.getFileName() + "." + System.nanoTime() + ".tmp");
+		try {
+			Files.write(temporaryPath, content.getBytes(StandardCharsets.UTF_8));
+			Files.move(temporaryPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+	/**
+	 * Claims a worker slot. The slot decides the predicate numbering of the worker.
+	 * It is leased like a file: released when the worker is done, and reclaimed
+	 * from a stalled worker, in which case the numbering goes on after the
+	 * predicates committed by the previous owners.
+	 *
+	 * @param maxWorkers The number of available slots
+	 * @return The slot
+	 * @throws IOException          If all the slots are taken by live workers
+	 * @throws InterruptedException If interrupted while waiting for a stalled slot
+	 */
+	public int claimWorkerSlot(int maxWorkers) throws IOException, InterruptedException {
+
+		// The slots still taken after the lease expiry are stalled on the second pass
+		for (int pass = 0; pass < 2; pass++) {
+			if (pass > 0) {
+				Thread.sleep(leaseExpiryMillis);
+			}
+			for (int slot = 0; slot < maxWorkers; slot++) {
+				if (tryAcquire(getSlotPath(slot))) {
+					workerSlot = slot;
+					return slot;
+				}
+			}
+		}
+		throw new IOException("All " + maxWorkers + " worker slots of " + root + " are taken");
+	}
+
+	/**
+	 * Gets the first predicate number of the worker slot, the slot itself unless
+	 * a previous owner committed predicates
+	 *
+	 * @return The first predicate number
+	 * @throws IOException If the number could not be read
+	 */
+	public int getFirstPredicateNumber() throws IOException {
+
+		Path numberPath = getSlotNumberPath(workerSlot);
+		if (!Files.exists(numberPath)) {
+			return workerSlot;
+		}
+		try {
+			return Integer.parseInt(new String(Files.readAllBytes(numberPath), StandardCharsets.UTF_8).trim());
+		} catch (NumberFormatException exception) {
+			throw new IOException("Invalid predicate number in " + numberPath);
+		}
+	}
+
+	/**
+	 * Checks if the worker slot is still held by this worker, a stalled worker
+	 * may have lost it to another one
+	 *
+	 * @return If the slot is held
+	 */
+	public boolean isSlotHeld() {
+
+		return workerSlot >= 0 && isHeld(getSlotPath(workerSlot));
+	}
+
+	/**
+	 * Releases the worker slot, its predicate numbering is kept for the next
+	 * owner
+	 */
+	public void releaseWorkerSlot() {
+
+		if (workerSlot >= 0) {
+			releaseLease(getSlotPath(workerSlot));
+			workerSlot = -1;
+		}
+	}
+
+	/**
+	 * Starts refreshing the held leases
+	 */
+	public void startHeartbeat() {
+
+		long period = Math.max(1, leaseExpiryMillis / 4);
+		heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "lease-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		heartbeat.scheduleAtFixedRate(() -> {
+			FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+			for (Path leasePath : heldLeases) {
+				try {
+					Files.setLastModifiedTime(leasePath, now);
+				} catch (IOException ioException) {
+					// Reclaimed meanwhile, detected before the commit
+				}
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops refreshing the held leases
+	 */
+	public void stopHeartbeat() {
+
+		if (heartbeat != null) {
+			heartbeat.shutdownNow();
+		}
+	}
+
+	/**
+	 * Checks if the file is committed or failed
+	 *
+	 * @param relativePath The file path, relative to the input root
+	 * @return If the file needs no more processing
+	 */
+	public boolean isFinished(String relativePath) {
+
+		return Files.exists(getDonePath(relativePath)) || Files.exists(getFailedPath(relativePath));
+	}
+
+	/**
+	 * Checks if the lease is stalled. The modification time of the lease is
+	 * compared with its previous observation, thus the clocks of the hosts need
+	 * not be synchronized.
+	 *
+	 * @param leasePath The lease path
+	 * @return If the lease is stalled
+	 * @throws IOException If the lease could not be read
+	 */
+	private boolean isStalled(Path leasePath) throws IOException {
+
+		long modifiedTime = Files.getLastModifiedTime(leasePath).toMillis();
+		long now = System.nanoTime();
+		long[] observation = observedLeases.get(leasePath);
+		if (observation == null || observation[0] != modifiedTime) {
+			observedLeases.put(leasePath, new long[] { modifiedTime, now });
+			return false;
+		}
+		return TimeUnit.NANOSECONDS.toMillis(now - observation[1]) >= leaseExpiryMillis;
+	}
+
+	/**
+	 * Moves a stalled lease away. Two workers may both see the lease stalled, and
+	 * the first one may re-create it before the second one moves it. The lease
+	 * moved is thus checked to be the stalled one, by its modification time, and
+	 * a fresh lease is put back for its owner.
+	 *
+	 * @param leasePath The lease path
+	 * @return If the stalled lease was moved away
+	 * @throws IOException If the lease could not be moved
+	 */
+	private boolean moveStalledLease(Path leasePath) throws IOException {
+
+		long stalledTime = observedLeases.remove(leasePath)[0];
+		Path stalledPath = leasePath
+				.resolveSibling(leasePath.getFileName() + "." + workerName.replace('@', '-') + ".stalled");
+		Files.move(leasePath, stalledPath, StandardCopyOption.ATOMIC_MOVE);
+		if (Files.getLastModifiedTime(stalledPath).toMillis() == stalledTime) {
+			Files.deleteIfExists(stalledPath);
+			return true;
+		}
+		try {
+			// Without replacing, a lease created meanwhile is left to its owner
+			Files.move(stalledPath, leasePath);
+		} catch (FileAlreadyExistsException exception) {
+			Files.deleteIfExists(stalledPath);
+		}
+		return false;
+	}
+
+	/**
+	 * Tries to acquire a lease, by creating it or by reclaiming it if it is
+	 * stalled
+	 *
+	 * @param leasePath The lease path
+	 * @return If the lease was acquired by this worker
+	 * @throws IOException If the work directory is not accessible
+	 */
+	private boolean tryAcquire(Path leasePath) throws IOException {
+
+		try {
+			Files.write(leasePath, workerName.getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.CREATE_NEW);
+		} catch (FileAlreadyExistsException exception) {
+			try {
+				if (!isStalled(leasePath) || !moveStalledLease(leasePath)) {
+					return false;
+				}
+			} catch (NoSuchFileException noSuchFileException) {
+				// Released or reclaimed meanwhile, the next pass will try again
+				return false;
+			}
+			return tryAcquire(leasePath);
+		}
+
+		heldLeases.add(leasePath);
+		return true;
+	}
+
+	/**
+	 * Tries to claim a file
+	 *
+	 * @param relativePath The file path, relative to the input root
+	 * @return If the file was claimed by this worker
+	 * @throws IOException If the work directory is not accessible
+	 */
+	public boolean tryClaim(String relativePath) throws IOException {
+
+		if (!tryAcquire(getLeasePath(relativePath))) {
+			return false;
+		}
+		if (isFinished(relativePath)) {
+			release(relativePath);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the lease of a file is still held by this worker, a slow worker
+	 * may have lost it to another one
+	 *
+	 * @param relativePath The file path, relative to the input root
+	 * @return If the lease is held
+	 */
+	public boolean isLeaseHeld(String relativePath) {
+
+		return isHeld(getLeasePath(relativePath));
+	}
+
+	/**
+	 * Checks if a lease is held by this worker
+	 *
+	 * @param leasePath The lease path
+	 * @return If the lease is held
+	 */
+	private boolean isHeld(Path leasePath) {
+
+		try {
+			return workerName.equals(new String(Files.readAllBytes(leasePath), StandardCharsets.UTF_8));
+		} catch (IOException ioException) {
+			return false;
+		}
+	}
+
+	/**
+	 * Releases the lease of a file
+	 *
+	 * @param relativePath The file path, relative to the input root
+	 */
+	public void release(String relativePath) {
+
+		releaseLease(getLeasePath(relativePath));
+	}
+
+	/**
+	 * Releases a lease, if it is still held by this worker
+	 *
+	 * @param leasePath The lease path
+	 */
+	private void releaseLease(Path leasePath) {
+
+		heldLeases.remove(leasePath);
+		if (!isHeld(leasePath)) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(leasePath);
+		} catch (IOException ioException) {
+			// Expires on its own
+		}
+	}
+
+	/**
+	 * Gets the hash of the code recorded when the file was committed. A worker
+	 * may have stalled after replacing the file but before marking it done, in
+	 * which case the file must not be processed a second time.
+	 *
+	 * @param relativePath The file path, relative to the input root
+	 * @return The hash, null if the file was never committed
+	 * @throws IOException If the result could not be read
+	 */
+	public String getCommittedHash(String relativePath) throws IOException {
+
+		Path resultPath = getResultPath(relativePath);
+		if (!Files.exists(resultPath)) {
+			return null;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(resultPath)) {
+			String line = reader.readLine();
+			return line != null && line.startsWith(COMMIT_HASH_PREFIX)
+					? line.substring(COMMIT_HASH_PREFIX.length()).trim()
+					: null;
+		}
+	}
+
+	/**
+	 * Records the result of a file, to be called before the file is replaced. The
+	 * next predicate number of the slot is recorded first, thus a later owner of
+	 * the slot never reuses a committed predicate name.
+	 *
+	 * @param fileInfo            The processed file information
+	 * @param codeHash            The hash of the updated code
+	 * @param nextPredicateNumber The next predicate number of the worker
+	 * @throws IOException If the result could not be written
+	 */
+	public void commit(ProcessedFileInfo fileInfo, String codeHash, int nextPredicateNumber) throws IOException {
+
+		writeAtomically(getSlotNumberPath(workerSlot), String.valueOf(nextPredicateNumber));
+		Path resultPath = getResultPath(fileInfo.getRelativePath());
+		Path temporaryPath = resultPath.resolveSibling(resultPath.getFileName() + "." + System.nanoTime() + ".tmp");
+		try {
+			CorpusManifest.write(temporaryPath, Collections.singletonList(fileInfo),
+					COMMIT_HASH_PREFIX.substring(2) + codeHash);
+			Files.move(temporaryPath, resultPath, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+	/**
+	 * Withdraws the result of a file which could not be replaced after it was
+	 * committed
+	 *
+	 * @param relativePath The file path, relative to the input root
+	 * @throws IOException If the result could not be deleted
+	 */
+	public void withdraw(String relativePath) throws IOException {
+
+		Files.deleteIfExists(getResultPath(relativePath));
+	}
+
+	/**
+	 * Marks the file as done, after it was replaced
+	 *
+	 * @param relativePath The file path, relative to the input root
+	 * @throws IOException If the marker could not be written
+	 */
+	public void markDone(String relativePath) throws IOException {
+
+		Files.write(getDonePath(relativePath), workerName.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Marks the file as failed, so that no worker retries it
+	 *
+	 * @param relativePath The file path, relative to the input root
+	 * @param reason       The failure reason
+	 * @throws IOException If the marker could not be written
+	 */
+	public void markFailed(String relativePath, String reason) throws IOException {
+
+		Files.write(getFailedPath(relativePath),
+				(relativePath + "\n" + workerName + "\n" + reason).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads the results of all the committed files
+	 *
+	 * @return The processed files
+	 * @throws IOException If a result could not be read
+	 */
+	public List<ProcessedFileInfo> readResults() throws IOException {
+
+		List<ProcessedFileInfo> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(root.resolve("results"), "*.txt")) {
+			for (Path resultPath : stream) {
+				files.addAll(CorpusManifest.read(resultPath));
+			}
+		}
+		return files;
+	}
+}
@@ -0,0 +1,242 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.parse.models.SourceChunk;
+
+/**
+ * The SourceChunker. It reads a Java file one chunk at a time: the header of
+ * each top-level class or interface, each of its members and its closing
+ * brace. Top-level enums and annotation types are read whole.
+ *
+ * <p>
+ * Only the current chunk is held in memory. The chunker only follows the
+ * braces, parentheses, comments and literals, it does not check the syntax: a
+ * malformed file is reported by the formatters of the chunks.
+ */
+public class SourceChunker {
+
+	/**
+	 * The pattern of the keywords declaring a type, followed by the type name
+	 */
+	private static final Pattern TYPE_KEYWORD_PATTERN = Pattern.compile(
+			"(@\\s*)?\\b(class|interface|enum|record)\\b\\s*(\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*)?");
+
+	/**
+	 * The source
+	 */
+	private final PushbackReader reader;
+
+	/**
+	 * The depth of the braces at the current position
+	 */
+	private int braceDepth;
+
+	/**
+	 * The depth of the parentheses at the current position
+	 */
+	private int parenthesisDepth;
+
+	/**
+	 * If the current top-level type is split into members
+	 */
+	private boolean splitType;
+
+	/**
+	 * The declaration of the current type split into members, e.g. 'class Foo'
+	 */
+	private String typeDeclaration;
+
+	/**
+	 * If the closing brace of the current type was read with the last member
+	 */
+	private boolean pendingFooter;
+
+	public SourceChunker(Reader reader) {
+		super();
+		this.reader = new PushbackReader(reader, 1);
+	}
+
+	/**
+	 * Reads the next character
+	 *
+	 * @return The character, -1 at the end
+	 * @throws IOException If the source could not be read
+	 */
+	private int read() throws IOException {
+		return reader.read();
+	}
+
+	/**
+	 * Reads the next character without consuming it
+	 *
+	 * @return The character, -1 at the end
+	 * @throws IOException If the source could not be read
+	 */
+	private int peek() throws IOException {
+
+		int character = reader.read();
+		if (character != -1) {
+			reader.unread(character);
+		}
+		return character;
+	}
+
+	/**
+	 * Reads the rest of a comment or a literal, after its first character
+	 *
+	 * @param first  The first character
+	 * @param text   The chunk text, the characters read are appended to it
+	 * @return If a comment or a literal was read
+	 * @throws IOException If the source could not be read
+	 */
+	private boolean skipCommentOrLiteral(int first, StringBuilder text) throws IOException {
+
+		if (first == '/' && peek() == '/') {
+			int character;
+			while ((character = read()) != -1) {
+				text.append((char) character);
+				if (character == '\n') {
+					break;
+				}
+			}
+			return true;
+		}
+		if (first == '/' && peek() == '*') {
+			text.append((char) read());
+			int previous = 0;
+			int character;
+			while ((character = read()) != -1) {
+				text.append((char) character);
+				if (previous == '*' && character == '/') {
+					break;
+				}
+				previous = character;
+			}
+			return true;
+		}
+		if (first == '"' || first == '\'') {
+			int character;
+			while ((character = read()) != -1) {
+				text.append((char) character);
+				if (character == '\\') {
+					int escaped = read();
+					if (escaped != -1) {
+						text.append((char) escaped);
+					}
+				} else if (character == first || character == '\n') {
+					break;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the declaration of the type of a header if it is a class or an
+	 * interface, i.e. a type split into members
+	 *
+	 * @param code The code of the header, without comments and literals
+	 * @return The keyword and the name of the type, e.g. 'class Foo', null if the
+	 *         type is not split
+	 */
+	private static String getSplitTypeDeclaration(String code) {
+
+		Matcher matcher = TYPE_KEYWORD_PATTERN.matcher(code);
+		String declaration = null;
+		while (matcher.find()) {
+			boolean splitType = matcher.group(1) == null && matcher.group(3) != null
+					&& ("class".equals(matcher.group(2)) || "interface".equals(matcher.group(2)));
+			declaration = splitType ? matcher.group(2) + " " + matcher.group(3) : null;
+		}
+		return declaration;
+	}
+
+	/**
+	 * Gets the declaration of the current type split into members, to wrap a
+	 * member in when it is formatted on its own. Constructors are only read as
+	 * such in a type of the same name.
+	 *
+	 * @return The keyword and the name of the type, e.g. 'class Foo'
+	 */
+	public String getTypeDeclaration() {
+		return typeDeclaration;
+	}
+
+	/**
+	 * Reads the next chunk
+	 *
+	 * @return The chunk, null at the end of the file
+	 * @throws IOException If the source could not be read
+	 */
+	public SourceChunk next() throws IOException {
+
+		if (pendingFooter) {
+			pendingFooter = false;
+			return new SourceChunk(SourceChunk.Kind.FOOTER, "}");
+		}
+
+		StringBuilder text = new StringBuilder();
+		StringBuilder code = new StringBuilder();
+		boolean assignment = false;
+		int character;
+		while ((character = read()) != -1) {
+			text.append((char) character);
+			if (skipCommentOrLiteral(character, text)) {
+				code.append(' ');
+				continue;
+			}
+			if (braceDepth == 0) {
+				code.append((char) character);
+			}
+
+			if (character == '(') {
+				parenthesisDepth++;
+			} else if (character == ')') {
+				parenthesisDepth = Math.max(0, parenthesisDepth - 1);
+			} else if (parenthesisDepth > 0) {
+				// Braces in parentheses, e.g. annotation arrays, do not delimit members
+				continue;
+			} else if (character == '{') {
+				braceDepth++;
+				if (braceDepth == 1) {
+					typeDeclaration = getSplitTypeDeclaration(code.toString());
+					splitType = typeDeclaration != null;
+					if (splitType) {
+						return new SourceChunk(SourceChunk.Kind.HEADER, text.toString());
+					}
+				}
+			} else if (character == '}') {
+				braceDepth = Math.max(0, braceDepth - 1);
+				if (braceDepth == 0 && !splitType) {
+					return new SourceChunk(SourceChunk.Kind.TYPE, text.toString());
+				} else if (braceDepth == 0) {
+					text.setLength(text.length() - 1);
+					if (text.toString().trim().isEmpty()) {
+						return new SourceChunk(SourceChunk.Kind.FOOTER, "}");
+					}
+					pendingFooter = true;
+					return new SourceChunk(SourceChunk.Kind.MEMBER, text.toString());
+				} else if (braceDepth == 1 && splitType && !assignment) {
+					// The end of a method, an initializer or a nested type
+					return new SourceChunk(SourceChunk.Kind.MEMBER, text.toString());
+				}
+			} else if (character == ';' && braceDepth == 1 && splitType) {
+				return new SourceChunk(SourceChunk.Kind.MEMBER, text.toString());
+			} else if (character == '=' && braceDepth == 1) {
+				// A field initializer, it ends with its semicolon
+				assignment = true;
+			}
+		}
+
+		if (text.toString().trim().isEmpty()) {
+			return null;
+		}
+		return new SourceChunk(braceDepth == 0 ? SourceChunk.Kind.TRAILER : SourceChunk.Kind.MEMBER, text.toString());
+	}
+}
@@ -0,0 +1,158 @@
+package com.parse.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The utility class SourceTokens. It checks that instrumented code keeps every
+ * token of the original code, so that a formatter which misread a chunk can
+ * not silently drop code.
+ *
+ * <p>
+ * The comments and the whitespace are not compared, as the formatters reflow
+ * them. The parentheses are not compared either: the predicates wrap the
+ * conditions in new ones.
+ */
+public class SourceTokens {
+
+	/**
+	 * The pattern of the predicate names
+	 */
+	private static final Pattern PREDICATE_NAME_PATTERN = Pattern.compile("P\\d+(_\\d+)?");
+
+	private SourceTokens() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Splits the code into tokens. An identifier, a keyword or a number is a
+	 * token, a literal is a token and any other character is a token of its own.
+	 *
+	 * @param code The code
+	 * @return The tokens, without the comments
+	 */
+	public static List<String> tokenize(CharSequence code) {
+
+		List<String> tokens = new ArrayList<>();
+		int length = code.length();
+		int index = 0;
+		while (index < length) {
+			char character = code.charAt(index);
+			int start = index;
+			if (Character.isWhitespace(character)) {
+				index++;
+			} else if (character == '/' && index + 1 < length && code.charAt(index + 1) == '/') {
+				while (index < length && code.charAt(index) != '\n') {
+					index++;
+				}
+			} else if (character == '/' && index + 1 < length && code.charAt(index + 1) == '*') {
+				index += 2;
+				while (index < length && !(code.charAt(index - 1) == '*' && code.charAt(index) == '/')) {
+					index++;
+				}
+				index++;
+			} else if (character == '"' || character == '\'') {
+				index++;
+				while (index < length && code.charAt(index) != character && code.charAt(index) != '\n') {
+					index += code.charAt(index) == '\\' ? 2 : 1;
+				}
+				index = Math.min(index + 1, length);
+				tokens.add(code.subSequence(start, index).toString());
+			} else if (Character.isJavaIdentifierPart(character)) {
+				while (index < length && Character.isJavaIdentifierPart(code.charAt(index))) {
+					index++;
+				}
+				tokens.add(code.subSequence(start, index).toString());
+			} else {
+				index++;
+				tokens.add(String.valueOf(character));
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Checks if the instrumented code keeps the code of the original one, i.e. if
+	 * both have the same tokens once the predicates are removed from the
+	 * instrumented code
+	 *
+	 * @param code             The original code
+	 * @param instrumentedCode The instrumented code
+	 * @return If the code is kept
+	 */
+	public static boolean keepsCode(CharSequence code, CharSequence instrumentedCode) {
+		return removeParentheses(tokenize(code)).equals(removeParentheses(removePredicates(tokenize(instrumentedCode))));
+	}
+
+	/**
+	 * Removes the predicates from the tokens of instrumented code: their
+	 * declarations 'boolean P1 = false;' and their assignments '(P1 = '
+	 *
+	 * @param tokens The tokens
+	 * @return The tokens without the predicates
+	 */
+	private static List<String> removePredicates(List<String> tokens) {
+
+		List<String> remaining = new ArrayList<>(tokens.size());
+		int index = 0;
+		while (index < tokens.size()) {
+			if (isPredicateDeclaration(tokens, index)) {
+				index += 5;
+			} else if (isPredicateAssignment(tokens, index)) {
+				remaining.add(tokens.get(index));
+				index += 3;
+			} else {
+				remaining.add(tokens.get(index));
+				index++;
+			}
+		}
+		return remaining;
+	}
+
+	/**
+	 * Checks if the tokens declare a predicate, 'boolean P1 = false;'
+	 *
+	 * @param tokens The tokens
+	 * @param index  The index of the first token
+	 * @return If a predicate is declared
+	 */
+	private static boolean isPredicateDeclaration(List<String> tokens, int index) {
+
+		return index + 4 < tokens.size() && "boolean".equals(tokens.get(index))
+				&& PREDICATE_NAME_PATTERN.matcher(tokens.get(index + 1)).matches() && "=".equals(tokens.get(index + 2))
+				&& "false".equals(tokens.get(index + 3)) && ";".equals(tokens.get(index + 4));
+	}
+
+	/**
+	 * Checks if the tokens assign a predicate in a condition, '(P1 = ' but not
+	 * '(P1 == '
+	 *
+	 * @param tokens The tokens
+	 * @param index  The index of the opening parenthesis
+	 * @return If a predicate is assigned
+	 */
+	private static boolean isPredicateAssignment(List<String> tokens, int index) {
+
+		return index + 3 < tokens.size() && "(".equals(tokens.get(index))
+				&& PREDICATE_NAME_PATTERN.matcher(tokens.get(index + 1)).matches() && "=".equals(tokens.get(index + 2))
+				&& !"=".equals(tokens.get(index + 3));
+	}
+
+	/**
+	 * Removes the parentheses from the tokens
+	 *
+	 * @param tokens The tokens
+	 * @return The tokens without the parentheses
+	 */
+	private static List<String> removeParentheses(List<String> tokens) {
+
+		List<String> remaining = new ArrayList<>(tokens.size());
+		for (String token : tokens) {
+			if (!"(".equals(token) && !")".equals(token)) {
+				remaining.add(token);
+			}
+		}
+		return remaining;
+	}
+}
@@ -0,0 +1,346 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The SourceWalker. It discovers the Java files of a directory tree in
+ * parallel, one fork-join task per directory, and streams them to the consumer
+ * while the walk goes on.
+ *
+ * <p>
+ * The files are streamed in a deterministic order, depth first with the
+ * entries of each directory in the order of their names: the directories are
+ * listed ahead of the consumer, which only waits for the listing of the next
+ * directory in that order.
+ *
+ * <p>
+ * The walker follows symbolic links, but visits every real directory only
+ * once, under the first link listed, which also breaks the link cycles. It honors the '.gitignore' files of
+ * the tree, the user include and exclude globs, and by default skips the
+ * version control and build output directories.
+ */
+public class SourceWalker implements AutoCloseable {
+
+	/**
+	 * The directories that are never walked
+	 */
+	private static final List<String> VERSION_CONTROL_DIRECTORIES = Arrays.asList(".git", ".hg", ".svn");
+
+	/**
+	 * The build output directories skipped unless the default excludes are
+	 * disabled
+	 */
+	private static final List<String> DEFAULT_EXCLUDES = Arrays.asList("target", "build", ".gradle");
+
+	/**
+	 * The root directory
+	 */
+	private final Path root;
+
+	/**
+	 * The include matchers, a file must match one of them if any
+	 */
+	private final List<PathMatcher> includes = new ArrayList<>();
+
+	/**
+	 * The exclude matchers
+	 */
+	private final List<PathMatcher> excludes = new ArrayList<>();
+
+	/**
+	 * If the build output directories are skipped
+	 */
+	private final boolean defaultExcludes;
+
+	/**
+	 * The real paths of the visited directories
+	 */
+	private final Set<Path> visitedDirectories = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The number of files found but not consumed yet
+	 */
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	/**
+	 * The walker threads
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * The log of the files and directories that could not be read, the console
+	 * by default
+	 */
+	private volatile Consumer<String> warningLog = System.out::println;
+
+	/**
+	 * The task listing a single directory. It forks the tasks of the
+	 * subdirectories, without waiting for them.
+	 */
+	private class DirectoryWalkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Path directory;
+
+		private final List<IgnoreRules> rulesChain;
+
+		/**
+		 * The included files and the tasks of the subdirectories, in the order of
+		 * their names, polled by the consumer
+		 */
+		private final Deque<Object> entries = new ArrayDeque<>();
+
+		DirectoryWalkTask(Path directory, List<IgnoreRules> rulesChain) {
+			this.directory = directory;
+			this.rulesChain = rulesChain;
+		}
+
+		@Override
+		protected void compute() {
+
+			List<IgnoreRules> currentRules = rulesChain;
+			Path ignoreFilePath = directory.resolve(".gitignore");
+			if (Files.isRegularFile(ignoreFilePath)) {
+				try {
+					currentRules = new ArrayList<>(rulesChain);
+					currentRules.add(IgnoreRules.read(ignoreFilePath));
+				} catch (IOException ioException) {
+					warningLog.accept("Error reading " + ignoreFilePath);
+				}
+			}
+
+			List<Path> paths = new ArrayList<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+				stream.forEach(paths::add);
+			} catch (IOException ioException) {
+				warningLog.accept("Error walking " + directory + ", Reason: " + ioException.getLocalizedMessage());
+			}
+			paths.sort(Comparator.comparing(path -> path.getFileName().toString()));
+
+			for (Path path : paths) {
+				if (!Files.isDirectory(path)) {
+					if (isIncludedFile(path, currentRules)) {
+						entries.add(path);
+						pendingCount.incrementAndGet();
+					}
+					continue;
+				}
+				try {
+					if (!isSkippedDirectory(path, currentRules) && visitedDirectories.add(path.toRealPath())) {
+						DirectoryWalkTask subTask = new DirectoryWalkTask(path, currentRules);
+						subTask.fork();
+						entries.add(subTask);
+					}
+				} catch (IOException ioException) {
+					warningLog.accept("Error walking " + path + ", Reason: " + ioException.getLocalizedMessage());
+				}
+			}
+		}
+	}
+
+	public SourceWalker(Path root, List<String> includeGlobs, List<String> excludeGlobs, boolean defaultExcludes) {
+		super();
+		this.root = root;
+		this.defaultExcludes = defaultExcludes;
+		includeGlobs.forEach(glob -> includes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob)));
+		excludeGlobs.forEach(glob -> excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob)));
+		this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Sets the log of the files and directories that could not be read, e.g. the
+	 * log of a build tool embedding the walker. To be called before the walk.
+	 *
+	 * @param warningLog The log
+	 */
+	public void setWarningLog(Consumer<String> warningLog) {
+		this.warningLog = warningLog;
+	}
+
+	/**
+	 * Gets the path relative to the root, to be matched by the globs
+	 *
+	 * @param path The path
+	 * @return The relative path
+	 */
+	private Path relativize(Path path) {
+
+		return Paths.get(ShardSelector.getRelativePath(root, path));
+	}
+
+	/**
+	 * Checks if the directory is skipped
+	 *
+	 * @param directory  The directory
+	 * @param rulesChain The ignore rules
+	 * @return If the directory is skipped
+	 */
+	private boolean isSkippedDirectory(Path directory, List<IgnoreRules> rulesChain) {
+
+		String name = directory.getFileName().toString();
+		if (VERSION_CONTROL_DIRECTORIES.contains(name) || defaultExcludes && DEFAULT_EXCLUDES.contains(name)) {
+			return true;
+		}
+		Path relativePath = relativize(directory);
+		return excludes.stream().anyMatch(matcher -> matcher.matches(relativePath))
+				|| IgnoreRules.isIgnored(rulesChain, directory, true);
+	}
+
+	/**
+	 * Checks if the file is a Java file to be processed
+	 *
+	 * @param path       The file path
+	 * @param rulesChain The ignore rules
+	 * @return If the file is included
+	 */
+	private boolean isIncludedFile(Path path, List<IgnoreRules> rulesChain) {
+
+		if (!path.toString().endsWith(".java")) {
+			return false;
+		}
+		Path relativePath = relativize(path);
+		return (includes.isEmpty() || includes.stream().anyMatch(matcher -> matcher.matches(relativePath)))
+				&& excludes.stream().noneMatch(matcher -> matcher.matches(relativePath))
+				&& !IgnoreRules.isIgnored(rulesChain, path, false);
+	}
+
+	/**
+	 * Checks if a path below the root would be walked, for a directory, or
+	 * streamed, for a file. The '.gitignore' files from the root down to the path
+	 * are read again on every call.
+	 *
+	 * @param path The path
+	 * @return If the path is accepted
+	 */
+	public boolean accepts(Path path) {
+
+		if (!path.startsWith(root)) {
+			return false;
+		}
+		if (path.equals(root)) {
+			return true;
+		}
+
+		List<IgnoreRules> rulesChain = new ArrayList<>();
+		Path directory = root;
+		Path relativePath = root.relativize(path);
+		for (int i = 0; i < relativePath.getNameCount(); i++) {
+			Path ignoreFilePath = directory.resolve(".gitignore");
+			if (Files.isRegularFile(ignoreFilePath)) {
+				try {
+					rulesChain.add(IgnoreRules.read(ignoreFilePath));
+				} catch (IOException ioException) {
+					warningLog.accept("Error reading " + ignoreFilePath);
+				}
+			}
+			Path current = directory.resolve(relativePath.getName(i));
+			if (i == relativePath.getNameCount() - 1 && !Files.isDirectory(current)) {
+				return isIncludedFile(current, rulesChain);
+			}
+			if (isSkippedDirectory(current, rulesChain)) {
+				return false;
+			}
+			directory = current;
+		}
+		return true;
+	}
+
+	/**
+	 * Starts the walk and streams the Java files while the walk goes on, depth
+	 * first in the order of the names
+	 *
+	 * @return The stream of the Java files
+	 */
+	public Stream<Path> stream() {
+
+		try {
+			visitedDirectories.add(root.toRealPath());
+		} catch (IOException ioException) {
+			warningLog.accept("Error walking " + root + ", Reason: " + ioException.getLocalizedMessage());
+			return Stream.empty();
+		}
+		DirectoryWalkTask rootTask = new DirectoryWalkTask(root, Collections.emptyList());
+		pool.execute(rootTask);
+
+		// The entries of the directories being streamed, the innermost first
+		Deque<Deque<Object>> openDirectories = new ArrayDeque<>();
+		Spliterator<Path> spliterator = new Spliterators.AbstractSpliterator<Path>(Long.MAX_VALUE,
+				Spliterator.NONNULL | Spliterator.ORDERED) {
+
+			private DirectoryWalkTask nextTask = rootTask;
+
+			@Override
+			public boolean tryAdvance(Consumer<? super Path> action) {
+
+				while (true) {
+					if (nextTask != null) {
+						DirectoryWalkTask task = nextTask;
+						nextTask = null;
+						task.quietlyJoin();
+						if (task.isCompletedAbnormally()) {
+							warningLog.accept("Error walking " + task.directory + ", Reason: "
+									+ task.getException().getLocalizedMessage());
+						} else {
+							openDirectories.push(task.entries);
+						}
+					}
+					Deque<Object> entries = openDirectories.peek();
+					if (entries == null) {
+						return false;
+					}
+					Object entry = entries.poll();
+					if (entry == null) {
+						openDirectories.pop();
+					} else if (entry instanceof DirectoryWalkTask) {
+						nextTask = (DirectoryWalkTask) entry;
+					} else {
+						pendingCount.decrementAndGet();
+						action.accept((Path) entry);
+						return true;
+					}
+				}
+			}
+		};
+		return StreamSupport.stream(spliterator, false);
+	}
+
+	/**
+	 * Gets the number of files found but not consumed yet
+	 *
+	 * @return The number of files
+	 */
+	public int getPendingCount() {
+
+		return pendingCount.get();
+	}
+
+	@Override
+	public void close() {
+
+		pool.shutdownNow();
+	}
+}
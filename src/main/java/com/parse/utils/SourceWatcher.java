@@ -0,0 +1,195 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The SourceWatcher. It watches the Java files of a directory tree, or a single
+ * Java file, and reports them in batches as they change.
+ *
+ * <p>
+ * Editors save a file with several events, and a build or a version control
+ * checkout changes many files at once. The watcher waits for the events to
+ * stop for the debounce time before it reports the batch, thus each file is
+ * reported once per burst.
+ */
+public class SourceWatcher implements AutoCloseable {
+
+	/**
+	 * The default quiet time that ends a burst of events
+	 */
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+	/**
+	 * The watched directory, null if a single file is watched
+	 */
+	private final Path root;
+
+	/**
+	 * The absolute path of the watched file, null if a directory is watched
+	 */
+	private final Path watchedFile;
+
+	/**
+	 * The filter of the watched files and directories
+	 */
+	private final Predicate<Path> filter;
+
+	/**
+	 * The quiet time that ends a burst of events
+	 */
+	private final long debounceMillis;
+
+	/**
+	 * The file system events
+	 */
+	private final WatchService watchService;
+
+	/**
+	 * The watched directories, keyed by their registration
+	 */
+	private final Map<WatchKey, Path> directories = new HashMap<>();
+
+	public SourceWatcher(Path root, Predicate<Path> filter, long debounceMillis) throws IOException {
+		super();
+		boolean directory = Files.isDirectory(root);
+		this.root = directory ? root : null;
+		this.watchedFile = directory ? null : root.toAbsolutePath();
+		this.filter = filter;
+		this.debounceMillis = debounceMillis;
+		this.watchService = root.getFileSystem().newWatchService();
+		if (directory) {
+			registerTree(root);
+		} else {
+			register(watchedFile.getParent());
+		}
+	}
+
+	/**
+	 * Watches a directory
+	 *
+	 * @param directory The directory
+	 * @throws IOException If the directory could not be watched
+	 */
+	private void register(Path directory) throws IOException {
+
+		WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		directories.put(key, directory);
+	}
+
+	/**
+	 * Watches a directory and its accepted sub-directories
+	 *
+	 * @param directory The directory
+	 * @throws IOException If a directory could not be watched
+	 */
+	private void registerTree(Path directory) throws IOException {
+
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) throws IOException {
+
+				if (!filter.test(path)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				register(path);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Checks if a path is a watched Java file
+	 *
+	 * @param path The path
+	 * @return If the path is watched
+	 */
+	private boolean isWatchedFile(Path path) {
+
+		if (watchedFile != null) {
+			return path.equals(watchedFile);
+		}
+		return path.toString().endsWith(".java") && !Files.isDirectory(path) && filter.test(path);
+	}
+
+	/**
+	 * Adds the changes of a directory to the batch
+	 *
+	 * @param key     The registration of the directory
+	 * @param changes The changed files
+	 * @throws IOException If a new directory could not be watched
+	 */
+	private void collect(WatchKey key, Set<Path> changes) throws IOException {
+
+		Path directory = directories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				// Events were lost, every file is reported
+				try (Stream<Path> paths = Files.walk(root != null ? root : watchedFile)) {
+					paths.filter(this::isWatchedFile).forEach(changes::add);
+				}
+				continue;
+			}
+			Path path = directory.resolve((Path) event.context());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && root != null && Files.isDirectory(path)
+					&& filter.test(path)) {
+				// A new directory may already hold files, e.g. when moved in
+				registerTree(path);
+				try (Stream<Path> paths = Files.walk(path)) {
+					paths.filter(this::isWatchedFile).forEach(changes::add);
+				}
+			} else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE
+					? path.toString().endsWith(".java") && (watchedFile == null || path.equals(watchedFile))
+					: isWatchedFile(path)) {
+				changes.add(path);
+			}
+		}
+		if (!key.reset()) {
+			directories.remove(key);
+		}
+	}
+
+	/**
+	 * Waits for a burst of changes and returns the changed files once the burst
+	 * is over. A deleted file is reported too, and no longer exists.
+	 *
+	 * @return The changed files, in path order
+	 * @throws InterruptedException If interrupted while waiting
+	 * @throws IOException          If a new directory could not be watched
+	 */
+	public Set<Path> awaitChanges() throws InterruptedException, IOException {
+
+		Set<Path> changes = new TreeSet<>();
+		while (changes.isEmpty()) {
+			collect(watchService.take(), changes);
+			WatchKey key;
+			while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+				collect(key, changes);
+			}
+		}
+		return changes;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		watchService.close();
+	}
+}
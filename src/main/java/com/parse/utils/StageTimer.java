@@ -0,0 +1,154 @@
+package com.parse.utils;
+
+import com.parse.events.ProcessingEvents;
+import com.parse.models.FileTimingInfo;
+
+/**
+ * The utility class StageTimer. It adds up the time each stage of the
+ * processing of a file takes, in nanoseconds, and the bytes it allocates, for
+ * the file the current thread processes. A stage run several times for a file,
+ * e.g. once per member of a streamed file, is added up. The allocation is
+ * counted only if the JVM provides the allocated bytes of each thread.
+ */
+public class StageTimer {
+
+	/**
+	 * The stages of the processing of a file
+	 */
+	public enum Stage {
+		/**
+		 * Reading the file
+		 */
+		READ("read"),
+		/**
+		 * Formatting the code with the Eclipse formatter, before the transform
+		 */
+		PRE_FORMAT("pre-format"),
+		/**
+		 * Transforming the lines of the control statements
+		 */
+		TRANSFORM("transform"),
+		/**
+		 * Formatting the updated code with google-java-format
+		 */
+		GOOGLE_FORMAT("google-format"),
+		/**
+		 * Writing the updated code
+		 */
+		WRITE("write"),
+		/**
+		 * Finding the line numbers of the predicates and writing the predicate file
+		 */
+		RECORD("record");
+
+		/**
+		 * The name of the stage in the reports
+		 */
+		private final String label;
+
+		private Stage(String label) {
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	/**
+	 * The timing of the file processed by each thread, null if the thread is not
+	 * timing a file
+	 */
+	private static ThreadLocal<FileTimingInfo> fileTiming = new ThreadLocal<>();
+
+	/**
+	 * The bytes the current thread had allocated at the start of its current
+	 * stage
+	 */
+	private static ThreadLocal<long[]> stageStartBytes = ThreadLocal.withInitial(() -> new long[1]);
+
+	private StageTimer() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Starts timing a file on the current thread
+	 *
+	 * @param path The file path
+	 */
+	public static void start(String path) {
+
+		int stageCount = Stage.values().length;
+		fileTiming.set(new FileTimingInfo(path, 0, new long[stageCount], 0, 0, new long[stageCount]));
+	}
+
+	/**
+	 * Sets the size of the file the current thread is timing
+	 *
+	 * @param inputBytes The size of the file
+	 */
+	public static void setInputBytes(long inputBytes) {
+
+		FileTimingInfo timing = fileTiming.get();
+		if (timing != null) {
+			timing.setInputBytes(inputBytes);
+		}
+	}
+
+	/**
+	 * Begins a stage, and its flight recorder event if a recording is running
+	 *
+	 * @return The start of the stage, as given by System.nanoTime()
+	 */
+	public static long begin() {
+
+		ProcessingEvents.beginStage();
+		if (fileTiming.get() != null) {
+			stageStartBytes.get()[0] = ThreadAllocation.getAllocatedBytes();
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Adds the time since the start of a stage, and the bytes allocated since.
+	 * Nothing is added if the current thread is not timing a file.
+	 *
+	 * @param stage      The stage
+	 * @param startNanos The start of the stage, as given by {@link #begin()}
+	 */
+	public static void add(Stage stage, long startNanos) {
+
+		long nanos = System.nanoTime() - startNanos;
+		ProcessingEvents.endStage(stage);
+		FileTimingInfo timing = fileTiming.get();
+		if (timing != null) {
+			timing.getStageNanos()[stage.ordinal()] += nanos;
+			timing.getStageAllocatedBytes()[stage.ordinal()] += ThreadAllocation.getAllocatedBytes()
+					- stageStartBytes.get()[0];
+		}
+	}
+
+	/**
+	 * Stops timing the file on the current thread
+	 *
+	 * @return The timing of the file, with the time and allocation of each stage
+	 *         indexed by the ordinal of the stage, null if the thread was not
+	 *         timing a file
+	 */
+	public static FileTimingInfo finish() {
+
+		FileTimingInfo timing = fileTiming.get();
+		fileTiming.remove();
+		if (timing != null) {
+			long nanos = 0;
+			long allocatedBytes = 0;
+			for (Stage stage : Stage.values()) {
+				nanos += timing.getStageNanos()[stage.ordinal()];
+				allocatedBytes += timing.getStageAllocatedBytes()[stage.ordinal()];
+			}
+			timing.setNanos(nanos);
+			timing.setAllocatedBytes(allocatedBytes);
+		}
+		return timing;
+	}
+}
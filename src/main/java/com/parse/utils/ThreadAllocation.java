@@ -0,0 +1,58 @@
+package com.parse.utils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * The utility class ThreadAllocation. It reads the bytes allocated by the
+ * current thread, as counted by a HotSpot compatible JVM.
+ */
+public class ThreadAllocation {
+
+	/**
+	 * The holder of the thread allocation counter, null if the JVM does not
+	 * provide it. The management classes are loaded only when it is first read.
+	 */
+	private static class ThreadBeanHolder {
+
+		private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+	}
+
+	private ThreadAllocation() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadBean() {
+
+		try {
+			java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+			if (threadBean instanceof com.sun.management.ThreadMXBean
+					&& ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+				((com.sun.management.ThreadMXBean) threadBean).setThreadAllocatedMemoryEnabled(true);
+				return (com.sun.management.ThreadMXBean) threadBean;
+			}
+		} catch (LinkageError | UnsupportedOperationException exception) {
+			// Not a HotSpot compatible JVM, the allocation is not counted
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if the JVM counts the bytes allocated by each thread
+	 *
+	 * @return If the allocation is counted
+	 */
+	public static boolean isSupported() {
+		return ThreadBeanHolder.THREAD_BEAN != null;
+	}
+
+	/**
+	 * Gets the bytes allocated by the current thread since it started
+	 *
+	 * @return The allocated bytes, zero if the allocation is not counted
+	 */
+	public static long getAllocatedBytes() {
+
+		com.sun.management.ThreadMXBean threadBean = ThreadBeanHolder.THREAD_BEAN;
+		return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,256 @@
+package com.parse.verification;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.parse.models.CompileErrorInfo;
+import com.parse.models.PredicateInfo;
+import com.parse.models.ProcessedFileInfo;
+
+/**
+ * The utility class CompileVerifier. It compiles the instrumented files in the
+ * running JVM, to find the ones the transformation broke without a separate
+ * build of the subjects.
+ *
+ * <p>
+ * The files are grouped by source root, i.e. the directory their package
+ * declaration is relative to, and the roots are compiled in parallel. The
+ * other roots are on the source path, thus a reference across roots resolves.
+ * Each compile error is mapped to the predicate of its line, by the recorded
+ * line numbers or else by the predicate names on the line.
+ */
+public class CompileVerifier {
+
+	/**
+	 * The name of the file listing the compile errors
+	 */
+	public static final String VERIFICATION_FILE_NAME = "verification.txt";
+
+	/**
+	 * The pattern of the package declaration
+	 */
+	private static final Pattern PACKAGE_PATTERN = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;",
+			Pattern.MULTILINE);
+
+	/**
+	 * The pattern of a predicate or sub-predicate name
+	 */
+	private static final Pattern PREDICATE_NAME_PATTERN = Pattern.compile("\\b(P\\d+)(_\\d+)?\\b");
+
+	private CompileVerifier() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Gets the source root of a file, the directory its package is relative to
+	 *
+	 * @param path The file path
+	 * @param code The code
+	 * @return The source root
+	 */
+	static Path getSourceRoot(Path path, String code) {
+
+		Path root = path.toAbsolutePath().getParent();
+		Matcher matcher = PACKAGE_PATTERN.matcher(code);
+		if (matcher.find()) {
+			List<String> packageNames = Arrays.asList(matcher.group(1).split("\\."));
+			Collections.reverse(packageNames);
+			for (String packageName : packageNames) {
+				if (root.getFileName() == null || !root.getFileName().toString().equals(packageName)) {
+					// The directory does not follow the package, thus it is the root
+					return path.toAbsolutePath().getParent();
+				}
+				root = root.getParent();
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Gets the predicate of a line of an instrumented file
+	 *
+	 * @param file       The processed file
+	 * @param lineNumber The line number
+	 * @param line       The line, null if unknown
+	 * @return The predicate, null if the line is not instrumented
+	 */
+	private static PredicateInfo getPredicate(ProcessedFileInfo file, long lineNumber, String line) {
+
+		Map<String, PredicateInfo> predicates = new HashMap<>();
+		file.getPredicates().forEach(predicate -> predicates.put(predicate.getName(), predicate));
+		String lineNumberText = String.valueOf(lineNumber);
+		for (Map.Entry<String, String> entry : file.getLineNumbers().entrySet()) {
+			if (Arrays.asList(entry.getValue().split(", ")).contains(lineNumberText)) {
+				return predicates.get(entry.getKey());
+			}
+		}
+		if (line != null) {
+			// The declarations are not recorded, they are found by name
+			Matcher matcher = PREDICATE_NAME_PATTERN.matcher(line);
+			while (matcher.find()) {
+				if (predicates.containsKey(matcher.group(1))) {
+					return predicates.get(matcher.group(1));
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Compiles the files of a source root
+	 *
+	 * @param compiler    The compiler
+	 * @param sources     The sources of the root
+	 * @param files       The processed files, keyed by the relative path
+	 * @param sourcePath  The source roots
+	 * @param classpath   The class path, null if none
+	 * @param classes     The compiled classes, keyed by the binary name
+	 * @return The compile errors
+	 * @throws IOException If the file manager could not be set up
+	 */
+	private static List<CompileErrorInfo> compile(JavaCompiler compiler,
+			List<InMemoryFileManager.SourceObject> sources, Map<String, ProcessedFileInfo> files, String sourcePath,
+			String classpath, Map<String, byte[]> classes) throws IOException {
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		List<String> compilerOptions = new ArrayList<>(Arrays.asList("-proc:none", "-implicit:none", "-nowarn",
+				"-Xmaxerrs", "100000", "-sourcepath", sourcePath));
+		if (classpath != null) {
+			compilerOptions.add("-classpath");
+			compilerOptions.add(classpath);
+		}
+		StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null, null);
+		try (InMemoryFileManager fileManager = new InMemoryFileManager(standardFileManager, classes)) {
+			compiler.getTask(null, fileManager, diagnostics, compilerOptions, null, sources).call();
+		}
+
+		List<CompileErrorInfo> errors = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+				continue;
+			}
+			if (!(diagnostic.getSource() instanceof InMemoryFileManager.SourceObject)) {
+				if (diagnostic.getSource() == null) {
+					errors.add(new CompileErrorInfo("", 0, null, diagnostic.getMessage(null)));
+				}
+				// The other roots report the errors of their own files
+				continue;
+			}
+			InMemoryFileManager.SourceObject source = (InMemoryFileManager.SourceObject) diagnostic.getSource();
+			long lineNumber = diagnostic.getLineNumber();
+			String[] lines = source.getCharContent(true).toString().split("\n");
+			String line = lineNumber > 0 && lineNumber <= lines.length ? lines[(int) lineNumber - 1] : null;
+			errors.add(new CompileErrorInfo(source.getRelativePath(), lineNumber,
+					getPredicate(files.get(source.getRelativePath()), lineNumber, line),
+					diagnostic.getMessage(null).split("\n")[0]));
+		}
+		return errors;
+	}
+
+	/**
+	 * Compiles the instrumented files
+	 *
+	 * @param inputRoot The input root, or the input file
+	 * @param files     The processed files
+	 * @param classpath The class path, null if none
+	 * @param threads   The maximum number of roots compiled at the same time
+	 * @param classes   The map the compiled classes are put into, keyed by the
+	 *                  binary name
+	 * @return The compile errors, by file and line
+	 * @throws IOException If the files could not be read or the compiler is not
+	 *                     available
+	 */
+	public static List<CompileErrorInfo> verify(Path inputRoot, List<ProcessedFileInfo> files, String classpath,
+			int threads, Map<String, byte[]> classes) throws IOException {
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IOException("The Java compiler is not available, a JDK is required");
+		}
+
+		Map<String, ProcessedFileInfo> filesByPath = new HashMap<>();
+		Map<Path, List<InMemoryFileManager.SourceObject>> sourcesByRoot = new LinkedHashMap<>();
+		for (ProcessedFileInfo file : files) {
+			Path path = Files.isDirectory(inputRoot) ? inputRoot.resolve(file.getRelativePath()) : inputRoot;
+			String code = new String(Files.readAllBytes(path));
+			filesByPath.put(file.getRelativePath(), file);
+			sourcesByRoot.computeIfAbsent(getSourceRoot(path, code), root -> new ArrayList<>())
+					.add(new InMemoryFileManager.SourceObject(path, file.getRelativePath(), code));
+		}
+		String sourcePath = sourcesByRoot.keySet().stream().map(Path::toString)
+				.collect(Collectors.joining(File.pathSeparator));
+
+		List<CompileErrorInfo> errors = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, sourcesByRoot.size())));
+		try {
+			List<Future<List<CompileErrorInfo>>> results = new ArrayList<>();
+			for (List<InMemoryFileManager.SourceObject> sources : sourcesByRoot.values()) {
+				results.add(executor
+						.submit(() -> compile(compiler, sources, filesByPath, sourcePath, classpath, classes)));
+			}
+			for (Future<List<CompileErrorInfo>> result : results) {
+				errors.addAll(result.get());
+			}
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compiling", exception);
+		} catch (ExecutionException exception) {
+			throw new IOException("Error compiling: " + exception.getCause().getLocalizedMessage(),
+					exception.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		errors.sort(Comparator.comparing(CompileErrorInfo::getRelativePath)
+				.thenComparingLong(CompileErrorInfo::getLineNumber));
+		return errors;
+	}
+
+	/**
+	 * Writes the compile errors, one per line: the relative path, the line
+	 * number, the predicate name and type, '-' if none, and the message
+	 *
+	 * @param path   The file path
+	 * @param errors The compile errors
+	 * @throws IOException If the file could not be written
+	 */
+	public static void write(Path path, List<CompileErrorInfo> errors) throws IOException {
+
+		try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+			for (CompileErrorInfo error : errors) {
+				PredicateInfo predicate = error.getPredicate();
+				writer.write(StringUtils.join(new Object[] { error.getRelativePath(), error.getLineNumber(),
+						predicate == null ? "-" : predicate.getName(), predicate == null ? "-" : predicate.getType(),
+						error.getMessage() }, '\t'));
+				writer.newLine();
+			}
+		}
+	}
+}
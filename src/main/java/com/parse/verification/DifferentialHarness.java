@@ -0,0 +1,618 @@
+package com.parse.verification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+
+import com.parse.Instrumenter;
+import com.parse.exceptions.InstrumentationException;
+import com.parse.models.DifferentialResultInfo;
+import com.parse.models.ExecutionOptions;
+import com.parse.utils.ShardSelector;
+import com.parse.utils.SourceWalker;
+
+/**
+ * The utility class DifferentialHarness. It checks that the instrumentation
+ * does not change the behavior of a subject, in a single JVM.
+ *
+ * <p>
+ * The sources are instrumented in memory, and both versions are compiled. Every
+ * compared class loads each version, and the class path of the subject, with
+ * class loaders of its own, thus the versions and the classes running in
+ * parallel share no static state. The 'main' method or the JUnit 4 tests of
+ * every class are run in both versions, and the printed output and the thrown
+ * exception, without its stack trace, are compared. The classes run in
+ * parallel, each one runs its versions in turn, and the median run time of each
+ * version gives the slowdown.
+ *
+ * <p>
+ * A run printing more than {@link #OUTPUT_LIMIT_BYTES} is ended by an error
+ * thrown from the print, and a run taking longer than the timeout is abandoned.
+ * A subject calling System.exit ends the harness.
+ */
+public class DifferentialHarness {
+
+	/**
+	 * The maximum output of a run, each of the standard output and error
+	 */
+	public static final int OUTPUT_LIMIT_BYTES = 1024 * 1024;
+
+	/**
+	 * The annotation of a JUnit 4 test
+	 */
+	private static final String JUNIT_TEST_ANNOTATION = "org.junit.Test";
+
+	/**
+	 * The JUnit 4 runner
+	 */
+	private static final String JUNIT_CORE = "org.junit.runner.JUnitCore";
+
+	/**
+	 * The output of the current run, inherited by the threads the run starts
+	 */
+	private static final InheritableThreadLocal<Capture> capture = new InheritableThreadLocal<>();
+
+	private DifferentialHarness() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * The error ending a run that printed too much, e.g. an endless loop
+	 */
+	private static class OutputLimitError extends Error {
+
+		private static final long serialVersionUID = 1L;
+
+		OutputLimitError() {
+			super("output limit of " + OUTPUT_LIMIT_BYTES + " bytes reached");
+		}
+	}
+
+	/**
+	 * The printed output of a run
+	 */
+	private static class Capture {
+
+		/**
+		 * The standard output
+		 */
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		/**
+		 * The standard error
+		 */
+		private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+	}
+
+	/**
+	 * The stream replacing the standard output or error. It writes to the
+	 * capture of the current thread, if any, and else to the replaced stream.
+	 */
+	private static class CapturingOutputStream extends OutputStream {
+
+		/**
+		 * The replaced stream
+		 */
+		private final PrintStream fallback;
+
+		/**
+		 * If the standard error is replaced
+		 */
+		private final boolean error;
+
+		CapturingOutputStream(PrintStream fallback, boolean error) {
+			this.fallback = fallback;
+			this.error = error;
+		}
+
+		@Override
+		public void write(int b) {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) {
+
+			Capture currentCapture = capture.get();
+			if (currentCapture == null) {
+				fallback.write(bytes, offset, length);
+				return;
+			}
+			ByteArrayOutputStream target = error ? currentCapture.err : currentCapture.out;
+			synchronized (target) {
+				if (target.size() + length > OUTPUT_LIMIT_BYTES) {
+					throw new OutputLimitError();
+				}
+				target.write(bytes, offset, length);
+			}
+		}
+
+		@Override
+		public void flush() {
+			if (capture.get() == null) {
+				fallback.flush();
+			}
+		}
+	}
+
+	/**
+	 * The class loader of a version of the subject, which loads the compiled
+	 * classes and its own copy of the class path
+	 */
+	private static class SubjectClassLoader extends URLClassLoader {
+
+		/**
+		 * The compiled classes, keyed by the binary name
+		 */
+		private final Map<String, byte[]> classes;
+
+		SubjectClassLoader(URL[] classpath, Map<String, byte[]> classes) {
+			// The parent only loads the platform classes, not the classes of the tool
+			super(classpath, ClassLoader.getSystemClassLoader().getParent());
+			this.classes = classes;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+
+			byte[] bytes = classes.get(name);
+			if (bytes != null) {
+				return defineClass(name, bytes, 0, bytes.length);
+			}
+			return super.findClass(name);
+		}
+	}
+
+	/**
+	 * The outcome and the run time of a run
+	 */
+	private static class Execution {
+
+		/**
+		 * The printed output and the thrown exception
+		 */
+		private final String outcome;
+
+		/**
+		 * The run time in nanoseconds
+		 */
+		private final long nanos;
+
+		Execution(String outcome, long nanos) {
+			this.outcome = outcome;
+			this.nanos = nanos;
+		}
+	}
+
+	/**
+	 * Compiles a source alone, the other classes are resolved from the source
+	 * path
+	 *
+	 * @param compiler   The compiler
+	 * @param source     The source
+	 * @param sourcePath The source roots of the original subject
+	 * @param classpath  The class path, null if none
+	 * @param classes    The map the compiled classes are put into
+	 * @return The first compile error, null if compiled
+	 * @throws IOException If the file manager could not be set up
+	 */
+	private static String compile(JavaCompiler compiler, JavaFileObject source, String sourcePath, String classpath,
+			Map<String, byte[]> classes) throws IOException {
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		List<String> compilerOptions = new ArrayList<>(
+				Arrays.asList("-proc:none", "-implicit:none", "-nowarn", "-g", "-sourcepath", sourcePath));
+		if (classpath != null) {
+			compilerOptions.add("-classpath");
+			compilerOptions.add(classpath);
+		}
+		try (InMemoryFileManager fileManager = new InMemoryFileManager(
+				compiler.getStandardFileManager(diagnostics, null, null), classes)) {
+			if (compiler.getTask(null, fileManager, diagnostics, compilerOptions, null,
+					Collections.singletonList(source)).call()) {
+				return null;
+			}
+		}
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+				return diagnostic.getLineNumber() + ": " + diagnostic.getMessage(null).split("\n")[0];
+			}
+		}
+		return "compilation failed";
+	}
+
+	/**
+	 * Gets the entry point of a class: its 'main' method, or the JUnit runner if
+	 * it has JUnit 4 tests
+	 *
+	 * @param subject The class
+	 * @return The entry point, null if the class can not be run
+	 */
+	private static Method getEntryPoint(Class<?> subject) {
+
+		try {
+			Method main = subject.getDeclaredMethod("main", String[].class);
+			if (Modifier.isStatic(main.getModifiers()) && main.getReturnType() == void.class) {
+				main.setAccessible(true);
+				return main;
+			}
+		} catch (NoSuchMethodException | NoClassDefFoundError exception) {
+			// Looking for tests below
+		}
+		try {
+			for (Method method : subject.getMethods()) {
+				for (Annotation annotation : method.getAnnotations()) {
+					if (JUNIT_TEST_ANNOTATION.equals(annotation.annotationType().getName())) {
+						return Class.forName(JUNIT_CORE, false, subject.getClassLoader()).getMethod("runClasses",
+								Class[].class);
+					}
+				}
+			}
+		} catch (ClassNotFoundException | NoSuchMethodException | NoClassDefFoundError exception) {
+			// The tests can not be run without JUnit on the class path
+		}
+		return null;
+	}
+
+	/**
+	 * Runs a class in its own thread, capturing its output
+	 *
+	 * @param subject       The class
+	 * @param entryPoint    The entry point of the class
+	 * @param timeoutMillis The maximum run time
+	 * @return The outcome and the run time
+	 * @throws InterruptedException If interrupted while waiting for the run
+	 */
+	private static Execution execute(Class<?> subject, Method entryPoint, long timeoutMillis)
+			throws InterruptedException {
+
+		Capture runCapture = new Capture();
+		Throwable[] thrown = new Throwable[1];
+		Object[] returned = new Object[1];
+		long[] nanos = new long[1];
+		Thread thread = new Thread(() -> {
+			capture.set(runCapture);
+			long start = System.nanoTime();
+			try {
+				if (entryPoint.getDeclaringClass() == subject) {
+					entryPoint.invoke(null, (Object) new String[0]);
+				} else {
+					returned[0] = entryPoint.invoke(null, (Object) new Class<?>[] { subject });
+				}
+			} catch (InvocationTargetException exception) {
+				thrown[0] = exception.getCause();
+			} catch (Throwable throwable) {
+				thrown[0] = throwable;
+			} finally {
+				nanos[0] = System.nanoTime() - start;
+			}
+		}, "differential-" + subject.getName());
+		thread.setDaemon(true);
+		thread.setContextClassLoader(subject.getClassLoader());
+		thread.start();
+		thread.join(timeoutMillis);
+		if (thread.isAlive()) {
+			// The thread can not be stopped safely, it is left behind
+			return new Execution("timeout after " + timeoutMillis + " ms", timeoutMillis * 1000000);
+		}
+
+		StringBuilder outcomeBuilder = new StringBuilder();
+		outcomeBuilder.append("out:\n").append(new String(runCapture.out.toByteArray()));
+		outcomeBuilder.append("\nerr:\n").append(new String(runCapture.err.toByteArray()));
+		if (returned[0] != null) {
+			outcomeBuilder.append("\ntests:\n").append(describeTestResult(returned[0]));
+		}
+		outcomeBuilder.append("\nthrown: ");
+		outcomeBuilder.append(thrown[0] == null ? "-"
+				: thrown[0] instanceof OutputLimitError ? thrown[0].getMessage()
+						: thrown[0].getClass().getName() + ": " + thrown[0].getMessage());
+		return new Execution(outcomeBuilder.toString(), nanos[0]);
+	}
+
+	/**
+	 * Describes the result of a JUnit run: the counts and the failed tests
+	 *
+	 * @param result The JUnit result
+	 * @return The description
+	 */
+	private static String describeTestResult(Object result) {
+
+		try {
+			StringBuilder descriptionBuilder = new StringBuilder();
+			descriptionBuilder.append("runs=").append(result.getClass().getMethod("getRunCount").invoke(result));
+			descriptionBuilder.append(" failures=")
+					.append(result.getClass().getMethod("getFailureCount").invoke(result));
+			List<String> failures = new ArrayList<>();
+			for (Object failure : (List<?>) result.getClass().getMethod("getFailures").invoke(result)) {
+				failures.add(failure.getClass().getMethod("getTestHeader").invoke(failure) + ": "
+						+ failure.getClass().getMethod("getMessage").invoke(failure));
+			}
+			Collections.sort(failures);
+			failures.forEach(failure -> descriptionBuilder.append('\n').append(failure));
+			return descriptionBuilder.toString();
+		} catch (ReflectiveOperationException exception) {
+			return String.valueOf(result);
+		}
+	}
+
+	/**
+	 * Gets the median of run times
+	 *
+	 * @param nanos The run times
+	 * @return The median
+	 */
+	private static long median(List<Long> nanos) {
+
+		List<Long> sortedNanos = new ArrayList<>(nanos);
+		Collections.sort(sortedNanos);
+		return sortedNanos.get(sortedNanos.size() / 2);
+	}
+
+	/**
+	 * Runs a class in both versions, each loaded by a class loader of its own
+	 *
+	 * @param className           The binary name of the class
+	 * @param classpathUrls       The class path of the subject
+	 * @param originalClasses     The classes of the original version
+	 * @param instrumentedClasses The classes of the instrumented version
+	 * @param runs                The number of runs of each version
+	 * @param timeoutMillis       The maximum run time
+	 * @return The result, null if the class can not be run
+	 * @throws Exception If the class could not be loaded or the run was
+	 *                   interrupted
+	 */
+	private static DifferentialResultInfo compare(String className, URL[] classpathUrls,
+			Map<String, byte[]> originalClasses, Map<String, byte[]> instrumentedClasses, int runs,
+			long timeoutMillis) throws Exception {
+
+		try (SubjectClassLoader originalLoader = new SubjectClassLoader(classpathUrls, originalClasses);
+				SubjectClassLoader instrumentedLoader = new SubjectClassLoader(classpathUrls, instrumentedClasses)) {
+			return compare(className, originalLoader, instrumentedLoader, runs, timeoutMillis);
+		}
+	}
+
+	/**
+	 * Runs a class in both versions
+	 *
+	 * @param className          The binary name of the class
+	 * @param originalLoader     The class loader of the original version
+	 * @param instrumentedLoader The class loader of the instrumented version
+	 * @param runs               The number of runs of each version
+	 * @param timeoutMillis      The maximum run time
+	 * @return The result, null if the class can not be run
+	 * @throws Exception If the class could not be loaded or the run was
+	 *                   interrupted
+	 */
+	private static DifferentialResultInfo compare(String className, ClassLoader originalLoader,
+			ClassLoader instrumentedLoader, int runs, long timeoutMillis) throws Exception {
+
+		Class<?> original = Class.forName(className, false, originalLoader);
+		Method originalEntryPoint = getEntryPoint(original);
+		if (originalEntryPoint == null) {
+			return null;
+		}
+		Class<?> instrumented = Class.forName(className, false, instrumentedLoader);
+		Method instrumentedEntryPoint = getEntryPoint(instrumented);
+		if (instrumentedEntryPoint == null) {
+			return new DifferentialResultInfo(className, "runnable", "not runnable", 0, 0);
+		}
+
+		// The first run gives the outcomes, the others the run times
+		Execution originalExecution = execute(original, originalEntryPoint, timeoutMillis);
+		Execution instrumentedExecution = execute(instrumented, instrumentedEntryPoint, timeoutMillis);
+		String originalOutcome = originalExecution.outcome;
+		String instrumentedOutcome = instrumentedExecution.outcome;
+		List<Long> originalNanos = new ArrayList<>(Collections.singletonList(originalExecution.nanos));
+		List<Long> instrumentedNanos = new ArrayList<>(Collections.singletonList(instrumentedExecution.nanos));
+		boolean timedOut = originalOutcome.startsWith("timeout") || instrumentedOutcome.startsWith("timeout");
+		if (runs > 1 && !timedOut) {
+			originalNanos.clear();
+			instrumentedNanos.clear();
+			for (int run = 1; run < runs; run++) {
+				// The versions take turns in both orders, thus a load change or the
+				// warm-up of the JVM slows both down
+				if (run % 2 == 0) {
+					originalNanos.add(execute(original, originalEntryPoint, timeoutMillis).nanos);
+				}
+				instrumentedNanos.add(execute(instrumented, instrumentedEntryPoint, timeoutMillis).nanos);
+				if (run % 2 == 1) {
+					originalNanos.add(execute(original, originalEntryPoint, timeoutMillis).nanos);
+				}
+			}
+		}
+		return new DifferentialResultInfo(className, originalOutcome, instrumentedOutcome, median(originalNanos),
+				median(instrumentedNanos));
+	}
+
+	/**
+	 * Instruments, compiles and runs the sources of a subject in both versions
+	 *
+	 * @param sourcePaths   The sources
+	 * @param inputRoot     The input root
+	 * @param classpath     The class path of the subject, null if none
+	 * @param threads       The number of classes run at the same time
+	 * @param runs          The number of runs of each version
+	 * @param timeoutMillis The maximum run time
+	 * @return The results, in class name order
+	 * @throws IOException If the sources could not be read or compiled
+	 */
+	public static List<DifferentialResultInfo> compare(List<Path> sourcePaths, Path inputRoot, String classpath,
+			int threads, int runs, long timeoutMillis) throws IOException {
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IOException("The Java compiler is not available, a JDK is required");
+		}
+
+		Set<Path> sourceRoots = new LinkedHashSet<>();
+		Map<Path, String> codes = new ConcurrentHashMap<>();
+		for (Path sourcePath : sourcePaths) {
+			String code = new String(Files.readAllBytes(sourcePath));
+			codes.put(sourcePath, code);
+			sourceRoots.add(CompileVerifier.getSourceRoot(sourcePath, code));
+		}
+		String sourcePath = sourceRoots.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator));
+
+		Map<String, byte[]> originalClasses = new ConcurrentHashMap<>();
+		Map<String, byte[]> instrumentedClasses = new ConcurrentHashMap<>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<String>> compilations = new ArrayList<>();
+			for (Path path : sourcePaths) {
+				compilations.add(executor.submit(() -> {
+					String relativePath = ShardSelector.getRelativePath(inputRoot, path);
+					String code = codes.get(path);
+					String error = compile(compiler, new InMemoryFileManager.SourceObject(path, relativePath, code),
+							sourcePath, classpath, originalClasses);
+					if (error != null) {
+						return "Skipping " + relativePath + ", it does not compile: " + error;
+					}
+					try {
+						error = compile(compiler, new InMemoryFileManager.SourceObject(path, relativePath,
+								Instrumenter.instrument(code).getCode()), sourcePath, classpath, instrumentedClasses);
+					} catch (InstrumentationException exception) {
+						return "Skipping " + relativePath + ", it could not be instrumented: " + exception.getMessage();
+					}
+					return error == null ? null
+							: "Skipping " + relativePath + ", its instrumented version does not compile: " + error;
+				}));
+			}
+			for (Future<String> compilation : compilations) {
+				String message = compilation.get();
+				if (message != null) {
+					System.out.println(message);
+				}
+			}
+
+			URL[] classpathUrls = toUrls(classpath);
+			PrintStream standardOutput = System.out;
+			PrintStream standardError = System.err;
+			System.setOut(new PrintStream(new CapturingOutputStream(standardOutput, false), true));
+			System.setErr(new PrintStream(new CapturingOutputStream(standardError, true), true));
+			try {
+				List<Future<DifferentialResultInfo>> comparisons = new ArrayList<>();
+				for (String className : new TreeSet<>(instrumentedClasses.keySet())) {
+					if (originalClasses.containsKey(className)) {
+						comparisons.add(executor.submit(() -> compare(className, classpathUrls, originalClasses,
+								instrumentedClasses, runs, timeoutMillis)));
+					}
+				}
+				List<DifferentialResultInfo> results = new ArrayList<>();
+				for (Future<DifferentialResultInfo> comparison : comparisons) {
+					DifferentialResultInfo result = comparison.get();
+					if (result != null) {
+						results.add(result);
+					}
+				}
+				return results;
+			} finally {
+				System.setOut(standardOutput);
+				System.setErr(standardError);
+			}
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while comparing", exception);
+		} catch (ExecutionException exception) {
+			throw new IOException("Error comparing: " + exception.getCause(), exception.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Converts a class path to URLs
+	 *
+	 * @param classpath The class path, null if none
+	 * @return The URLs
+	 * @throws MalformedURLException If an entry is not a valid path
+	 */
+	private static URL[] toUrls(String classpath) throws MalformedURLException {
+
+		if (classpath == null || classpath.isEmpty()) {
+			return new URL[0];
+		}
+		List<URL> urls = new ArrayList<>();
+		for (String entry : classpath.split(File.pathSeparator)) {
+			urls.add(Paths.get(entry).toUri().toURL());
+		}
+		return urls.toArray(new URL[0]);
+	}
+
+	/**
+	 * Compares the subject given by the options and prints the results
+	 *
+	 * @param options The execution options
+	 * @return If both versions of every class behaved the same
+	 */
+	public static boolean run(ExecutionOptions options) {
+
+		Path inputPath = options.getInputPath();
+		List<Path> sourcePaths;
+		try {
+			if (Files.isDirectory(inputPath)) {
+				try (SourceWalker walker = new SourceWalker(inputPath, options.getIncludeGlobs(),
+						options.getExcludeGlobs(), options.isDefaultExcludes())) {
+					sourcePaths = walker.stream().sorted().collect(Collectors.toList());
+				}
+			} else {
+				sourcePaths = Collections.singletonList(inputPath);
+			}
+
+			List<DifferentialResultInfo> results = compare(sourcePaths, inputPath, options.getVerifyClasspath(),
+					options.getThreads(), options.getRuns(), options.getRunTimeoutMillis());
+			boolean same = true;
+			for (DifferentialResultInfo result : results) {
+				System.out.println(String.format("%-9s %-60s %10.3f ms %10.3f ms %6.2fx",
+						result.isSame() ? "SAME" : "DIFFERENT", result.getClassName(),
+						result.getOriginalNanos() / 1e6, result.getInstrumentedNanos() / 1e6, result.getSlowdown()));
+				if (!result.isSame()) {
+					same = false;
+					System.out.println("--- original\n" + result.getOriginalOutcome());
+					System.out.println("--- instrumented\n" + result.getInstrumentedOutcome());
+				}
+			}
+			System.out.println(results.size() + " classes run, "
+					+ results.stream().filter(result -> !result.isSame()).count() + " behaved differently.");
+			return same;
+		} catch (IOException ioException) {
+			System.out.println("Error comparing the versions. Reason: " + ioException.getLocalizedMessage());
+			return false;
+		}
+	}
+}
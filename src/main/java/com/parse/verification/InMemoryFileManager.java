@@ -0,0 +1,108 @@
+package com.parse.verification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * The InMemoryFileManager. It keeps the classes compiled by the verification
+ * in a map shared by all the compilations, instead of writing them to the file
+ * system, and provides the sources from memory.
+ */
+public class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+	/**
+	 * An instrumented source, read once
+	 */
+	public static class SourceObject extends SimpleJavaFileObject {
+
+		/**
+		 * The file path, relative to the input root
+		 */
+		private final String relativePath;
+
+		/**
+		 * The code
+		 */
+		private final String code;
+
+		public SourceObject(Path path, String relativePath, String code) {
+			super(path.toUri(), JavaFileObject.Kind.SOURCE);
+			this.relativePath = relativePath;
+			this.code = code;
+		}
+
+		public String getRelativePath() {
+			return relativePath;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+
+	/**
+	 * A compiled class, stored in the shared map when written
+	 */
+	private static class ClassObject extends SimpleJavaFileObject {
+
+		/**
+		 * The binary name of the class
+		 */
+		private final String className;
+
+		/**
+		 * The compiled classes, keyed by the binary name
+		 */
+		private final Map<String, byte[]> classes;
+
+		ClassObject(String className, Map<String, byte[]> classes) {
+			super(URI.create("memory:///" + className.replace('.', '/') + JavaFileObject.Kind.CLASS.extension),
+					JavaFileObject.Kind.CLASS);
+			this.className = className;
+			this.classes = classes;
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return new ByteArrayOutputStream() {
+
+				@Override
+				public void close() throws IOException {
+					super.close();
+					classes.put(className, toByteArray());
+				}
+			};
+		}
+	}
+
+	/**
+	 * The compiled classes, keyed by the binary name
+	 */
+	private final Map<String, byte[]> classes;
+
+	public InMemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+		super(fileManager);
+		this.classes = classes;
+	}
+
+	@Override
+	public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+			FileObject sibling) throws IOException {
+
+		if (kind == JavaFileObject.Kind.CLASS) {
+			return new ClassObject(className, classes);
+		}
+		return super.getJavaFileForOutput(location, className, kind, sibling);
+	}
+}
@@ -0,0 +1,37 @@
+package com.parse.utils;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorDelimiterFinder. It finds the first delimiter a vector register of
+ * characters at a time, using the Vector API of JDK 17+. It is loaded by the
+ * {@link DelimiterScanner} only if the JVM is started with '--add-modules
+ * jdk.incubator.vector'.
+ */
+class VectorDelimiterFinder implements DelimiterScanner.Finder {
+
+	/**
+	 * The widest vector of 16 bit lanes of the platform
+	 */
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+	@Override
+	public int find(char[] chars, int from, int to) {
+
+		int index = from;
+		int bound = from + SPECIES.loopBound(to - from);
+		for (; index < bound; index += SPECIES.length()) {
+			ShortVector vector = ShortVector.fromCharArray(SPECIES, chars, index);
+			VectorMask<Short> found = vector.eq((short) '"').or(vector.eq((short) '\''))
+					.or(vector.eq((short) '/')).or(vector.eq((short) '*')).or(vector.eq((short) '&'))
+					.or(vector.eq((short) '|')).or(vector.eq((short) '(')).or(vector.eq((short) ')'));
+			if (found.anyTrue()) {
+				return index + found.firstTrue();
+			}
+		}
+		// The tail shorter than a vector
+		return DelimiterScanner.findInLanes(chars, index, to);
+	}
+}